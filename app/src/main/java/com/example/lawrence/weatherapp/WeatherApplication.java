@@ -0,0 +1,230 @@
+package com.example.lawrence.weatherapp;
+
+import android.annotation.TargetApi;
+import android.app.Application;
+import android.os.Build;
+import android.util.Log;
+
+import com.example.lawrence.weatherapp.background.AlarmTimer;
+import com.example.lawrence.weatherapp.background.ConnectivityReceiver;
+import com.example.lawrence.weatherapp.data.ForecastArchive;
+import com.example.lawrence.weatherapp.data.ForecastRepository;
+import com.example.lawrence.weatherapp.data.ForecastStore;
+import com.example.lawrence.weatherapp.location.LocationRegistry;
+import com.example.lawrence.weatherapp.metrics.Metrics;
+import com.example.lawrence.weatherapp.network.ForecastClient;
+import com.example.lawrence.weatherapp.network.ForecastFetchEngine;
+import com.example.lawrence.weatherapp.network.PayloadCapture;
+import com.example.lawrence.weatherapp.network.RefreshQueue;
+import com.example.lawrence.weatherapp.network.RefreshScheduler;
+import com.example.lawrence.weatherapp.network.RequestGovernor;
+import com.example.lawrence.weatherapp.network.TileCache;
+import com.example.lawrence.weatherapp.ui.IconCache;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import okhttp3.HttpUrl;
+
+// Application object that owns the app-wide (shared between activities) pieces.
+// It is created before any activity and lives as long as the process does.
+public class WeatherApplication extends Application {
+
+    public static final String TAG = WeatherApplication.class.getSimpleName();
+
+    private static final String FORECAST_URL = "https://api.forecast.io/forecast/";
+
+    private Metrics mMetrics;
+    private ForecastClient mForecastClient;
+    private ForecastStore mForecastStore;
+    private ForecastRepository mForecastRepository;
+    private ForecastArchive mForecastArchive;
+    private LocationRegistry mLocationRegistry;
+    private ForecastFetchEngine mForecastEngine;
+    private RefreshScheduler mRefreshScheduler;
+    private RefreshQueue mRefreshQueue;
+    private TileCache mTileCache;
+    private RequestGovernor mRequestGovernor;
+    private IconCache mIconCache;
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+
+        // timings of every refresh stage. only collected in debug builds; long-press the
+        // refresh button on the main screen to see them.
+        mMetrics = new Metrics();
+        mMetrics.setEnabled(BuildConfig.DEBUG);
+
+        // one shared HTTP client, so refreshes reuse its connections and cache.
+        mForecastClient = new ForecastClient(getCacheDir(), mMetrics);
+
+        // last forecast per location, kept in internal storage (not the cache dir, which the
+        // system may clear) so there is always something to show on startup.
+        mForecastStore = new ForecastStore(new File(getFilesDir(), "forecasts"));
+
+        mLocationRegistry = new LocationRegistry(new File(getFilesDir(), "locations.txt"));
+        Properties config = loadProperties();
+        mForecastEngine = new ForecastFetchEngine(mForecastClient, mForecastStore,
+                HttpUrl.parse(getForecastUrl(config)), getAPIKey(config), mMetrics);
+        // locations within a few km of each other (the same 5 km tile) share one forecast, kept
+        // for up to half an hour.
+        mTileCache = new TileCache(TileCache.DEFAULT_PRECISION, 30 * 60 * 1000, 64, mMetrics);
+        mForecastEngine.setTileCache(mTileCache);
+        // every request counted against the key's daily quota (files/request-quota.txt), with
+        // the screens first and the HTTP cache standing in near the limit.
+        mRequestGovernor = new RequestGovernor(new File(getFilesDir(), "request-quota.txt"),
+                getDailyQuota(config), mMetrics);
+        mForecastEngine.setRequestGovernor(mRequestGovernor);
+        if (BuildConfig.DEBUG) {
+            // one raw payload in ten (at most 256 KB each, the last 5 kept) in files/payloads.
+            mForecastEngine.setPayloadCapture(
+                    new PayloadCapture(new File(getFilesDir(), "payloads"), 10, 256 * 1024, 5));
+        }
+
+        // parsed forecasts shared by all activities, kept up to date by the engine.
+        mForecastRepository = new ForecastRepository(mForecastStore);
+        mForecastEngine.addSubscriber(mForecastRepository);
+
+        // every forecast we fetch, for trends and offline use. opened on the first append, and
+        // written (and compacted) on a thread of its own, off the engine's.
+        mForecastArchive = new ForecastArchive(new File(getFilesDir(), "archive"));
+        mForecastEngine.addSubscriber(mForecastArchive, Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "forecast-archive");
+                thread.setDaemon(true);
+                return thread;
+            }
+        }));
+
+        // keeps the tracked locations fresh in the background, with one alarm for all of them.
+        mRefreshScheduler = new RefreshScheduler(
+                mForecastEngine, RefreshScheduler.SYSTEM_CLOCK, new AlarmTimer(this));
+        mForecastEngine.addSubscriber(mRefreshScheduler);
+        mRefreshScheduler.start();
+
+        // refreshes asked for while offline, on disk until the connection is back. the
+        // connectivity receiver is only enabled while there's something in it.
+        mRefreshQueue = new RefreshQueue(new File(getFilesDir(), "refresh-queue.log"));
+        mForecastEngine.addSubscriber(mRefreshQueue);
+        mRefreshQueue.setListener(new RefreshQueue.Listener() {
+            @Override
+            public void onPendingChanged(boolean pending) {
+                ConnectivityReceiver.setEnabled(WeatherApplication.this, pending);
+            }
+        });
+        ConnectivityReceiver.setEnabled(this, !mRefreshQueue.isEmpty());
+        if (!mRefreshQueue.isEmpty() && ConnectivityReceiver.isConnected(this)) {
+            // queued in an earlier run, and we're online now.
+            mRefreshQueue.drain(mForecastEngine);
+        }
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        // forecasts that aren't on screen can be read back from disk when needed.
+        mForecastRepository.trim();
+        mTileCache.clear();
+    }
+
+    public Metrics getMetrics() {
+        return mMetrics;
+    }
+
+    public ForecastClient getForecastClient() {
+        return mForecastClient;
+    }
+
+    public ForecastStore getForecastStore() {
+        return mForecastStore;
+    }
+
+    public ForecastRepository getForecastRepository() {
+        return mForecastRepository;
+    }
+
+    public ForecastArchive getForecastArchive() {
+        return mForecastArchive;
+    }
+
+    public LocationRegistry getLocationRegistry() {
+        return mLocationRegistry;
+    }
+
+    public ForecastFetchEngine getForecastEngine() {
+        return mForecastEngine;
+    }
+
+    public RefreshScheduler getRefreshScheduler() {
+        return mRefreshScheduler;
+    }
+
+    public RefreshQueue getRefreshQueue() {
+        return mRefreshQueue;
+    }
+
+    public RequestGovernor getRequestGovernor() {
+        return mRequestGovernor;
+    }
+
+    // the weather icons are decoded the first time a screen asks for them (main thread only).
+    public IconCache getIconCache() {
+        if (mIconCache == null) {
+            mIconCache = new IconCache(getResources());
+        }
+        return mIconCache;
+    }
+
+    // Helper methods to hide API Key in assets folder so that it isn't visible on GitHub.
+    private String getAPIKey(Properties prop) {
+        String apiKey = prop.getProperty("apikey");
+        return apiKey;
+    }
+
+    // "forecast_url" in the same file points the app at another server, e.g. the stand-in one
+    // (see StandInServer in the standin module) at http://10.0.2.2:8080/forecast/.
+    private String getForecastUrl(Properties prop) {
+        String url = prop.getProperty("forecast_url");
+        if (url == null || HttpUrl.parse(url) == null) {
+            return FORECAST_URL;
+        }
+        return url;
+    }
+
+    // "daily_quota" in the same file, for a key with more (or fewer) calls a day than the free one.
+    private int getDailyQuota(Properties prop) {
+        try {
+            return Integer.parseInt(prop.getProperty("daily_quota"));
+        } catch (NumberFormatException e) {
+            return RequestGovernor.DARK_SKY_FREE_QUOTA;
+        }
+    }
+
+    @TargetApi(Build.VERSION_CODES.KITKAT)
+    private Properties loadProperties() {
+        Properties prop = new Properties();
+        String[] fileList = {"config.properties"};   // can get multiple property files if you want.
+
+        for (int i = fileList.length - 1; i >= 0; --i) {
+            String file = fileList[i];
+
+            // using new try-with-resoruces syntax in Java 7 to open file.
+            // don't need to use "finally" block.
+            try (InputStream inputStream = getAssets().open(file)) {
+                prop.load(inputStream);
+            } catch (FileNotFoundException fnfe) {
+                Log.d(TAG, "Ignoring missing property file " + file);
+            } catch (IOException ioe) {
+                Log.e(TAG, "More general input/output exception", ioe);
+            }
+        }
+        return prop;
+    }
+}
@@ -6,35 +6,63 @@ import android.view.View;
 import android.view.ViewGroup;
 import android.widget.BaseAdapter;
 import android.widget.ImageView;
+import android.widget.ListView;
 import android.widget.TextView;
 
 import com.example.lawrence.weatherapp.R;
-import com.example.lawrence.weatherapp.weather.Day;
+import com.example.lawrence.weatherapp.ui.IconCache;
+import com.example.lawrence.weatherapp.weather.ForecastDiff;
+import com.example.lawrence.weatherapp.weather.ForecastSeries;
 
-// Custom list adapter that maps each piece of data from the Day object to the daily_list_item.
+// Custom list adapter that maps each piece of data for a day to the daily_list_item.
 // We're extending BaseAdapter instead of ListAdapter to learn about building from scratch.
 // If we were to extend ListAdapter, the methods below would be implemented and we would only
 // need to override the methods we want.
+// The days come as a ForecastSeries (one array per field) and rows are bound straight from it.
 public class DayAdapter extends BaseAdapter{
 
     private Context mContext;
-    private Day[] mDays;
+    private ForecastSeries mDays;
+    private IconCache mIconCache;   // decoded icons, shared with the other screens.
 
-    public DayAdapter(Context context, Day[] days){
+    public DayAdapter(Context context, ForecastSeries days, IconCache iconCache){
         mContext = context;
         mDays = days;
+        mIconCache = iconCache;
+    }
+
+    // swaps in a newer forecast. if the days are still the same days, only the rows that look
+    // different (and are on screen) are rebound; otherwise (e.g. a new day has started and
+    // "Today" moved) the whole list is.
+    // ListView has no notifications for single items like RecyclerView does, hence the listView.
+    public void update(ForecastSeries days, ForecastDiff.SeriesDiff diff, ListView listView) {
+        mDays = days;
+        if (diff.isFullChange() || diff.getRemovedFromStart() > 0 || diff.getRemovedFromEnd() > 0
+                || diff.getInsertedAtEnd() > 0) {
+            notifyDataSetChanged();
+            return;
+        }
+
+        int first = listView.getFirstVisiblePosition();
+        for (int position : diff.getChanged()) {
+            View row = listView.getChildAt(position - first);   // null when it's off screen.
+            if (row != null) {
+                getView(position, row, listView);
+            }
+        }
     }
 
     @Override
     // gets the count of items the array, kind of self-explanatory.
     public int getCount() {
-        return mDays.length;
+        return mDays.size();
     }
 
     @Override
     // gets the element at position i, also kind of self-explanatory.
+    // (builds a Day object for it; binding the list below doesn't need one.)
     public Object getItem(int i) {
-        return mDays[i];
+        return mDays.toDay(i);
     }
 
     @Override
@@ -74,17 +102,15 @@ public class DayAdapter extends BaseAdapter{
             holder = (ViewHolder) convertView.getTag();     // get ref to ViewHolder for reuse.
         }
 
-        Day day = mDays[i];     // get the corresponding Day object from model.
-
-        // set the corresponding view here.
-        holder.iconImageView.setImageResource(day.getIconId());
-        holder.temperatureLabel.setText(day.getTemperatureMax() + "");
-        holder.dayLabel.setText(day.getDayOfTheWeek());
+        // set the corresponding view here, from day i of the model.
+        mIconCache.setIcon(holder.iconImageView, mDays.getIconCode(i));
+        // (the labels come ready-made from the series, so binding a row allocates nothing.)
+        holder.temperatureLabel.setText(mDays.getTemperatureLabel(i));
 
         if(i == 0){  // set text to "Today" for 1st day in list, instead of day of the week.
             holder.dayLabel.setText("Today");
         } else {
-            holder.dayLabel.setText(day.getDayOfTheWeek());
+            holder.dayLabel.setText(mDays.getDayOfTheWeek(i));
         }
 
         return convertView;
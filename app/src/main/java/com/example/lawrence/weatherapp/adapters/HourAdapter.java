@@ -10,7 +10,9 @@ import android.widget.TextView;
 import android.widget.Toast;
 
 import com.example.lawrence.weatherapp.R;
-import com.example.lawrence.weatherapp.weather.Hour;
+import com.example.lawrence.weatherapp.ui.IconCache;
+import com.example.lawrence.weatherapp.weather.ForecastDiff;
+import com.example.lawrence.weatherapp.weather.ForecastSeries;
 
 /*
  * This adapter will use the newer Recycler View available for Android 5+.
@@ -25,14 +27,43 @@ import com.example.lawrence.weatherapp.weather.Hour;
  * The means that the ViewHolder now contains the code that was previously in the getView() method.
  * The makes things more organized and efficient.
  *
+ * The hours come as a ForecastSeries (one array per field) rather than an Hour[], so a long
+ * hourly forecast doesn't need one object per hour; rows are bound straight from the columns.
+ *
  */
 public class HourAdapter extends RecyclerView.Adapter<HourAdapter.HourViewHolder> {
-    private Hour[] mHours;
+    private ForecastSeries mHours;
     private Context mContext;
+    private IconCache mIconCache;   // decoded icons, so binding a row doesn't decode a PNG.
 
-    public HourAdapter(Context context, Hour[] hours){
+    public HourAdapter(Context context, ForecastSeries hours, IconCache iconCache){
         mContext = context;
         mHours = hours;
+        mIconCache = iconCache;
+    }
+
+    // swaps in a newer forecast and tells the RecyclerView only about the rows that changed:
+    // hours that are now in the past go, new hours are added at the end and only the hours that
+    // look different are rebound (the rest of the list is left alone).
+    public void update(ForecastSeries hours, ForecastDiff.SeriesDiff diff) {
+        mHours = hours;
+        if (diff.isFullChange()) {
+            notifyDataSetChanged();
+            return;
+        }
+
+        if (diff.getRemovedFromStart() > 0) {
+            notifyItemRangeRemoved(0, diff.getRemovedFromStart());
+        }
+        if (diff.getRemovedFromEnd() > 0) {
+            notifyItemRangeRemoved(diff.getOverlap(), diff.getRemovedFromEnd());
+        }
+        for (int position : diff.getChanged()) {
+            notifyItemChanged(position);
+        }
+        if (diff.getInsertedAtEnd() > 0) {
+            notifyItemRangeInserted(diff.getOverlap(), diff.getInsertedAtEnd());
+        }
     }
 
     // called when a new ViewHolder is needed. Views are still recycled but they are created here as needed.
@@ -47,15 +78,15 @@ public class HourAdapter extends RecyclerView.Adapter<HourAdapter.HourViewHolder
     }
 
     // bridge between adapter and the bindHour() method we created in our ViewHolder class.
-    // all we need to do is call the correct hour from the array using position.
+    // all we need to do is pass the position of the hour in the series.
     @Override
     public void onBindViewHolder(HourViewHolder holder, int position) {
-       holder.bindHour(mHours[position]);
+       holder.bindHour(mHours, position);
     }
 
     @Override
     public int getItemCount() {     // same as ListViews, returns count of items.
-        return mHours.length;
+        return mHours.size();
     }
 
     // getView() has moved from the Adapter into the ViewHolder.
@@ -80,19 +111,21 @@ public class HourAdapter extends RecyclerView.Adapter<HourAdapter.HourViewHolder
             itemView.setOnClickListener(this);  // needed for clicks/taps.
         } // end constructor for HourViewHolder
 
-        // this method bind/map all the data to the View.
-        public void bindHour(Hour hour){
-            mTimeLabel.setText(hour.getHour() + "");
-            mSummaryLabel.setText(hour.getSummary() + "");
-            mTemperatureLabel.setText(hour.getTemperature() + "");
-            mIconImageView.setImageResource(hour.getIconId());
+        // this method bind/map all the data of hour i to the View.
+        // it runs for every row scrolled into view, so it only hands over Strings the series
+        // already has (no formatting or string concatenation here).
+        public void bindHour(ForecastSeries hours, int i){
+            mTimeLabel.setText(hours.getHour(i));
+            mSummaryLabel.setText(hours.getSummary(i));
+            mTemperatureLabel.setText(hours.getTemperatureLabel(i));
+            mIconCache.setIcon(mIconImageView, hours.getIconCode(i));
         }
 
         @Override
         public void onClick(View view) {
             // how do we assign values to these local variables?
             // the problem is that the binding happens in the bindHour() method above,
-            // but the Hour hour is an argument to the method and is destroy once we leave bindHour's scope.
+            // but the hour is an argument to the method and is destroy once we leave bindHour's scope.
             // one solution is to create a member variable for hour, but that's extra work
             // since we can just extra the information from the member labels and convert char sequence to a string.
             String time = mTimeLabel.getText().toString();
@@ -0,0 +1,35 @@
+package com.example.lawrence.weatherapp.background;
+
+import android.app.AlarmManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+
+import com.example.lawrence.weatherapp.network.RefreshScheduler;
+
+// Sets the RefreshScheduler's wake-up as an alarm that fires RefreshReceiver.
+//
+// It is an RTC (not RTC_WAKEUP) alarm: if the device is asleep the refresh waits until it wakes
+// up, which is when a fresh forecast is worth anything anyway, and it lets Android batch it
+// with other apps' alarms. There is one PendingIntent, so scheduling replaces the previous alarm.
+public class AlarmTimer implements RefreshScheduler.Timer {
+
+    private final AlarmManager mAlarmManager;
+    private final PendingIntent mPendingIntent;
+
+    public AlarmTimer(Context context) {
+        mAlarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        mPendingIntent = PendingIntent.getBroadcast(
+                context, 0, new Intent(context, RefreshReceiver.class), 0);
+    }
+
+    @Override
+    public void schedule(long at) {
+        mAlarmManager.set(AlarmManager.RTC, at, mPendingIntent);
+    }
+
+    @Override
+    public void cancel() {
+        mAlarmManager.cancel(mPendingIntent);
+    }
+}
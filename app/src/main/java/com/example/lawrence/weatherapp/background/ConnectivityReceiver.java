@@ -0,0 +1,46 @@
+package com.example.lawrence.weatherapp.background;
+
+import android.content.BroadcastReceiver;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.content.pm.PackageManager;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+
+import com.example.lawrence.weatherapp.WeatherApplication;
+
+// Drains the RefreshQueue (the refreshes asked for while offline) when the connection comes back.
+//
+// It is declared in the manifest, but disabled: WeatherApplication only enables it while
+// something is queued, so the app isn't woken up for every network change the rest of the time.
+// Being in the manifest means it still fires after the process has been killed, and the queue is
+// on disk, so nothing is lost in between.
+public class ConnectivityReceiver extends BroadcastReceiver {
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        if (!isConnected(context)) {
+            return;
+        }
+        WeatherApplication app = (WeatherApplication) context.getApplicationContext();
+        // one burst for everything; the forecasts arrive after onReceive() has returned, like
+        // with RefreshReceiver. whatever fails stays queued for the next time.
+        app.getRefreshQueue().drain(app.getForecastEngine());
+    }
+
+    public static boolean isConnected(Context context) {
+        ConnectivityManager manager = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        NetworkInfo networkInfo = manager.getActiveNetworkInfo();
+        return networkInfo != null && networkInfo.isConnected();
+    }
+
+    // turns the manifest receiver on or off (see above). takes effect straight away.
+    public static void setEnabled(Context context, boolean enabled) {
+        context.getPackageManager().setComponentEnabledSetting(
+                new ComponentName(context, ConnectivityReceiver.class),
+                enabled ? PackageManager.COMPONENT_ENABLED_STATE_ENABLED
+                        : PackageManager.COMPONENT_ENABLED_STATE_DISABLED,
+                PackageManager.DONT_KILL_APP);
+    }
+}
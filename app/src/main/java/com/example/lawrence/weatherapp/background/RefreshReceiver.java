@@ -0,0 +1,20 @@
+package com.example.lawrence.weatherapp.background;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+
+import com.example.lawrence.weatherapp.WeatherApplication;
+
+// Receives the background refresh alarm (see AlarmTimer) and hands it to the RefreshScheduler,
+// which refreshes every location that is due and sets the next alarm.
+// The forecasts arrive on the network threads after onReceive() has returned; the process
+// usually stays around for that, and if it doesn't, the next wake-up simply tries again.
+public class RefreshReceiver extends BroadcastReceiver {
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        WeatherApplication app = (WeatherApplication) context.getApplicationContext();
+        app.getRefreshScheduler().wakeUp(app.getLocationRegistry().getLocations());
+    }
+}
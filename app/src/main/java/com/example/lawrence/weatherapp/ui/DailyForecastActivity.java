@@ -2,7 +2,6 @@ package com.example.lawrence.weatherapp.ui;
 
 import android.app.Activity;
 import android.content.Intent;
-import android.os.Parcelable;
 import android.os.Bundle;
 import android.view.View;
 import android.widget.AdapterView;
@@ -11,10 +10,12 @@ import android.widget.TextView;
 import android.widget.Toast;
 
 import com.example.lawrence.weatherapp.R;
+import com.example.lawrence.weatherapp.WeatherApplication;
 import com.example.lawrence.weatherapp.adapters.DayAdapter;
-import com.example.lawrence.weatherapp.weather.Day;
-
-import java.util.Arrays;
+import com.example.lawrence.weatherapp.data.ForecastRepository;
+import com.example.lawrence.weatherapp.weather.Forecast;
+import com.example.lawrence.weatherapp.weather.ForecastDiff;
+import com.example.lawrence.weatherapp.weather.ForecastSeries;
 
 import butterknife.Bind;
 import butterknife.ButterKnife;
@@ -22,9 +23,12 @@ import butterknife.ButterKnife;
 // normally we would extend ListActivity because that gives us a reference to the ListView, setListAdapter(), onListItemClick() built-in
 // we'll extend have DailyForecastActivity extend Activity so we can learn how to implement the
 // same functionality of the missing methods from scratch.
-public class DailyForecastActivity extends Activity {
+public class DailyForecastActivity extends Activity implements ForecastRepository.Listener {
 
-    private Day[] mDays;
+    private ForecastSeries mDays;
+    private String mLocationKey;
+    private ForecastRepository mForecastRepository;
+    private DayAdapter mAdapter;
 
     // need a reference to the ListView since we don't have it by default in extending Activity
     // we'll do this using ButterKnife.
@@ -57,35 +61,37 @@ public class DailyForecastActivity extends Activity {
         // or whatever data type can fit in the generics field. We can solve this by building a custom adapter.
         */
 
-        // we deserialize (unwrap) the extra data sent over with the intent.
+        // the intent only says which location to show.
         Intent intent = getIntent();
-        Parcelable[] parcelables = intent.getParcelableArrayExtra(MainActivity.DAILY_FORECAST);
-        // Parcelable is an interface used to make data easy to transfer from one activity to another.
-        // we can't just pass the object itself (have to use parcelable) because of how activities
-        // are create and destroyed (android lifecycle).
-        // The standard solution is to serialize our data into a common format that can be
-        // deserialize at the other end (i.e. wrap it up, ship it, and unwrap it.)
-        mDays = Arrays.copyOf(parcelables, parcelables.length, Day[].class);
-
-        // Custom list adapter that maps each piece of data from the Day object to the daily_list_item.
-        DayAdapter adapter = new DayAdapter(this, mDays);
-        // since Day[] mDays is in Forecast object is only available in MainActivity,
-        // we need a Parcelable to pass the data from MainActivity to DailyForecastActivity.
+        mLocationKey = intent.getStringExtra(MainActivity.LOCATION_KEY);
+        // we used to get the Day objects themselves as Parcelables in the intent. Parcelable is an
+        // interface used to make data easy to transfer from one activity to another: serialize it
+        // into a common format that can be deserialized at the other end (wrap it up, ship it, and
+        // unwrap it). That costs time on every tap, so now we share the already-parsed forecast
+        // through the app-wide ForecastRepository instead, which falls back to the copy on disk if
+        // the app was killed in the meantime.
+        mForecastRepository = ((WeatherApplication) getApplication()).getForecastRepository();
+        Forecast forecast = mForecastRepository.acquire(mLocationKey);
+        mDays = forecast != null ? forecast.getDailySeries() : new ForecastSeries.Builder().build();
+
+        // Custom list adapter that maps each piece of data for a day to the daily_list_item.
+        mAdapter = new DayAdapter(this, mDays,
+                ((WeatherApplication) getApplication()).getIconCache());
 
 
         // if we extended ListActivity, we would have setListAdapter by default.
         //setListAdapter(adapter);
         // but since we don't, we implement the same functionality by:
-        mListView.setAdapter(adapter);
+        mListView.setAdapter(mAdapter);
         mListView.setEmptyView(mEmptyTextView);
 
         mListView.setOnItemClickListener(new AdapterView.OnItemClickListener() {
             @Override
             public void onItemClick(AdapterView<?> adapterView, View view, int position, long l) {
                 // create a simple toast when item is clicked
-                String dayOfTheWeek = mDays[position].getDayOfTheWeek();
-                String conditions = mDays[position].getSummary();
-                String highTemp = mDays[position].getTemperatureMax() + "";
+                String dayOfTheWeek = mDays.getDayOfTheWeek(position);
+                String conditions = mDays.getSummary(position);
+                String highTemp = mDays.getTemperature(position) + "";
                 String message = String.format(
                         "On %s the high will be %s and it will be %s",
                         dayOfTheWeek,
@@ -99,6 +105,29 @@ public class DailyForecastActivity extends Activity {
             }
         });
 
+        // a refresh (e.g. in the background) while the list is open updates only the rows that changed.
+        mForecastRepository.addListener(this, MainThreadExecutor.get());
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        mForecastRepository.removeListener(this);
+        mForecastRepository.release(mLocationKey);
+    }
+
+    // called on the main thread, with the diff already worked out on a background thread.
+    @Override
+    public void onForecastChanged(String key, Forecast previous, Forecast forecast, ForecastDiff diff) {
+        if (!key.equals(mLocationKey)) {
+            return;
+        }
+        ForecastSeries days = forecast.getDailySeries();
+        // the diff is against the previous forecast; if that isn't what we show, diff again.
+        ForecastDiff.SeriesDiff daily = previous != null && previous.getDailySeries() == mDays
+                ? diff.getDaily() : ForecastDiff.SeriesDiff.between(mDays, days);
+        mDays = days;
+        mAdapter.update(days, daily, mListView);
     }
 
     /*
@@ -1,17 +1,21 @@
 package com.example.lawrence.weatherapp.ui;
 
 import android.content.Intent;
-import android.os.Parcelable;
 import android.support.v7.app.ActionBarActivity;
 import android.os.Bundle;
 import android.support.v7.widget.LinearLayoutManager;
 import android.support.v7.widget.RecyclerView;
 
 import com.example.lawrence.weatherapp.R;
+import com.example.lawrence.weatherapp.WeatherApplication;
 import com.example.lawrence.weatherapp.adapters.HourAdapter;
-import com.example.lawrence.weatherapp.weather.Hour;
-
-import java.util.Arrays;
+import com.example.lawrence.weatherapp.data.ForecastRepository;
+import com.example.lawrence.weatherapp.location.TrackedLocation;
+import com.example.lawrence.weatherapp.network.ForecastFetchEngine;
+import com.example.lawrence.weatherapp.network.ForecastQuery;
+import com.example.lawrence.weatherapp.weather.Forecast;
+import com.example.lawrence.weatherapp.weather.ForecastDiff;
+import com.example.lawrence.weatherapp.weather.ForecastSeries;
 
 import butterknife.Bind;
 import butterknife.ButterKnife;
@@ -24,8 +28,13 @@ import butterknife.ButterKnife;
  * 4) Create an adapter to map data to the layout. This is like the MVC pattern where we have a data model, a layout for the view, and adapter for controller.
  *
  */
-public class HourlyForecastActivity extends ActionBarActivity {
-    private Hour[] mHours;
+public class HourlyForecastActivity extends ActionBarActivity
+        implements ForecastRepository.Listener {
+    private ForecastSeries mHours;
+    private String mLocationKey;
+    private ForecastRepository mForecastRepository;
+    private HourAdapter mAdapter;
+    private ForecastFetchEngine.FetchTicket mExtendTicket;
 
     @Bind(R.id.recyclerView) RecyclerView mRecyclerView;
 
@@ -38,15 +47,16 @@ public class HourlyForecastActivity extends ActionBarActivity {
         // get the current intent
         Intent intent = getIntent();
 
-        // get the parcelable from the intent sent over from MainActivity using the "key" we
-        // labeled and shipped it with.
-        Parcelable[] parcelables = intent.getParcelableArrayExtra(MainActivity.HOURLY_ACTIVITY);
-
-        // convert Parcelable array into Hour array.
-        mHours = Arrays.copyOf(parcelables, parcelables.length, Hour[].class);
+        // get the location key sent over from MainActivity, and the already-parsed forecast for
+        // it from the app-wide repository (no more parceling every Hour through the intent).
+        mLocationKey = intent.getStringExtra(MainActivity.LOCATION_KEY);
+        mForecastRepository = ((WeatherApplication) getApplication()).getForecastRepository();
+        Forecast forecast = mForecastRepository.acquire(mLocationKey);
+        mHours = forecast != null ? forecast.getHourlySeries() : new ForecastSeries.Builder().build();
 
-        HourAdapter adapter = new HourAdapter(this, mHours);
-        mRecyclerView.setAdapter(adapter);
+        mAdapter = new HourAdapter(this, mHours,
+                ((WeatherApplication) getApplication()).getIconCache());
+        mRecyclerView.setAdapter(mAdapter);
 
         // layout manger component determines when list items are no longer visible and therefore can be reused.
         // This approach avoids the creation of unnecessary views or expensive findViewById() look-ups.
@@ -55,5 +65,41 @@ public class HourlyForecastActivity extends ActionBarActivity {
 
         // this help improve performance of this list.
         mRecyclerView.setHasFixedSize(true);
+
+        // a refresh (e.g. in the background) while the list is open updates only the rows that changed.
+        mForecastRepository.addListener(this, MainThreadExecutor.get());
+
+        // the main screen only downloads 48 hours. this is the one screen that shows more, so the
+        // week of hours (extend=hourly, about twice the payload) is only fetched when it opens.
+        // it arrives through onForecastChanged() like any other refresh.
+        WeatherApplication app = (WeatherApplication) getApplication();
+        TrackedLocation location = app.getLocationRegistry().find(mLocationKey);
+        if (location != null && mHours.size() <= ForecastQuery.HOURS + 1) {
+            mExtendTicket = app.getForecastEngine().refresh(location, false, ForecastQuery.EXTENDED_HOURLY);
+        }
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (mExtendTicket != null) {
+            mExtendTicket.cancel();
+        }
+        mForecastRepository.removeListener(this);
+        mForecastRepository.release(mLocationKey);
+    }
+
+    // called on the main thread, with the diff already worked out on a background thread.
+    @Override
+    public void onForecastChanged(String key, Forecast previous, Forecast forecast, ForecastDiff diff) {
+        if (!key.equals(mLocationKey)) {
+            return;
+        }
+        ForecastSeries hours = forecast.getHourlySeries();
+        // the diff is against the previous forecast; if that isn't what we show, diff again.
+        ForecastDiff.SeriesDiff hourly = previous != null && previous.getHourlySeries() == mHours
+                ? diff.getHourly() : ForecastDiff.SeriesDiff.between(mHours, hours);
+        mHours = hours;
+        mAdapter.update(hours, hourly);
     }
 }
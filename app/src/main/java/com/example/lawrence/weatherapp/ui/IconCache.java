@@ -0,0 +1,38 @@
+package com.example.lawrence.weatherapp.ui;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.widget.ImageView;
+
+import com.example.lawrence.weatherapp.weather.IconCode;
+
+// Decoded weather icons, shared by the main screen and both forecast lists.
+//
+// ImageView.setImageResource() decodes the PNG again for every row that is bound, and the main
+// screen used to call getResources().getDrawable() on every refresh. Here each icon is decoded
+// once, up front, and every ImageView is handed the same Bitmap.
+//
+// The icons are wrap_content in all three layouts, so one bitmap per icon (at the screen's
+// density) is the right size everywhere.
+//
+// Only use it from the main thread.
+public class IconCache {
+
+    private final Bitmap[] mBitmaps = new Bitmap[IconCode.values().length];   // by ordinal.
+
+    public IconCache(Resources resources) {
+        for (IconCode code : IconCode.values()) {
+            mBitmaps[code.ordinal()] = BitmapFactory.decodeResource(resources, IconResources.getIconId(code));
+        }
+    }
+
+    public Bitmap getBitmap(IconCode code) {
+        return mBitmaps[code.ordinal()];
+    }
+
+    // shows the icon in the view without decoding anything.
+    public void setIcon(ImageView view, IconCode code) {
+        view.setImageBitmap(getBitmap(code));
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.lawrence.weatherapp.ui;
+
+import com.example.lawrence.weatherapp.R;
+import com.example.lawrence.weatherapp.weather.IconCode;
+
+// The drawable we show for each weather icon. IconCode lives in the core module, which knows
+// nothing about Android resources, so the mapping to R.drawable ids is kept here in the app.
+public final class IconResources {
+
+    private static final int[] sIconIds = new int[IconCode.values().length];   // by ordinal.
+    static {
+        put(IconCode.CLEAR_DAY, R.drawable.clear_day);
+        put(IconCode.CLEAR_NIGHT, R.drawable.clear_night);
+        put(IconCode.RAIN, R.drawable.rain);
+        put(IconCode.SNOW, R.drawable.snow);
+        put(IconCode.SLEET, R.drawable.sleet);
+        put(IconCode.WIND, R.drawable.wind);
+        put(IconCode.FOG, R.drawable.fog);
+        put(IconCode.CLOUDY, R.drawable.cloudy);
+        put(IconCode.PARTLY_CLOUDY_DAY, R.drawable.partly_cloudy);
+        put(IconCode.PARTLY_CLOUDY_NIGHT, R.drawable.cloudy_night);
+    }
+
+    private IconResources() { }
+
+    private static void put(IconCode code, int iconId) {
+        sIconIds[code.ordinal()] = iconId;
+    }
+
+    public static int getIconId(IconCode code) {
+        return sIconIds[code.ordinal()];
+    }
+}
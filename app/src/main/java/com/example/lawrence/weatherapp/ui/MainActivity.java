@@ -1,12 +1,8 @@
 package com.example.lawrence.weatherapp.ui;
 
-import android.annotation.TargetApi;
-import android.content.Context;
+import android.app.AlertDialog;
+import android.content.DialogInterface;
 import android.content.Intent;
-import android.graphics.drawable.Drawable;
-import android.net.ConnectivityManager;
-import android.net.NetworkInfo;
-import android.os.Build;
 import android.support.v7.app.ActionBarActivity;
 import android.os.Bundle;
 import android.util.Log;
@@ -17,28 +13,28 @@ import android.widget.TextView;
 import android.widget.Toast;
 
 import com.example.lawrence.weatherapp.R;
+import com.example.lawrence.weatherapp.WeatherApplication;
+import com.example.lawrence.weatherapp.background.ConnectivityReceiver;
+import com.example.lawrence.weatherapp.data.ForecastRepository;
+import com.example.lawrence.weatherapp.data.ForecastStore;
+import com.example.lawrence.weatherapp.location.LocationRegistry;
+import com.example.lawrence.weatherapp.location.TrackedLocation;
+import com.example.lawrence.weatherapp.metrics.Histogram;
+import com.example.lawrence.weatherapp.metrics.Metrics;
+import com.example.lawrence.weatherapp.network.ForecastFetchEngine;
+import com.example.lawrence.weatherapp.network.ForecastQuery;
+import com.example.lawrence.weatherapp.network.RefreshCoordinator;
+import com.example.lawrence.weatherapp.network.RefreshQueue;
+import com.example.lawrence.weatherapp.network.RequestGovernor;
 import com.example.lawrence.weatherapp.weather.Current;
-import com.example.lawrence.weatherapp.weather.Day;
 import com.example.lawrence.weatherapp.weather.Forecast;
-import com.example.lawrence.weatherapp.weather.Hour;
+import com.example.lawrence.weatherapp.weather.ForecastDiff;
 
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
-
-import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.InputStream;
-import java.util.Properties;
 
 import butterknife.Bind;
 import butterknife.ButterKnife;
 import butterknife.OnClick;
-import okhttp3.Call;
-import okhttp3.Callback;
-import okhttp3.OkHttpClient;
-import okhttp3.Request;
-import okhttp3.Response;
 
 /*
  * Things learned while building this app:
@@ -76,6 +72,7 @@ import okhttp3.Response;
  *
  * 6) Working with JSON:
  * using Java's native JSON library to parse JSON data from API.
+ * later replaced by a streaming (pull) parser, see ForecastParser, so the payload is read only once.
  *
  * 7) Building an User Interface (UI):
  * use ButterKnife to bind controller (MainActivity) with view (layout) (saves time by not having to write boilerplate code).
@@ -105,17 +102,34 @@ import okhttp3.Response;
  * code to do stuff when item is tapped.
  *
  */
-public class MainActivity extends ActionBarActivity {
+public class MainActivity extends ActionBarActivity
+        implements ForecastFetchEngine.Subscriber, ForecastRepository.Listener, LocationRegistry.Listener {
 
     // define a key for the MainActivity class
     public static final String TAG = MainActivity.class.getSimpleName();
 
-    // define a key so we can look up code involving DailyForecastActivity.
-    public static final String DAILY_FORECAST = "DAILY_FORECAST";
-    // similarly for HourlyForecastActivity.
-    public static final String HOURLY_ACTIVITY = "HOURLY_FORECAST";
+    // key for the intent extra that tells DailyForecastActivity and HourlyForecastActivity
+    // which location's forecast to show.
+    public static final String LOCATION_KEY = "LOCATION_KEY";
 
     private Forecast mForecast;
+    private String mShownKey;   // the location whose forecast we hold on to (acquire) in the repository.
+    private ForecastRepository mForecastRepository;
+    private LocationRegistry mLocationRegistry;
+    private ForecastFetchEngine mForecastEngine;
+    private RefreshCoordinator mRefreshCoordinator;
+    private RefreshQueue mRefreshQueue;
+    private RequestGovernor mRequestGovernor;
+    private boolean mOfflineShown;
+    private boolean mQuotaShown;
+    private IconCache mIconCache;
+    private Metrics mMetrics;
+    private Histogram mRenderTime;
+    private Histogram mFirstRenderTime;
+
+    // when onCreate() started (a Metrics timer), to time how long it takes until the first
+    // forecast is on screen. 0 once that's recorded, or with metrics off.
+    private long mCreatedAt;
 
     // using ButterKnife library to bind MainActivity (controller) with layout (view).
     // instead of old boilerplate style of declaring a member variable for corresponding view item.
@@ -131,6 +145,8 @@ public class MainActivity extends ActionBarActivity {
     TextView mPrecipValue;
     @Bind(R.id.summaryLabel)
     TextView mSummaryLabel;
+    @Bind(R.id.locationLabel)
+    TextView mLocationLabel;
     @Bind(R.id.iconImageView)
     ImageView mIconImageView;
     @Bind(R.id.refreshImageView)
@@ -141,6 +157,7 @@ public class MainActivity extends ActionBarActivity {
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        mCreatedAt = ((WeatherApplication) getApplication()).getMetrics().startTimer();
         setContentView(R.layout.activity_main);
 
         // required to do this right after activity is created to use ButterKnife lib.
@@ -149,226 +166,242 @@ public class MainActivity extends ActionBarActivity {
         // hide refresh spinner/progress bar at the start of app.
         mProgressBar.setVisibility(View.INVISIBLE);
 
-        final double latitude = 37.8268; final double longitude = -122.422; //Alcatraz Island, CA
-        //latitude = 40.7791; longitude = -73.9635;       // Central Park, New York City, NY
-        //latitude = 41.8661; longitude = --87.6169;      // Millennium Park, Chicago, IL
-        // there is a slight bug where it doesn't update the location if you change lat/long.
-        // also there isn't a name for the location in the DarkSky JSON response so location name is currently hardcoded.
+        WeatherApplication app = (WeatherApplication) getApplication();
+        mForecastRepository = app.getForecastRepository();
+        // results and changes are delivered on the main thread, so the callbacks below can
+        // update the views directly.
+        mForecastRepository.addListener(this, MainThreadExecutor.get());
+        mForecastEngine = app.getForecastEngine();
+        mForecastEngine.addSubscriber(this, MainThreadExecutor.get());
+        mRefreshCoordinator = new RefreshCoordinator(mForecastEngine);
+        mRefreshQueue = app.getRefreshQueue();
+        mIconCache = app.getIconCache();
+        mMetrics = app.getMetrics();
+        mRequestGovernor = app.getRequestGovernor();
+        mRenderTime = mMetrics.histogram(Metrics.UI_RENDER);
+        mFirstRenderTime = mMetrics.histogram(Metrics.UI_FIRST_RENDER);
+
+        // the locations used to be hard-coded here (Alcatraz Island, with Central Park and
+        // Millennium Park commented out), which is why changing them didn't refresh anything.
+        // they now live in the LocationRegistry, and tapping the location name switches to the next one.
+        mLocationRegistry = app.getLocationRegistry();
+        mLocationRegistry.addListener(this);
 
         // logic for refresh button to fetch updated JSON data.
         mRefreshImageView.setOnClickListener(new View.OnClickListener() {
             @Override
             public void onClick(View view) {
-                getForecast(latitude, longitude);
+                getForecast(mLocationRegistry.getSelected(), true);
             }
         });
 
-        getForecast(latitude, longitude);
-        Log.d(TAG, "Main UI code running.");
-    } // end onCreate()
-
-
-    private void getForecast(double latitude, double longitude) {
-        String apiKey = getAPIKey();
-        String forecastUrl = "https://api.forecast.io/forecast/" + apiKey + "/" + latitude + "," + longitude;
-
-        if (isNetworkAvailable()) {
-
-            // toggles visibility of refresh button spinner/progress bar.
-            toggleRefresh();
-
-            // create a new OkHTTP client to connect to API.
-            OkHttpClient client = new OkHttpClient();
-
-            // build HTTP request object to send to API.
-            Request request = new Request.Builder()
-                    .url(forecastUrl)
-                    .build();
+        // debug builds: long-press refresh to see where refreshes spend their time.
+        if (mMetrics.isEnabled()) {
+            mRefreshImageView.setOnLongClickListener(new View.OnLongClickListener() {
+                @Override
+                public boolean onLongClick(View view) {
+                    showMetrics();
+                    return true;
+                }
+            });
+        }
 
-            // create call object from combining OkHTTP client and HTTP request object.
-            Call call = client.newCall(request);
+        showLocation(mLocationRegistry.getSelected());
 
-            // synchronous execute() will use main thread (reserved for UI) and cause app to crash.
-            //Response response = call.execute();
+        // stale-while-revalidate: a stale (or missing) forecast stays on screen while we fetch
+        // new ones in the background. a fresh one doesn't need the network at all.
+        // all tracked locations are refreshed together, so switching between them is instant.
+        if (mForecast == null || !ForecastStore.isFresh(mForecast, System.currentTimeMillis())) {
+            getForecasts();
+        }
+        Log.d(TAG, "Main UI code running.");
+    } // end onCreate()
 
-            // asynchronous enqueue() will use another thread to get the API data.
-            call.enqueue(new Callback() {
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        // nobody will look at the results any more.
+        mRefreshCoordinator.cancelAll();
+        mForecastEngine.removeSubscriber(this);
+        mForecastRepository.removeListener(this);
+        mLocationRegistry.removeListener(this);
+        mForecastRepository.release(mShownKey);
+    }
 
-                @Override
-                public void onFailure(Call call, IOException e) {
-                    runOnUiThread(new Runnable() {
-                        @Override
-                        public void run() {
-                            toggleRefresh();
-                        }
-                    });
-
-                    alertUserAboutError();
-                }
+    // switches the main screen to a location, showing its last forecast (if any) right away.
+    // on a cold start that is read from disk; the file is only a few KB, so reading it here is
+    // cheaper than waiting for a background thread.
+    // the forecast is acquired, so the repository keeps it in memory to diff the next one against.
+    private void showLocation(TrackedLocation location) {
+        mLocationLabel.setText(location.getName());
+        if (mShownKey != null) {
+            mForecastRepository.release(mShownKey);
+        }
+        mShownKey = location.getKey();
+        mForecast = mForecastRepository.acquire(mShownKey);
+        if (mForecast != null) {
+            updateDisplay(ForecastDiff.between(null, mForecast));   // everything.
+        }
+        setRefreshing(mRefreshCoordinator.isRefreshing(location));
+    }
 
-                @Override
-                public void onResponse(Call call, Response response) throws IOException {
-                    runOnUiThread(new Runnable() {
-                        @Override
-                        public void run() {
-                            toggleRefresh();
-                        }
-                    });
-
-                    try {
-                        String JSONdata = response.body().string();
-                        Log.v(TAG, JSONdata); // output JSON data to log to spot-check that we are getting valid data from API.
-
-                        if (response.isSuccessful()) {
-
-                            mForecast = parseForecastDetails(JSONdata);
-
-                            runOnUiThread(new Runnable() {
-                                @Override
-                                public void run() {
-                                    updateDisplay();
-                                }
-                            });
-
-                        } else {
-                            alertUserAboutError();
-                        }
-
-                    } catch (IOException ioe) {
-                        Log.e(TAG, "IOException caught: ", ioe);
-                    } catch (JSONException jsone) {
-                        // handle JSON exception here, instead of in the method.
-                        Log.e(TAG, "JSONException caught: ", jsone);
-                    }
-                } //end onResponse()
+    @OnClick(R.id.locationLabel)
+    public void showNextLocation(View view) {
+        mLocationRegistry.selectNext();
+    }
 
-            }); //end anonymous inner class
+    @Override
+    public void onSelectedLocationChanged(TrackedLocation location) {
+        // whatever was being fetched for the previous location isn't needed for the screen any more.
+        mRefreshCoordinator.cancelCurrent();
+        showLocation(location);
+        if (mForecast == null || !ForecastStore.isFresh(mForecast, System.currentTimeMillis())) {
+            getForecast(location, false);
+        }
+    }
 
+    private void getForecast(TrackedLocation location, boolean revalidate) {
+        if (isNetworkAvailable()) {
+            setRefreshing(true);
+            // the engine fetches in the background and calls onForecastLoaded()/onForecastFailed().
+            // repeated taps are attached to the refresh that is already running.
+            mRefreshCoordinator.refresh(location, revalidate);
         } else {
-            Toast.makeText(this, R.string.network_unavailable_message, Toast.LENGTH_LONG).show();
+            // offline first: the stored forecast stays on screen, and the refresh happens when
+            // the connection is back (see RefreshQueue).
+            mRefreshQueue.add(location, revalidate, ForecastQuery.DEFAULT);
+            showOffline();
         }
     }
 
-    // toggles visibility of refresh button's spinner/progress bar.
-    private void toggleRefresh() {
-        if (mProgressBar.getVisibility() == View.INVISIBLE) {
-            mProgressBar.setVisibility(View.VISIBLE);
-            mRefreshImageView.setVisibility(View.INVISIBLE);
+    // refreshes every tracked location, a few at a time.
+    private void getForecasts() {
+        if (isNetworkAvailable()) {
+            setRefreshing(true);
+            mRefreshCoordinator.refreshAll(mLocationRegistry.getLocations());
         } else {
-            mProgressBar.setVisibility(View.INVISIBLE);
-            mRefreshImageView.setVisibility(View.VISIBLE);
+            mRefreshQueue.addAll(mLocationRegistry.getLocations(), false, ForecastQuery.DEFAULT);
+            showOffline();
         }
     }
 
-    private void updateDisplay() {
-        Current current = mForecast.getCurrent();
-        mTemperatureLabel.setText(current.getTemperature() + "");
-        mTimeLabel.setText("At " + current.getFormattedTime() + " it will be");
-        mHumidityValue.setText(current.getHumidity() + "");
-        mPrecipValue.setText(current.getPrecipChance() + "%");
-        mSummaryLabel.setText(current.getSummary());
-
-        // convert int into the corresponding picture in the layout
-        Drawable drawable = getResources().getDrawable(current.getIconId());
-        mIconImageView.setImageDrawable(drawable);
+    // once per screen, not for every tap while offline.
+    private void showOffline() {
+        if (!mOfflineShown) {
+            mOfflineShown = true;
+            Toast.makeText(this, R.string.network_unavailable_queued, Toast.LENGTH_LONG).show();
+        }
     }
 
-    private Forecast parseForecastDetails(String jsonData) throws JSONException{
-        Forecast forecast = new Forecast();
-
-        forecast.setCurrent(getCurrentDetails(jsonData));
-        forecast.setHourlyForecast(getHourlyForecast(jsonData));
-        forecast.setDailyForecast(getDailyForecast(jsonData));
-
-        return forecast;
+    // the same, for when refreshes are held back to stay inside the daily request quota.
+    private void showQuotaReached() {
+        if (!mQuotaShown) {
+            mQuotaShown = true;
+            Toast.makeText(this, R.string.request_quota_reached, Toast.LENGTH_LONG).show();
+        }
     }
 
-    private Day[] getDailyForecast(String jsonData) throws JSONException{
-        JSONObject forecast = new JSONObject(jsonData);
-        String timezone = forecast.getString("timezone");
-        JSONObject daily = forecast.getJSONObject("daily"); // gets daily JSON object just below root.
-        JSONArray data = daily.getJSONArray("data"); // each hour is stored under "data" key.
-
-        Day[] days = new Day[data.length()];
-        for( int i=0; i < days.length; ++i ){
-            JSONObject jsonDay = data.getJSONObject(i);
-
-            Day day = new Day(); // TODO: try just putting the Day day = null; part outside for-loop.
-
-            day.setSummary(jsonDay.getString("summary"));
-            day.setIcon(jsonDay.getString("icon"));
-            day.setTemperatureMax(jsonDay.getDouble("temperatureMax"));
-            day.setTime(jsonDay.getLong("time"));
-            day.setTimezone(timezone);
-
-            days[i] = day;
+    // called on the main thread (see MainThreadExecutor) for every location as its forecast
+    // arrives. the forecast itself reaches the screen through onForecastChanged(); this only
+    // tracks the refresh spinner.
+    @Override
+    public void onForecastLoaded(TrackedLocation location, Forecast forecast) {
+        TrackedLocation selected = mLocationRegistry.getSelected();
+        if (location.getKey().equals(selected.getKey())) {
+            setRefreshing(mRefreshCoordinator.isRefreshing(selected));
         }
-
-        return days;
     }
 
-    private Hour[] getHourlyForecast(String jsonData) throws JSONException{
-        JSONObject forecast = new JSONObject(jsonData);
-        String timezone = forecast.getString("timezone");
-        JSONObject hourly = forecast.getJSONObject("hourly"); // gets hourly JSON object just below root.
-        JSONArray data = hourly.getJSONArray("data"); // each hour is stored under "data" key.
-
-        // populate each hour in hour array with corresponding data.
-        Hour[] hours = new Hour[data.length()];
-        JSONObject jsonHour = null;
-        Hour hour = null;
-        for( int i=0; i < hours.length; ++i ){
-
-            // TODO: after modification, it still works the same as before.
-            jsonHour = data.getJSONObject(i);
-            hour = new Hour();
-            // be careful to NOT place this statement outside the for-loop
-            // because then we would have just ONE hour object updating i times
-            // and all elemnts of array would be point to the same hour object.
-            // instead of creating i hour objects.
-
-            hour.setSummary(jsonHour.getString("summary"));
-            hour.setTemperature(jsonHour.getDouble("temperature"));
-            hour.setIcon(jsonHour.getString("icon"));
-            hour.setTime(jsonHour.getLong("time"));
-            hour.setTimezone(timezone);
-
-            hours[i] = hour;
+    // called on the main thread when the repository gets a new forecast for any location, with
+    // what changed compared to the one it replaces (worked out on a background thread).
+    @Override
+    public void onForecastChanged(String key, Forecast previous, Forecast forecast, ForecastDiff diff) {
+        if (!key.equals(mShownKey)) {
+            return;     // stored for later, but not the one on screen.
         }
-
-        return hours;
+        // the diff is against the previous forecast; if that isn't what we show, diff again.
+        ForecastDiff changes = previous == mForecast ? diff : ForecastDiff.between(mForecast, forecast);
+        mForecast = forecast;
+        updateDisplay(changes);
     }
 
-    // convert JSON data (string) into our model for the weather (temp, time, humidity, etc.)
-    private Current getCurrentDetails(String jsonData) throws JSONException {
-        JSONObject forecast = new JSONObject(jsonData);
+    @Override
+    public void onForecastFailed(TrackedLocation location, IOException e) {
+        Log.e(TAG, "Couldn't get forecast for " + location + ": ", e);
+        TrackedLocation selected = mLocationRegistry.getSelected();
+        if (location.getKey().equals(selected.getKey())) {
+            setRefreshing(mRefreshCoordinator.isRefreshing(selected));
+            if (e instanceof RequestGovernor.QuotaExceededException) {
+                // not an error: the stored forecast stays on screen.
+                showQuotaReached();
+            } else {
+                alertUserAboutError();
+            }
+        }
+    }
 
-        String timezone = forecast.getString("timezone");
-        Log.i(TAG, "From JSON: " + timezone);
+    // shows the refresh button's spinner/progress bar while a refresh is running.
+    private void setRefreshing(boolean refreshing) {
+        mProgressBar.setVisibility(refreshing ? View.VISIBLE : View.INVISIBLE);
+        mRefreshImageView.setVisibility(refreshing ? View.INVISIBLE : View.VISIBLE);
+    }
 
-        JSONObject currently = forecast.getJSONObject("currently");
-        Current current = new Current();
-        current.setHumidity(currently.getDouble("humidity"));
-        current.setTime(currently.getLong("time"));
-        current.setIcon(currently.getString("icon"));
-        current.setPrecipChance(currently.getDouble("precipProbability"));
-        current.setSummary(currently.getString("summary"));
-        current.setTemperature(currently.getDouble("temperature"));
-        current.setTimeZone(timezone);
+    // sets the views for the parts of the current weather that changed.
+    private void updateDisplay(ForecastDiff changes) {
+        long start = mMetrics.startTimer();
+        Current current = mForecast.getCurrent();
+        if (changes.hasCurrentChanged(ForecastDiff.TEMPERATURE)) {
+            mTemperatureLabel.setText(current.getTemperature() + "");
+        }
+        if (changes.hasCurrentChanged(ForecastDiff.TIME)) {
+            mTimeLabel.setText("At " + current.getFormattedTime() + " it will be");
+        }
+        if (changes.hasCurrentChanged(ForecastDiff.HUMIDITY)) {
+            mHumidityValue.setText(current.getHumidity() + "");
+        }
+        if (changes.hasCurrentChanged(ForecastDiff.PRECIP_CHANCE)) {
+            mPrecipValue.setText(current.getPrecipChance() + "%");
+        }
+        if (changes.hasCurrentChanged(ForecastDiff.SUMMARY)) {
+            mSummaryLabel.setText(current.getSummary());
+        }
+        if (changes.hasCurrentChanged(ForecastDiff.ICON)) {
+            // show the corresponding picture in the layout (already decoded, shared with the lists).
+            mIconCache.setIcon(mIconImageView, current.getIconCode());
+        }
+        mRenderTime.recordSince(start);
 
-        Log.d(TAG, current.getFormattedTime());
+        if (mCreatedAt != 0) {
+            mFirstRenderTime.recordSince(mCreatedAt);
+            mCreatedAt = 0;
+        }
+    }
 
-        return current;
+    // the metrics dump, with buttons to share it as JSON or start counting afresh.
+    private void showMetrics() {
+        new AlertDialog.Builder(this)
+                .setTitle(R.string.metrics_title)
+                .setMessage(mRequestGovernor + "\n\n" + mMetrics.dump())
+                .setPositiveButton(R.string.metrics_share, new DialogInterface.OnClickListener() {
+                    @Override
+                    public void onClick(DialogInterface dialog, int which) {
+                        Intent send = new Intent(Intent.ACTION_SEND);
+                        send.setType("application/json");
+                        send.putExtra(Intent.EXTRA_TEXT, mMetrics.toJson());
+                        startActivity(Intent.createChooser(send, getString(R.string.metrics_share)));
+                    }
+                })
+                .setNegativeButton(R.string.metrics_reset, new DialogInterface.OnClickListener() {
+                    @Override
+                    public void onClick(DialogInterface dialog, int which) {
+                        mMetrics.reset();
+                    }
+                })
+                .show();
     }
 
     private boolean isNetworkAvailable() {
-        ConnectivityManager manager = (ConnectivityManager) getSystemService(Context.CONNECTIVITY_SERVICE);
-        NetworkInfo networkInfo = manager.getActiveNetworkInfo();
-
-        // network is available.
-        if (networkInfo != null && networkInfo.isConnected()) return true;
-
-        return false;
+        return ConnectivityReceiver.isConnected(this);
     }
 
     // Shows pop-up dialog box if there was some sort of error.
@@ -394,9 +427,10 @@ public class MainActivity extends ActionBarActivity {
         Intent intent = new Intent(this, DailyForecastActivity.class);
 
         // can add extra data to an "intent" using the putExtra() method.
-        // we are doing this to send over the array of Day objects to the list in DailyForecastActivity.
-        // use a key (DAILY_FORECAST) to label this extra, and value is the extra we want to send over.
-        intent.putExtra(DAILY_FORECAST, mForecast.getDailyForecast());
+        // we used to send over the whole array of Day objects (as Parcelables) this way, now we
+        // only send which location it is; DailyForecastActivity gets the already-parsed forecast
+        // from the ForecastRepository.
+        intent.putExtra(LOCATION_KEY, mLocationRegistry.getSelected().getKey());
 
         startActivity(intent);
     }
@@ -406,37 +440,8 @@ public class MainActivity extends ActionBarActivity {
     @OnClick(R.id.hourlyButton)
     public void startHourlyActivity(View view){
         Intent intent = new Intent(this, HourlyForecastActivity.class);
-        intent.putExtra(HOURLY_ACTIVITY, mForecast.getHourlyForecast());
+        intent.putExtra(LOCATION_KEY, mLocationRegistry.getSelected().getKey());
         startActivity(intent);
     }
 
-    // Helper methods to hide API Key in assets folder so that it isn't visible on GitHub.
-    private String getAPIKey() {
-        Properties prop = loadProperties();
-        String apiKey = prop.getProperty("apikey");
-        return apiKey;
-    }
-
-    @TargetApi(Build.VERSION_CODES.KITKAT)
-    private Properties loadProperties() {
-        Properties prop = new Properties();
-        String[] fileList = {"config.properties"};   // can get multiple property files if you want.
-
-        for (int i = fileList.length - 1; i >= 0; --i) {
-            String file = fileList[i];
-
-            // using new try-with-resoruces syntax in Java 7 to open file.
-            // don't need to use "finally" block.
-            try (InputStream inputStream = getAssets().open(file)) {   //
-                prop.load(inputStream);
-                inputStream.close(); // do we need to explicitly close stream with try-with-resources?
-            } catch (FileNotFoundException fnfe) {
-                Log.d(TAG, "Ignoring missing property file " + file);
-            } catch (IOException ioe) {
-                Log.e(TAG, "More general input/output exception", ioe);
-            }
-        }
-        return prop;
-    }
-
 } // end MainActivity class
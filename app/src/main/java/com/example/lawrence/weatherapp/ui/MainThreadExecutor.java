@@ -0,0 +1,27 @@
+package com.example.lawrence.weatherapp.ui;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.concurrent.Executor;
+
+// Runs tasks on the main (UI) thread, in the order they were handed over.
+// Screens subscribe to the ForecastFetchEngine and ForecastRepository with it, so their callbacks
+// can touch views directly instead of each wrapping itself in runOnUiThread().
+public final class MainThreadExecutor implements Executor {
+
+    private static final MainThreadExecutor INSTANCE = new MainThreadExecutor();
+
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+    private MainThreadExecutor() { }
+
+    public static MainThreadExecutor get() {
+        return INSTANCE;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        mHandler.post(task);
+    }
+}
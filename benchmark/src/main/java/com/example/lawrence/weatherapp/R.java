@@ -0,0 +1,18 @@
+package com.example.lawrence.weatherapp;
+
+// JVM stand-in for the generated resource ids the old model code used (see LegacyModel).
+public final class R {
+
+    public static final class drawable {
+        public static final int clear_day = 0x7f020001;
+        public static final int clear_night = 0x7f020002;
+        public static final int cloudy = 0x7f020003;
+        public static final int cloudy_night = 0x7f020004;
+        public static final int fog = 0x7f020005;
+        public static final int partly_cloudy = 0x7f020006;
+        public static final int rain = 0x7f020007;
+        public static final int sleet = 0x7f020008;
+        public static final int snow = 0x7f020009;
+        public static final int wind = 0x7f02000a;
+    }
+}
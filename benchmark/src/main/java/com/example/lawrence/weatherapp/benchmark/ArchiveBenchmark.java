@@ -0,0 +1,131 @@
+package com.example.lawrence.weatherapp.benchmark;
+
+import com.example.lawrence.weatherapp.data.ArchiveCursor;
+import com.example.lawrence.weatherapp.data.ForecastArchive;
+import com.example.lawrence.weatherapp.weather.Forecast;
+import com.example.lawrence.weatherapp.weather.Hour;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Average temperature over months of archived hours (a forecast fetched every hour, like the
+// background refresh does for a steady location):
+//   cursor        ForecastArchive.query() and an ArchiveCursor over the mapped records
+//   hourObjects   the same records turned into an Hour each first, as a List<Hour> API would
+// "compacted" is right after ForecastArchive.compact(); otherwise every run still has its
+// superseded records, which the query skips. Run with "-prof gc" to see the per-hour allocations of hourObjects.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ArchiveBenchmark {
+
+    private static final String KEY = "37.83,-122.42";
+    private static final long HOUR = 3600;
+    private static final long START = 1455523200;
+
+    @Param({"30", "90"})
+    public int days;
+
+    @Param({"false", "true"})
+    public boolean compacted;
+
+    private File mDirectory;
+    private ForecastArchive mArchive;
+
+    @Setup
+    public void setUp() throws IOException {
+        mDirectory = File.createTempFile("archive", "");
+        mDirectory.delete();
+        mArchive = new ForecastArchive(mDirectory);
+        for (int i = 0; i < days * 24; ++i) {
+            mArchive.append(KEY, forecast(START + i * HOUR));
+        }
+        if (compacted) {
+            mArchive.compact();
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        mArchive.close();
+        File[] generations = mDirectory.listFiles();
+        if (generations != null) {
+            for (File generation : generations) {
+                File[] files = generation.listFiles();
+                if (files != null) {
+                    for (File file : files) {
+                        file.delete();
+                    }
+                }
+                generation.delete();
+            }
+        }
+        mDirectory.delete();
+    }
+
+    @Benchmark
+    public double cursor() throws IOException {
+        ArchiveCursor cursor = mArchive.query(KEY, ForecastArchive.HOURLY, 0, Long.MAX_VALUE);
+        double sum = 0;
+        while (cursor.moveToNext()) {
+            sum += cursor.getTemperatureValue();
+        }
+        return sum / cursor.getCount();
+    }
+
+    @Benchmark
+    public double hourObjects() throws IOException {
+        ArchiveCursor cursor = mArchive.query(KEY, ForecastArchive.HOURLY, 0, Long.MAX_VALUE);
+        List<Hour> hours = new ArrayList<>(cursor.getCount());
+        while (cursor.moveToNext()) {
+            Hour hour = new Hour();
+            hour.setTime(cursor.getTime());
+            hour.setTemperature(cursor.getTemperatureValue());
+            hour.setSummary(cursor.getSummary());
+            hour.setIcon(cursor.getIcon());
+            hour.setTimezone(cursor.getTimezone());
+            hours.add(hour);
+        }
+        double sum = 0;
+        for (Hour hour : hours) {
+            sum += hour.getTemperature();
+        }
+        return sum / hours.size();
+    }
+
+    private static Forecast forecast(long start) {
+        Hour[] hours = new Hour[49];
+        for (int i = 0; i < hours.length; ++i) {
+            Hour hour = new Hour();
+            hour.setTime(start + i * HOUR);
+            hour.setTemperature(50 + 10 * Math.sin((start / HOUR + i) * Math.PI / 12));
+            hour.setIcon("partly-cloudy-day");
+            hour.setSummary("Partly Cloudy");
+            hour.setTimezone("America/Los_Angeles");
+            hours[i] = hour;
+        }
+        Forecast forecast = new Forecast();
+        forecast.setFetchedAt(start * 1000);
+        forecast.setHourlyForecast(hours);
+        return forecast;
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.lawrence.weatherapp.benchmark;
+
+import com.example.lawrence.weatherapp.weather.Forecast;
+import com.example.lawrence.weatherapp.weather.ForecastParser;
+import com.example.lawrence.weatherapp.weather.ForecastSeries;
+import com.example.lawrence.weatherapp.weather.Hour;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+// What binding every row of the extended hourly list costs: the Strings each row hands to its
+// TextViews. "legacy" is what HourAdapter used to do per row (a new SimpleDateFormat and Date,
+// plus "" + value concatenation); "series" is the current bind path. Run with "-prof gc":
+// gc.alloc.rate.norm for "series" should be ~0 bytes per op once the labels are warm.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BindPathBenchmark {
+
+    private Hour[] mHours;
+    private ForecastSeries mSeries;
+
+    @Setup
+    public void setUp() throws IOException {
+        byte[] payload = Fixtures.load("forecast_extended.json");
+        Forecast forecast = ForecastParser.parse(
+                new InputStreamReader(new ByteArrayInputStream(payload), "UTF-8"));
+        mHours = forecast.getHourlyForecast();
+        mSeries = forecast.getHourlySeries();
+    }
+
+    @Benchmark
+    public void legacy(Blackhole blackhole) {
+        for (Hour hour : mHours) {
+            SimpleDateFormat formatter = new SimpleDateFormat("h a");
+            formatter.setTimeZone(TimeZone.getTimeZone(hour.getTimezone()));
+            blackhole.consume(formatter.format(new Date(hour.getTime() * 1000)) + "");
+            blackhole.consume(hour.getSummary() + "");
+            blackhole.consume(hour.getTemperature() + "");
+        }
+    }
+
+    @Benchmark
+    public void series(Blackhole blackhole) {
+        for (int i = 0; i < mSeries.size(); ++i) {
+            blackhole.consume(mSeries.getHour(i));
+            blackhole.consume(mSeries.getSummary(i));
+            blackhole.consume(mSeries.getTemperatureLabel(i));
+        }
+    }
+}
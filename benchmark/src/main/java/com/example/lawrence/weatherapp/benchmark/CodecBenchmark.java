@@ -0,0 +1,92 @@
+package com.example.lawrence.weatherapp.benchmark;
+
+import com.example.lawrence.weatherapp.weather.Forecast;
+import com.example.lawrence.weatherapp.weather.ForecastCodec;
+import com.example.lawrence.weatherapp.weather.ForecastParser;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+// Ways to keep a forecast as bytes (on disk, or to hand it to another process):
+//   binaryEncode / binaryDecode   ForecastCodec
+//   jsonDecode                    parsing the raw JSON again (keeping it costs nothing to encode)
+//   gzipJsonEncode / gzipJsonDecode  the raw JSON gzipped, and gunzipped + parsed
+// The size of each form is printed during setup.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CodecBenchmark {
+
+    @Param({"forecast_trimmed.json", "forecast_standard.json", "forecast_extended.json"})
+    public String fixture;
+
+    private byte[] mJson;
+    private byte[] mGzipJson;
+    private ByteBuffer mBinary;
+    private Forecast mForecast;
+
+    @Setup
+    public void setUp() throws IOException {
+        mJson = Fixtures.load(fixture);
+        mGzipJson = gzip(mJson);
+        mForecast = Fixtures.parse(fixture);
+        mBinary = ForecastCodec.encode(mForecast);
+        System.out.println(fixture + ": json " + mJson.length + " bytes, gzip json "
+                + mGzipJson.length + " bytes, binary " + mBinary.remaining() + " bytes");
+    }
+
+    @Benchmark
+    public ByteBuffer binaryEncode() {
+        return ForecastCodec.encode(mForecast);
+    }
+
+    @Benchmark
+    public Forecast binaryDecode() throws IOException {
+        return ForecastCodec.decode(mBinary.duplicate());
+    }
+
+    @Benchmark
+    public Forecast jsonDecode() throws IOException {
+        return ForecastParser.parse(new InputStreamReader(new ByteArrayInputStream(mJson), "UTF-8"));
+    }
+
+    @Benchmark
+    public byte[] gzipJsonEncode() throws IOException {
+        return gzip(mJson);
+    }
+
+    @Benchmark
+    public Forecast gzipJsonDecode() throws IOException {
+        return ForecastParser.parse(new InputStreamReader(
+                new GZIPInputStream(new ByteArrayInputStream(mGzipJson)), "UTF-8"));
+    }
+
+    private static byte[] gzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 4);
+        GZIPOutputStream gzip = new GZIPOutputStream(out);
+        gzip.write(bytes);
+        gzip.close();
+        return out.toByteArray();
+    }
+}
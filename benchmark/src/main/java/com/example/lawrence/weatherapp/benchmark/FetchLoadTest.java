@@ -0,0 +1,138 @@
+package com.example.lawrence.weatherapp.benchmark;
+
+import com.example.lawrence.weatherapp.data.ForecastStore;
+import com.example.lawrence.weatherapp.location.TrackedLocation;
+import com.example.lawrence.weatherapp.metrics.Metrics;
+import com.example.lawrence.weatherapp.network.ForecastClient;
+import com.example.lawrence.weatherapp.network.ForecastFetchEngine;
+import com.example.lawrence.weatherapp.network.TileCache;
+import com.example.lawrence.weatherapp.network.TransferStats;
+import com.example.lawrence.weatherapp.standin.RecordedPayloads;
+import com.example.lawrence.weatherapp.standin.StandInDispatcher;
+import com.example.lawrence.weatherapp.weather.Forecast;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockWebServer;
+
+// Not a JMH benchmark: drives the whole ForecastFetchEngine pipeline (fetch, parse on the compute
+// executor, store, publish to a subscriber on its own executor) with thousands of locations
+// against the stand-in server, then prints the throughput and the engine's metrics. Every
+// location gets the recorded forecast_trimmed.json, gzipped, after the given server latency.
+//
+//   ./gradlew :benchmark:loadTest
+//   ./gradlew :benchmark:loadTest -PloadArgs="20000 32 1000 150"   locations, max parallel,
+//                                                                  max queued, latency (ms)
+//   ./gradlew :benchmark:loadTest -PloadArgs="20000 32 1000 150 5"   and with a TileCache of
+//                                                                    that precision
+//
+// Fetches turned away by the queue limit are counted as rejected, not failed.
+public class FetchLoadTest {
+
+    public static void main(String[] args) throws Exception {
+        int locations = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        int maxParallel = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+        int maxQueued = args.length > 2 ? Integer.parseInt(args[2]) : Integer.MAX_VALUE;
+        long latency = args.length > 3 ? Long.parseLong(args[3]) : 0;
+        int tilePrecision = args.length > 4 ? Integer.parseInt(args[4]) : 0;
+
+        MockWebServer server = new MockWebServer();
+        server.setDispatcher(new StandInDispatcher.Builder(new RecordedPayloads(null))
+                .latency(latency).maxAge(0).gzip(true).build());
+        server.start();
+
+        // OkHttp allows 5 calls per host by default; everything here goes to one host.
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(maxParallel);
+        dispatcher.setMaxRequestsPerHost(maxParallel);
+        Metrics metrics = new Metrics();
+        metrics.setEnabled(true);
+        TransferStats transfers = new TransferStats();
+        ForecastClient client = new ForecastClient(ForecastClient.withCompression(
+                new OkHttpClient.Builder().dispatcher(dispatcher), transfers, metrics).build(), transfers);
+
+        File storeDir = File.createTempFile("load", "");
+        storeDir.delete();
+        ForecastFetchEngine engine = new ForecastFetchEngine(client, new ForecastStore(storeDir),
+                server.url("/forecast/"), "key", metrics);
+        engine.setMaxParallel(maxParallel);
+        engine.setMaxQueued(maxQueued);
+        TileCache tiles = null;
+        if (tilePrecision > 0) {
+            tiles = new TileCache(tilePrecision, 60 * 60 * 1000, locations, metrics);
+            engine.setTileCache(tiles);
+        }
+
+        // stands in for the main thread.
+        ExecutorService subscriberExecutor = Executors.newSingleThreadExecutor();
+        final CountDownLatch done = new CountDownLatch(locations);
+        final AtomicInteger loaded = new AtomicInteger();
+        final AtomicInteger failed = new AtomicInteger();
+        final AtomicInteger rejected = new AtomicInteger();
+        engine.addSubscriber(new ForecastFetchEngine.Subscriber() {
+            @Override
+            public void onForecastLoaded(TrackedLocation location, Forecast forecast) {
+                loaded.incrementAndGet();
+                done.countDown();
+            }
+
+            @Override
+            public void onForecastFailed(TrackedLocation location, IOException e) {
+                if (e instanceof ForecastFetchEngine.FetchRejectedException) {
+                    rejected.incrementAndGet();
+                } else {
+                    failed.incrementAndGet();
+                }
+                done.countDown();
+            }
+        }, subscriberExecutor);
+
+        // a grid of distinct locations, so each one is its own fetch. (with tiles, the rows are
+        // close enough together for a few of them to share each tile.)
+        List<TrackedLocation> tracked = new ArrayList<>(locations);
+        for (int i = 0; i < locations; ++i) {
+            tracked.add(new TrackedLocation("Location " + i, -60 + (i / 360) * 0.01, -180 + (i % 360)));
+        }
+
+        long start = System.nanoTime();
+        engine.refresh(tracked, false);
+        boolean finished = done.await(10, TimeUnit.MINUTES);
+        long elapsed = System.nanoTime() - start;
+
+        System.out.println(String.format("%d locations, %d parallel: %d loaded, %d failed, %d rejected%s",
+                locations, maxParallel, loaded.get(), failed.get(), rejected.get(),
+                finished ? "" : " (timed out)"));
+        System.out.println(String.format("%.1f s, %.0f forecasts/s",
+                elapsed / 1e9, loaded.get() / (elapsed / 1e9)));
+        System.out.println("transferred: " + transfers.getTotal());
+        if (tiles != null) {
+            System.out.println("tiles: " + tiles);
+        }
+        System.out.println(metrics.dump());
+
+        engine.shutdown();
+        subscriberExecutor.shutdown();
+        server.shutdown();
+        delete(storeDir);
+    }
+
+    private static void delete(File file) {
+        File[] files = file.listFiles();
+        if (files != null) {
+            for (File child : files) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
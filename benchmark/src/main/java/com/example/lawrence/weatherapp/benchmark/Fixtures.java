@@ -0,0 +1,48 @@
+package com.example.lawrence.weatherapp.benchmark;
+
+import com.example.lawrence.weatherapp.weather.Forecast;
+import com.example.lawrence.weatherapp.weather.ForecastParser;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+
+// Loads the recorded forecast payloads (core/src/test/resources/forecast) from the classpath.
+//
+// The corpus, smallest to largest (benchmarks list these in their @Param):
+//   forecast_trimmed.json          ~21 KB  minutely, alerts and flags excluded, 49 hours
+//   forecast_standard.json         ~26 KB  the default response, 49 hours
+//   forecast_extended_trimmed.json ~57 KB  extend=hourly, minutely, alerts and flags excluded
+//   forecast_extended.json         ~62 KB  extend=hourly, 169 hours
+//   forecast_extended_pretty.json  ~123 KB the same, pretty-printed (whitespace-heavy input)
+//   forecast_month_pretty.json     ~447 KB synthesized from the pretty one: its 169 hours
+//                                          repeated to 721 (30 days), a little warmer each time
+final class Fixtures {
+
+    private Fixtures() { }
+
+    static Forecast parse(String name) throws IOException {
+        InputStream in = new ByteArrayInputStream(load(name));
+        return ForecastParser.parse(new InputStreamReader(in, "UTF-8"));
+    }
+
+    static byte[] load(String name) throws IOException {
+        InputStream in = Fixtures.class.getClassLoader().getResourceAsStream("forecast/" + name);
+        if (in == null) {
+            throw new IOException("Missing fixture " + name);
+        }
+
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            for (int n; (n = in.read(buffer)) != -1; ) {
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+}
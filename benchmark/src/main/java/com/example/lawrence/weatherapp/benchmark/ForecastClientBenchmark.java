@@ -0,0 +1,116 @@
+package com.example.lawrence.weatherapp.benchmark;
+
+import com.example.lawrence.weatherapp.network.ForecastClient;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Call;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+
+// Cold vs. warm forecast request latency against a local MockWebServer.
+//  - coldClient:     a new OkHttpClient per request, like getForecast() used to do.
+//  - warmClient:     the shared ForecastClient, reusing a pooled connection.
+//  - warmRevalidate: the shared client with its HTTP cache; the server answers the
+//                    conditional request with 304 Not Modified, as for an unchanged forecast.
+// The server speaks plain HTTP, so the cold numbers leave out the TLS handshake the real API adds.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ForecastClientBenchmark {
+
+    private static final String ETAG = "\"forecast-v1\"";
+
+    private MockWebServer mServer;
+    private HttpUrl mUrl;
+    private File mCacheDir;
+    private ForecastClient mPooledClient;
+    private ForecastClient mCachingClient;
+
+    @Setup
+    public void setUp() throws IOException {
+        final byte[] payload = Fixtures.load("forecast_standard.json");
+
+        mServer = new MockWebServer();
+        mServer.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                if (ETAG.equals(request.getHeader("If-None-Match"))) {
+                    return new MockResponse().setResponseCode(304).setHeader("ETag", ETAG);
+                }
+                return new MockResponse()
+                        .setHeader("ETag", ETAG)
+                        .setHeader("Cache-Control", "max-age=3600")
+                        .setBody(new Buffer().write(payload));
+            }
+        });
+        mServer.start();
+        mUrl = mServer.url("/forecast/key/37.8267,-122.423");
+
+        mCacheDir = File.createTempFile("forecast-cache", "");
+        mCacheDir.delete();
+
+        OkHttpClient.Builder builder = ForecastClient.newHttpClientBuilder(mCacheDir);
+        mCachingClient = new ForecastClient(builder.build());
+        mPooledClient = new ForecastClient(builder.cache(null).build());
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        mServer.shutdown();
+        mCachingClient.getHttpClient().cache().evictAll();
+    }
+
+    @Benchmark
+    public long coldClient() throws IOException {
+        OkHttpClient client = new OkHttpClient();
+        try {
+            return execute(client.newCall(new Request.Builder().url(mUrl).build()));
+        } finally {
+            client.connectionPool().evictAll();
+        }
+    }
+
+    @Benchmark
+    public long warmClient() throws IOException {
+        return execute(mPooledClient.newCall(mUrl, false));
+    }
+
+    @Benchmark
+    public long warmRevalidate() throws IOException {
+        return execute(mCachingClient.newCall(mUrl, true));
+    }
+
+    private static long execute(Call call) throws IOException {
+        Response response = call.execute();
+        try {
+            return response.body().bytes().length;
+        } finally {
+            response.body().close();
+        }
+    }
+}
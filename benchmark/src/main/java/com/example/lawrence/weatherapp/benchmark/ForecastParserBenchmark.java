@@ -0,0 +1,78 @@
+package com.example.lawrence.weatherapp.benchmark;
+
+import com.example.lawrence.weatherapp.network.Utf8SourceReader;
+import com.example.lawrence.weatherapp.weather.Forecast;
+import com.example.lawrence.weatherapp.weather.ForecastParser;
+
+import org.json.JSONException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+
+import okio.Buffer;
+import okio.BufferedSource;
+
+// Old three-pass JSONObject parsing vs. the single-pass streaming ForecastParser.
+// Both start from the raw response bytes, so the legacy path also pays for building the String
+// (what response.body().string() used to do). Run with "-prof gc" for bytes allocated per parse.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ForecastParserBenchmark {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    @Param({"forecast_trimmed.json", "forecast_standard.json", "forecast_extended_trimmed.json",
+            "forecast_extended.json", "forecast_extended_pretty.json", "forecast_month_pretty.json"})
+    public String fixture;
+
+    private byte[] mPayload;
+
+    @Setup
+    public void setUp() throws IOException {
+        mPayload = Fixtures.load(fixture);
+    }
+
+    @Benchmark
+    public Forecast legacyThreePass() throws JSONException {
+        return LegacyForecastParser.parse(new String(mPayload, UTF_8));
+    }
+
+    @Benchmark
+    public Forecast streamingSinglePass() throws IOException {
+        Reader reader = new InputStreamReader(new ByteArrayInputStream(mPayload), UTF_8);
+        return ForecastParser.parse(reader);
+    }
+
+    // the next two start from an okio Buffer, like a response body's source does.
+    // what the engine used to do: response.body().charStream().
+    @Benchmark
+    public Forecast charStreamFromSource() throws IOException {
+        BufferedSource source = new Buffer().write(mPayload);
+        return ForecastParser.parse(new InputStreamReader(source.inputStream(), UTF_8));
+    }
+
+    // what it does now: decode straight out of the source's segments.
+    @Benchmark
+    public Forecast utf8SourceReader() throws IOException {
+        return ForecastParser.parse(new Utf8SourceReader(new Buffer().write(mPayload)));
+    }
+}
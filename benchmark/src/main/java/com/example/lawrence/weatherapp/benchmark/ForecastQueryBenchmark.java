@@ -0,0 +1,88 @@
+package com.example.lawrence.weatherapp.benchmark;
+
+import com.example.lawrence.weatherapp.location.TrackedLocation;
+import com.example.lawrence.weatherapp.network.ForecastClient;
+import com.example.lawrence.weatherapp.network.ForecastQuery;
+import com.example.lawrence.weatherapp.standin.RecordedPayloads;
+import com.example.lawrence.weatherapp.standin.StandInDispatcher;
+import com.example.lawrence.weatherapp.weather.Forecast;
+import com.example.lawrence.weatherapp.weather.ForecastParser;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockWebServer;
+
+// Download + parse of one forecast for each ForecastQuery, against the stand-in server, which
+// answers with the recorded fixture matching the query's exclude/extend parameters:
+//   all      no parameters, every block (forecast_standard.json)
+//   default  ForecastQuery.DEFAULT, what the main screen asks for (forecast_trimmed.json)
+//   extended ForecastQuery.EXTENDED_HOURLY, the hourly screen (forecast_extended_trimmed.json)
+// The payload size of each is printed during setup.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ForecastQueryBenchmark {
+
+    private static final TrackedLocation LOCATION = new TrackedLocation("Alcatraz Island", 37.8267, -122.423);
+
+    @Param({"all", "default", "extended"})
+    public String query;
+
+    private MockWebServer mServer;
+    private ForecastClient mClient;
+    private HttpUrl mUrl;
+
+    @Setup
+    public void setUp() throws IOException {
+        mServer = new MockWebServer();
+        mServer.setDispatcher(new StandInDispatcher.Builder(new RecordedPayloads(null)).maxAge(0).build());
+        mServer.start();
+
+        ForecastQuery forecastQuery = "all".equals(query) ? null
+                : "default".equals(query) ? ForecastQuery.DEFAULT : ForecastQuery.EXTENDED_HOURLY;
+        HttpUrl baseUrl = mServer.url("/forecast/");
+        mUrl = forecastQuery != null ? forecastQuery.toUrl(baseUrl, "key", LOCATION)
+                : baseUrl.newBuilder().addPathSegment("key")
+                        .addPathSegment(LOCATION.getLatitude() + "," + LOCATION.getLongitude()).build();
+
+        // no cache, so every call downloads the payload.
+        mClient = new ForecastClient(new OkHttpClient());
+        Response response = mClient.newCall(mUrl, false).execute();
+        System.out.println(query + ": " + response.body().bytes().length + " bytes, " + mUrl);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        mServer.shutdown();
+    }
+
+    @Benchmark
+    public Forecast fetchAndParse() throws IOException {
+        Response response = mClient.newCall(mUrl, false).execute();
+        try {
+            return ForecastParser.parse(response.body().charStream());
+        } finally {
+            response.body().close();
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.lawrence.weatherapp.benchmark;
+
+import com.example.lawrence.weatherapp.weather.Day;
+import com.example.lawrence.weatherapp.weather.Forecast;
+import com.example.lawrence.weatherapp.weather.Hour;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+// The Hour/Day formatting helpers over a whole forecast: a SimpleDateFormat per call (legacy)
+// vs. the shared TimeFormatter. Run with "-prof gc" to see the allocations go away.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FormattingBenchmark {
+
+    @Param({"forecast_trimmed.json", "forecast_standard.json", "forecast_extended.json"})
+    public String fixture;
+
+    private Hour[] mHours;
+    private Day[] mDays;
+
+    @Setup
+    public void setUp() throws IOException {
+        Forecast forecast = Fixtures.parse(fixture);
+        mHours = forecast.getHourlyForecast();
+        mDays = forecast.getDailyForecast();
+    }
+
+    @Benchmark
+    public void legacy(Blackhole blackhole) {
+        for (Hour hour : mHours) {
+            blackhole.consume(LegacyModel.getHour(hour.getTime()));
+        }
+        for (Day day : mDays) {
+            blackhole.consume(LegacyModel.getDayOfTheWeek(day.getTime(), day.getTimezone()));
+        }
+    }
+
+    @Benchmark
+    public void timeFormatter(Blackhole blackhole) {
+        for (Hour hour : mHours) {
+            blackhole.consume(hour.getHour());
+        }
+        for (Day day : mDays) {
+            blackhole.consume(day.getDayOfTheWeek());
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.lawrence.weatherapp.benchmark;
+
+import com.example.lawrence.weatherapp.weather.Forecast;
+import com.example.lawrence.weatherapp.weather.Hour;
+import com.example.lawrence.weatherapp.weather.IconCode;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+// Icon for every hour of a forecast: the old String.equals chain to a drawable id, a lookup of
+// the icon string, and the IconCode the model resolved when it was parsed (what binding a row
+// costs now; the app turns the code into a drawable with an array read, see ui/IconResources).
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IconLookupBenchmark {
+
+    @Param({"forecast_trimmed.json", "forecast_standard.json", "forecast_extended.json"})
+    public String fixture;
+
+    private Hour[] mHours;
+
+    @Setup
+    public void setUp() throws IOException {
+        Forecast forecast = Fixtures.parse(fixture);
+        mHours = forecast.getHourlyForecast();
+    }
+
+    @Benchmark
+    public int legacyEqualsChain() {
+        int sum = 0;
+        for (Hour hour : mHours) {
+            sum += LegacyModel.getIconId(hour.getIcon());
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int lookupByString() {
+        int sum = 0;
+        for (Hour hour : mHours) {
+            sum += IconCode.fromIcon(hour.getIcon()).ordinal();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int resolvedAtParse() {
+        int sum = 0;
+        for (Hour hour : mHours) {
+            sum += hour.getIconCode().ordinal();
+        }
+        return sum;
+    }
+}
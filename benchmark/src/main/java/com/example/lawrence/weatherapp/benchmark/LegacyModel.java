@@ -1,18 +1,18 @@
-package com.example.lawrence.weatherapp.weather;
+package com.example.lawrence.weatherapp.benchmark;
 
 import com.example.lawrence.weatherapp.R;
 
-// Bundles together all weather data models:
-// current weather (Current.java),
-// weather in the next few hours (Hour.java),
-// weather for the next few days (Day.java).
-public class Forecast {
-    private Current mCurrent;
-    private Hour[] mHourlyForecast;
-    private Day[] mDailyForecast;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.TimeZone;
 
-    // converts the string in JSON data into a int so that we can matchup with corresponding weather icon.
-    public static int getIconId(String iconString) {
+// The model helpers as they were before IconCode and TimeFormatter, kept here as baselines.
+final class LegacyModel {
+
+    private LegacyModel() { }
+
+    // Forecast.getIconId(): up to 10 string comparisons per call.
+    static int getIconId(String iconString) {
         int iconId = R.drawable.clear_day;
 
         if (iconString.equals("clear-day")) {
@@ -40,27 +40,18 @@ public class Forecast {
         return iconId;
     }
 
-    public Current getCurrent() {
-        return mCurrent;
-    }
-
-    public void setCurrent(Current current) {
-        mCurrent = current;
-    }
-
-    public Hour[] getHourlyForecast() {
-        return mHourlyForecast;
-    }
-
-    public void setHourlyForecast(Hour[] hourlyForecast) {
-        mHourlyForecast = hourlyForecast;
-    }
-
-    public Day[] getDailyForecast() {
-        return mDailyForecast;
+    // Hour.getHour(): a new SimpleDateFormat and Date per call.
+    static String getHour(long time) {
+        SimpleDateFormat formatter = new SimpleDateFormat("h a");
+        Date date = new Date(time * 1000);
+        return formatter.format(date);
     }
 
-    public void setDailyForecast(Day[] dailyForecast) {
-        mDailyForecast = dailyForecast;
+    // Day.getDayOfTheWeek()
+    static String getDayOfTheWeek(long time, String timezone) {
+        SimpleDateFormat formatter = new SimpleDateFormat("EEEE");
+        formatter.setTimeZone(TimeZone.getTimeZone(timezone));
+        Date dateTime = new Date(time * 1000);
+        return formatter.format(dateTime);
     }
 }
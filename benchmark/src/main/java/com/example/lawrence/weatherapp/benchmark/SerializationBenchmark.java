@@ -0,0 +1,55 @@
+package com.example.lawrence.weatherapp.benchmark;
+
+import com.example.lawrence.weatherapp.weather.Forecast;
+import com.example.lawrence.weatherapp.weather.ForecastCodec;
+import com.example.lawrence.weatherapp.weather.ForecastSeries;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+// Moving a parsed forecast around after parsing:
+//   codecRoundTrip    ForecastCodec, what saving and loading it in ForecastStore costs
+//                     (CodecBenchmark compares it with JSON and gzipped JSON)
+//   buildSeries       ForecastSeries from Hour[]/Day[] (setHourlyForecast(); the parser fills
+//                     series directly, so a refresh no longer pays for this)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+    @Param({"forecast_trimmed.json", "forecast_standard.json", "forecast_extended.json"})
+    public String fixture;
+
+    private Forecast mForecast;
+
+    @Setup
+    public void setUp() throws IOException {
+        mForecast = Fixtures.parse(fixture);
+    }
+
+    @Benchmark
+    public Forecast codecRoundTrip() throws IOException {
+        return ForecastCodec.decode(ForecastCodec.encode(mForecast));
+    }
+
+    @Benchmark
+    public ForecastSeries buildSeries() {
+        ForecastSeries.fromDays(mForecast.getDailyForecast());
+        return ForecastSeries.fromHours(mForecast.getHourlyForecast());
+    }
+}
@@ -0,0 +1,195 @@
+package com.example.lawrence.weatherapp.cli;
+
+import com.example.lawrence.weatherapp.data.ForecastRepository;
+import com.example.lawrence.weatherapp.data.ForecastStore;
+import com.example.lawrence.weatherapp.location.LocationRegistry;
+import com.example.lawrence.weatherapp.location.TrackedLocation;
+import com.example.lawrence.weatherapp.metrics.Histogram;
+import com.example.lawrence.weatherapp.metrics.Metrics;
+import com.example.lawrence.weatherapp.network.ForecastClient;
+import com.example.lawrence.weatherapp.network.ForecastFetchEngine;
+import com.example.lawrence.weatherapp.weather.Forecast;
+import com.example.lawrence.weatherapp.weather.ForecastParser;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.HttpUrl;
+
+/*
+ * Runs the forecast core from the command line, without Android, so its throughput and memory can
+ * be measured on a normal JVM (and with the usual profilers attached):
+ *
+ *   replay <payload.json> [locations] [rounds]
+ *       parses a recorded payload for each of [locations] made-up locations, [rounds] times,
+ *       storing each result (ForecastStore) and keeping the newest one per location in a
+ *       ForecastRepository, like the engine does with a real response.
+ *
+ *   fetch <api key> <locations file | count> [forecast url]
+ *       refreshes the locations through ForecastFetchEngine. The file uses the LocationRegistry
+ *       format ("name|latitude|longitude" lines); a count makes up that many locations. The
+ *       forecast url defaults to the real service, so point it at a local server for big counts.
+ *
+ * This module ends up in the app too, so it sticks to java.io (no java.nio.file on Android).
+ *
+ * Both print the time taken, the heap still in use afterwards (everything is kept in the
+ * repository, like the app would) and the metrics of every stage; fetch also prints the bytes
+ * transferred, on the wire and decompressed.
+ *
+ *   ./gradlew :core:cli -PcliArgs="replay src/test/resources/forecast/forecast_trimmed.json 5000 3"
+ */
+public final class ForecastCli {
+
+    private static final String FORECAST_URL = "https://api.forecast.io/forecast/";
+
+    private ForecastCli() { }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length >= 2 && "replay".equals(args[0])) {
+            replay(new File(args[1]),
+                    args.length > 2 ? Integer.parseInt(args[2]) : 1000,
+                    args.length > 3 ? Integer.parseInt(args[3]) : 1);
+        } else if (args.length >= 3 && "fetch".equals(args[0])) {
+            fetch(args[1], args[2], args.length > 3 ? args[3] : FORECAST_URL);
+        } else {
+            System.err.println("usage: replay <payload.json> [locations] [rounds]");
+            System.err.println("       fetch <api key> <locations file | count> [forecast url]");
+            System.exit(2);
+        }
+    }
+
+    private static void replay(File payloadFile, int count, int rounds) throws IOException {
+        byte[] payload = readFile(payloadFile);
+        List<TrackedLocation> locations = makeUpLocations(count);
+        File directory = createTempDirectory();
+        ForecastStore store = new ForecastStore(directory);
+        ForecastRepository repository = new ForecastRepository(store);
+        Metrics metrics = newMetrics();
+        Histogram parse = metrics.histogram(Metrics.FORECAST_PARSE);
+        Histogram save = metrics.histogram(Metrics.STORE_SAVE);
+
+        long start = System.nanoTime();
+        for (int round = 0; round < rounds; ++round) {
+            for (TrackedLocation location : locations) {
+                long parseStart = metrics.startTimer();
+                Forecast forecast;
+                try (Reader reader = new InputStreamReader(new ByteArrayInputStream(payload), "UTF-8")) {
+                    forecast = ForecastParser.parse(reader);
+                }
+                forecast.setFetchedAt(System.currentTimeMillis());
+                parse.recordSince(parseStart);
+
+                long saveStart = metrics.startTimer();
+                store.save(location.getKey(), forecast);
+                save.recordSince(saveStart);
+                repository.put(location.getKey(), forecast);
+            }
+        }
+        report(count * rounds + " forecasts replayed", count * rounds, System.nanoTime() - start, metrics);
+        delete(directory);
+    }
+
+    private static void fetch(String apiKey, String locationsArg, String url) throws Exception {
+        List<TrackedLocation> locations;
+        if (new File(locationsArg).isFile()) {
+            locations = new LocationRegistry(new File(locationsArg)).getLocations();
+        } else {
+            locations = makeUpLocations(Integer.parseInt(locationsArg));
+        }
+        File directory = createTempDirectory();
+        Metrics metrics = newMetrics();
+        ForecastStore store = new ForecastStore(new File(directory, "forecasts"));
+        ForecastClient client = new ForecastClient(new File(directory, "http"), metrics);
+        ForecastFetchEngine engine = new ForecastFetchEngine(client, store, HttpUrl.parse(url), apiKey, metrics);
+        ForecastRepository repository = new ForecastRepository(store);
+        engine.addSubscriber(repository);
+
+        final CountDownLatch done = new CountDownLatch(locations.size());
+        final AtomicInteger loaded = new AtomicInteger();
+        engine.addSubscriber(new ForecastFetchEngine.Subscriber() {
+            @Override
+            public void onForecastLoaded(TrackedLocation location, Forecast forecast) {
+                loaded.incrementAndGet();
+                done.countDown();
+            }
+
+            @Override
+            public void onForecastFailed(TrackedLocation location, IOException e) {
+                System.err.println(location + ": " + e);
+                done.countDown();
+            }
+        });
+
+        long start = System.nanoTime();
+        engine.refresh(locations, false);
+        if (!done.await(30, TimeUnit.MINUTES)) {
+            System.err.println("timed out");
+        }
+        report(loaded.get() + " of " + locations.size() + " forecasts fetched", loaded.get(),
+                System.nanoTime() - start, metrics);
+        System.out.println("transferred: " + client.getTransferStats().getTotal());
+        engine.shutdown();
+        delete(directory);
+    }
+
+    private static void report(String what, int forecasts, long nanos, Metrics metrics) {
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        System.out.println(String.format("%s in %.2f s (%.0f per second)",
+                what, nanos / 1e9, forecasts / (nanos / 1e9)));
+        System.out.println(String.format("heap in use: %.1f MB",
+                (runtime.totalMemory() - runtime.freeMemory()) / (1024.0 * 1024.0)));
+        System.out.println(metrics.dump());
+    }
+
+    // a grid of distinct locations (the keys round to two decimals, so they're 0.01 apart).
+    private static List<TrackedLocation> makeUpLocations(int count) {
+        List<TrackedLocation> locations = new ArrayList<>(count);
+        for (int i = 0; i < count; ++i) {
+            locations.add(new TrackedLocation("Location " + i, -60 + (i / 360) * 0.01, -180 + (i % 360)));
+        }
+        return locations;
+    }
+
+    private static Metrics newMetrics() {
+        Metrics metrics = new Metrics();
+        metrics.setEnabled(true);
+        return metrics;
+    }
+
+    private static byte[] readFile(File file) throws IOException {
+        byte[] bytes = new byte[(int) file.length()];
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            in.readFully(bytes);
+        }
+        return bytes;
+    }
+
+    private static File createTempDirectory() throws IOException {
+        File directory = File.createTempFile("forecast-cli", "");
+        if (!directory.delete() || !directory.mkdirs()) {
+            throw new IOException("Can't create " + directory);
+        }
+        return directory;
+    }
+
+    private static void delete(File file) {
+        File[] files = file.listFiles();
+        if (files != null) {
+            for (File child : files) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
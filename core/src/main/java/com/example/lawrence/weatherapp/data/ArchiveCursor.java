@@ -0,0 +1,109 @@
+package com.example.lawrence.weatherapp.data;
+
+import com.example.lawrence.weatherapp.weather.IconCode;
+
+import java.nio.ByteBuffer;
+
+/*
+ * The result of a ForecastArchive query: a position over archived hourly or daily records, read
+ * straight from the mapped segments. Nothing is created per record, so a loop like
+ *
+ *   ArchiveCursor cursor = archive.query(key, ForecastArchive.HOURLY, from, to);
+ *   while (cursor.moveToNext()) {
+ *       sum += cursor.getTemperature();
+ *   }
+ *
+ * over months of hours allocates nothing. Summaries and icons are shared strings from the
+ * archive's string table.
+ *
+ * A cursor sees the archive as it was when the query ran. Use it from one thread.
+ */
+public class ArchiveCursor {
+
+    private final ForecastArchive.Piece[] mPieces;
+    private final String[] mStrings;
+    private final IconCode[] mIconCodes;
+    private final int mCount;
+
+    private int mPiece;
+    private int mRecord = -1;       // -1 before the first moveToNext().
+    private int mOffset;            // of the current record in its segment.
+
+    ArchiveCursor(ForecastArchive.Piece[] pieces, String[] strings, IconCode[] iconCodes) {
+        mPieces = pieces;
+        mStrings = strings;
+        mIconCodes = iconCodes;
+        int count = 0;
+        for (ForecastArchive.Piece piece : pieces) {
+            count += piece.mEnd - piece.mStart;
+        }
+        mCount = count;
+    }
+
+    public int getCount() {
+        return mCount;
+    }
+
+    public boolean moveToNext() {
+        if (mPiece == mPieces.length) {
+            return false;
+        }
+        mRecord = mRecord < 0 ? mPieces[mPiece].mStart : mRecord + 1;
+        if (mRecord == mPieces[mPiece].mEnd) {
+            ++mPiece;
+            if (mPiece == mPieces.length) {
+                return false;
+            }
+            mRecord = mPieces[mPiece].mStart;
+        }
+        mOffset = mRecord * ForecastArchive.RECORD_SIZE;
+        return true;
+    }
+
+    // seconds since epoch.
+    public long getTime() {
+        return buffer().getInt(mOffset) & 0xffffffffL;
+    }
+
+    // degrees, rounded like Hour.getTemperature() (for daily records, the day's high).
+    public int getTemperature() {
+        return Math.round(getTemperatureValue());
+    }
+
+    public float getTemperatureValue() {
+        return buffer().getInt(mOffset + 4) / 100f;
+    }
+
+    public String getSummary() {
+        return string(buffer().getInt(mOffset + 8));
+    }
+
+    public String getIcon() {
+        return string(buffer().getInt(mOffset + 12));
+    }
+
+    public IconCode getIconCode() {
+        int id = buffer().getInt(mOffset + 12);
+        return id >= 0 ? mIconCodes[id] : IconCode.fromIcon(null);
+    }
+
+    // when the forecast this record comes from was fetched, in milliseconds since epoch.
+    public long getFetchedAt() {
+        return mPieces[mPiece].mRun.mFetchedAt;
+    }
+
+    public String getTimezone() {
+        return string(mPieces[mPiece].mRun.mTimezone);
+    }
+
+    private ByteBuffer buffer() {
+        if (mRecord < 0 || mPiece == mPieces.length) {
+            throw new IllegalStateException("Not on a record");
+        }
+        return mPieces[mPiece].mBuffer;
+    }
+
+    private String string(int id) {
+        return id >= 0 ? mStrings[id] : null;
+    }
+}
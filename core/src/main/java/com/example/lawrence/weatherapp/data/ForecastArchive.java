@@ -0,0 +1,714 @@
+package com.example.lawrence.weatherapp.data;
+
+import com.example.lawrence.weatherapp.location.TrackedLocation;
+import com.example.lawrence.weatherapp.network.ForecastFetchEngine;
+import com.example.lawrence.weatherapp.weather.Forecast;
+import com.example.lawrence.weatherapp.weather.ForecastSeries;
+import com.example.lawrence.weatherapp.weather.IconCode;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Every forecast we have fetched, per location, for trends and for offline use. ForecastStore
+ * only keeps the newest one; this keeps the hours and days of all of them.
+ *
+ * Every fetched forecast is a "run" of hourly records and a run of daily records. Runs overlap:
+ * the forecast fetched at 10:00 covers 10:00 to 10:00 two days later, the one fetched at 11:00
+ * covers 11:00 onwards. Where runs overlap, the newest one wins and the older records are
+ * "superseded"; queries skip them, and compact() deletes them.
+ *
+ * On disk (under the archive directory):
+ *
+ *   strings.dat         every distinct string (location keys, summaries, icons, timezones),
+ *                       appended as they first appear; a string's id is its position.
+ *   gen-N/seg-K.dat     segments: arrays of fixed-width 16 byte records, at most
+ *                       SEGMENT_RECORDS each:
+ *                          int time (seconds, unsigned), int temperature (hundredths of a degree),
+ *                          int summary id, int icon id
+ *   gen-N/index.dat     one fixed-width entry per run (see RUN_SIZE): location, hourly or daily,
+ *                       when it was fetched, its timezone, and where its records are
+ *                       (segment, first record, count) with their first and last time.
+ *
+ * Appending writes a run's records to the end of the newest segment and then its index entry;
+ * the index is what makes a run count, so a crash halfway through leaves no half run behind.
+ * compact() writes the live records to a new generation directory and switches to it once that
+ * is complete, so the archive is never without a consistent copy.
+ *
+ * The index is small (one entry per run) and lives in memory. Segments are read through
+ * MappedByteBuffers and queries return an ArchiveCursor that reads the records where they are,
+ * so going over months of hourly data doesn't create an object per hour.
+ *
+ * The newest segment, the index and strings.dat stay open between appends (close() closes
+ * them; the next append opens them again).
+ *
+ * Thread-safe. It subscribes to the ForecastFetchEngine, so every forecast is archived as it
+ * arrives; subscribe it with an Executor of its own (a single thread), since appending writes
+ * files and every COMPACT_EVERY runs it compacts the archive, which mustn't hold up the engine.
+ */
+public class ForecastArchive implements ForecastFetchEngine.Subscriber {
+
+    public static final int HOURLY = 0;
+    public static final int DAILY = 1;
+
+    static final int RECORD_SIZE = 16;
+    static final int RUN_SIZE = 40;
+    static final int SEGMENT_RECORDS = 16 * 1024;   // 256 KB segments.
+
+    // compact() after this many runs have been appended, to keep superseded records in check.
+    static final int COMPACT_EVERY = 200;
+
+    private final File mDirectory;
+
+    // all guarded by "this". loaded on first use.
+    private boolean mOpen;
+    private int mGeneration;
+    private String[] mStrings = new String[64];
+    private IconCode[] mIconCodes = new IconCode[64];   // mStrings resolved as icons, same ids.
+    private int mStringCount;
+    private final Map<String, Integer> mStringIds = new HashMap<>();
+    private final Map<Integer, List<Run>> mRuns = new HashMap<>();   // by group(), oldest first.
+    private int mRunCount;
+    private int mSegment;            // the segment appends go to,
+    private int mSegmentRecords;     // and how many records it has.
+    private long mRecordCount;
+    private int mAppendedSinceCompaction;
+    private final Map<Integer, MappedByteBuffer> mMapped = new HashMap<>();
+    private RandomAccessFile mSegmentFile;      // mSegment of mGeneration, null until needed.
+    private RandomAccessFile mIndexFile;        // index.dat of mGeneration, null until needed.
+    private DataOutputStream mStringsOut;       // appends to strings.dat, null until needed.
+
+    public ForecastArchive(File directory) {
+        mDirectory = directory;
+    }
+
+    // on the Executor the archive was subscribed with: compacts there too, when it's due.
+    @Override
+    public void onForecastLoaded(TrackedLocation location, Forecast forecast) {
+        try {
+            append(location.getKey(), forecast);
+            if (isCompactionDue()) {
+                compact();
+            }
+        } catch (IOException e) {
+            // the archive is a nice-to-have; the forecast itself is still shown and stored.
+        }
+    }
+
+    @Override
+    public void onForecastFailed(TrackedLocation location, IOException e) {
+        // nothing to archive.
+    }
+
+    // adds a forecast's hours and days. a forecast that was already added (same fetch time) is
+    // skipped. doesn't compact; see isCompactionDue().
+    public synchronized void append(String key, Forecast forecast) throws IOException {
+        open();
+        long fetchedAt = forecast.getFetchedAt();
+        int location = stringId(key);
+
+        appendSeries(location, HOURLY, fetchedAt, forecast.getHourlySeries());
+        appendSeries(location, DAILY, fetchedAt, forecast.getDailySeries());
+    }
+
+    // true once COMPACT_EVERY runs have been appended since the last compact().
+    public synchronized boolean isCompactionDue() {
+        return mAppendedSinceCompaction >= COMPACT_EVERY;
+    }
+
+    // the hourly or daily records of a location with from <= time < to (seconds since epoch),
+    // in time order, each time once (from the newest forecast that has it).
+    public synchronized ArchiveCursor query(String key, int kind, long from, long to) throws IOException {
+        open();
+        List<Piece> pieces = livePieces(key, kind, from, to);
+        return new ArchiveCursor(pieces.toArray(new Piece[pieces.size()]), mStrings, mIconCodes);
+    }
+
+    // the locations there is anything archived for.
+    public synchronized List<String> getLocationKeys() throws IOException {
+        open();
+        List<String> keys = new ArrayList<>();
+        for (int group : mRuns.keySet()) {
+            String key = mStrings[group / 2];
+            if (!keys.contains(key)) {
+                keys.add(key);
+            }
+        }
+        Collections.sort(keys);
+        return keys;
+    }
+
+    // the first and last archived time of a location's hours or days, or null if there are none.
+    public synchronized long[] getTimeRange(String key, int kind) throws IOException {
+        open();
+        Integer location = mStringIds.get(key);
+        List<Run> runs = location != null ? mRuns.get(group(location, kind)) : null;
+        if (runs == null) {
+            return null;
+        }
+        long first = Long.MAX_VALUE;
+        long last = Long.MIN_VALUE;
+        for (Run run : runs) {
+            first = Math.min(first, run.mFirstTime);
+            last = Math.max(last, run.mLastTime);
+        }
+        return new long[] {first, last};
+    }
+
+    // all records on disk, including superseded ones.
+    public synchronized long getRecordCount() throws IOException {
+        open();
+        return mRecordCount;
+    }
+
+    // rewrites the archive without superseded records, and without any before keepFrom
+    // (seconds since epoch; Long.MIN_VALUE keeps everything).
+    public synchronized void compact(long keepFrom) throws IOException {
+        open();
+        int generation = mGeneration + 1;
+        File directory = generationDirectory(generation);
+        deleteDirectory(directory);     // left over from a compaction that didn't finish.
+        if (!directory.mkdirs()) {
+            throw new IOException("Can't create " + directory);
+        }
+
+        Map<Integer, List<Run>> runs = new HashMap<>();
+        int segment = 0;
+        int segmentRecords = 0;
+        long recordCount = 0;
+        ByteBuffer index = ByteBuffer.allocate(RUN_SIZE);
+        FileOutputStream indexOut = new FileOutputStream(new File(directory, "index.tmp"));
+        try {
+            FileChannel segmentOut = null;
+            try {
+                for (int group : mRuns.keySet()) {
+                    List<Run> compacted = new ArrayList<>();
+                    for (Piece piece : livePieces(group, keepFrom, Long.MAX_VALUE)) {
+                        int count = piece.mEnd - piece.mStart;
+                        if (segmentOut == null || segmentRecords + count > SEGMENT_RECORDS) {
+                            if (segmentOut != null) {
+                                segmentOut.close();
+                                ++segment;
+                            }
+                            segmentOut = new FileOutputStream(segmentFile(directory, segment)).getChannel();
+                            segmentRecords = 0;
+                        }
+
+                        ByteBuffer records = piece.mBuffer.duplicate();
+                        records.limit(piece.mEnd * RECORD_SIZE).position(piece.mStart * RECORD_SIZE);
+                        while (records.hasRemaining()) {
+                            segmentOut.write(records);
+                        }
+
+                        Run source = piece.mRun;
+                        Run run = new Run(source.mLocation, source.mKind, source.mFetchedAt, source.mTimezone,
+                                segment, segmentRecords, count,
+                                piece.getTime(piece.mStart), piece.getTime(piece.mEnd - 1));
+                        index.clear();
+                        run.write(index);
+                        index.flip();
+                        while (index.hasRemaining()) {
+                            indexOut.getChannel().write(index);
+                        }
+                        compacted.add(run);
+                        segmentRecords += count;
+                        recordCount += count;
+                    }
+                    if (!compacted.isEmpty()) {
+                        // the pieces came in time order; mRuns keeps them oldest first, like
+                        // addRun() does, so isNewRun() still finds the newest one last.
+                        Collections.sort(compacted, new Comparator<Run>() {
+                            @Override
+                            public int compare(Run a, Run b) {
+                                return a.mFetchedAt < b.mFetchedAt ? -1 : a.mFetchedAt == b.mFetchedAt ? 0 : 1;
+                            }
+                        });
+                        runs.put(group, compacted);
+                    }
+                }
+            } finally {
+                if (segmentOut != null) {
+                    segmentOut.close();
+                }
+            }
+        } finally {
+            indexOut.close();
+        }
+
+        // the new generation counts from here on.
+        if (!new File(directory, "index.tmp").renameTo(new File(directory, "index.dat"))) {
+            throw new IOException("Can't complete " + directory);
+        }
+        int oldGeneration = mGeneration;
+        mGeneration = generation;
+        mRuns.clear();
+        mRuns.putAll(runs);
+        mRunCount = 0;
+        for (List<Run> list : runs.values()) {
+            mRunCount += list.size();
+        }
+        mSegment = segment;
+        mSegmentRecords = segmentRecords;
+        mRecordCount = recordCount;
+        mAppendedSinceCompaction = 0;
+        // open cursors keep their mappings, which stay valid after the files are deleted.
+        mMapped.clear();
+        closeFiles();   // they're in the old generation.
+        deleteDirectory(generationDirectory(oldGeneration));
+    }
+
+    public void compact() throws IOException {
+        compact(Long.MIN_VALUE);
+    }
+
+    // closes the files kept open for appending. the archive stays usable.
+    public synchronized void close() throws IOException {
+        closeFiles();
+    }
+
+    private void closeFiles() throws IOException {
+        try {
+            if (mSegmentFile != null) {
+                mSegmentFile.close();
+            }
+            if (mIndexFile != null) {
+                mIndexFile.close();
+            }
+            if (mStringsOut != null) {
+                mStringsOut.close();
+            }
+        } finally {
+            mSegmentFile = null;
+            mIndexFile = null;
+            mStringsOut = null;
+        }
+    }
+
+    private boolean isNewRun(int location, int kind, long fetchedAt) {
+        List<Run> runs = mRuns.get(group(location, kind));
+        return runs == null || runs.get(runs.size() - 1).mFetchedAt != fetchedAt;
+    }
+
+    private void appendSeries(int location, int kind, long fetchedAt, ForecastSeries series)
+            throws IOException {
+        if (series.size() == 0 || !isNewRun(location, kind, fetchedAt)) {
+            return;
+        }
+        ByteBuffer records = ByteBuffer.allocate(series.size() * RECORD_SIZE);
+        for (int i = 0; i < series.size(); ++i) {
+            records.putInt((int) series.getTime(i));
+            records.putInt(Math.round(series.getTemperatureValue(i) * 100));
+            records.putInt(stringId(series.getSummary(i)));
+            records.putInt(stringId(series.getIcon(i)));
+        }
+        appendRun(location, kind, fetchedAt, stringId(series.getTimezone()),
+                records, series.getTime(0), series.getTime(series.size() - 1));
+    }
+
+    private void appendRun(int location, int kind, long fetchedAt, int timezone, ByteBuffer records,
+                           long firstTime, long lastTime) throws IOException {
+        int count = records.capacity() / RECORD_SIZE;
+        if (mSegmentRecords + count > SEGMENT_RECORDS) {
+            ++mSegment;
+            mSegmentRecords = 0;
+            if (mSegmentFile != null) {
+                mSegmentFile.close();
+                mSegmentFile = null;
+            }
+        }
+        Run run = new Run(location, kind, fetchedAt, timezone, mSegment, mSegmentRecords, count,
+                firstTime, lastTime);
+
+        // the records first, then the index entry that makes them count.
+        File directory = generationDirectory(mGeneration);
+        records.flip();
+        if (mSegmentFile == null) {
+            mSegmentFile = new RandomAccessFile(segmentFile(directory, mSegment), "rw");
+        }
+        FileChannel segment = mSegmentFile.getChannel();
+        long position = (long) mSegmentRecords * RECORD_SIZE;
+        while (records.hasRemaining()) {
+            position += segment.write(records, position);
+        }
+        ByteBuffer entry = ByteBuffer.allocate(RUN_SIZE);
+        run.write(entry);
+        entry.flip();
+        if (mIndexFile == null) {
+            mIndexFile = new RandomAccessFile(new File(directory, "index.dat"), "rw");
+        }
+        FileChannel index = mIndexFile.getChannel();
+        position = (long) mRunCount * RUN_SIZE;
+        while (entry.hasRemaining()) {
+            position += index.write(entry, position);
+        }
+
+        addRun(run);
+        mSegmentRecords += count;
+        mRecordCount += count;
+        ++mAppendedSinceCompaction;
+        mMapped.remove(mSegment);   // grew, map it again next time.
+    }
+
+    // runs are kept oldest first, which is the order they were fetched in (almost always the
+    // order they were appended in).
+    private void addRun(Run run) {
+        int group = group(run.mLocation, run.mKind);
+        List<Run> runs = mRuns.get(group);
+        if (runs == null) {
+            runs = new ArrayList<>();
+            mRuns.put(group, runs);
+        }
+        int i = runs.size();
+        while (i > 0 && runs.get(i - 1).mFetchedAt > run.mFetchedAt) {
+            --i;
+        }
+        runs.add(i, run);
+        ++mRunCount;
+    }
+
+    private List<Piece> livePieces(String key, int kind, long from, long to) throws IOException {
+        Integer location = mStringIds.get(key);
+        if (location == null) {
+            return Collections.emptyList();
+        }
+        return livePieces(group(location, kind), from, to);
+    }
+
+    // the records of a location's hours or days that aren't superseded, as pieces of runs in
+    // time order. the newest run covers its whole time range; each older run only what the
+    // newer ones leave uncovered.
+    private List<Piece> livePieces(int group, long from, long to) throws IOException {
+        List<Piece> pieces = new ArrayList<>();
+        List<Run> runs = mRuns.get(group);
+        if (runs == null || from >= to) {
+            return pieces;
+        }
+
+        List<long[]> covered = new ArrayList<>();   // disjoint [first, last] ranges, in order.
+        for (int r = runs.size() - 1; r >= 0; --r) {
+            Run run = runs.get(r);
+            long first = Math.max(run.mFirstTime, from);
+            long last = Math.min(run.mLastTime, to - 1);
+            if (first > last) {
+                continue;
+            }
+
+            long next = first;
+            for (long[] range : covered) {
+                if (range[1] < next) {
+                    continue;
+                }
+                if (range[0] > last) {
+                    break;
+                }
+                if (range[0] > next) {
+                    addPiece(pieces, run, next, range[0] - 1);
+                }
+                next = Math.max(next, range[1] + 1);
+            }
+            if (next <= last) {
+                addPiece(pieces, run, next, last);
+            }
+            cover(covered, run.mFirstTime, run.mLastTime);
+        }
+
+        Collections.sort(pieces, new Comparator<Piece>() {
+            @Override
+            public int compare(Piece a, Piece b) {
+                long timeA = a.getTime(a.mStart);
+                long timeB = b.getTime(b.mStart);
+                return timeA < timeB ? -1 : timeA == timeB ? 0 : 1;
+            }
+        });
+        return pieces;
+    }
+
+    // the records of a run with first <= time <= last, if there are any.
+    private void addPiece(List<Piece> pieces, Run run, long first, long last) throws IOException {
+        ByteBuffer buffer = map(run.mSegment);
+        Piece piece = new Piece(run, buffer, run.mFirst, run.mFirst + run.mCount);
+        int start = piece.search(first);
+        int end = piece.search(last + 1);
+        if (start < end) {
+            pieces.add(new Piece(run, buffer, start, end));
+        }
+    }
+
+    private static void cover(List<long[]> covered, long first, long last) {
+        int i = 0;
+        while (i < covered.size() && covered.get(i)[1] < first - 1) {
+            ++i;
+        }
+        while (i < covered.size() && covered.get(i)[0] <= last + 1) {
+            long[] range = covered.remove(i);
+            first = Math.min(first, range[0]);
+            last = Math.max(last, range[1]);
+        }
+        covered.add(i, new long[] {first, last});
+    }
+
+    // a read-only mapping of a segment, up to its last record.
+    private MappedByteBuffer map(int segment) throws IOException {
+        MappedByteBuffer buffer = mMapped.get(segment);
+        if (buffer == null) {
+            RandomAccessFile file = new RandomAccessFile(
+                    segmentFile(generationDirectory(mGeneration), segment), "r");
+            try {
+                long size = segment == mSegment ? (long) mSegmentRecords * RECORD_SIZE : file.length();
+                buffer = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, size);
+            } finally {
+                file.close();
+            }
+            mMapped.put(segment, buffer);
+        }
+        return buffer;
+    }
+
+    private int stringId(String value) throws IOException {
+        if (value == null) {
+            return -1;
+        }
+        Integer id = mStringIds.get(value);
+        if (id == null) {
+            if (mStringsOut == null) {
+                mStringsOut = new DataOutputStream(new FileOutputStream(new File(mDirectory, "strings.dat"), true));
+            }
+            mStringsOut.writeUTF(value);    // a single write, so nothing is left in a buffer.
+            id = addString(value);
+        }
+        return id;
+    }
+
+    private int addString(String value) {
+        if (mStringCount == mStrings.length) {
+            // new arrays, so cursors holding on to the old ones are unaffected.
+            mStrings = Arrays.copyOf(mStrings, mStringCount * 2);
+            mIconCodes = Arrays.copyOf(mIconCodes, mStringCount * 2);
+        }
+        mStrings[mStringCount] = value;
+        mIconCodes[mStringCount] = IconCode.fromIcon(value);
+        mStringIds.put(value, mStringCount);
+        return mStringCount++;
+    }
+
+    private void open() throws IOException {
+        if (mOpen) {
+            return;
+        }
+        if (!mDirectory.isDirectory() && !mDirectory.mkdirs()) {
+            throw new IOException("Can't create " + mDirectory);
+        }
+
+        File strings = new File(mDirectory, "strings.dat");
+        if (strings.exists()) {
+            byte[] bytes = new byte[(int) strings.length()];
+            DataInputStream stringsIn = new DataInputStream(new FileInputStream(strings));
+            try {
+                stringsIn.readFully(bytes);
+            } finally {
+                stringsIn.close();
+            }
+            ByteArrayInputStream buffer = new ByteArrayInputStream(bytes);
+            DataInputStream in = new DataInputStream(buffer);
+            int valid = 0;
+            try {
+                while (buffer.available() > 0) {
+                    addString(in.readUTF());
+                    valid = bytes.length - buffer.available();
+                }
+            } catch (EOFException e) {
+                // a string that was cut off by a crash. it goes.
+            }
+            truncate(strings, valid);
+        }
+
+        // the newest complete generation. anything else is left over from a compaction.
+        int generation = -1;
+        File[] files = mDirectory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (file.getName().startsWith("gen-")
+                        && new File(file, "index.dat").exists()) {
+                    generation = Math.max(generation, Integer.parseInt(file.getName().substring(4)));
+                }
+            }
+        }
+        if (generation < 0) {
+            generation = 0;
+            File directory = generationDirectory(0);
+            if (!directory.isDirectory() && !directory.mkdirs()) {
+                throw new IOException("Can't create " + directory);
+            }
+            new FileOutputStream(new File(directory, "index.dat")).close();
+        }
+        mGeneration = generation;
+        if (files != null) {
+            for (File file : files) {
+                if (file.getName().startsWith("gen-") && !file.equals(generationDirectory(generation))) {
+                    deleteDirectory(file);
+                }
+            }
+        }
+
+        File index = new File(generationDirectory(generation), "index.dat");
+        RandomAccessFile file = new RandomAccessFile(index, "rw");
+        try {
+            int count = (int) (file.length() / RUN_SIZE);
+            ByteBuffer entries = ByteBuffer.allocate(count * RUN_SIZE);
+            FileChannel channel = file.getChannel();
+            while (entries.hasRemaining() && channel.read(entries) >= 0) {
+                // keep reading.
+            }
+            entries.flip();
+            for (int i = 0; i < count; ++i) {
+                Run run = Run.read(entries);
+                addRun(run);
+                mRecordCount += run.mCount;
+                if (run.mSegment > mSegment || (run.mSegment == mSegment
+                        && run.mFirst + run.mCount > mSegmentRecords)) {
+                    mSegment = run.mSegment;
+                    mSegmentRecords = run.mFirst + run.mCount;
+                }
+            }
+            file.setLength((long) count * RUN_SIZE);    // drops an entry cut off by a crash.
+        } finally {
+            file.close();
+        }
+        mOpen = true;
+    }
+
+    private static void truncate(File file, long length) throws IOException {
+        if (file.length() > length) {
+            RandomAccessFile out = new RandomAccessFile(file, "rw");
+            try {
+                out.setLength(length);
+            } finally {
+                out.close();
+            }
+        }
+    }
+
+    private File generationDirectory(int generation) {
+        return new File(mDirectory, "gen-" + generation);
+    }
+
+    private static File segmentFile(File directory, int segment) {
+        return new File(directory, "seg-" + segment + ".dat");
+    }
+
+    private static void deleteDirectory(File directory) {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    private static int group(int location, int kind) {
+        return location * 2 + kind;
+    }
+
+    // one forecast's hours or days: an index entry.
+    static final class Run {
+        final int mLocation;    // string id of the location key.
+        final int mKind;
+        final long mFetchedAt;
+        final int mTimezone;    // string id, -1 if there is none.
+        final int mSegment;
+        final int mFirst;       // first record in the segment.
+        final int mCount;
+        final long mFirstTime;
+        final long mLastTime;
+
+        Run(int location, int kind, long fetchedAt, int timezone, int segment, int first, int count,
+            long firstTime, long lastTime) {
+            mLocation = location;
+            mKind = kind;
+            mFetchedAt = fetchedAt;
+            mTimezone = timezone;
+            mSegment = segment;
+            mFirst = first;
+            mCount = count;
+            mFirstTime = firstTime;
+            mLastTime = lastTime;
+        }
+
+        void write(ByteBuffer out) {
+            out.putLong(mFetchedAt);
+            out.putInt(mLocation);
+            out.putInt(mTimezone);
+            out.putInt(mKind);
+            out.putInt(mSegment);
+            out.putInt(mFirst);
+            out.putInt(mCount);
+            out.putInt((int) mFirstTime);
+            out.putInt((int) mLastTime);
+        }
+
+        static Run read(ByteBuffer in) {
+            long fetchedAt = in.getLong();
+            int location = in.getInt();
+            int timezone = in.getInt();
+            int kind = in.getInt();
+            int segment = in.getInt();
+            int first = in.getInt();
+            int count = in.getInt();
+            long firstTime = in.getInt() & 0xffffffffL;
+            long lastTime = in.getInt() & 0xffffffffL;
+            return new Run(location, kind, fetchedAt, timezone, segment, first, count, firstTime, lastTime);
+        }
+    }
+
+    // records mStart (inclusive) to mEnd (exclusive) of a mapped segment, all from one run.
+    static final class Piece {
+        final Run mRun;
+        final ByteBuffer mBuffer;
+        final int mStart;
+        final int mEnd;
+
+        Piece(Run run, ByteBuffer buffer, int start, int end) {
+            mRun = run;
+            mBuffer = buffer;
+            mStart = start;
+            mEnd = end;
+        }
+
+        long getTime(int record) {
+            return mBuffer.getInt(record * RECORD_SIZE) & 0xffffffffL;
+        }
+
+        // the first record with a time >= time (records are in time order).
+        int search(long time) {
+            int low = mStart;
+            int high = mEnd;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (getTime(middle) < time) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+    }
+}
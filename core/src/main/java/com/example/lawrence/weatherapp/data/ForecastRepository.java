@@ -0,0 +1,160 @@
+package com.example.lawrence.weatherapp.data;
+
+import com.example.lawrence.weatherapp.location.TrackedLocation;
+import com.example.lawrence.weatherapp.network.ForecastFetchEngine;
+import com.example.lawrence.weatherapp.weather.Forecast;
+import com.example.lawrence.weatherapp.weather.ForecastDiff;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+
+/*
+ * Process-wide, in-memory home of the parsed forecasts, shared by all activities.
+ *
+ * Activities used to hand each other the Day[]/Hour[] arrays through intent extras, which
+ * means parceling (and copying) every element on every navigation, and risks a
+ * TransactionTooLargeException with long hourly forecasts. Now an intent only carries the
+ * location key, and the receiving activity gets the already-parsed Forecast from here.
+ *
+ * The repository is lifecycle-aware: a screen acquire()s the forecast it shows and
+ * release()s it when it is destroyed, and trim() (on low memory) drops every forecast no
+ * screen is using. After the process has been killed the repository starts out empty, so
+ * get() falls back to the copy in the ForecastStore.
+ *
+ * Forecasts arrive from the ForecastFetchEngine, which this subscribes to. Each one is diffed
+ * against the forecast it replaces (on the engine's background thread), and Listeners get the
+ * ForecastDiff, so screens can update only what changed instead of redrawing everything.
+ * A Listener added with an Executor (e.g. the main thread) is called through it.
+ */
+public class ForecastRepository implements ForecastFetchEngine.Subscriber {
+
+    public interface Listener {
+        // called on the thread that put the forecast (usually a background thread), or through
+        // the Executor it was added with.
+        // previous is the forecast it replaces, or null if there was none in memory.
+        void onForecastChanged(String key, Forecast previous, Forecast forecast, ForecastDiff diff);
+    }
+
+    private final ForecastStore mStore;
+    private final List<Registration> mListeners = new CopyOnWriteArrayList<>();
+
+    // all guarded by "this".
+    private final Map<String, Forecast> mForecasts = new HashMap<>();
+    private final Map<String, Integer> mUsers = new HashMap<>();
+
+    public ForecastRepository(ForecastStore store) {
+        mStore = store;
+    }
+
+    // the forecast for a location key, or null if we've never had one.
+    public synchronized Forecast get(String key) {
+        Forecast forecast = mForecasts.get(key);
+        if (forecast == null) {
+            forecast = mStore.load(key);
+            if (forecast != null) {
+                mForecasts.put(key, forecast);
+            }
+        }
+        return forecast;
+    }
+
+    // like get(), and keeps the forecast in memory until the matching release().
+    public synchronized Forecast acquire(String key) {
+        Integer users = mUsers.get(key);
+        mUsers.put(key, users == null ? 1 : users + 1);
+        return get(key);
+    }
+
+    public synchronized void release(String key) {
+        Integer users = mUsers.get(key);
+        if (users == null) {
+            return;
+        }
+        if (users > 1) {
+            mUsers.put(key, users - 1);
+        } else {
+            mUsers.remove(key);
+        }
+    }
+
+    public void put(String key, Forecast forecast) {
+        Forecast previous;
+        synchronized (this) {
+            previous = mForecasts.put(key, forecast);
+        }
+        if (mListeners.isEmpty()) {
+            return;
+        }
+
+        ForecastDiff diff = ForecastDiff.between(previous, forecast);
+        for (Registration registration : mListeners) {
+            registration.changed(key, previous, forecast, diff);
+        }
+    }
+
+    public void addListener(Listener listener) {
+        addListener(listener, null);
+    }
+
+    public void addListener(Listener listener, Executor executor) {
+        mListeners.add(new Registration(listener, executor));
+    }
+
+    public void removeListener(Listener listener) {
+        for (Registration registration : mListeners) {
+            if (registration.mListener == listener) {
+                mListeners.remove(registration);
+            }
+        }
+    }
+
+    // drops the forecasts no screen is showing; they can be loaded from disk again.
+    public synchronized void trim() {
+        Iterator<String> keys = mForecasts.keySet().iterator();
+        while (keys.hasNext()) {
+            if (!mUsers.containsKey(keys.next())) {
+                keys.remove();
+            }
+        }
+    }
+
+    @Override
+    public void onForecastLoaded(TrackedLocation location, Forecast forecast) {
+        put(location.getKey(), forecast);
+    }
+
+    @Override
+    public void onForecastFailed(TrackedLocation location, IOException e) {
+        // keep whatever we had.
+    }
+
+    // a listener and the executor it wants to be called on (null: the thread that put).
+    private static class Registration {
+        final Listener mListener;
+        final Executor mExecutor;
+
+        Registration(Listener listener, Executor executor) {
+            mListener = listener;
+            mExecutor = executor;
+        }
+
+        void changed(final String key, final Forecast previous, final Forecast forecast,
+                     final ForecastDiff diff) {
+            if (mExecutor == null) {
+                mListener.onForecastChanged(key, previous, forecast, diff);
+                return;
+            }
+            mExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    mListener.onForecastChanged(key, previous, forecast, diff);
+                }
+            });
+        }
+    }
+}
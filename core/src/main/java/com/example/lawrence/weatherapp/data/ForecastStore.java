@@ -0,0 +1,92 @@
+package com.example.lawrence.weatherapp.data;
+
+import com.example.lawrence.weatherapp.weather.Forecast;
+import com.example.lawrence.weatherapp.weather.ForecastCodec;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Locale;
+
+/*
+ * Keeps the last downloaded forecast for each location on disk, so the app can show it
+ * immediately on startup (and when there's no network) instead of blank labels.
+ *
+ * Forecasts are keyed by latitude/longitude rounded to two decimals (about 1 km), which is
+ * far finer than the forecast itself changes. Each one is a small file (around 1 KB) in the binary
+ * format of ForecastCodec, streamed to and from the file's channel.
+ *
+ * Freshness follows stale-while-revalidate: whatever is stored is shown right away, and
+ * only a forecast older than FRESH_FOR_MILLIS triggers a network refresh.
+ */
+public class ForecastStore {
+
+    // how long a stored forecast is good enough to skip the network on startup.
+    public static final long FRESH_FOR_MILLIS = 10 * 60 * 1000;
+
+    private final File mDirectory;
+
+    public ForecastStore(File directory) {
+        mDirectory = directory;
+    }
+
+    public static String keyFor(double latitude, double longitude) {
+        // Locale.US so the decimal separator is always a '.', whatever the device language.
+        return String.format(Locale.US, "%.2f,%.2f", latitude, longitude);
+    }
+
+    public static boolean isFresh(Forecast forecast, long now) {
+        return now - forecast.getFetchedAt() < FRESH_FOR_MILLIS;
+    }
+
+    // returns the stored forecast, or null if there is none (or it can't be read any more,
+    // e.g. it was written by an older version of the app).
+    public Forecast load(String key) {
+        File file = fileFor(key);
+        try {
+            FileInputStream in = new FileInputStream(file);
+            try {
+                return ForecastCodec.read(in.getChannel());
+            } finally {
+                in.close();
+            }
+        } catch (FileNotFoundException e) {
+            return null;
+        } catch (IOException e) {
+            file.delete();
+            return null;
+        }
+    }
+
+    // writes to a temporary file first and renames it over the old one, so a reader never
+    // sees a half-written forecast (and a crash mid-write leaves the previous one intact).
+    public synchronized void save(String key, Forecast forecast) throws IOException {
+        if (!mDirectory.isDirectory() && !mDirectory.mkdirs()) {
+            throw new IOException("Can't create " + mDirectory);
+        }
+
+        File file = fileFor(key);
+        File temp = new File(mDirectory, file.getName() + ".tmp");
+        FileOutputStream out = new FileOutputStream(temp);
+        try {
+            ForecastCodec.write(forecast, out.getChannel());
+        } finally {
+            out.close();
+        }
+
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException("Can't replace " + file);
+        }
+    }
+
+    public void delete(String key) {
+        fileFor(key).delete();
+    }
+
+    private File fileFor(String key) {
+        return new File(mDirectory, key + ".forecast");
+    }
+}
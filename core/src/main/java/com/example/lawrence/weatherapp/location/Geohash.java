@@ -0,0 +1,102 @@
+package com.example.lawrence.weatherapp.location;
+
+/*
+ * Geohashes: a latitude/longitude rounded to a tile and written as a short string, e.g.
+ * "9q8zn" for the 5 km square around Alcatraz. Every point in the same tile has the same hash,
+ * and each extra character splits the tile into 32 smaller ones:
+ *
+ *   precision   tile (at the equator)
+ *   4           39 x 20 km
+ *   5           4.9 x 4.9 km
+ *   6           1.2 x 0.6 km
+ *   7           153 x 153 m
+ *
+ * The bits of the longitude and latitude are interleaved (longitude first), 5 to a character.
+ */
+public final class Geohash {
+
+    private static final char[] BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz".toCharArray();
+
+    public static final int MAX_PRECISION = 12;
+
+    private Geohash() { }
+
+    public static String encode(double latitude, double longitude, int precision) {
+        if (precision < 1 || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("precision " + precision);
+        }
+        double minLatitude = -90;
+        double maxLatitude = 90;
+        double minLongitude = -180;
+        double maxLongitude = 180;
+        boolean isLongitude = true;
+        char[] hash = new char[precision];
+        for (int i = 0; i < precision; ++i) {
+            int index = 0;
+            for (int bit = 0; bit < 5; ++bit) {
+                index <<= 1;
+                if (isLongitude) {
+                    double middle = (minLongitude + maxLongitude) / 2;
+                    if (longitude >= middle) {
+                        index |= 1;
+                        minLongitude = middle;
+                    } else {
+                        maxLongitude = middle;
+                    }
+                } else {
+                    double middle = (minLatitude + maxLatitude) / 2;
+                    if (latitude >= middle) {
+                        index |= 1;
+                        minLatitude = middle;
+                    } else {
+                        maxLatitude = middle;
+                    }
+                }
+                isLongitude = !isLongitude;
+            }
+            hash[i] = BASE32[index];
+        }
+        return new String(hash);
+    }
+
+    // the middle of the tile, as {latitude, longitude}.
+    public static double[] center(String hash) {
+        double minLatitude = -90;
+        double maxLatitude = 90;
+        double minLongitude = -180;
+        double maxLongitude = 180;
+        boolean isLongitude = true;
+        for (int i = 0; i < hash.length(); ++i) {
+            int index = indexOf(hash.charAt(i));
+            for (int bit = 4; bit >= 0; --bit) {
+                boolean set = (index >> bit & 1) != 0;
+                if (isLongitude) {
+                    double middle = (minLongitude + maxLongitude) / 2;
+                    if (set) {
+                        minLongitude = middle;
+                    } else {
+                        maxLongitude = middle;
+                    }
+                } else {
+                    double middle = (minLatitude + maxLatitude) / 2;
+                    if (set) {
+                        minLatitude = middle;
+                    } else {
+                        maxLatitude = middle;
+                    }
+                }
+                isLongitude = !isLongitude;
+            }
+        }
+        return new double[]{(minLatitude + maxLatitude) / 2, (minLongitude + maxLongitude) / 2};
+    }
+
+    private static int indexOf(char c) {
+        for (int i = 0; i < BASE32.length; ++i) {
+            if (BASE32[i] == c) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("not a geohash character: " + c);
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.lawrence.weatherapp.location;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/*
+ * The list of locations we track, and which one the main screen shows.
+ *
+ * It is saved to a small text file (one "name|latitude|longitude" line per location, plus the
+ * index of the selected one) so the list survives restarts. Until something is saved, the
+ * registry starts out with a few default sites.
+ *
+ * Only used from the main thread.
+ */
+public class LocationRegistry {
+
+    // notified when the location shown on the main screen changes.
+    public interface Listener {
+        void onSelectedLocationChanged(TrackedLocation location);
+    }
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final File mFile;
+    private final List<TrackedLocation> mLocations = new ArrayList<>();
+    private final List<Listener> mListeners = new CopyOnWriteArrayList<>();
+    private int mSelected;
+
+    public LocationRegistry(File file) {
+        mFile = file;
+        load();
+        if (mLocations.isEmpty()) {
+            mLocations.add(new TrackedLocation("Alcatraz Island, CA", 37.8268, -122.422));
+            mLocations.add(new TrackedLocation("Central Park, New York City, NY", 40.7791, -73.9635));
+            mLocations.add(new TrackedLocation("Millennium Park, Chicago, IL", 41.8661, -87.6169));
+            mSelected = 0;
+        }
+    }
+
+    public List<TrackedLocation> getLocations() {
+        return Collections.unmodifiableList(mLocations);
+    }
+
+    public TrackedLocation getSelected() {
+        return mLocations.get(mSelected);
+    }
+
+    public TrackedLocation find(String key) {
+        for (TrackedLocation location : mLocations) {
+            if (location.getKey().equals(key)) {
+                return location;
+            }
+        }
+        return null;
+    }
+
+    // adds a location (or renames the one already tracked at the same coordinates).
+    public void add(TrackedLocation location) {
+        for (int i = 0; i < mLocations.size(); ++i) {
+            if (mLocations.get(i).getKey().equals(location.getKey())) {
+                mLocations.set(i, location);
+                save();
+                return;
+            }
+        }
+        mLocations.add(location);
+        save();
+    }
+
+    public void remove(String key) {
+        // always keep at least one location to show.
+        if (mLocations.size() == 1) {
+            return;
+        }
+        for (int i = 0; i < mLocations.size(); ++i) {
+            if (mLocations.get(i).getKey().equals(key)) {
+                mLocations.remove(i);
+                if (i == mSelected) {
+                    select(Math.min(mSelected, mLocations.size() - 1));
+                } else if (i < mSelected) {
+                    --mSelected;
+                    save();
+                } else {
+                    save();
+                }
+                return;
+            }
+        }
+    }
+
+    // moves the main screen on to the next location (wrapping around at the end).
+    public void selectNext() {
+        select((mSelected + 1) % mLocations.size());
+    }
+
+    public void select(String key) {
+        for (int i = 0; i < mLocations.size(); ++i) {
+            if (mLocations.get(i).getKey().equals(key)) {
+                select(i);
+                return;
+            }
+        }
+    }
+
+    private void select(int index) {
+        mSelected = index;
+        save();
+        for (Listener listener : mListeners) {
+            listener.onSelectedLocationChanged(getSelected());
+        }
+    }
+
+    public void addListener(Listener listener) {
+        mListeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        mListeners.remove(listener);
+    }
+
+    private void load() {
+        try {
+            BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(new FileInputStream(mFile), UTF_8));
+            try {
+                int selected = Integer.parseInt(reader.readLine());
+                for (String line; (line = reader.readLine()) != null; ) {
+                    String[] parts = line.split("\\|");
+                    mLocations.add(new TrackedLocation(
+                            parts[0], Double.parseDouble(parts[1]), Double.parseDouble(parts[2])));
+                }
+                mSelected = selected < mLocations.size() ? selected : 0;
+            } finally {
+                reader.close();
+            }
+        } catch (FileNotFoundException e) {
+            // nothing saved yet, the defaults are used.
+        } catch (IOException | RuntimeException e) {
+            // unreadable file: start over from the defaults rather than half a list.
+            mLocations.clear();
+        }
+    }
+
+    private void save() {
+        try {
+            Writer writer = new OutputStreamWriter(new FileOutputStream(mFile), UTF_8);
+            try {
+                writer.write(mSelected + "\n");
+                for (TrackedLocation location : mLocations) {
+                    writer.write(String.format(Locale.US, "%s|%f|%f%n",
+                            location.getName().replace('|', ' '),
+                            location.getLatitude(), location.getLongitude()));
+                }
+            } finally {
+                writer.close();
+            }
+        } catch (IOException e) {
+            // the list still works for this session, it just won't be remembered.
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.lawrence.weatherapp.location;
+
+import com.example.lawrence.weatherapp.data.ForecastStore;
+
+// A place we keep a forecast for. The Dark Sky response doesn't say where it is for,
+// so the name we show comes from here.
+public class TrackedLocation {
+    private final String mName;
+    private final double mLatitude;
+    private final double mLongitude;
+    private final String mKey;
+
+    public TrackedLocation(String name, double latitude, double longitude) {
+        mName = name;
+        mLatitude = latitude;
+        mLongitude = longitude;
+        mKey = ForecastStore.keyFor(latitude, longitude);
+    }
+
+    public String getName() {
+        return mName;
+    }
+
+    public double getLatitude() {
+        return mLatitude;
+    }
+
+    public double getLongitude() {
+        return mLongitude;
+    }
+
+    // identifies the location's forecast: two locations with the same key share one forecast.
+    public String getKey() {
+        return mKey;
+    }
+
+    @Override
+    public String toString() {
+        return mName + " (" + mKey + ")";
+    }
+}
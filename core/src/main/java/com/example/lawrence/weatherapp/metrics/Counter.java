@@ -0,0 +1,41 @@
+package com.example.lawrence.weatherapp.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// A count of events (cache hits, failures, ...) or a running total (bytes). Incrementing does nothing while metrics are off.
+public class Counter {
+
+    private final String mName;
+    private final Metrics mMetrics;
+    private final AtomicLong mValue = new AtomicLong();
+
+    Counter(String name, Metrics metrics) {
+        mName = name;
+        mMetrics = metrics;
+    }
+
+    public String getName() {
+        return mName;
+    }
+
+    public void increment() {
+        if (mMetrics.isEnabled()) {
+            mValue.incrementAndGet();
+        }
+    }
+
+    // for counts of things other than events, e.g. bytes.
+    public void add(long amount) {
+        if (mMetrics.isEnabled()) {
+            mValue.addAndGet(amount);
+        }
+    }
+
+    public long get() {
+        return mValue.get();
+    }
+
+    void reset() {
+        mValue.set(0);
+    }
+}
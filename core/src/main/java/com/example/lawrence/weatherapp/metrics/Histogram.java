@@ -0,0 +1,91 @@
+package com.example.lawrence.weatherapp.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Latency histogram with power-of-two buckets in microseconds: bucket i counts durations in
+// [2^i, 2^(i+1)) us, so 32 buckets cover 1 us to over an hour in a fixed 32 longs.
+// Recording is lock-free; percentiles are estimated from the buckets (within a factor of 2),
+// which is plenty to tell a 5 ms stage from a 500 ms one.
+public class Histogram {
+
+    static final int BUCKETS = 32;
+
+    private final String mName;
+    private final Metrics mMetrics;
+    private final AtomicLongArray mBuckets = new AtomicLongArray(BUCKETS);
+    private final AtomicLong mCount = new AtomicLong();
+    private final AtomicLong mSumMicros = new AtomicLong();
+    private final AtomicLong mMaxMicros = new AtomicLong();
+
+    Histogram(String name, Metrics metrics) {
+        mName = name;
+        mMetrics = metrics;
+    }
+
+    public String getName() {
+        return mName;
+    }
+
+    // records the time since start, which came from Metrics.startTimer(). does nothing if the
+    // timer was started while metrics were disabled.
+    public void recordSince(long start) {
+        if (start != 0) {
+            recordNanos(System.nanoTime() - start);
+        }
+    }
+
+    public void recordNanos(long nanos) {
+        if (!mMetrics.isEnabled()) {
+            return;
+        }
+        long micros = Math.max(0, nanos / 1000);
+        int bucket = Math.min(BUCKETS - 1, 63 - Long.numberOfLeadingZeros(Math.max(1, micros)));
+        mBuckets.incrementAndGet(bucket);
+        mCount.incrementAndGet();
+        mSumMicros.addAndGet(micros);
+        long max;
+        while (micros > (max = mMaxMicros.get()) && !mMaxMicros.compareAndSet(max, micros)) {
+            // lost a race with another thread, try again.
+        }
+    }
+
+    public long getCount() {
+        return mCount.get();
+    }
+
+    public double getMeanMillis() {
+        long count = mCount.get();
+        return count == 0 ? 0 : mSumMicros.get() / 1000.0 / count;
+    }
+
+    public double getMaxMillis() {
+        return mMaxMicros.get() / 1000.0;
+    }
+
+    // the upper bound of the bucket the given percentile (0-100) falls in, in milliseconds.
+    public double getPercentileMillis(double percentile) {
+        long count = mCount.get();
+        if (count == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(count * percentile / 100);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; ++i) {
+            seen += mBuckets.get(i);
+            if (seen >= rank) {
+                return Math.min((1L << (i + 1)) / 1000.0, getMaxMillis());
+            }
+        }
+        return getMaxMillis();
+    }
+
+    void reset() {
+        for (int i = 0; i < BUCKETS; ++i) {
+            mBuckets.set(i, 0);
+        }
+        mCount.set(0);
+        mSumMicros.set(0);
+        mMaxMicros.set(0);
+    }
+}
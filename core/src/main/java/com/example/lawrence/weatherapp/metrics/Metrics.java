@@ -0,0 +1,173 @@
+package com.example.lawrence.weatherapp.metrics;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/*
+ * Counters and latency histograms for the refresh pipeline, so a slow refresh can be pinned on
+ * a stage instead of guessed at:
+ *
+ *   fetch.queued     waiting in the ForecastFetchEngine queue for a free slot
+ *   http.dns         DNS lookups (only when a new connection is needed)
+ *   http.connect     call start until the request goes out: DNS + TCP + TLS on a new connection,
+ *                    next to nothing on a pooled one
+ *   http.headers     request sent until the response headers arrive (server time + one round trip)
+ *   http.decode      time spent decompressing response bodies (not waiting for the bytes)
+ *   parse.queued     response received until a compute thread starts parsing it
+ *   forecast.parse   reading the body and parsing it (they're streamed, so they happen together)
+ *   store.save       writing the forecast to disk
+ *   fetch.total      refresh() until the forecast is published
+ *   ui.render        MainActivity.updateDisplay()
+ *   ui.first_render  MainActivity.onCreate() until the first forecast is on screen
+ *
+ * plus counters for cache hits, 304s, successes and failures, the bytes of response bodies as
+ * they came over the wire and after decompression, how often a location was answered from
+ * the forecast of a nearby one (tile.*, see TileCache), and the calls counted against the API
+ * key's quota, the fetches degraded to the cache or refused to stay inside it, and the times a
+ * background fetch waited for the rate limit (quota.*, see RequestGovernor).
+ *
+ * Metrics are off by default (WeatherApplication turns them on for debug builds). When off,
+ * startTimer() returns 0 without reading the clock and recording is a single volatile read, so
+ * the instrumentation can stay in release builds.
+ *
+ * dump() gives a readable summary (the debug dialog on the main screen shows it) and writeJson()
+ * the same numbers as JSON, e.g. to compare runs.
+ */
+public class Metrics {
+
+    public static final String FETCH_QUEUED = "fetch.queued";
+    public static final String HTTP_DNS = "http.dns";
+    public static final String HTTP_CONNECT = "http.connect";
+    public static final String HTTP_HEADERS = "http.headers";
+    public static final String HTTP_DECODE = "http.decode";
+    public static final String PARSE_QUEUED = "parse.queued";
+    public static final String FORECAST_PARSE = "forecast.parse";
+    public static final String STORE_SAVE = "store.save";
+    public static final String FETCH_TOTAL = "fetch.total";
+    public static final String UI_RENDER = "ui.render";
+    public static final String UI_FIRST_RENDER = "ui.first_render";
+
+    public static final String HTTP_CACHE_HIT = "http.cache_hit";
+    public static final String HTTP_NETWORK = "http.network";
+    public static final String HTTP_NOT_MODIFIED = "http.not_modified";
+    public static final String HTTP_WIRE_BYTES = "http.wire_bytes";
+    public static final String HTTP_BODY_BYTES = "http.body_bytes";
+    public static final String FETCH_SUCCESS = "fetch.success";
+    public static final String FETCH_FAILURE = "fetch.failure";
+    public static final String TILE_HIT = "tile.hit";
+    public static final String TILE_SHARED = "tile.shared";
+    public static final String TILE_MISS = "tile.miss";
+    public static final String QUOTA_CALLS = "quota.calls";
+    public static final String QUOTA_CACHE_ONLY = "quota.cache_only";
+    public static final String QUOTA_REFUSED = "quota.refused";
+    public static final String QUOTA_THROTTLED = "quota.throttled";
+
+    private volatile boolean mEnabled;
+
+    // guarded by "this". sorted, so dumps are in a stable order.
+    private final Map<String, Counter> mCounters = new TreeMap<>();
+    private final Map<String, Histogram> mHistograms = new TreeMap<>();
+
+    public boolean isEnabled() {
+        return mEnabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        mEnabled = enabled;
+    }
+
+    // look counters and histograms up once and keep them in a field; these take a lock.
+    public synchronized Counter counter(String name) {
+        Counter counter = mCounters.get(name);
+        if (counter == null) {
+            counter = new Counter(name, this);
+            mCounters.put(name, counter);
+        }
+        return counter;
+    }
+
+    public synchronized Histogram histogram(String name) {
+        Histogram histogram = mHistograms.get(name);
+        if (histogram == null) {
+            histogram = new Histogram(name, this);
+            mHistograms.put(name, histogram);
+        }
+        return histogram;
+    }
+
+    // a start time for Histogram.recordSince(), or 0 (and no clock read) when disabled.
+    public long startTimer() {
+        return mEnabled ? System.nanoTime() : 0;
+    }
+
+    public synchronized void reset() {
+        for (Counter counter : mCounters.values()) {
+            counter.reset();
+        }
+        for (Histogram histogram : mHistograms.values()) {
+            histogram.reset();
+        }
+    }
+
+    // a human readable summary, one line per counter/histogram.
+    public synchronized String dump() {
+        StringBuilder out = new StringBuilder();
+        for (Counter counter : mCounters.values()) {
+            out.append(String.format(Locale.US, "%-18s %d%n", counter.getName(), counter.get()));
+        }
+        for (Histogram histogram : mHistograms.values()) {
+            out.append(String.format(Locale.US,
+                    "%-18s n=%d mean=%.1fms p50=%.1fms p90=%.1fms p99=%.1fms max=%.1fms%n",
+                    histogram.getName(), histogram.getCount(), histogram.getMeanMillis(),
+                    histogram.getPercentileMillis(50), histogram.getPercentileMillis(90),
+                    histogram.getPercentileMillis(99), histogram.getMaxMillis()));
+        }
+        return out.toString();
+    }
+
+    // {"counters": {"name": value, ...},
+    //  "histograms": {"name": {"count": .., "mean_ms": .., "p50_ms": .., "p90_ms": .., "p99_ms": .., "max_ms": ..}, ...}}
+    public synchronized void writeJson(Writer writer) throws IOException {
+        JsonWriter json = new JsonWriter(writer);
+        json.setIndent("  ");
+        json.beginObject();
+
+        json.name("counters").beginObject();
+        for (Counter counter : mCounters.values()) {
+            json.name(counter.getName()).value(counter.get());
+        }
+        json.endObject();
+
+        json.name("histograms").beginObject();
+        for (Histogram histogram : mHistograms.values()) {
+            json.name(histogram.getName()).beginObject()
+                    .name("count").value(histogram.getCount())
+                    .name("mean_ms").value(histogram.getMeanMillis())
+                    .name("p50_ms").value(histogram.getPercentileMillis(50))
+                    .name("p90_ms").value(histogram.getPercentileMillis(90))
+                    .name("p99_ms").value(histogram.getPercentileMillis(99))
+                    .name("max_ms").value(histogram.getMaxMillis())
+                    .endObject();
+        }
+        json.endObject();
+
+        json.endObject();
+        json.flush();
+    }
+
+    public String toJson() {
+        StringWriter writer = new StringWriter();
+        try {
+            writeJson(writer);
+        } catch (IOException e) {
+            throw new AssertionError(e);    // StringWriter doesn't throw.
+        }
+        return writer.toString();
+    }
+}
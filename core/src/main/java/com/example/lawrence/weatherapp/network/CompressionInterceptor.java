@@ -0,0 +1,159 @@
+package com.example.lawrence.weatherapp.network;
+
+import com.example.lawrence.weatherapp.metrics.Counter;
+import com.example.lawrence.weatherapp.metrics.Histogram;
+import com.example.lawrence.weatherapp.metrics.Metrics;
+
+import java.io.IOException;
+
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.ForwardingSource;
+import okio.GzipSource;
+import okio.Okio;
+import okio.Source;
+
+/*
+ * Asks for gzip and decompresses the body as the parser reads it, counting the bytes on both
+ * sides and the time spent inflating (see TransferStats, and http.wire_bytes, http.body_bytes and
+ * http.decode in Metrics).
+ *
+ * OkHttp would do the gzip part on its own (it adds Accept-Encoding: gzip to every request and
+ * unzips the response), but then it hides the compressed body from everything after it, so there
+ * is no way to tell what a forecast cost on the wire. Once a request already says
+ * Accept-Encoding, OkHttp leaves both the request and the response alone, so this application
+ * interceptor does the same work itself, in the same streaming way (okio's GzipSource, one
+ * segment at a time, nothing buffered whole).
+ *
+ * The HTTP cache sits below this and keeps the compressed bytes, so a cached forecast takes a
+ * tenth of the disk space, and is decompressed here just like a fresh one.
+ *
+ * OkHttp 3.1 and okio have no Brotli decoder, so gzip is all we offer.
+ */
+class CompressionInterceptor implements Interceptor {
+
+    private final TransferStats mStats;
+    private final Counter mWireBytes;
+    private final Counter mBodyBytes;
+    private final Histogram mDecode;
+
+    CompressionInterceptor(TransferStats stats, Metrics metrics) {
+        mStats = stats;
+        mWireBytes = metrics.counter(Metrics.HTTP_WIRE_BYTES);
+        mBodyBytes = metrics.counter(Metrics.HTTP_BODY_BYTES);
+        mDecode = metrics.histogram(Metrics.HTTP_DECODE);
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        if (request.header("Accept-Encoding") != null) {
+            return chain.proceed(request);  // whoever set it handles the response, too.
+        }
+        Response response = chain.proceed(request.newBuilder().header("Accept-Encoding", "gzip").build());
+        ResponseBody body = response.body();
+        if (body == null) {
+            return response;
+        }
+
+        // cache hits and 304s are read from the cache, not the network: nothing to account.
+        Response network = response.networkResponse();
+        boolean counted = network != null && network.code() != 304;
+        String key = request.tag() instanceof String ? (String) request.tag() : request.url().encodedPath();
+        boolean gzip = "gzip".equalsIgnoreCase(response.header("Content-Encoding"));
+        if (!gzip && !counted) {
+            return response;
+        }
+
+        Source decoded = new CountingSource(body.source(), gzip, counted ? key : null);
+        Response.Builder builder = response.newBuilder()
+                .body(ResponseBody.create(body.contentType(), -1, Okio.buffer(decoded)));
+        if (gzip) {
+            // what the parser gets now is neither compressed nor of the advertised length.
+            builder.removeHeader("Content-Encoding").removeHeader("Content-Length");
+        }
+        return builder.build();
+    }
+
+    // counts what goes into the decompression (the wire) and what comes out of it, and times the
+    // reads that aren't just waiting for the network. reports once, when the body has been read
+    // to the end or closed, whichever comes first.
+    private class CountingSource extends ForwardingSource {
+        private final WireSource mWire;
+        private final boolean mGzip;
+        private final String mKey;    // null: don't report.
+        private long mDecodedBytes;
+        private long mDecodeNanos;
+        private boolean mReported;
+
+        CountingSource(Source body, boolean gzip, String key) {
+            this(new WireSource(body), gzip, key);
+        }
+
+        private CountingSource(WireSource wire, boolean gzip, String key) {
+            super(gzip ? new GzipSource(wire) : wire);
+            mWire = wire;
+            mGzip = gzip;
+            mKey = key;
+        }
+
+        @Override
+        public long read(Buffer sink, long byteCount) throws IOException {
+            long start = System.nanoTime();
+            long waitingBefore = mWire.mWaitingNanos;
+            long read = super.read(sink, byteCount);
+            mDecodeNanos += System.nanoTime() - start - (mWire.mWaitingNanos - waitingBefore);
+            if (read == -1) {
+                report();
+            } else {
+                mDecodedBytes += read;
+            }
+            return read;
+        }
+
+        @Override
+        public void close() throws IOException {
+            report();
+            super.close();
+        }
+
+        private void report() {
+            if (mReported || mKey == null) {
+                return;
+            }
+            mReported = true;
+            // an uncompressed body took no decoding, only copying.
+            long decodeNanos = mGzip ? mDecodeNanos : 0;
+            mStats.record(mKey, mWire.mBytes, mDecodedBytes, decodeNanos);
+            mWireBytes.add(mWire.mBytes);
+            mBodyBytes.add(mDecodedBytes);
+            if (mGzip) {
+                mDecode.recordNanos(decodeNanos);
+            }
+        }
+    }
+
+    // the body as it comes off the connection (or out of the cache).
+    private static class WireSource extends ForwardingSource {
+        long mBytes;
+        long mWaitingNanos;
+
+        WireSource(Source body) {
+            super(body);
+        }
+
+        @Override
+        public long read(Buffer sink, long byteCount) throws IOException {
+            long start = System.nanoTime();
+            long read = super.read(sink, byteCount);
+            mWaitingNanos += System.nanoTime() - start;
+            if (read > 0) {
+                mBytes += read;
+            }
+            return read;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.lawrence.weatherapp.network;
+
+import com.example.lawrence.weatherapp.metrics.Metrics;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Cache;
+import okhttp3.CacheControl;
+import okhttp3.Call;
+import okhttp3.ConnectionPool;
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/*
+ * The one HTTP client the app uses to talk to the forecast API.
+ *
+ * Creating a new OkHttpClient for every refresh throws away its connection pool (so every
+ * refresh pays for a new TCP + TLS handshake), its dispatcher threads and any response cache.
+ * Instead a single client is created when the app starts (see WeatherApplication) and shared.
+ *
+ * Responses are kept in an on-disk HTTP cache. A fresh cached forecast is served without
+ * touching the network, and when the user explicitly asks for a refresh the cached copy is
+ * revalidated with the server (If-None-Match / If-Modified-Since), so an unchanged forecast
+ * comes back as a tiny 304 instead of the whole payload.
+ *
+ * Bodies are asked for gzipped and decompressed as they're parsed, with the bytes each location
+ * costs on the wire counted in getTransferStats() (see CompressionInterceptor).
+ */
+public class ForecastClient {
+
+    static final long CACHE_SIZE_BYTES = 10 * 1024 * 1024;  // 10 MiB, plenty for many locations.
+
+    // we only ever talk to one host, so a couple of idle connections is enough.
+    static final int MAX_IDLE_CONNECTIONS = 2;
+    static final long KEEP_ALIVE_MINUTES = 5;
+
+    // long enough for a slow 2G/3G connection, short enough that a dead connection fails.
+    static final long CONNECT_TIMEOUT_SECONDS = 15;
+    static final long READ_TIMEOUT_SECONDS = 30;
+    static final long WRITE_TIMEOUT_SECONDS = 15;
+
+    // how long to treat a forecast as fresh when the server doesn't say.
+    static final int DEFAULT_MAX_AGE_SECONDS = 5 * 60;
+
+    private static final CacheControl REVALIDATE = new CacheControl.Builder().noCache().build();
+    private static final CacheControl STALE_OK = new CacheControl.Builder()
+            .maxStale(Integer.MAX_VALUE, TimeUnit.SECONDS).build();
+
+    private final OkHttpClient mHttpClient;
+    private final TransferStats mTransferStats;
+
+    // creates a client with its HTTP cache in the given directory (e.g. context.getCacheDir()).
+    public ForecastClient(File cacheDir) {
+        this(cacheDir, new Metrics());
+    }
+
+    // the same, reporting the network phases of every call to metrics (see HttpMetrics).
+    public ForecastClient(File cacheDir, Metrics metrics) {
+        this(cacheDir, metrics, new TransferStats());
+    }
+
+    private ForecastClient(File cacheDir, Metrics metrics, TransferStats stats) {
+        this(new HttpMetrics(metrics).install(
+                withCompression(newHttpClientBuilder(cacheDir), stats, metrics)).build(), stats);
+    }
+
+    // a client configured by the caller; it only counts transfers if withCompression() was used.
+    public ForecastClient(OkHttpClient httpClient) {
+        this(httpClient, new TransferStats());
+    }
+
+    // stats should be the one given to withCompression() when the client was built.
+    public ForecastClient(OkHttpClient httpClient, TransferStats stats) {
+        mHttpClient = httpClient;
+        mTransferStats = stats;
+    }
+
+    // the tuned configuration, exposed so tests and benchmarks can build the same client.
+    public static OkHttpClient.Builder newHttpClientBuilder(File cacheDir) {
+        return new OkHttpClient.Builder()
+                .connectionPool(new ConnectionPool(
+                        MAX_IDLE_CONNECTIONS, KEEP_ALIVE_MINUTES, TimeUnit.MINUTES))
+                .cache(new Cache(new File(cacheDir, "forecast-http"), CACHE_SIZE_BYTES))
+                .connectTimeout(CONNECT_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .readTimeout(READ_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .writeTimeout(WRITE_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .addNetworkInterceptor(new DefaultCacheControlInterceptor());
+    }
+
+    // asks for gzip and counts the bytes of every response into stats (see CompressionInterceptor).
+    public static OkHttpClient.Builder withCompression(OkHttpClient.Builder builder, TransferStats stats,
+                                                       Metrics metrics) {
+        return builder.addInterceptor(new CompressionInterceptor(stats, metrics));
+    }
+
+    // creates a call for a forecast url. when revalidate is true the cached response (if any) is
+    // not used as-is but checked with the server first, which is what a refresh tap wants.
+    public Call newCall(HttpUrl url, boolean revalidate) {
+        return newCall(url, revalidate, null);
+    }
+
+    // the same, with the bytes it transfers counted under key (e.g. the location key) in
+    // getTransferStats(), instead of under the url's path.
+    public Call newCall(HttpUrl url, boolean revalidate, String key) {
+        Request.Builder request = new Request.Builder().url(url).tag(key);
+        if (revalidate) {
+            request.cacheControl(REVALIDATE);
+        }
+        return mHttpClient.newCall(request.build());
+    }
+
+    // a call answered with the cached response however stale it is, for when the request quota
+    // is running out (see RequestGovernor). without a cached response it goes to the network,
+    // or with onlyIfCached fails with a 504.
+    public Call newCachedCall(HttpUrl url, boolean onlyIfCached, String key) {
+        return mHttpClient.newCall(new Request.Builder().url(url).tag(key)
+                .cacheControl(onlyIfCached ? CacheControl.FORCE_CACHE : STALE_OK).build());
+    }
+
+    public OkHttpClient getHttpClient() {
+        return mHttpClient;
+    }
+
+    public TransferStats getTransferStats() {
+        return mTransferStats;
+    }
+
+    // gives responses without any caching headers a short lifetime, so they can still be
+    // served from the cache. responses that do say how to cache them are left alone.
+    static class DefaultCacheControlInterceptor implements Interceptor {
+        @Override
+        public Response intercept(Chain chain) throws IOException {
+            Response response = chain.proceed(chain.request());
+            if (response.header("Cache-Control") != null || response.header("Expires") != null) {
+                return response;
+            }
+            return response.newBuilder()
+                    .header("Cache-Control", "max-age=" + DEFAULT_MAX_AGE_SECONDS)
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,758 @@
+package com.example.lawrence.weatherapp.network;
+
+import com.example.lawrence.weatherapp.data.ForecastStore;
+import com.example.lawrence.weatherapp.location.TrackedLocation;
+import com.example.lawrence.weatherapp.metrics.Counter;
+import com.example.lawrence.weatherapp.metrics.Histogram;
+import com.example.lawrence.weatherapp.metrics.Metrics;
+import com.example.lawrence.weatherapp.weather.Forecast;
+import com.example.lawrence.weatherapp.weather.ForecastParser;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.HttpUrl;
+import okhttp3.Response;
+import okio.BufferedSource;
+
+/*
+ * Fetches forecasts for any number of locations over the shared ForecastClient.
+ *
+ * Every fetch goes through three stages:
+ *
+ *   1. fetch    the request, on OkHttp's threads. At most mMaxParallel fetches run at once.
+ *   2. parse    reading and parsing the body, on a small bounded compute executor (not on
+ *               OkHttp's thread, which can then get on with the next response).
+ *   3. publish  storing the forecast and handing it to each subscriber on the Executor it
+ *               subscribed with (e.g. the main thread for a screen, see MainThreadExecutor).
+ *
+ * A fetch keeps its slot from stage 1 until it has been parsed, so at most mMaxParallel
+ * responses are ever waiting for or in stage 2, and the compute queue can't grow without bound.
+ * Fetches waiting for a slot are queued; past setMaxQueued() new ones are turned away with a
+ * FetchRejectedException instead of piling up (load shedding).
+ *
+ * The engine doesn't depend on Android: the app runs it with a main-thread executor for the
+ * screens, the JVM load test (benchmark module, FetchLoadTest) with plain threads.
+ *
+ * - At most mMaxParallel requests run at once; the rest wait in a queue, so refreshing dozens
+ *   of locations doesn't open dozens of connections (or starve the one the user is looking at).
+ * - A location that is already queued or being fetched isn't fetched a second time; the new
+ *   request is attached to the outstanding one instead.
+ * - Every forecast is stored (see ForecastStore) and published to the subscribers as soon as
+ *   it arrives, instead of waiting for the whole batch.
+ * - Each refresh() returns a FetchTicket. Cancelling it detaches the caller, and a fetch nobody
+ *   is waiting for any more is dropped from the queue (or its call is cancelled).
+ * - Only the newest response for a location is ever stored and published: a fetch that was
+ *   cancelled, or that finishes after a newer fetch for the same location, is thrown away.
+ * - Every fetch asks for a ForecastQuery, by default ForecastQuery.DEFAULT (only the blocks the
+ *   app shows). A queued fetch that is asked for more (e.g. a week of hours) is widened; a
+ *   running one answers the request with what it asked for.
+ * - With a TileCache set (setTileCache()), nearby locations share one forecast: a location in
+ *   a tile that is already being fetched joins that fetch the way a repeated location does, and
+ *   one in a tile with a fresh forecast gets that forecast without a request at all.
+ * - Every refresh is in a Lane: fetches for the screens (FOREGROUND) start before the ones in the
+ *   background. With a RequestGovernor set (setRequestGovernor()), every request is counted
+ *   against the API key's quota first, and near it the screens get the HTTP cache instead and
+ *   background refreshes fail with a RequestGovernor.QuotaExceededException. Background fetches
+ *   the governor's rate limit holds back stay queued until it lets them go.
+ *
+ * Subscribers added without an Executor are called on the compute thread that parsed the
+ * forecast, one forecast at a time (so they should be quick, and hand anything slow to an
+ * Executor of their own). shutdown() cancels everything, queued or running, and stops the compute threads;
+ * refreshes after that are ignored.
+ *
+ * The stages of every fetch (queue wait, parsing, saving, total) are recorded in Metrics.
+ */
+public class ForecastFetchEngine {
+
+    public interface Subscriber {
+        void onForecastLoaded(TrackedLocation location, Forecast forecast);
+
+        void onForecastFailed(TrackedLocation location, IOException e);
+    }
+
+    public static final int DEFAULT_MAX_PARALLEL = 4;
+
+    // a fetch that was turned away because too many are queued (or the engine was shut down).
+    public static class FetchRejectedException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        public FetchRejectedException(String message) {
+            super(message);
+        }
+    }
+
+    // which fetches start first when they have to wait for a slot: the ones a screen is showing
+    // (FOREGROUND), or the ones nobody is looking at yet (BACKGROUND: RefreshScheduler,
+    // RefreshQueue, refreshing every location from the main screen).
+    public enum Lane {
+        FOREGROUND,
+        BACKGROUND
+    }
+
+    private final ForecastClient mClient;
+    private final ForecastStore mStore;
+    private final HttpUrl mBaseUrl;
+    private final String mApiKey;
+    private final List<Registration> mSubscribers = new CopyOnWriteArrayList<>();
+    private final ExecutorService mComputeExecutor;
+
+    private final Metrics mMetrics;
+    private final Histogram mQueued;
+    private final Histogram mParseQueued;
+    private final Histogram mParse;
+    private final Histogram mSave;
+    private final Histogram mTotal;
+    private final Counter mSuccesses;
+    private final Counter mFailures;
+
+    // all guarded by "this".
+    private final ArrayDeque<Fetch> mQueue = new ArrayDeque<>();            // Lane.FOREGROUND
+    private final ArrayDeque<Fetch> mBackgroundQueue = new ArrayDeque<>();  // Lane.BACKGROUND
+    private final Map<String, Fetch> mInFlight = new HashMap<>();  // queued or running, by key.
+    private final Map<String, Long> mPublished = new HashMap<>();  // newest published, by key.
+    private final Map<String, Fetch> mInFlightTiles = new HashMap<>();  // the same, by tile.
+    private TileCache mTileCache;
+    private RequestGovernor mGovernor;
+    private ScheduledExecutorService mRetryTimer;   // created the first time it's needed.
+    private boolean mRetryScheduled;    // background fetches are waiting for the rate limit.
+    private long mNextSequence;
+    private int mRunning;
+    private int mMaxParallel = DEFAULT_MAX_PARALLEL;
+    private int mMaxQueued = Integer.MAX_VALUE;
+    private boolean mShutdown;
+
+    private volatile PayloadCapture mPayloadCapture;
+
+    // held while deciding whether a result is the newest, storing it and handing it to the
+    // subscribers, so an older result can never overwrite a newer one, on disk or on screen.
+    private final Object mPublishLock = new Object();
+
+    // baseUrl is the forecast endpoint, e.g. https://api.forecast.io/forecast/
+    public ForecastFetchEngine(ForecastClient client, ForecastStore store, HttpUrl baseUrl, String apiKey) {
+        this(client, store, baseUrl, apiKey, new Metrics());
+    }
+
+    public ForecastFetchEngine(ForecastClient client, ForecastStore store, HttpUrl baseUrl,
+                               String apiKey, Metrics metrics) {
+        this(client, store, baseUrl, apiKey, metrics, newComputeExecutor());
+    }
+
+    // computeExecutor parses the responses. it should be bounded; see newComputeExecutor().
+    public ForecastFetchEngine(ForecastClient client, ForecastStore store, HttpUrl baseUrl,
+                               String apiKey, Metrics metrics, ExecutorService computeExecutor) {
+        mClient = client;
+        mComputeExecutor = computeExecutor;
+        mStore = store;
+        mBaseUrl = baseUrl;
+        mApiKey = apiKey;
+        mMetrics = metrics;
+        mQueued = metrics.histogram(Metrics.FETCH_QUEUED);
+        mParseQueued = metrics.histogram(Metrics.PARSE_QUEUED);
+        mParse = metrics.histogram(Metrics.FORECAST_PARSE);
+        mSave = metrics.histogram(Metrics.STORE_SAVE);
+        mTotal = metrics.histogram(Metrics.FETCH_TOTAL);
+        mSuccesses = metrics.counter(Metrics.FETCH_SUCCESS);
+        mFailures = metrics.counter(Metrics.FETCH_FAILURE);
+    }
+
+    // one thread per core (up to 4), for parsing. the queue only has to hold what the fetch
+    // slots let through; if it is ever full the parse runs on the thread that handed it over.
+    public static ExecutorService newComputeExecutor() {
+        int threads = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(64), new ThreadFactory() {
+                    private final AtomicInteger mCount = new AtomicInteger();
+
+                    @Override
+                    public Thread newThread(Runnable runnable) {
+                        Thread thread = new Thread(runnable, "forecast-compute-" + mCount.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    // called on the compute thread that parsed the forecast.
+    public void addSubscriber(Subscriber subscriber) {
+        addSubscriber(subscriber, null);
+    }
+
+    // called through the executor, e.g. on the main thread.
+    public void addSubscriber(Subscriber subscriber, Executor executor) {
+        mSubscribers.add(new Registration(subscriber, executor));
+    }
+
+    public void removeSubscriber(Subscriber subscriber) {
+        for (Registration registration : mSubscribers) {
+            if (registration.mSubscriber == subscriber) {
+                mSubscribers.remove(registration);
+            }
+        }
+    }
+
+    public synchronized void setMaxParallel(int maxParallel) {
+        mMaxParallel = Math.max(1, maxParallel);
+        startQueued();
+    }
+
+    public synchronized int getMaxParallel() {
+        return mMaxParallel;
+    }
+
+    // how many fetches may wait for a slot before new ones are rejected.
+    public synchronized void setMaxQueued(int maxQueued) {
+        mMaxQueued = Math.max(0, maxQueued);
+    }
+
+    // saves a sample of the raw payloads, for debugging; null (the default) to stop.
+    public void setPayloadCapture(PayloadCapture capture) {
+        mPayloadCapture = capture;
+    }
+
+    // shares forecasts between locations in the same tile (see TileCache); null (the default)
+    // fetches every location for itself. set it before the first refresh.
+    public synchronized void setTileCache(TileCache tileCache) {
+        mTileCache = tileCache;
+    }
+
+    // counts every request against the API key's quota, and degrades or refuses the ones that
+    // would go over it (see RequestGovernor); null (the default) doesn't. set it before the
+    // first refresh.
+    public synchronized void setRequestGovernor(RequestGovernor governor) {
+        mGovernor = governor;
+    }
+
+    public synchronized int getQueuedCount() {
+        return mQueue.size() + mBackgroundQueue.size();
+    }
+
+    // true while a fetch for this location is queued or running.
+    public synchronized boolean isInFlight(String key) {
+        return mInFlight.containsKey(key);
+    }
+
+    public FetchTicket refresh(TrackedLocation location, boolean revalidate) {
+        return refresh(Collections.singletonList(location), revalidate, ForecastQuery.DEFAULT);
+    }
+
+    public FetchTicket refresh(TrackedLocation location, boolean revalidate, ForecastQuery query) {
+        return refresh(Collections.singletonList(location), revalidate, query);
+    }
+
+    public FetchTicket refresh(Collection<TrackedLocation> locations, boolean revalidate) {
+        return refresh(locations, revalidate, ForecastQuery.DEFAULT);
+    }
+
+    public FetchTicket refresh(Collection<TrackedLocation> locations, boolean revalidate,
+                               ForecastQuery query) {
+        return refresh(locations, revalidate, query, Lane.FOREGROUND);
+    }
+
+    // queues a fetch for every location that isn't already being fetched, and attaches the
+    // returned ticket to the ones that are.
+    // revalidate asks the server even when the HTTP cache has a fresh copy (see ForecastClient).
+    public synchronized FetchTicket refresh(Collection<TrackedLocation> locations, boolean revalidate,
+                                            ForecastQuery query, Lane lane) {
+        FetchTicket ticket = new FetchTicket();
+        for (TrackedLocation location : locations) {
+            // one for other units or another language doesn't count: this gets a fetch of its own,
+            // which takes over from it.
+            Fetch fetch = compatible(mInFlight.get(location.getKey()), query);
+            String tile = null;
+            if (fetch == null && mTileCache != null && !mShutdown) {
+                tile = mTileCache.tileFor(location);
+                fetch = compatible(mInFlightTiles.get(tile), query);
+                if (fetch != null) {
+                    // its tile is on its way: the location gets that forecast too.
+                    fetch.mLocations.add(location);
+                    mInFlight.put(location.getKey(), fetch);
+                    mTileCache.shared();
+                } else if (!revalidate) {
+                    Forecast cached = mTileCache.get(tile, query, System.currentTimeMillis());
+                    if (cached != null) {
+                        publishCached(new Fetch(location, tile, false, query, lane, ++mNextSequence), cached);
+                        continue;
+                    }
+                }
+            }
+            if (fetch != null) {
+                // already on its way. a queued fetch can still be upgraded to a revalidation, or
+                // to a query for more, or moved up to the foreground.
+                fetch.mRevalidate |= revalidate;
+                if (fetch.mCall == null) {
+                    fetch.mQuery = fetch.mQuery.union(query);
+                    if (lane == Lane.FOREGROUND && fetch.mLane == Lane.BACKGROUND) {
+                        fetch.mLane = Lane.FOREGROUND;
+                        mBackgroundQueue.remove(fetch);
+                        mQueue.add(fetch);
+                    }
+                }
+            } else if (mShutdown) {
+                continue;
+            } else if (getQueuedCount() >= mMaxQueued) {
+                failLater(new Fetch(location, tile, revalidate, query, lane, ++mNextSequence),
+                        new FetchRejectedException("More than " + mMaxQueued + " fetches queued"));
+                continue;
+            } else {
+                fetch = new Fetch(location, tile, revalidate, query, lane, ++mNextSequence);
+                mInFlight.put(location.getKey(), fetch);
+                if (tile != null) {
+                    mInFlightTiles.put(tile, fetch);
+                }
+                (lane == Lane.FOREGROUND ? mQueue : mBackgroundQueue).add(fetch);
+            }
+            fetch.mTickets.add(ticket);
+            ticket.mFetches.add(fetch);
+        }
+        startQueued();
+        return ticket;
+    }
+
+    // the fetch if its query can be merged with query, null otherwise (or without one).
+    private static Fetch compatible(Fetch fetch, ForecastQuery query) {
+        return fetch != null && fetch.mQuery.isCompatible(query) ? fetch : null;
+    }
+
+    // cancels every queued and running fetch, and stops the compute threads once they're idle.
+    // nothing is published afterwards, and new refreshes are ignored.
+    public void shutdown() {
+        synchronized (this) {
+            mShutdown = true;
+            for (Fetch fetch : mInFlight.values()) {
+                fetch.mCanceled = true;
+                if (fetch.mCall != null) {
+                    fetch.mCall.cancel();
+                }
+                for (FetchTicket ticket : fetch.mTickets) {
+                    ticket.mFetches.remove(fetch);
+                }
+            }
+            mInFlight.clear();
+            mInFlightTiles.clear();
+            mQueue.clear();
+            mBackgroundQueue.clear();
+            if (mRetryTimer != null) {
+                mRetryTimer.shutdownNow();
+            }
+        }
+        mComputeExecutor.shutdown();
+    }
+
+    HttpUrl urlFor(TrackedLocation location, ForecastQuery query) {
+        return query.toUrl(mBaseUrl, mApiKey, location);
+    }
+
+    // a tile's fetch is for the middle of the tile, so it's the same whichever of its locations
+    // started it (and the HTTP cache has one copy per tile, not one per location).
+    private HttpUrl urlFor(Fetch fetch) {
+        TrackedLocation location = fetch.mTile != null
+                ? TileCache.center(fetch.mTile, fetch.mLocation.getName()) : fetch.mLocation;
+        return urlFor(location, fetch.mQuery);
+    }
+
+    // when the response stops being fresh according to its Cache-Control max-age (or Expires)
+    // header, or 0 if it says neither. (ForecastClient gives header-less responses a max-age.)
+    static long expiresAt(Response response, long now) {
+        int maxAgeSeconds = response.cacheControl().maxAgeSeconds();
+        if (maxAgeSeconds >= 0) {
+            return now + maxAgeSeconds * 1000L;
+        }
+        Date expires = response.headers().getDate("Expires");
+        return expires != null ? expires.getTime() : 0;
+    }
+
+    private synchronized void startQueued() {
+        while (mRunning < mMaxParallel) {
+            Fetch fetch;
+            if (!mQueue.isEmpty()) {
+                fetch = mQueue.poll();
+            } else if (!mBackgroundQueue.isEmpty() && !mRetryScheduled) {
+                fetch = mBackgroundQueue.poll();
+            } else {
+                break;
+            }
+            if (mGovernor != null) {
+                fetch.mDecision = mGovernor.acquire(mApiKey, fetch.mLane);
+            }
+            if (fetch.mDecision == RequestGovernor.Decision.THROTTLED) {
+                // first in line again, once the bucket has refilled enough.
+                mBackgroundQueue.addFirst(fetch);
+                retryLater(mGovernor.getWaitMillis(mApiKey));
+                break;
+            }
+            mQueued.recordSince(fetch.mRequestedAt);
+            if (fetch.mDecision == RequestGovernor.Decision.REFUSED) {
+                dropped(fetch);
+                failLater(fetch, new RequestGovernor.QuotaExceededException(
+                        "Near the request quota, background refreshes have to wait"));
+                continue;
+            }
+            ++mRunning;
+            String key = fetch.mLocation.getKey();
+            if (fetch.mDecision == RequestGovernor.Decision.NETWORK) {
+                fetch.mCall = mClient.newCall(urlFor(fetch), fetch.mRevalidate, key);
+            } else {
+                fetch.mCall = mClient.newCachedCall(urlFor(fetch),
+                        fetch.mDecision == RequestGovernor.Decision.CACHE_ONLY, key);
+            }
+            fetch.mCall.enqueue(fetch);
+        }
+    }
+
+    // starts the background queue again after delayMillis.
+    private void retryLater(long delayMillis) {
+        if (mRetryTimer == null) {
+            mRetryTimer = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "forecast-throttle");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        mRetryScheduled = true;
+        try {
+            mRetryTimer.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    synchronized (ForecastFetchEngine.this) {
+                        mRetryScheduled = false;
+                        startQueued();
+                    }
+                }
+            }, Math.max(1, delayMillis), TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException ignored) {
+            // shutting down.
+        }
+    }
+
+    // failed straight away (but not on the caller's thread, which holds the engine's lock).
+    private void failLater(final Fetch fetch, final IOException e) {
+        try {
+            mComputeExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    publishFailure(fetch, e);
+                }
+            });
+        } catch (RejectedExecutionException ignored) {
+            // shutting down, nobody to tell.
+        }
+    }
+
+    // answered from the TileCache (again not on the caller's thread).
+    private void publishCached(final Fetch fetch, final Forecast forecast) {
+        try {
+            mComputeExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    publish(fetch, forecast);
+                }
+            });
+        } catch (RejectedExecutionException ignored) {
+            // shutting down.
+        }
+    }
+
+    private synchronized TileCache tileCache() {
+        return mTileCache;
+    }
+
+    private synchronized RequestGovernor governor() {
+        return mGovernor;
+    }
+
+    private synchronized boolean isCanceled(Fetch fetch) {
+        return fetch.mCanceled;
+    }
+
+    // the locations the fetch is for: the one that started it and any that joined it for the tile.
+    private synchronized List<TrackedLocation> locationsOf(Fetch fetch) {
+        return new ArrayList<>(fetch.mLocations);
+    }
+
+    // must hold the engine's lock.
+    private void removeInFlight(Fetch fetch) {
+        // a cancelled fetch is already gone, and a newer one may have taken its place.
+        for (TrackedLocation location : fetch.mLocations) {
+            if (mInFlight.get(location.getKey()) == fetch) {
+                mInFlight.remove(location.getKey());
+            }
+        }
+        if (fetch.mTile != null && mInFlightTiles.get(fetch.mTile) == fetch) {
+            mInFlightTiles.remove(fetch.mTile);
+        }
+    }
+
+    // must hold the engine's lock.
+    private void dropped(Fetch fetch) {
+        removeInFlight(fetch);
+        for (FetchTicket ticket : fetch.mTickets) {
+            ticket.mFetches.remove(fetch);
+        }
+    }
+
+    private synchronized void finished(Fetch fetch) {
+        dropped(fetch);
+        --mRunning;
+        startQueued();
+    }
+
+    private synchronized void detach(FetchTicket ticket) {
+        for (Fetch fetch : ticket.mFetches) {
+            fetch.mTickets.remove(ticket);
+            if (!fetch.mTickets.isEmpty()) {
+                continue;   // somebody else still wants it.
+            }
+
+            fetch.mCanceled = true;
+            removeInFlight(fetch);
+            if (fetch.mCall == null) {
+                mQueue.remove(fetch);
+                mBackgroundQueue.remove(fetch);
+            } else {
+                fetch.mCall.cancel();   // finished() runs when OkHttp reports the cancellation.
+            }
+        }
+        ticket.mFetches.clear();
+    }
+
+    // true if this result is the newest one for the location (and wasn't cancelled), in which
+    // case it is recorded as such. must hold mPublishLock.
+    private synchronized boolean isNewest(Fetch fetch, TrackedLocation location) {
+        if (fetch.mCanceled) {
+            return false;
+        }
+        Long published = mPublished.get(location.getKey());
+        if (published != null && published > fetch.mSequence) {
+            return false;
+        }
+        mPublished.put(location.getKey(), fetch.mSequence);
+        return true;
+    }
+
+    private void publish(Fetch fetch, Forecast forecast) {
+        for (TrackedLocation location : locationsOf(fetch)) {
+            synchronized (mPublishLock) {
+                if (!isNewest(fetch, location)) {
+                    continue;
+                }
+                long saveStart = mMetrics.startTimer();
+                try {
+                    mStore.save(location.getKey(), forecast);
+                } catch (IOException e) {
+                    // still worth showing, it just won't be there after a restart.
+                }
+                mSave.recordSince(saveStart);
+                // still under the lock: otherwise an older result that got past isNewest() first
+                // could reach the subscribers after the newer one, and stay on screen.
+                for (Registration registration : mSubscribers) {
+                    registration.loaded(location, forecast);
+                }
+            }
+            mSuccesses.increment();
+        }
+        mTotal.recordSince(fetch.mRequestedAt);
+    }
+
+    private void publishFailure(Fetch fetch, IOException e) {
+        if (isCanceled(fetch)) {
+            return;     // nobody is waiting for it, and it's not really a failure.
+        }
+        for (TrackedLocation location : locationsOf(fetch)) {
+            for (Registration registration : mSubscribers) {
+                registration.failed(location, e);
+            }
+            mFailures.increment();
+        }
+    }
+
+    // handed out by refresh(). cancel() it when the result is no longer wanted, e.g. when the
+    // screen that asked for it is destroyed or switches to another location.
+    public class FetchTicket {
+        final Set<Fetch> mFetches = new HashSet<>();     // guarded by the engine.
+
+        public void cancel() {
+            detach(this);
+        }
+
+        // true once every fetch this ticket is attached to has finished (or was cancelled).
+        public boolean isDone() {
+            synchronized (ForecastFetchEngine.this) {
+                return mFetches.isEmpty();
+            }
+        }
+    }
+
+    // a subscriber and the executor it wants to be called on (null: whichever thread publishes).
+    private static class Registration {
+        final Subscriber mSubscriber;
+        final Executor mExecutor;
+
+        Registration(Subscriber subscriber, Executor executor) {
+            mSubscriber = subscriber;
+            mExecutor = executor;
+        }
+
+        void loaded(final TrackedLocation location, final Forecast forecast) {
+            if (mExecutor == null) {
+                mSubscriber.onForecastLoaded(location, forecast);
+                return;
+            }
+            mExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    mSubscriber.onForecastLoaded(location, forecast);
+                }
+            });
+        }
+
+        void failed(final TrackedLocation location, final IOException e) {
+            if (mExecutor == null) {
+                mSubscriber.onForecastFailed(location, e);
+                return;
+            }
+            mExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    mSubscriber.onForecastFailed(location, e);
+                }
+            });
+        }
+    }
+
+    // one location's fetch (or one tile's, see TileCache), from queued to published.
+    private class Fetch implements Callback {
+        final TrackedLocation mLocation;
+        final String mTile;     // null without a TileCache.
+        final long mSequence;   // order in which fetches were requested, to spot stale results.
+        final long mRequestedAt = mMetrics.startTimer();
+        // guarded by the engine.
+        final Set<FetchTicket> mTickets = new HashSet<>();
+        final List<TrackedLocation> mLocations = new ArrayList<>();   // mLocation, then the tile's.
+        boolean mRevalidate;
+        ForecastQuery mQuery;
+        Lane mLane;
+        RequestGovernor.Decision mDecision = RequestGovernor.Decision.NETWORK;
+        boolean mCanceled;
+        Call mCall;
+
+        Fetch(TrackedLocation location, String tile, boolean revalidate, ForecastQuery query, Lane lane,
+              long sequence) {
+            mLocation = location;
+            mTile = tile;
+            mLocations.add(location);
+            mRevalidate = revalidate;
+            mQuery = query;
+            mLane = lane;
+            mSequence = sequence;
+        }
+
+        @Override
+        public void onFailure(Call call, IOException e) {
+            finished(this);
+            publishFailure(this, e);
+        }
+
+        // stage 1 done: hand the response over to stage 2.
+        @Override
+        public void onResponse(Call call, final Response response) {
+            final long handedOverAt = mMetrics.startTimer();
+            Runnable parse = new Runnable() {
+                @Override
+                public void run() {
+                    mParseQueued.recordSince(handedOverAt);
+                    parse(response);
+                }
+            };
+            if (mComputeExecutor.isShutdown()) {
+                parse.run();    // only to close the response; the fetch was cancelled.
+                return;
+            }
+            try {
+                mComputeExecutor.execute(parse);
+            } catch (RejectedExecutionException e) {
+                parse.run();
+            }
+        }
+
+        // stage 2, on the compute executor. cancelling the call makes reading the body fail, so a
+        // cancelled fetch stops here too.
+        void parse(Response response) {
+            Forecast forecast;
+            PayloadCapture.Tap tap = null;
+            RequestGovernor governor = governor();
+            if (governor != null && mDecision != RequestGovernor.Decision.CACHE_ONLY
+                    && response.networkResponse() == null) {
+                governor.refund(mApiKey);   // the HTTP cache answered, the server never saw it.
+            }
+            try {
+                if (isCanceled(this)) {
+                    throw new IOException("Canceled");
+                }
+                if (mDecision == RequestGovernor.Decision.CACHE_ONLY && response.code() == 504) {
+                    throw new RequestGovernor.QuotaExceededException("Out of requests, and nothing cached");
+                }
+                if (!response.isSuccessful()) {
+                    throw new IOException("Unexpected response " + response.code());
+                }
+                // parsed as it comes off the socket: no String of the whole body, and no
+                // charStream() decoder per response (see Utf8SourceReader).
+                BufferedSource body = response.body().source();
+                PayloadCapture capture = mPayloadCapture;
+                if (capture != null) {
+                    tap = capture.tap(body);
+                }
+                long parseStart = mMetrics.startTimer();
+                forecast = ForecastParser.parse(new Utf8SourceReader(tap != null ? tap.source() : body));
+                mParse.recordSince(parseStart);
+                long now = System.currentTimeMillis();
+                forecast.setFetchedAt(now);
+                forecast.setExpiresAt(expiresAt(response, now));
+                TileCache tileCache = tileCache();
+                if (mTile != null && tileCache != null) {
+                    tileCache.put(mTile, mQuery, forecast, now);
+                }
+            } catch (IOException e) {
+                finished(this);
+                publishFailure(this, e);
+                return;
+            } finally {
+                if (tap != null) {
+                    tap.save();
+                }
+                response.body().close();
+            }
+
+            // stage 3.
+            finished(this);
+            publish(this, forecast);
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package com.example.lawrence.weatherapp.network;
+
+import com.example.lawrence.weatherapp.location.TrackedLocation;
+
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.Locale;
+
+import okhttp3.HttpUrl;
+
+/*
+ * What to ask the forecast API for, on top of the location: which blocks to leave out (exclude),
+ * whether to return a week of hours instead of two days (extend=hourly), units and language.
+ *
+ * By default the API sends every block, including minutely, alerts and flags, which we never
+ * parse. Leaving them out makes the response about a fifth smaller, so it downloads and parses
+ * faster (see ForecastParserBenchmark with forecast_standard.json vs. forecast_trimmed.json).
+ *
+ *   https://api.forecast.io/forecast/KEY/37.8268,-122.423?exclude=minutely,alerts,flags&units=us
+ *
+ * Queries are immutable; make them with a Builder. Each distinct query is a distinct URL, so the
+ * HTTP cache keeps the responses apart.
+ */
+public final class ForecastQuery {
+
+    // the blocks of a response, in the order the API sends them.
+    public enum Block {
+        CURRENTLY, MINUTELY, HOURLY, DAILY, ALERTS, FLAGS;
+
+        String getName() {
+            return name().toLowerCase(Locale.US);
+        }
+    }
+
+    // units. US is what the app was written for (Fahrenheit, percent chances).
+    public static final String UNITS_US = "us";
+    public static final String UNITS_SI = "si";
+    public static final String UNITS_CA = "ca";
+    public static final String UNITS_UK = "uk2";
+    public static final String UNITS_AUTO = "auto";  // based on the location.
+
+    // how many hours the hourly block has, with and without extend=hourly (plus the current hour).
+    public static final int HOURS = 48;
+    public static final int EXTENDED_HOURS = 168;
+
+    // what every screen needs: current conditions, 48 hours and a week of days.
+    public static final ForecastQuery DEFAULT = new Builder()
+            .exclude(Block.MINUTELY, Block.ALERTS, Block.FLAGS)
+            .build();
+
+    // the hourly screen, a week of hours.
+    public static final ForecastQuery EXTENDED_HOURLY = DEFAULT.newBuilder()
+            .extendHourly(true)
+            .build();
+
+    private final EnumSet<Block> mExcluded;
+    private final boolean mExtendHourly;
+    private final String mUnits;
+    private final String mLanguage;
+
+    private ForecastQuery(Builder builder) {
+        mExcluded = builder.mExcluded.clone();
+        mExtendHourly = builder.mExtendHourly;
+        mUnits = builder.mUnits;
+        mLanguage = builder.mLanguage;
+    }
+
+    public boolean isExcluded(Block block) {
+        return mExcluded.contains(block);
+    }
+
+    public boolean isHourlyExtended() {
+        return mExtendHourly;
+    }
+
+    public String getUnits() {
+        return mUnits;
+    }
+
+    // null for the API's default (English).
+    public String getLanguage() {
+        return mLanguage;
+    }
+
+    // true if a response to this query has everything a response to other has, e.g. a request
+    // can be answered by a fetch for this query that is already running.
+    public boolean covers(ForecastQuery other) {
+        return other.mExcluded.containsAll(mExcluded)
+                && (mExtendHourly || !other.mExtendHourly)
+                && mUnits.equals(other.mUnits)
+                && equal(mLanguage, other.mLanguage);
+    }
+
+    // true if one request can answer both (see union()): the same units and language.
+    public boolean isCompatible(ForecastQuery other) {
+        return mUnits.equals(other.mUnits) && equal(mLanguage, other.mLanguage);
+    }
+
+    // a query for everything either of the two asks for. they must be compatible.
+    public ForecastQuery union(ForecastQuery other) {
+        if (!isCompatible(other)) {
+            throw new IllegalArgumentException(this + " and " + other + " can't be merged");
+        }
+        Builder builder = newBuilder();
+        builder.mExcluded.retainAll(other.mExcluded);
+        builder.mExtendHourly |= other.mExtendHourly;
+        return builder.build();
+    }
+
+    // KEY/latitude,longitude?exclude=..&extend=..&units=..&lang=.. under the forecast endpoint.
+    public HttpUrl toUrl(HttpUrl baseUrl, String apiKey, TrackedLocation location) {
+        HttpUrl.Builder url = baseUrl.newBuilder()
+                .addPathSegment(apiKey)
+                .addPathSegment(location.getLatitude() + "," + location.getLongitude());
+        if (!mExcluded.isEmpty()) {
+            StringBuilder exclude = new StringBuilder();
+            for (Iterator<Block> blocks = mExcluded.iterator(); blocks.hasNext(); ) {
+                exclude.append(blocks.next().getName());
+                if (blocks.hasNext()) {
+                    exclude.append(',');
+                }
+            }
+            url.addQueryParameter("exclude", exclude.toString());
+        }
+        if (mExtendHourly) {
+            url.addQueryParameter("extend", "hourly");
+        }
+        url.addQueryParameter("units", mUnits);
+        if (mLanguage != null) {
+            url.addQueryParameter("lang", mLanguage);
+        }
+        return url.build();
+    }
+
+    public Builder newBuilder() {
+        Builder builder = new Builder();
+        builder.mExcluded = mExcluded.clone();
+        builder.mExtendHourly = mExtendHourly;
+        builder.mUnits = mUnits;
+        builder.mLanguage = mLanguage;
+        return builder;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof ForecastQuery)) {
+            return false;
+        }
+        ForecastQuery other = (ForecastQuery) o;
+        return mExcluded.equals(other.mExcluded) && mExtendHourly == other.mExtendHourly
+                && mUnits.equals(other.mUnits) && equal(mLanguage, other.mLanguage);
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = mExcluded.hashCode();
+        hash = 31 * hash + (mExtendHourly ? 1 : 0);
+        hash = 31 * hash + mUnits.hashCode();
+        hash = 31 * hash + (mLanguage != null ? mLanguage.hashCode() : 0);
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return "ForecastQuery{exclude=" + mExcluded + ", extendHourly=" + mExtendHourly
+                + ", units=" + mUnits + ", lang=" + mLanguage + "}";
+    }
+
+    private static boolean equal(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    public static final class Builder {
+        private EnumSet<Block> mExcluded = EnumSet.noneOf(Block.class);
+        private boolean mExtendHourly;
+        private String mUnits = UNITS_US;
+        private String mLanguage;
+
+        public Builder exclude(Block... blocks) {
+            for (Block block : blocks) {
+                mExcluded.add(block);
+            }
+            return this;
+        }
+
+        public Builder include(Block... blocks) {
+            for (Block block : blocks) {
+                mExcluded.remove(block);
+            }
+            return this;
+        }
+
+        public Builder extendHourly(boolean extendHourly) {
+            mExtendHourly = extendHourly;
+            return this;
+        }
+
+        public Builder units(String units) {
+            if (units == null) {
+                throw new IllegalArgumentException("units == null");
+            }
+            mUnits = units;
+            return this;
+        }
+
+        // e.g. "de", or null for English.
+        public Builder language(String language) {
+            mLanguage = language;
+            return this;
+        }
+
+        public ForecastQuery build() {
+            if (mExtendHourly && mExcluded.contains(Block.HOURLY)) {
+                throw new IllegalStateException("extend=hourly with the hourly block excluded");
+            }
+            return new ForecastQuery(this);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.lawrence.weatherapp.network;
+
+import com.example.lawrence.weatherapp.metrics.Counter;
+import com.example.lawrence.weatherapp.metrics.Histogram;
+import com.example.lawrence.weatherapp.metrics.Metrics;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.List;
+
+import okhttp3.Dns;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Response;
+
+/*
+ * Times the network phases of a call for Metrics (http.dns, http.connect, http.headers) and
+ * counts cache hits, network requests and 304s.
+ *
+ * OkHttp 3.1 has no EventListener, so the phases are measured where OkHttp lets us in:
+ *
+ * - an application interceptor sees the call start, before the cache and the connection;
+ * - a network interceptor only runs once a connection is ready (DNS, TCP and TLS done) and the
+ *   request is about to be written, and its proceed() returns when the response headers arrive;
+ * - a Dns wrapper times the lookups, which only happen when a new connection is needed.
+ *
+ * A call runs its whole interceptor chain on one thread, so the start time is passed from the
+ * application interceptor to the network interceptor through a ThreadLocal. A call the cache
+ * answers never reaches the network interceptor.
+ */
+class HttpMetrics {
+
+    private final Metrics mMetrics;
+    private final Histogram mDns;
+    private final Histogram mConnect;
+    private final Histogram mHeaders;
+    private final Counter mCacheHits;
+    private final Counter mNetwork;
+    private final Counter mNotModified;
+
+    private final ThreadLocal<long[]> mCallStart = new ThreadLocal<long[]>() {
+        @Override
+        protected long[] initialValue() {
+            return new long[1];
+        }
+    };
+
+    HttpMetrics(Metrics metrics) {
+        mMetrics = metrics;
+        mDns = metrics.histogram(Metrics.HTTP_DNS);
+        mConnect = metrics.histogram(Metrics.HTTP_CONNECT);
+        mHeaders = metrics.histogram(Metrics.HTTP_HEADERS);
+        mCacheHits = metrics.counter(Metrics.HTTP_CACHE_HIT);
+        mNetwork = metrics.counter(Metrics.HTTP_NETWORK);
+        mNotModified = metrics.counter(Metrics.HTTP_NOT_MODIFIED);
+    }
+
+    // adds the interceptors and the Dns wrapper to a client configuration.
+    OkHttpClient.Builder install(OkHttpClient.Builder builder) {
+        return builder
+                .addInterceptor(new CallInterceptor())
+                .addNetworkInterceptor(new NetworkInterceptor())
+                .dns(new TimedDns(Dns.SYSTEM));
+    }
+
+    private class CallInterceptor implements Interceptor {
+        @Override
+        public Response intercept(Chain chain) throws IOException {
+            long[] start = mCallStart.get();
+            start[0] = mMetrics.startTimer();
+            Response response = chain.proceed(chain.request());
+            if (response.networkResponse() == null && response.cacheResponse() != null) {
+                mCacheHits.increment();
+            }
+            start[0] = 0;
+            return response;
+        }
+    }
+
+    private class NetworkInterceptor implements Interceptor {
+        @Override
+        public Response intercept(Chain chain) throws IOException {
+            long[] start = mCallStart.get();
+            mConnect.recordSince(start[0]);
+            start[0] = 0;   // a redirect or retry goes through here again, but isn't a new call.
+            mNetwork.increment();
+
+            long sent = mMetrics.startTimer();
+            Response response = chain.proceed(chain.request());
+            mHeaders.recordSince(sent);
+            if (response.code() == 304) {
+                mNotModified.increment();
+            }
+            return response;
+        }
+    }
+
+    private class TimedDns implements Dns {
+        private final Dns mDelegate;
+
+        TimedDns(Dns delegate) {
+            mDelegate = delegate;
+        }
+
+        @Override
+        public List<InetAddress> lookup(String hostname) throws UnknownHostException {
+            long start = mMetrics.startTimer();
+            try {
+                return mDelegate.lookup(hostname);
+            } finally {
+                mDns.recordSince(start);
+            }
+        }
+    }
+}
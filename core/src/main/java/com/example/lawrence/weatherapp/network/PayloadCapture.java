@@ -0,0 +1,110 @@
+package com.example.lawrence.weatherapp.network;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.ForwardingSource;
+import okio.Okio;
+
+/*
+ * Saves a copy of some of the raw forecast payloads, for debugging. Off unless something sets one
+ * on the ForecastFetchEngine (WeatherApplication only does in debug builds).
+ *
+ * We used to log every whole payload with Log.v before parsing it, which meant building it as a
+ * String first. This only looks at one response in every sampleEvery, copies at most maxBytes of
+ * it as the parser reads the body (so nothing is read ahead or held twice), and writes that to
+ * payload-N.json in the directory, reusing the same maxFiles names over and over:
+ *
+ *   adb shell run-as com.example.lawrence.weatherapp ls files/payloads
+ *
+ * A payload cut off at maxBytes is saved as payload-N.json.partial instead.
+ */
+public class PayloadCapture {
+
+    private final File mDirectory;
+    private final int mSampleEvery;
+    private final int mMaxBytes;
+    private final int mMaxFiles;
+
+    private final AtomicLong mSeen = new AtomicLong();
+    private final AtomicLong mSaved = new AtomicLong();
+
+    public PayloadCapture(File directory, int sampleEvery, int maxBytes, int maxFiles) {
+        mDirectory = directory;
+        mSampleEvery = Math.max(1, sampleEvery);
+        mMaxBytes = Math.max(0, maxBytes);
+        mMaxFiles = Math.max(1, maxFiles);
+    }
+
+    // the tap for this response, or null if it isn't one of the sampled ones.
+    Tap tap(BufferedSource body) {
+        if (mSeen.getAndIncrement() % mSampleEvery != 0) {
+            return null;
+        }
+        return new Tap(body);
+    }
+
+    public long getSavedCount() {
+        return mSaved.get();
+    }
+
+    // copies what the parser reads from the body, up to mMaxBytes.
+    class Tap extends ForwardingSource {
+        private final Buffer mCopy = new Buffer();
+        private final BufferedSource mSource;
+        private boolean mTruncated;
+
+        private Tap(BufferedSource body) {
+            super(body);
+            mSource = Okio.buffer(this);
+        }
+
+        // read the body from here instead.
+        BufferedSource source() {
+            return mSource;
+        }
+
+        @Override
+        public long read(Buffer sink, long byteCount) throws IOException {
+            long read = super.read(sink, byteCount);
+            if (read > 0) {
+                long room = mMaxBytes - mCopy.size();
+                if (room < read) {
+                    mTruncated = true;
+                }
+                if (room > 0) {
+                    sink.copyTo(mCopy, sink.size() - read, Math.min(read, room));
+                }
+            }
+            return read;
+        }
+
+        // writes out whatever was read, parsed or not (a payload that failed to parse is the one
+        // we most want to look at). a failure here only loses the copy.
+        void save() {
+            if (!mDirectory.isDirectory() && !mDirectory.mkdirs()) {
+                return;
+            }
+            long slot = mSaved.getAndIncrement() % mMaxFiles;
+            File file = new File(mDirectory, "payload-" + slot + ".json");
+            File partial = new File(mDirectory, "payload-" + slot + ".json.partial");
+            file.delete();
+            partial.delete();
+            try {
+                OutputStream out = new FileOutputStream(mTruncated ? partial : file);
+                try {
+                    out.write(mCopy.readByteArray());
+                } finally {
+                    out.close();
+                }
+            } catch (IOException e) {
+                // debugging aid only.
+            }
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.lawrence.weatherapp.network;
+
+import com.example.lawrence.weatherapp.location.TrackedLocation;
+
+import java.util.Collection;
+
+/*
+ * Keeps track of the refreshes one screen has asked the ForecastFetchEngine for.
+ *
+ * - Tapping refresh again while the location is still being fetched doesn't start another
+ *   request; the tap is attached to the one already running.
+ * - Switching to another location cancels the refresh of the previous one, and destroying the
+ *   screen cancels everything it started (unless something else is waiting for the same fetch).
+ * - The engine already makes sure only the newest response for a location is published, so a
+ *   cancelled or overtaken request can't overwrite a newer forecast.
+ *
+ * Only used from the main thread.
+ */
+public class RefreshCoordinator {
+
+    private final ForecastFetchEngine mEngine;
+
+    // the refresh of the location on screen, and the background refresh of all locations.
+    private ForecastFetchEngine.FetchTicket mCurrent;
+    private String mCurrentKey;
+    private ForecastFetchEngine.FetchTicket mBatch;
+
+    public RefreshCoordinator(ForecastFetchEngine engine) {
+        mEngine = engine;
+    }
+
+    // refreshes the location on screen. returns false if the tap was attached to a refresh
+    // that is already running instead of starting a new one.
+    public boolean refresh(TrackedLocation location, boolean revalidate) {
+        if (location.getKey().equals(mCurrentKey) && mEngine.isInFlight(mCurrentKey)) {
+            return false;
+        }
+        if (mCurrent != null) {
+            mCurrent.cancel();  // a different location now, the old one is stale.
+        }
+        mCurrentKey = location.getKey();
+        mCurrent = mEngine.refresh(location, revalidate);
+        return true;
+    }
+
+    // refreshes every tracked location in the background. starting a new batch replaces the old one.
+    public void refreshAll(Collection<TrackedLocation> locations) {
+        ForecastFetchEngine.FetchTicket previous = mBatch;
+        mBatch = mEngine.refresh(locations, false, ForecastQuery.DEFAULT, ForecastFetchEngine.Lane.BACKGROUND);
+        if (previous != null) {
+            // after the new refresh(), so fetches both batches want are kept, not restarted.
+            previous.cancel();
+        }
+    }
+
+    public boolean isRefreshing(TrackedLocation location) {
+        return mEngine.isInFlight(location.getKey());
+    }
+
+    // cancels the refresh of the location on screen, e.g. when switching to another one.
+    public void cancelCurrent() {
+        if (mCurrent != null) {
+            mCurrent.cancel();
+            mCurrent = null;
+            mCurrentKey = null;
+        }
+    }
+
+    // cancels everything this screen started, e.g. from onDestroy().
+    public void cancelAll() {
+        cancelCurrent();
+        if (mBatch != null) {
+            mBatch.cancel();
+            mBatch = null;
+        }
+    }
+}
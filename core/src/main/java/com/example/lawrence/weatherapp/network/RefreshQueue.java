@@ -0,0 +1,340 @@
+package com.example.lawrence.weatherapp.network;
+
+import com.example.lawrence.weatherapp.location.TrackedLocation;
+import com.example.lawrence.weatherapp.weather.Forecast;
+import com.example.lawrence.weatherapp.weather.ForecastSeries;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/*
+ * Refreshes asked for while there is no connection, kept until there is one.
+ *
+ * Offline, the main screen used to show a toast and forget the refresh, and nothing tried again
+ * when the connection came back. Now the screen keeps showing the last stored forecast, the
+ * refresh goes in here, and once the connection is back drain() hands everything to the
+ * ForecastFetchEngine in one go.
+ *
+ * - One entry per location. Asking again while it's queued only widens the entry (to a
+ *   revalidation, or to a week of hours) instead of adding another download.
+ * - An entry leaves the queue when a forecast for its location arrives, whether from the drain
+ *   or from anything else. A drained fetch that fails stays queued until the next drain (the
+ *   next time the connection comes back) instead of being retried on the spot, which on a
+ *   flaky connection turns into a storm of retries.
+ * - The file is a log: every change is appended (and synced), so refreshes queued before the
+ *   process was killed are still there when it starts again. The queue itself changes at once;
+ *   the writing is done in order on a thread of its own, so the main thread never waits for the
+ *   disk (flush() waits for it). Once the log is mostly dead lines it is rewritten with only
+ *   the live ones.
+ *
+ *   +|revalidate|extended|latitude|longitude|name     queued, or widened
+ *   -|key                                              done
+ *
+ * Only the two queries the app uses are kept apart: ForecastQuery.DEFAULT and EXTENDED_HOURLY.
+ *
+ * Thread-safe: refreshes are queued on the main thread and forecasts arrive on the compute threads.
+ */
+public class RefreshQueue implements ForecastFetchEngine.Subscriber {
+
+    // told when the queue goes from empty to not, or back (e.g. to watch the connection only
+    // while there's something to do). called on the thread that made the change.
+    public interface Listener {
+        void onPendingChanged(boolean pending);
+    }
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int MIN_LINES_BEFORE_COMPACTING = 32;
+
+    private final File mFile;
+    private final ExecutorService mWriter;      // one thread, so the writes stay in order.
+    private Listener mListener;
+
+    // all guarded by "this". in the order they were first queued.
+    private final Map<String, Entry> mEntries = new LinkedHashMap<>();
+    private int mLogLines;      // including the ones still waiting for mWriter.
+
+    public RefreshQueue(File file) {
+        mFile = file;
+        mWriter = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "refresh-queue");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        load();
+    }
+
+    public synchronized void setListener(Listener listener) {
+        mListener = listener;
+    }
+
+    public void add(TrackedLocation location, boolean revalidate, ForecastQuery query) {
+        addAll(Collections.singletonList(location), revalidate, query);
+    }
+
+    public void addAll(Collection<TrackedLocation> locations, boolean revalidate, ForecastQuery query) {
+        boolean extended = query.isHourlyExtended();
+        Listener notify;
+        synchronized (this) {
+            boolean wasEmpty = mEntries.isEmpty();
+            List<Entry> changed = new ArrayList<>();
+            for (TrackedLocation location : locations) {
+                Entry entry = mEntries.get(location.getKey());
+                if (entry == null) {
+                    changed.add(new Entry(location, revalidate, extended));
+                } else if ((revalidate && !entry.mRevalidate) || (extended && !entry.mExtended)) {
+                    changed.add(new Entry(location, entry.mRevalidate | revalidate, entry.mExtended | extended));
+                }
+            }
+            if (changed.isEmpty()) {
+                return;
+            }
+            StringBuilder lines = new StringBuilder();
+            for (Entry entry : changed) {
+                lines.append(entry.toLine());
+            }
+            append(lines.toString(), changed.size());
+            for (Entry entry : changed) {
+                mEntries.put(entry.mLocation.getKey(), entry);
+            }
+            notify = wasEmpty ? mListener : null;
+        }
+        if (notify != null) {
+            notify.onPendingChanged(true);
+        }
+    }
+
+    public synchronized int size() {
+        return mEntries.size();
+    }
+
+    public synchronized boolean isEmpty() {
+        return mEntries.isEmpty();
+    }
+
+    public synchronized boolean contains(String key) {
+        return mEntries.containsKey(key);
+    }
+
+    // waits until every change made so far is in the file.
+    public void flush() {
+        try {
+            mWriter.submit(new Runnable() {
+                @Override
+                public void run() {
+                }
+            }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new AssertionError(e);    // the no-op can't throw.
+        }
+    }
+
+    // starts a fetch for everything queued, all at once (the engine spreads them over its slots).
+    // the entries stay queued until their forecasts arrive. returns how many were started.
+    public int drain(ForecastFetchEngine engine) {
+        // grouped by what was asked for, so each group is one refresh() call:
+        // [plain, extended, revalidate, revalidate + extended].
+        List<List<TrackedLocation>> groups = new ArrayList<>();
+        for (int i = 0; i < 4; ++i) {
+            groups.add(new ArrayList<TrackedLocation>());
+        }
+        synchronized (this) {
+            for (Entry entry : mEntries.values()) {
+                groups.get((entry.mRevalidate ? 2 : 0) + (entry.mExtended ? 1 : 0)).add(entry.mLocation);
+            }
+        }
+        // outside the lock: the engine takes its own, and calls us back from other threads.
+        int count = 0;
+        for (int i = 0; i < 4; ++i) {
+            List<TrackedLocation> locations = groups.get(i);
+            if (!locations.isEmpty()) {
+                engine.refresh(locations, i >= 2, i % 2 == 1 ? ForecastQuery.EXTENDED_HOURLY : ForecastQuery.DEFAULT,
+                        ForecastFetchEngine.Lane.BACKGROUND);
+                count += locations.size();
+            }
+        }
+        return count;
+    }
+
+    // a forecast for the location arrived, so whatever was queued for it is done. an entry
+    // for a week of hours is only done by a forecast that has them.
+    @Override
+    public void onForecastLoaded(TrackedLocation location, Forecast forecast) {
+        Listener notify;
+        synchronized (this) {
+            Entry entry = mEntries.get(location.getKey());
+            if (entry == null || (entry.mExtended && !hasWeekOfHours(forecast))) {
+                return;
+            }
+            append("-|" + location.getKey() + "\n", 1);
+            mEntries.remove(location.getKey());
+            notify = mEntries.isEmpty() ? mListener : null;
+            compactIfMostlyDead();
+        }
+        if (notify != null) {
+            notify.onPendingChanged(false);
+        }
+    }
+
+    private static boolean hasWeekOfHours(Forecast forecast) {
+        ForecastSeries hours = forecast.getHourlySeries();
+        return hours != null && hours.size() > ForecastQuery.HOURS + 1;
+    }
+
+    // stays queued for the next drain.
+    @Override
+    public void onForecastFailed(TrackedLocation location, IOException e) {
+    }
+
+    // has the lines appended to the log and synced to the disk, on mWriter. a failure leaves the
+    // queue working for this session; it just won't survive a restart.
+    private void append(final String lines, int count) {
+        mLogLines += count;
+        mWriter.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    FileOutputStream out = new FileOutputStream(mFile, true);
+                    try {
+                        out.write(lines.getBytes(UTF_8));
+                        out.getFD().sync();
+                    } finally {
+                        out.close();
+                    }
+                } catch (IOException e) {
+                    // see above.
+                }
+            }
+        });
+    }
+
+    // the live entries as they are now, rewritten on mWriter after the appends before them.
+    private void compactIfMostlyDead() {
+        if (mLogLines >= MIN_LINES_BEFORE_COMPACTING && mLogLines >= 4 * mEntries.size()) {
+            final String lines = liveLines();
+            mLogLines = mEntries.size();
+            mWriter.execute(new Runnable() {
+                @Override
+                public void run() {
+                    rewrite(lines);
+                }
+            });
+        }
+    }
+
+    private String liveLines() {
+        StringBuilder lines = new StringBuilder();
+        for (Entry entry : mEntries.values()) {
+            lines.append(entry.toLine());
+        }
+        return lines.toString();
+    }
+
+    // replaces the log with the lines. they're written next to the log and renamed over it, so
+    // a crash leaves one or the other.
+    private void rewrite(String lines) {
+        File temp = new File(mFile.getPath() + ".tmp");
+        try {
+            FileOutputStream out = new FileOutputStream(temp);
+            try {
+                Writer writer = new OutputStreamWriter(out, UTF_8);
+                writer.write(lines);
+                writer.flush();
+                out.getFD().sync();
+            } finally {
+                out.close();
+            }
+        } catch (IOException e) {
+            temp.delete();
+            return;
+        }
+        if (!temp.renameTo(mFile)) {
+            temp.delete();
+        }
+    }
+
+    private void load() {
+        try {
+            BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(new FileInputStream(mFile), UTF_8));
+            try {
+                for (String line; (line = reader.readLine()) != null; ) {
+                    ++mLogLines;
+                    try {
+                        if (line.startsWith("+|")) {
+                            Entry entry = Entry.fromLine(line);
+                            mEntries.put(entry.mLocation.getKey(), entry);
+                        } else if (line.startsWith("-|")) {
+                            mEntries.remove(line.substring(2));
+                        }
+                    } catch (RuntimeException e) {
+                        // a line cut short by a crash mid-append (it can only be the last one).
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (FileNotFoundException e) {
+            return;     // nothing queued yet.
+        } catch (IOException e) {
+            // keep what was read before the error.
+        }
+        // start every run from a clean log, without a half-written last line for the next
+        // append to run on from. on mWriter too, which has it done before any append.
+        final String lines = liveLines();
+        mLogLines = mEntries.size();
+        mWriter.execute(new Runnable() {
+            @Override
+            public void run() {
+                rewrite(lines);
+            }
+        });
+    }
+
+    private static class Entry {
+        final TrackedLocation mLocation;
+        final boolean mRevalidate;
+        final boolean mExtended;
+
+        Entry(TrackedLocation location, boolean revalidate, boolean extended) {
+            mLocation = location;
+            mRevalidate = revalidate;
+            mExtended = extended;
+        }
+
+        // the name last, so it can have anything but a line break in it.
+        String toLine() {
+            return "+|" + mRevalidate + "|" + mExtended + "|" + mLocation.getLatitude() + "|"
+                    + mLocation.getLongitude() + "|" + mLocation.getName().replace('\n', ' ') + "\n";
+        }
+
+        static Entry fromLine(String line) {
+            String[] parts = line.split("\\|", 6);
+            TrackedLocation location = new TrackedLocation(
+                    parts[5], Double.parseDouble(parts[3]), Double.parseDouble(parts[4]));
+            return new Entry(location, Boolean.parseBoolean(parts[1]), Boolean.parseBoolean(parts[2]));
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package com.example.lawrence.weatherapp.network;
+
+import com.example.lawrence.weatherapp.location.TrackedLocation;
+import com.example.lawrence.weatherapp.weather.Current;
+import com.example.lawrence.weatherapp.weather.Forecast;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/*
+ * Decides when to refresh the tracked locations in the background.
+ *
+ * - Every location has its own refresh interval. Each new forecast is compared with the previous
+ *   one (temperature, chance of rain, summary): if the weather is changing the interval is
+ *   halved, if it is steady the interval is doubled, between MIN_INTERVAL and MAX_INTERVAL.
+ * - A failed refresh is retried after BACKOFF_BASE, then twice as long after every further
+ *   failure, up to MAX_BACKOFF.
+ * - A location is never refreshed before the server said its forecast expires (Cache-Control
+ *   max-age / Expires, see Forecast.getExpiresAt()).
+ * - There is only ever one wake-up scheduled, for the location that is due first. When it goes
+ *   off, every location that is due within BATCH_WINDOW is refreshed with it in one batch, so
+ *   several locations don't wake the device several times.
+ *
+ * Time comes from a Clock and the wake-up is set through a Timer, so the scheduling can be
+ * tested without waiting (see RefreshSchedulerTest). In the app the Timer is an alarm (see
+ * background.AlarmTimer) and wakeUp() is called when it goes off.
+ *
+ * It subscribes to the ForecastFetchEngine, so refreshes the user starts count too.
+ */
+public class RefreshScheduler implements ForecastFetchEngine.Subscriber {
+
+    public interface Clock {
+        long now();     // milliseconds since epoch.
+    }
+
+    public interface Timer {
+        // asks for wakeUp() to be called at (about) this time, replacing any earlier request.
+        void schedule(long at);
+
+        void cancel();
+    }
+
+    public static final Clock SYSTEM_CLOCK = new Clock() {
+        @Override
+        public long now() {
+            return System.currentTimeMillis();
+        }
+    };
+
+    static final long MINUTE = 60 * 1000;
+
+    static final long INITIAL_INTERVAL = 60 * MINUTE;
+    static final long MIN_INTERVAL = 15 * MINUTE;
+    static final long MAX_INTERVAL = 4 * 60 * MINUTE;
+    static final long BACKOFF_BASE = 2 * MINUTE;
+    static final long MAX_BACKOFF = 2 * 60 * MINUTE;
+    static final long BATCH_WINDOW = 10 * MINUTE;
+
+    // how much change between two readings counts as "changing". any one of these is enough.
+    static final int CHANGED_DEGREES = 2;
+    static final int CHANGED_PRECIP_CHANCE = 20;  // percentage points.
+    // below this fraction of the above (all together), the weather counts as steady.
+    static final double STEADY = 0.25;
+
+    private final ForecastFetchEngine mEngine;
+    private final Clock mClock;
+    private final Timer mTimer;
+
+    // all guarded by "this".
+    private final Map<String, LocationState> mStates = new HashMap<>();
+    private long mScheduledAt = -1;     // -1 when no wake-up is scheduled.
+
+    public RefreshScheduler(ForecastFetchEngine engine, Clock clock, Timer timer) {
+        mEngine = engine;
+        mClock = clock;
+        mTimer = timer;
+    }
+
+    // schedules the first wake-up. the screen that is open refreshes on its own, so until a
+    // refresh finishes there's nothing better to go on than the initial interval.
+    public synchronized void start() {
+        if (mStates.isEmpty()) {
+            setWakeUp(mClock.now() + INITIAL_INTERVAL);
+        } else {
+            scheduleNext();
+        }
+    }
+
+    public synchronized void stop() {
+        mTimer.cancel();
+        mScheduledAt = -1;
+    }
+
+    // called when the wake-up goes off, with the locations that are tracked right now.
+    // locations we haven't seen yet (e.g. after the process was restarted) are due straight away.
+    // returns the locations it refreshed.
+    public synchronized List<TrackedLocation> wakeUp(Collection<TrackedLocation> locations) {
+        long now = mClock.now();
+        mScheduledAt = -1;
+
+        Set<String> keys = new HashSet<>();
+        List<TrackedLocation> due = new ArrayList<>();
+        for (TrackedLocation location : locations) {
+            keys.add(location.getKey());
+            LocationState state = stateFor(location, now);
+            if (!state.mPending && state.mNextRefresh <= now + BATCH_WINDOW) {
+                state.mPending = true;
+                due.add(location);
+            }
+        }
+
+        // forget locations that are no longer tracked.
+        Iterator<String> iterator = mStates.keySet().iterator();
+        while (iterator.hasNext()) {
+            if (!keys.contains(iterator.next())) {
+                iterator.remove();
+            }
+        }
+
+        if (!due.isEmpty()) {
+            // not a revalidation: a forecast the HTTP cache still has fresh costs nothing.
+            mEngine.refresh(due, false, ForecastQuery.DEFAULT, ForecastFetchEngine.Lane.BACKGROUND);
+        }
+        scheduleNext();
+        return due;
+    }
+
+    @Override
+    public synchronized void onForecastLoaded(TrackedLocation location, Forecast forecast) {
+        long now = mClock.now();
+        LocationState state = stateFor(location, now);
+        state.mPending = false;
+        state.mFailures = 0;
+
+        Current current = forecast.getCurrent();
+        if (state.mLastCurrent != null && current != null) {
+            double change = changeBetween(state.mLastCurrent, current);
+            if (change >= 1) {
+                state.mInterval = Math.max(MIN_INTERVAL, state.mInterval / 2);
+            } else if (change < STEADY) {
+                state.mInterval = Math.min(MAX_INTERVAL, state.mInterval * 2);
+            }
+        }
+        if (current != null) {
+            state.mLastCurrent = current;
+        }
+
+        long nextRefresh = now + state.mInterval;
+        // no point asking before the server says there's anything new (but don't wait forever).
+        long expiresAt = Math.min(forecast.getExpiresAt(), now + MAX_INTERVAL);
+        state.mNextRefresh = Math.max(nextRefresh, expiresAt);
+        scheduleNext();
+    }
+
+    @Override
+    public synchronized void onForecastFailed(TrackedLocation location, IOException e) {
+        long now = mClock.now();
+        LocationState state = stateFor(location, now);
+        state.mPending = false;
+        ++state.mFailures;
+        state.mNextRefresh = now + backoff(state.mFailures);
+        scheduleNext();
+    }
+
+    // when the next wake-up is scheduled for, or -1 if none is.
+    public synchronized long getScheduledAt() {
+        return mScheduledAt;
+    }
+
+    // the current refresh interval for a location, or -1 if we don't know it yet.
+    public synchronized long getInterval(String key) {
+        LocationState state = mStates.get(key);
+        return state != null ? state.mInterval : -1;
+    }
+
+    // when a location will next be refreshed, or -1 if we don't know it yet.
+    public synchronized long getNextRefresh(String key) {
+        LocationState state = mStates.get(key);
+        return state != null ? state.mNextRefresh : -1;
+    }
+
+    static long backoff(int failures) {
+        long backoff = BACKOFF_BASE;
+        for (int i = 1; i < failures && backoff < MAX_BACKOFF; ++i) {
+            backoff *= 2;
+        }
+        return Math.min(backoff, MAX_BACKOFF);
+    }
+
+    // 1 or more means "changing", see CHANGED_DEGREES and CHANGED_PRECIP_CHANCE.
+    static double changeBetween(Current previous, Current current) {
+        double change = Math.abs(current.getTemperature() - previous.getTemperature())
+                / (double) CHANGED_DEGREES;
+        change += Math.abs(current.getPrecipChance() - previous.getPrecipChance())
+                / (double) CHANGED_PRECIP_CHANCE;
+        String summary = previous.getSummary();
+        if (summary != null && !summary.equals(current.getSummary())) {
+            change += 1;
+        }
+        return change;
+    }
+
+    private LocationState stateFor(TrackedLocation location, long now) {
+        LocationState state = mStates.get(location.getKey());
+        if (state == null) {
+            state = new LocationState(now);
+            mStates.put(location.getKey(), state);
+        }
+        return state;
+    }
+
+    // one wake-up for whichever location is due first. locations being refreshed are skipped,
+    // their result schedules them again.
+    private void scheduleNext() {
+        long next = Long.MAX_VALUE;
+        for (LocationState state : mStates.values()) {
+            if (!state.mPending) {
+                next = Math.min(next, state.mNextRefresh);
+            }
+        }
+
+        if (next == Long.MAX_VALUE) {
+            if (mScheduledAt != -1) {
+                mTimer.cancel();
+                mScheduledAt = -1;
+            }
+        } else {
+            setWakeUp(Math.max(next, mClock.now()));
+        }
+    }
+
+    private void setWakeUp(long at) {
+        if (at != mScheduledAt) {
+            mScheduledAt = at;
+            mTimer.schedule(at);
+        }
+    }
+
+    private static class LocationState {
+        long mInterval = INITIAL_INTERVAL;
+        long mNextRefresh;
+        int mFailures;
+        boolean mPending;       // a refresh we asked for hasn't finished yet.
+        Current mLastCurrent;
+
+        LocationState(long nextRefresh) {
+            mNextRefresh = nextRefresh;
+        }
+    }
+}
@@ -0,0 +1,330 @@
+package com.example.lawrence.weatherapp.network;
+
+import com.example.lawrence.weatherapp.metrics.Counter;
+import com.example.lawrence.weatherapp.metrics.Metrics;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Keeps the app inside the API key's daily quota (Dark Sky: 1000 free calls a day, counted from
+ * midnight UTC), and stops bursts of taps and refreshes from eating it.
+ *
+ * ForecastFetchEngine asks it before every request it starts (see setRequestGovernor()):
+ *
+ * - Every key has a token bucket: up to burst calls at once, then one per refill interval. A
+ *   background fetch has to leave a quarter of the bucket for the screens; when it can't, it
+ *   waits in the engine's queue until the bucket has refilled (THROTTLED, getWaitMillis()).
+ * - Every call is counted per key and per day, in a file, so the count survives restarts.
+ *   Answers the HTTP cache gave without asking the server are given back (refund()). The file
+ *   is written on a thread of its own, at most every SAVE_DELAY_MILLIS, never under the lock
+ *   the engine calls in with; calls made just before the process dies may go uncounted (flush()
+ *   writes it now).
+ * - Screens (Lane.FOREGROUND) come first. Once 90% of the day's quota is used, or the bucket is
+ *   empty (a burst of taps), they get whatever the HTTP cache has, however old, and the network
+ *   only when it has nothing (CACHE_FIRST; the bucket can go into debt for that). With the quota
+ *   used up they only get the cache (CACHE_ONLY); with nothing cached that fails with a
+ *   QuotaExceededException.
+ * - Background refreshes (Lane.BACKGROUND) stop at 90% of the quota with a
+ *   QuotaExceededException; RefreshScheduler backs off and RefreshQueue keeps them for later.
+ *   A low bucket only slows them down, it never fails them.
+ *
+ * How close the app runs to the limit: getCallsToday() and toString() (shown in the metrics
+ * dialog), and the quota.* counters in Metrics.
+ *
+ * Thread-safe. Time comes from a RefreshScheduler.Clock, so it can be tested without waiting.
+ */
+public class RequestGovernor {
+
+    // what to do about the next request.
+    public enum Decision {
+        NETWORK,        // as asked.
+        CACHE_FIRST,    // any cached copy, however stale; the network only without one.
+        CACHE_ONLY,     // the cached copy or nothing.
+        THROTTLED,      // not yet: try again after getWaitMillis().
+        REFUSED         // not at all, the day's quota is (nearly) used up.
+    }
+
+    // a fetch that wasn't made, to stay inside the day's quota.
+    public static class QuotaExceededException extends ForecastFetchEngine.FetchRejectedException {
+        private static final long serialVersionUID = 1L;
+
+        public QuotaExceededException(String message) {
+            super(message);
+        }
+    }
+
+    public static final int DARK_SKY_FREE_QUOTA = 1000;
+    public static final int DEFAULT_BURST = 20;
+    public static final long DEFAULT_REFILL_MILLIS = 15 * 1000;
+
+    static final long DAY = 24 * 60 * 60 * 1000;
+    static final double NEAR_QUOTA = 0.9;
+    static final double BACKGROUND_RESERVE = 0.25;     // of the bucket, kept for the screens.
+    static final long SAVE_DELAY_MILLIS = 2 * 1000;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final File mFile;
+    private final int mDailyQuota;
+    private final int mBurst;
+    private final long mRefillMillis;
+    private final RefreshScheduler.Clock mClock;
+    private final Counter mCalls;
+    private final Counter mDegraded;
+    private final Counter mRefused;
+    private final Counter mThrottled;
+
+    private final Map<String, KeyState> mKeys = new HashMap<>();  // guarded by "this".
+    private boolean mSavePending;                                   // guarded by "this".
+
+    // one writer at a time, taken before "this" (never the other way round).
+    private final Object mFileLock = new Object();
+    private final ScheduledExecutorService mWriter;
+
+    public RequestGovernor(File file, int dailyQuota, Metrics metrics) {
+        this(file, dailyQuota, DEFAULT_BURST, DEFAULT_REFILL_MILLIS, RefreshScheduler.SYSTEM_CLOCK, metrics);
+    }
+
+    public RequestGovernor(File file, int dailyQuota, int burst, long refillMillis,
+                           RefreshScheduler.Clock clock, Metrics metrics) {
+        if (burst < 1) {
+            throw new IllegalArgumentException("burst " + burst);
+        }
+        mFile = file;
+        mDailyQuota = dailyQuota;
+        mBurst = burst;
+        mRefillMillis = refillMillis;
+        mClock = clock;
+        mCalls = metrics.counter(Metrics.QUOTA_CALLS);
+        mDegraded = metrics.counter(Metrics.QUOTA_CACHE_ONLY);
+        mRefused = metrics.counter(Metrics.QUOTA_REFUSED);
+        mThrottled = metrics.counter(Metrics.QUOTA_THROTTLED);
+        mWriter = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "request-quota");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        load();
+    }
+
+    // decides about one request with the key. NETWORK and CACHE_FIRST count as a call (refund()
+    // it if the cache answered after all).
+    public synchronized Decision acquire(String apiKey, ForecastFetchEngine.Lane lane) {
+        KeyState state = stateFor(apiKey);
+        boolean nearQuota = state.mCalls >= mDailyQuota * NEAR_QUOTA;
+        Decision decision;
+        if (lane == ForecastFetchEngine.Lane.BACKGROUND) {
+            if (nearQuota) {
+                mRefused.increment();
+                return Decision.REFUSED;
+            }
+            if (state.mTokens < backgroundMinimum()) {
+                mThrottled.increment();
+                return Decision.THROTTLED;
+            }
+            decision = Decision.NETWORK;
+        } else if (state.mCalls >= mDailyQuota) {
+            mDegraded.increment();
+            return Decision.CACHE_ONLY;
+        } else if (nearQuota || state.mTokens < 1) {
+            mDegraded.increment();
+            decision = Decision.CACHE_FIRST;
+        } else {
+            decision = Decision.NETWORK;
+        }
+        state.mTokens -= 1;
+        ++state.mCalls;
+        mCalls.increment();
+        saveLater();
+        return decision;
+    }
+
+    // how long until a background fetch with the key can go (0: now).
+    public synchronized long getWaitMillis(String apiKey) {
+        double missing = backgroundMinimum() - stateFor(apiKey).mTokens;
+        return missing > 0 ? (long) Math.ceil(missing * mRefillMillis) : 0;
+    }
+
+    // a token for the fetch, and the screens' reserve left over. never more than the bucket
+    // holds: a bucket too small for a reserve has none, or background fetches would wait forever.
+    private double backgroundMinimum() {
+        return Math.min(1 + mBurst * BACKGROUND_RESERVE, mBurst);
+    }
+
+    // gives back a call acquire() counted, because the HTTP cache answered without the server.
+    public synchronized void refund(String apiKey) {
+        KeyState state = stateFor(apiKey);
+        if (state.mCalls > 0) {
+            --state.mCalls;
+            state.mTokens = Math.min(mBurst, state.mTokens + 1);
+            mCalls.add(-1);
+            saveLater();
+        }
+    }
+
+    public synchronized int getCallsToday(String apiKey) {
+        return stateFor(apiKey).mCalls;
+    }
+
+    public int getDailyQuota() {
+        return mDailyQuota;
+    }
+
+    // the calls made today, by key, against the quota.
+    @Override
+    public synchronized String toString() {
+        StringBuilder text = new StringBuilder();
+        for (String apiKey : mKeys.keySet()) {
+            KeyState state = stateFor(apiKey);
+            if (text.length() > 0) {
+                text.append('\n');
+            }
+            text.append(String.format(Locale.US, "%s: %d of %d calls today (%.0f%%), %.1f in the bucket",
+                    abbreviate(apiKey), state.mCalls, mDailyQuota, 100.0 * state.mCalls / mDailyQuota,
+                    state.mTokens));
+        }
+        return text.length() > 0 ? text.toString() : "no calls today";
+    }
+
+    // enough of the key to tell keys apart, not enough to use it.
+    private static String abbreviate(String apiKey) {
+        return apiKey.length() > 6 ? apiKey.substring(0, 6) + "..." : apiKey;
+    }
+
+    // the key's state, with the bucket refilled up to now and the count started afresh on a new
+    // day (UTC, like the quota).
+    private KeyState stateFor(String apiKey) {
+        long now = mClock.now();
+        long day = now / DAY;
+        KeyState state = mKeys.get(apiKey);
+        if (state == null) {
+            state = new KeyState(day, 0, mBurst, now);
+            mKeys.put(apiKey, state);
+        }
+        if (state.mDay != day) {
+            state.mDay = day;
+            state.mCalls = 0;
+        }
+        if (now > state.mRefilledAt) {
+            state.mTokens = Math.min(mBurst, state.mTokens + (double) (now - state.mRefilledAt) / mRefillMillis);
+        }
+        state.mRefilledAt = now;
+        return state;
+    }
+
+    // writes the counts now, on the calling thread (the writer thread does it SAVE_DELAY_MILLIS
+    // after a change).
+    public void flush() {
+        synchronized (mFileLock) {
+            List<String> lines = new ArrayList<>();
+            synchronized (this) {
+                mSavePending = false;
+                for (Map.Entry<String, KeyState> entry : mKeys.entrySet()) {
+                    lines.add(entry.getValue().mDay + "|" + entry.getValue().mCalls + "|" + entry.getKey());
+                }
+            }
+            save(lines);
+        }
+    }
+
+    // a save in SAVE_DELAY_MILLIS, taking in every change until then. the caller holds "this".
+    private void saveLater() {
+        if (mSavePending) {
+            return;
+        }
+        try {
+            mWriter.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    flush();
+                }
+            }, SAVE_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+            mSavePending = true;
+        } catch (RejectedExecutionException ignored) {
+            // shut down: nothing more is saved.
+        }
+    }
+
+    // one line per key: day|calls|key. written next to the file and renamed over it. a failure
+    // only means the count starts from 0 after a restart.
+    private void save(List<String> lines) {
+        File temp = new File(mFile.getPath() + ".tmp");
+        try {
+            Writer writer = new OutputStreamWriter(new FileOutputStream(temp), UTF_8);
+            try {
+                for (String line : lines) {
+                    writer.write(line + "\n");
+                }
+            } finally {
+                writer.close();
+            }
+        } catch (IOException e) {
+            temp.delete();
+            return;
+        }
+        if (!temp.renameTo(mFile)) {
+            temp.delete();
+        }
+    }
+
+    // the buckets start full: they aren't saved, only the counts.
+    private void load() {
+        long now = mClock.now();
+        try {
+            BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(new FileInputStream(mFile), UTF_8));
+            try {
+                for (String line; (line = reader.readLine()) != null; ) {
+                    String[] parts = line.split("\\|", 3);
+                    try {
+                        mKeys.put(parts[2], new KeyState(Long.parseLong(parts[0]), Integer.parseInt(parts[1]), mBurst, now));
+                    } catch (RuntimeException e) {
+                        // not a line we wrote; skip it.
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (FileNotFoundException e) {
+            // nothing counted yet.
+        } catch (IOException e) {
+            // keep what was read.
+        }
+    }
+
+    private static class KeyState {
+        long mDay;          // days since the epoch, UTC.
+        int mCalls;
+        double mTokens;
+        long mRefilledAt;
+
+        KeyState(long day, int calls, double tokens, long refilledAt) {
+            mDay = day;
+            mCalls = calls;
+            mTokens = tokens;
+            mRefilledAt = refilledAt;
+        }
+    }
+}
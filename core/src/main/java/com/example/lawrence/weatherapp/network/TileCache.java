@@ -0,0 +1,168 @@
+package com.example.lawrence.weatherapp.network;
+
+import com.example.lawrence.weatherapp.location.Geohash;
+import com.example.lawrence.weatherapp.location.TrackedLocation;
+import com.example.lawrence.weatherapp.metrics.Counter;
+import com.example.lawrence.weatherapp.metrics.Metrics;
+import com.example.lawrence.weatherapp.weather.Forecast;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/*
+ * Forecasts by map tile, so nearby locations share one instead of each costing a request.
+ *
+ * The forecast for two points a kilometre apart is the same forecast, but every location has its
+ * own key (see ForecastStore.keyFor), so tracking a dozen sites around one city used to mean a
+ * dozen downloads. With a TileCache set, ForecastFetchEngine:
+ *
+ * - rounds every location to its tile (a geohash, see Geohash) and fetches the forecast for the
+ *   middle of the tile, so every location in it asks for the same URL;
+ * - fetches a tile once however many of its locations are refreshed together (the others ride
+ *   along on that fetch, "shared" below);
+ * - answers a location from here, without a request, while the tile's forecast is fresh: for
+ *   the ttl given here, and never past the forecast's own expiry. Revalidations skip it.
+ *
+ * The precision is the length of the geohash: 5 (tiles of about 5 x 5 km) is about the
+ * resolution of the forecast itself; 6 (about 1 x 0.6 km) if the sites are in hilly country.
+ * At most maxEntries tiles are kept, the least recently used going first.
+ *
+ * The counts (and the tile.* counters in Metrics) say how well it works: the hit rate is the
+ * share of lookups that didn't need a request of their own.
+ *
+ * Thread-safe.
+ */
+public class TileCache {
+
+    public static final int DEFAULT_PRECISION = 5;
+
+    private final int mPrecision;
+    private final long mTtlMillis;
+    private final Counter mHitCounter;
+    private final Counter mSharedCounter;
+    private final Counter mMissCounter;
+
+    // all guarded by "this". in access order, for the LRU eviction.
+    private final LinkedHashMap<String, Tile> mEntries;
+    private long mHits;
+    private long mShared;
+    private long mMisses;
+
+    public TileCache(int precision, long ttlMillis, int maxEntries) {
+        this(precision, ttlMillis, maxEntries, new Metrics());
+    }
+
+    public TileCache(int precision, long ttlMillis, final int maxEntries, Metrics metrics) {
+        if (precision < 1 || precision > Geohash.MAX_PRECISION) {
+            throw new IllegalArgumentException("precision " + precision);
+        }
+        mPrecision = precision;
+        mTtlMillis = ttlMillis;
+        mEntries = new LinkedHashMap<String, Tile>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Tile> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        mHitCounter = metrics.counter(Metrics.TILE_HIT);
+        mSharedCounter = metrics.counter(Metrics.TILE_SHARED);
+        mMissCounter = metrics.counter(Metrics.TILE_MISS);
+    }
+
+    public int getPrecision() {
+        return mPrecision;
+    }
+
+    // the geohash of the tile the location is in.
+    public String tileFor(TrackedLocation location) {
+        return Geohash.encode(location.getLatitude(), location.getLongitude(), mPrecision);
+    }
+
+    // the middle of the tile, under the location's name. rounded to 4 decimals (about 10 m), which
+    // keeps the URLs readable.
+    public static TrackedLocation center(String tile, String name) {
+        double[] center = Geohash.center(tile);
+        return new TrackedLocation(name, Math.round(center[0] * 1e4) / 1e4, Math.round(center[1] * 1e4) / 1e4);
+    }
+
+    // the tile's forecast for the query if it's still fresh, null otherwise. counts a hit or a
+    // miss.
+    public synchronized Forecast get(String tile, ForecastQuery query, long now) {
+        String key = keyFor(tile, query);
+        Tile cached = mEntries.get(key);
+        if (cached != null && now >= cached.mFreshUntil) {
+            mEntries.remove(key);
+            cached = null;
+        }
+        if (cached == null) {
+            ++mMisses;
+            mMissCounter.increment();
+            return null;
+        }
+        ++mHits;
+        mHitCounter.increment();
+        return cached.mForecast;
+    }
+
+    // counts a location that joined a fetch already on its way for its tile.
+    synchronized void shared() {
+        ++mShared;
+        mSharedCounter.increment();
+    }
+
+    public synchronized void put(String tile, ForecastQuery query, Forecast forecast, long now) {
+        long freshUntil = now + mTtlMillis;
+        if (forecast.getExpiresAt() > 0) {
+            freshUntil = Math.min(freshUntil, forecast.getExpiresAt());
+        }
+        mEntries.put(keyFor(tile, query), new Tile(forecast, freshUntil));
+    }
+
+    // each query is kept apart: a forecast without the hours can't answer a request for them.
+    private static String keyFor(String tile, ForecastQuery query) {
+        return tile + " " + query;
+    }
+
+    public synchronized int size() {
+        return mEntries.size();
+    }
+
+    public synchronized long getHits() {
+        return mHits;
+    }
+
+    public synchronized long getShared() {
+        return mShared;
+    }
+
+    public synchronized long getMisses() {
+        return mMisses;
+    }
+
+    // the share of lookups answered without a request of their own (0 before the first).
+    public synchronized double getHitRate() {
+        long lookups = mHits + mShared + mMisses;
+        return lookups > 0 ? (double) (mHits + mShared) / lookups : 0;
+    }
+
+    public synchronized void clear() {
+        mEntries.clear();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format(Locale.US, "%d tiles, %d hits, %d shared, %d misses (%.0f%% hit rate)",
+                mEntries.size(), mHits, mShared, mMisses, getHitRate() * 100);
+    }
+
+    private static class Tile {
+        final Forecast mForecast;
+        final long mFreshUntil;
+
+        Tile(Forecast forecast, long freshUntil) {
+            mForecast = forecast;
+            mFreshUntil = freshUntil;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.lawrence.weatherapp.network;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/*
+ * How many bytes each location's forecasts cost on the wire, how many they were after
+ * decompression and how long the decompression took (see CompressionInterceptor). Only responses
+ * that actually came over the network count; cache hits and 304s cost no body bytes.
+ *
+ * Locations are told apart by the tag of the call (ForecastFetchEngine tags every call with the
+ * location key), or by the url's path for calls without one.
+ *
+ * This is what a refresh policy for metered connections needs: e.g. a location whose extended
+ * forecast costs 40 KB a time can be refreshed less often than one that costs 4 KB.
+ */
+public class TransferStats {
+
+    // guarded by "this".
+    private final Map<String, Totals> mByKey = new HashMap<>();
+    private Totals mTotal = new Totals();
+
+    synchronized void record(String key, long wireBytes, long bodyBytes, long decodeNanos) {
+        Totals totals = mByKey.get(key);
+        if (totals == null) {
+            totals = new Totals();
+            mByKey.put(key, totals);
+        }
+        totals.add(wireBytes, bodyBytes, decodeNanos);
+        mTotal.add(wireBytes, bodyBytes, decodeNanos);
+    }
+
+    // a copy of the totals for one location, or null if nothing was fetched for it.
+    public synchronized Totals get(String key) {
+        Totals totals = mByKey.get(key);
+        return totals != null ? totals.copy() : null;
+    }
+
+    // a copy of the totals for all locations together.
+    public synchronized Totals getTotal() {
+        return mTotal.copy();
+    }
+
+    // copies of the totals, by location.
+    public synchronized Map<String, Totals> getAll() {
+        Map<String, Totals> all = new HashMap<>();
+        for (Map.Entry<String, Totals> entry : mByKey.entrySet()) {
+            all.put(entry.getKey(), entry.getValue().copy());
+        }
+        return all;
+    }
+
+    public synchronized void reset() {
+        mByKey.clear();
+        mTotal = new Totals();
+    }
+
+    public static class Totals {
+        private long mResponses;
+        private long mWireBytes;
+        private long mBodyBytes;
+        private long mDecodeNanos;
+
+        private void add(long wireBytes, long bodyBytes, long decodeNanos) {
+            add(1, wireBytes, bodyBytes, decodeNanos);
+        }
+
+        private void add(long responses, long wireBytes, long bodyBytes, long decodeNanos) {
+            mResponses += responses;
+            mWireBytes += wireBytes;
+            mBodyBytes += bodyBytes;
+            mDecodeNanos += decodeNanos;
+        }
+
+        private Totals copy() {
+            Totals copy = new Totals();
+            copy.add(mResponses, mWireBytes, mBodyBytes, mDecodeNanos);
+            return copy;
+        }
+
+        // responses that came over the network.
+        public long getResponses() {
+            return mResponses;
+        }
+
+        // body bytes as sent, i.e. compressed when the server compressed them.
+        public long getWireBytes() {
+            return mWireBytes;
+        }
+
+        // body bytes after decompression; the same as the wire bytes for uncompressed responses.
+        public long getBodyBytes() {
+            return mBodyBytes;
+        }
+
+        public double getDecodeMillis() {
+            return mDecodeNanos / 1e6;
+        }
+
+        // wire bytes per body byte: 0.15 means the compression saved 85%. 1 when nothing came.
+        public double getCompressionRatio() {
+            return mBodyBytes > 0 ? (double) mWireBytes / mBodyBytes : 1;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US,
+                    "%d responses, %d bytes on the wire, %d decoded (%.0f%%), %.1f ms decoding",
+                    mResponses, mWireBytes, mBodyBytes, getCompressionRatio() * 100, getDecodeMillis());
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.lawrence.weatherapp.network;
+
+import java.io.IOException;
+import java.io.Reader;
+
+import okio.Buffer;
+import okio.BufferedSource;
+
+/*
+ * A Reader that decodes UTF-8 straight out of an okio BufferedSource (e.g.
+ * response.body().source()), for ForecastParser.
+ *
+ * response.body().charStream() is an InputStreamReader over source.inputStream(): every response
+ * gets a new CharsetDecoder with its own 8 KB byte buffer and char buffer, the bytes are copied
+ * out of OkHttp's segments into that buffer and then run through the decoder. Here the bytes are
+ * copied once, from the segments into a scratch array that belongs to the thread (the compute
+ * threads parse one response after another, so they keep reusing it), and decoded in a loop that
+ * for the ASCII a forecast is almost entirely made of is just "one byte, one char".
+ *
+ * Bad bytes become U+FFFD, as with InputStreamReader (though not always as many of them, and
+ * overlong forms aren't rejected). The body is assumed to be UTF-8, which is what the forecast
+ * service sends (and what JSON is).
+ */
+public final class Utf8SourceReader extends Reader {
+
+    private static final int SCRATCH_SIZE = 8192;     // one okio segment.
+    private static final char REPLACEMENT = '\ufffd';
+
+    private static final ThreadLocal<byte[]> SCRATCH = new ThreadLocal<byte[]>() {
+        @Override
+        protected byte[] initialValue() {
+            return new byte[SCRATCH_SIZE];
+        }
+    };
+
+    private final BufferedSource mSource;
+    private char mPending;  // second half of a surrogate pair that didn't fit last time, or 0.
+
+    public Utf8SourceReader(BufferedSource source) {
+        mSource = source;
+    }
+
+    @Override
+    public int read(char[] chars, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        if (mPending != 0) {
+            chars[offset] = mPending;
+            mPending = 0;
+            return 1;
+        }
+        if (!mSource.request(1)) {
+            return -1;
+        }
+
+        // copy no more bytes than chars were asked for: a byte never makes more than one char
+        // (a 4-byte sequence makes two, which is what mPending is for).
+        Buffer buffer = mSource.buffer();
+        byte[] scratch = SCRATCH.get();
+        int size = (int) Math.min(Math.min(length, buffer.size()), scratch.length);
+        int copied = 0;
+        while (copied < size) {
+            copied += buffer.read(scratch, copied, size - copied);  // one segment at a time.
+        }
+
+        int count = 0;
+        int i = 0;
+        while (i < size) {
+            int b = scratch[i++];
+            if (b >= 0) {
+                chars[offset + count++] = (char) b;
+                continue;
+            }
+
+            // the lead byte says how many continuation bytes (10xxxxxx) follow.
+            int more;
+            int codePoint;
+            if ((b & 0xe0) == 0xc0) {
+                more = 1;
+                codePoint = b & 0x1f;
+            } else if ((b & 0xf0) == 0xe0) {
+                more = 2;
+                codePoint = b & 0x0f;
+            } else if ((b & 0xf8) == 0xf0) {
+                more = 3;
+                codePoint = b & 0x07;
+            } else {
+                chars[offset + count++] = REPLACEMENT;
+                continue;
+            }
+
+            boolean malformed = false;
+            for (int k = 0; k < more; ++k) {
+                int next;
+                if (i < size) {
+                    next = scratch[i];
+                } else if (mSource.request(1)) {
+                    // the sequence goes on past what we copied; take the rest from the source.
+                    next = buffer.getByte(0);
+                } else {
+                    malformed = true;
+                    break;
+                }
+                if ((next & 0xc0) != 0x80) {
+                    // not consumed: it starts the next character.
+                    malformed = true;
+                    break;
+                }
+                if (i < size) {
+                    ++i;
+                } else {
+                    buffer.skip(1);
+                }
+                codePoint = codePoint << 6 | (next & 0x3f);
+            }
+
+            if (malformed || codePoint > Character.MAX_CODE_POINT) {
+                chars[offset + count++] = REPLACEMENT;
+            } else if (codePoint < Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+                chars[offset + count++] = (char) codePoint;
+            } else {
+                // a surrogate pair (Character.highSurrogate() needs API 19).
+                codePoint -= Character.MIN_SUPPLEMENTARY_CODE_POINT;
+                char low = (char) (Character.MIN_LOW_SURROGATE + (codePoint & 0x3ff));
+                chars[offset + count++] = (char) (Character.MIN_HIGH_SURROGATE + (codePoint >>> 10));
+                if (count < length) {
+                    chars[offset + count++] = low;
+                } else {
+                    mPending = low;
+                }
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        mSource.close();
+    }
+}
@@ -1,14 +1,9 @@
 package com.example.lawrence.weatherapp.weather;
 
-import com.example.lawrence.weatherapp.R;
-
-import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.TimeZone;
-
 public class Current {
     private String mIcon;
-    // the icon is a string in the JSON data, but we convert to an int to get the right icon in resources. see getIconId() below.
+    // the icon is a string in the JSON data; the app maps the code to a drawable (see ui/IconResources).
+    private IconCode mIconCode = IconCode.CLEAR_DAY;  // resolved from mIcon in setIcon().
     private long mTime;
     private double mTemperature;
     private double mHumidity;
@@ -17,21 +12,9 @@ public class Current {
     private String mTimeZone;
 
     // converts number of seconds into a nicely formatted time (e.g. 12:00 P).
+    // (the formatter is shared and converts from seconds to the milliseconds Date objects use.)
     public String getFormattedTime(){
-        SimpleDateFormat formatter = new SimpleDateFormat("h:mm a");
-        formatter.setTimeZone(TimeZone.getTimeZone(getTimeZone()));
-
-        // convert from seconds to milliseconds since Date objects use milliseconds from epoch.
-        Date dateTime = new Date(getTime() * 1000);
-
-        String timeString = formatter.format(dateTime);
-        return timeString;
-    }
-
-    // converts the string in JSON data into a int so that we can matchup with corresponding weather icon.
-    // refactored and moved into Forecast so it is available to the Adapters.
-    public int getIconId() {
-        return Forecast.getIconId(mIcon);
+        return TimeFormatter.format(TimeFormatter.TIME, getTimeZone(), getTime());
     }
 
     public int getTemperature() {
@@ -41,12 +24,25 @@ public class Current {
         return (int) Math.round(mPrecipChance * 100);
     }
 
+    // the exact values behind the rounded getters above, for serializing the forecast.
+    double getTemperatureValue() {
+        return mTemperature;
+    }
+    double getPrecipChanceValue() {
+        return mPrecipChance;
+    }
+
     public String getIcon() {
         return mIcon;
     }
 
+    public IconCode getIconCode() {
+        return mIconCode;
+    }
+
     public void setIcon(String icon) {
         mIcon = icon;
+        mIconCode = IconCode.fromIcon(icon);
     }
 
     public long getTime() {
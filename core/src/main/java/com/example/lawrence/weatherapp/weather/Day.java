@@ -0,0 +1,66 @@
+package com.example.lawrence.weatherapp.weather;
+
+// Data model for an "day of weather" (i.e. weather on Sat, Sun, Mon, etc.)
+public class Day {
+    private long mTime;
+    private String mSummary;
+    private double mTemperatureMax;
+    private String mIcon;
+    private IconCode mIconCode = IconCode.CLEAR_DAY;  // resolved from mIcon in setIcon().
+    private String mTimezone;
+
+    // helper method to get day of the week.
+    public String getDayOfTheWeek(){
+        return TimeFormatter.format(TimeFormatter.DAY_OF_THE_WEEK, mTimezone, mTime);
+    }
+
+    public long getTime() {
+        return mTime;
+    }
+
+    public void setTime(long time) {
+        mTime = time;
+    }
+
+    public String getSummary() {
+        return mSummary;
+    }
+
+    public void setSummary(String summary) {
+        mSummary = summary;
+    }
+
+    public int getTemperatureMax() {
+        return (int) Math.round(mTemperatureMax);
+    }
+
+    // the exact temperature behind getTemperatureMax(), for serializing the forecast.
+    double getTemperatureMaxValue() {
+        return mTemperatureMax;
+    }
+
+    public void setTemperatureMax(double temperatureMax) {
+        mTemperatureMax = temperatureMax;
+    }
+
+    public String getIcon() {
+        return mIcon;
+    }
+
+    public IconCode getIconCode() {
+        return mIconCode;
+    }
+
+    public void setIcon(String icon) {
+        mIcon = icon;
+        mIconCode = IconCode.fromIcon(icon);
+    }
+
+    public String getTimezone() {
+        return mTimezone;
+    }
+
+    public void setTimezone(String timezone) {
+        mTimezone = timezone;
+    }
+}
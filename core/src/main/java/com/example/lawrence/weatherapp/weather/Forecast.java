@@ -0,0 +1,125 @@
+package com.example.lawrence.weatherapp.weather;
+
+// Bundles together all weather data models:
+// current weather (Current.java),
+// weather in the next few hours (Hour.java),
+// weather for the next few days (Day.java).
+//
+// The hours and days are kept as ForecastSeries (one array per field), which is what the parser
+// and ForecastCodec produce and what the list adapters bind from. Hour and Day objects are only
+// made when something asks for them, one index at a time (getHour(), getDay()), so a refresh that
+// only updates the main screen never builds them at all.
+public class Forecast {
+    private static final ForecastSeries EMPTY_SERIES = new ForecastSeries.Builder().build();
+
+    private Current mCurrent;
+    private ForecastSeries mHourlySeries;
+    private ForecastSeries mDailySeries;
+    private long mFetchedAt;    // when this forecast was downloaded, in milliseconds since epoch.
+    private long mExpiresAt;    // until when the server said it is fresh (ms since epoch), 0 if it didn't.
+
+    // Hour/Day objects made from the series so far, by index; null until the first one is asked for.
+    private Hour[] mHours;
+    private Day[] mDays;
+
+    public Current getCurrent() {
+        return mCurrent;
+    }
+
+    public void setCurrent(Current current) {
+        mCurrent = current;
+    }
+
+    // every hour as an object, or null if there is no hourly forecast. prefer getHourlySeries(),
+    // or getHour() for just the ones needed.
+    public synchronized Hour[] getHourlyForecast() {
+        if (mHourlySeries == null) {
+            return null;
+        }
+        if (mHours == null) {
+            mHours = new Hour[mHourlySeries.size()];
+        }
+        for (int i = 0; i < mHours.length; ++i) {
+            getHour(i);
+        }
+        return mHours;
+    }
+
+    public synchronized void setHourlyForecast(Hour[] hourlyForecast) {
+        mHourlySeries = hourlyForecast != null ? ForecastSeries.fromHours(hourlyForecast) : null;
+        mHours = hourlyForecast;
+    }
+
+    // the hour at index i of the hourly series, made on first use.
+    public synchronized Hour getHour(int i) {
+        if (mHours == null) {
+            mHours = new Hour[getHourlySeries().size()];
+        }
+        if (mHours[i] == null) {
+            mHours[i] = mHourlySeries.toHour(i);
+        }
+        return mHours[i];
+    }
+
+    public synchronized ForecastSeries getHourlySeries() {
+        return mHourlySeries != null ? mHourlySeries : EMPTY_SERIES;
+    }
+
+    public synchronized void setHourlySeries(ForecastSeries hourlySeries) {
+        mHourlySeries = hourlySeries;
+        mHours = null;
+    }
+
+    public synchronized Day[] getDailyForecast() {
+        if (mDailySeries == null) {
+            return null;
+        }
+        if (mDays == null) {
+            mDays = new Day[mDailySeries.size()];
+        }
+        for (int i = 0; i < mDays.length; ++i) {
+            getDay(i);
+        }
+        return mDays;
+    }
+
+    public synchronized void setDailyForecast(Day[] dailyForecast) {
+        mDailySeries = dailyForecast != null ? ForecastSeries.fromDays(dailyForecast) : null;
+        mDays = dailyForecast;
+    }
+
+    public synchronized Day getDay(int i) {
+        if (mDays == null) {
+            mDays = new Day[getDailySeries().size()];
+        }
+        if (mDays[i] == null) {
+            mDays[i] = mDailySeries.toDay(i);
+        }
+        return mDays[i];
+    }
+
+    public synchronized ForecastSeries getDailySeries() {
+        return mDailySeries != null ? mDailySeries : EMPTY_SERIES;
+    }
+
+    public synchronized void setDailySeries(ForecastSeries dailySeries) {
+        mDailySeries = dailySeries;
+        mDays = null;
+    }
+
+    public long getFetchedAt() {
+        return mFetchedAt;
+    }
+
+    public void setFetchedAt(long fetchedAt) {
+        mFetchedAt = fetchedAt;
+    }
+
+    public long getExpiresAt() {
+        return mExpiresAt;
+    }
+
+    public void setExpiresAt(long expiresAt) {
+        mExpiresAt = expiresAt;
+    }
+}
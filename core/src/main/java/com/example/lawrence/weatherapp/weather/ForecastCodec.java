@@ -0,0 +1,433 @@
+package com.example.lawrence.weatherapp.weather;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/*
+ * Compact binary form of a parsed Forecast. ForecastStore uses it to keep the last forecast on
+ * disk, and encode()/decode() give it as a ByteBuffer to pass a forecast to another process.
+ *
+ * Only the fields the app displays are written, and each as small as it can be without changing
+ * what is displayed:
+ *
+ *   - numbers are varints (7 bits per byte, small numbers take one byte); signed ones are zigzag
+ *     encoded first, so small negative numbers are small too.
+ *   - temperatures are quantized to hundredths of a degree (what the API sends) and written as
+ *     the difference from the previous hour/day, which is usually a byte or two.
+ *   - humidity and chance of rain are whole percents (the API sends two decimals of a fraction).
+ *   - the times of hours/days are evenly spaced, so after the first one only the change in the
+ *     spacing is written (zero, one byte).
+ *   - every distinct string (timezone, summaries, icons) is written once, in a table at the start;
+ *     after that a string is its index in the table.
+ *
+ * A standard forecast (49 hours, 8 days) is about 650 bytes, against ~25 KB of JSON and ~4 KB
+ * of gzipped JSON; an extended one (169 hours) about 1.2 KB (see CodecBenchmark).
+ *
+ * Layout, in this order:
+ *
+ *   "WFC" VERSION                      4 bytes
+ *   fetchedAt, expiresAt               varint milliseconds
+ *   string table                       varint count, then per string: varint length, UTF-8 bytes
+ *   current                            1 byte (present or not), then timezone, time, temperature,
+ *                                      humidity, precip chance, summary, icon
+ *   hourly, daily                      varint count, timezone, then per slot:
+ *                                      time, temperature, summary, icon
+ *
+ * Encoding and decoding stream through a fixed 8 KB buffer, so a forecast is never copied into
+ * one big array on the way to or from a file.
+ *
+ * Be careful: read() must read fields in exactly the order write() writes
+ * them. Bump VERSION whenever the layout changes; older files are then rejected (not misread).
+ */
+public final class ForecastCodec {
+
+    static final int VERSION = 2;
+
+    private static final byte[] MAGIC = {'W', 'F', 'C'};
+    private static final int BUFFER_SIZE = 8 * 1024;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private ForecastCodec() { }
+
+    public static void write(Forecast forecast, WritableByteChannel channel) throws IOException {
+        Encoder out = new Encoder(channel);
+        out.putBytes(MAGIC);
+        out.putByte(VERSION);
+        out.putVarLong(forecast.getFetchedAt());
+        out.putVarLong(forecast.getExpiresAt());
+
+        Current current = forecast.getCurrent();
+        ForecastSeries hours = forecast.getHourlySeries();
+        ForecastSeries days = forecast.getDailySeries();
+
+        // the string table. index 0 is null.
+        StringTable strings = new StringTable();
+        if (current != null) {
+            strings.add(current.getTimeZone());
+            strings.add(current.getSummary());
+            strings.add(current.getIcon());
+        }
+        addStrings(strings, hours);
+        addStrings(strings, days);
+        strings.write(out);
+
+        out.putByte(current != null ? 1 : 0);
+        if (current != null) {
+            out.putVarInt(strings.indexOf(current.getTimeZone()));
+            out.putVarLong(current.getTime());
+            out.putSignedVarLong(quantize(current.getTemperatureValue()));
+            out.putVarLong(quantize(current.getHumidity()));
+            out.putVarLong(quantize(current.getPrecipChanceValue()));
+            out.putVarInt(strings.indexOf(current.getSummary()));
+            out.putVarInt(strings.indexOf(current.getIcon()));
+        }
+
+        writeSeries(out, strings, hours);
+        writeSeries(out, strings, days);
+
+        out.flush();
+    }
+
+    private static void addStrings(StringTable strings, ForecastSeries series) {
+        strings.add(series.size() > 0 ? series.getTimezone() : null);
+        for (int i = 0; i < series.size(); ++i) {
+            strings.add(series.getSummary(i));
+            strings.add(series.getIcon(i));
+        }
+    }
+
+    private static void writeSeries(Encoder out, StringTable strings, ForecastSeries series) throws IOException {
+        out.putVarInt(series.size());
+        out.putVarInt(strings.indexOf(series.size() > 0 ? series.getTimezone() : null));
+        SlotWriter slots = new SlotWriter(out);
+        for (int i = 0; i < series.size(); ++i) {
+            slots.write(series.getTime(i), series.getTemperatureValue(i));
+            out.putVarInt(strings.indexOf(series.getSummary(i)));
+            out.putVarInt(strings.indexOf(series.getIcon(i)));
+        }
+    }
+
+    public static Forecast read(ReadableByteChannel channel) throws IOException {
+        return read(new Decoder(channel, ByteBuffer.allocate(BUFFER_SIZE)));
+    }
+
+    // the whole forecast in one buffer, ready to be read (position 0, limit at the end).
+    public static ByteBuffer encode(Forecast forecast) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(2 * 1024);
+        try {
+            write(forecast, Channels.newChannel(bytes));
+        } catch (IOException e) {
+            throw new AssertionError(e);    // ByteArrayOutputStream doesn't throw.
+        }
+        return ByteBuffer.wrap(bytes.toByteArray());
+    }
+
+    // reads a forecast from the buffer's position, leaving the position after it.
+    public static Forecast decode(ByteBuffer buffer) throws IOException {
+        return read(new Decoder(null, buffer));
+    }
+
+    private static Forecast read(Decoder in) throws IOException {
+        for (byte magic : MAGIC) {
+            if (in.getByte() != magic) {
+                throw new IOException("Not a forecast");
+            }
+        }
+        int version = in.getByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported forecast format version " + version);
+        }
+
+        Forecast forecast = new Forecast();
+        forecast.setFetchedAt(in.getVarLong());
+        forecast.setExpiresAt(in.getVarLong());
+
+        // every string takes a byte at least. as for the series, a (possibly corrupt) count is
+        // checked against what's left and not trusted for the allocation.
+        int count = in.getVarInt();
+        in.require(count);
+        String[] strings = new String[Math.min(count, 256) + 1];
+        for (int i = 1; i <= count; ++i) {
+            if (i == strings.length) {
+                strings = Arrays.copyOf(strings, Math.min(2 * strings.length, count + 1));
+            }
+            strings[i] = in.getString();
+        }
+
+        if (in.getByte() != 0) {
+            Current current = new Current();
+            current.setTimeZone(string(strings, in.getVarInt()));
+            current.setTime(in.getVarLong());
+            current.setTemperature(dequantize(in.getSignedVarLong()));
+            current.setHumidity(dequantize(in.getVarLong()));
+            current.setPrecipChance(dequantize(in.getVarLong()));
+            current.setSummary(string(strings, in.getVarInt()));
+            current.setIcon(string(strings, in.getVarInt()));
+            forecast.setCurrent(current);
+        }
+
+        forecast.setHourlySeries(readSeries(in, strings));
+        forecast.setDailySeries(readSeries(in, strings));
+        return forecast;
+    }
+
+    private static ForecastSeries readSeries(Decoder in, String[] strings) throws IOException {
+        int size = in.getVarInt();
+        // the builder grows as needed; don't trust a (possibly corrupt) size for the allocation.
+        ForecastSeries.Builder series = new ForecastSeries.Builder(Math.min(size, 256))
+                .setTimezone(string(strings, in.getVarInt()));
+        SlotReader slots = new SlotReader(in);
+        for (int i = 0; i < size; ++i) {
+            slots.read();
+            String summary = string(strings, in.getVarInt());
+            String icon = string(strings, in.getVarInt());
+            series.add(slots.mTime, dequantize(slots.mTemperature), icon, summary);
+        }
+        return series.build();
+    }
+
+    // hundredths.
+    static long quantize(double value) {
+        return Math.round(value * 100);
+    }
+
+    static double dequantize(long value) {
+        return value / 100.0;
+    }
+
+    private static String string(String[] strings, int index) throws IOException {
+        if (index < 0 || index >= strings.length) {
+            throw new IOException("Bad string index " + index);
+        }
+        return strings[index];
+    }
+
+    // each distinct string once, in the order they were first added. index 0 is null.
+    private static class StringTable {
+        private final Map<String, Integer> mIndexes = new HashMap<>();
+        private String[] mValues = new String[16];
+
+        void add(String value) {
+            if (value != null && !mIndexes.containsKey(value)) {
+                if (mIndexes.size() == mValues.length) {
+                    mValues = Arrays.copyOf(mValues, mValues.length * 2);
+                }
+                mValues[mIndexes.size()] = value;
+                mIndexes.put(value, mIndexes.size() + 1);
+            }
+        }
+
+        int indexOf(String value) {
+            return value == null ? 0 : mIndexes.get(value);
+        }
+
+        void write(Encoder out) throws IOException {
+            out.putVarInt(mIndexes.size());
+            for (int i = 0; i < mIndexes.size(); ++i) {
+                out.putString(mValues[i]);
+            }
+        }
+    }
+
+    // the time and temperature of successive hours/days, as differences from the previous one.
+    private static class SlotWriter {
+        private final Encoder mOut;
+        private long mTime;
+        private long mStep;
+        private long mTemperature;
+
+        SlotWriter(Encoder out) {
+            mOut = out;
+        }
+
+        void write(long time, double temperature) throws IOException {
+            long step = time - mTime;
+            mOut.putSignedVarLong(step - mStep);
+            long quantized = quantize(temperature);
+            mOut.putSignedVarLong(quantized - mTemperature);
+            mTime = time;
+            mStep = step;
+            mTemperature = quantized;
+        }
+    }
+
+    private static class SlotReader {
+        private final Decoder mIn;
+        long mTime;
+        long mStep;
+        long mTemperature;
+
+        SlotReader(Decoder in) {
+            mIn = in;
+        }
+
+        void read() throws IOException {
+            mStep += mIn.getSignedVarLong();
+            mTime += mStep;
+            mTemperature += mIn.getSignedVarLong();
+        }
+    }
+
+    // writes through a fixed buffer, handing it to the channel whenever it fills up.
+    private static class Encoder {
+        private final WritableByteChannel mChannel;
+        private final ByteBuffer mBuffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+        Encoder(WritableByteChannel channel) {
+            mChannel = channel;
+        }
+
+        void putByte(int value) throws IOException {
+            if (!mBuffer.hasRemaining()) {
+                flush();
+            }
+            mBuffer.put((byte) value);
+        }
+
+        void putBytes(byte[] bytes) throws IOException {
+            int offset = 0;
+            while (offset < bytes.length) {
+                if (!mBuffer.hasRemaining()) {
+                    flush();
+                }
+                int count = Math.min(mBuffer.remaining(), bytes.length - offset);
+                mBuffer.put(bytes, offset, count);
+                offset += count;
+            }
+        }
+
+        void putVarInt(int value) throws IOException {
+            putVarLong(value & 0xffffffffL);
+        }
+
+        // unsigned: 7 bits per byte, low bits first, the high bit set on all but the last byte.
+        void putVarLong(long value) throws IOException {
+            if (mBuffer.remaining() < 10) {
+                flush();
+            }
+            while ((value & ~0x7fL) != 0) {
+                mBuffer.put((byte) ((value & 0x7f) | 0x80));
+                value >>>= 7;
+            }
+            mBuffer.put((byte) value);
+        }
+
+        // zigzag: 0, -1, 1, -2, 2, ... become 0, 1, 2, 3, 4, ...
+        void putSignedVarLong(long value) throws IOException {
+            putVarLong((value << 1) ^ (value >> 63));
+        }
+
+        void putString(String value) throws IOException {
+            byte[] bytes = value.getBytes(UTF_8);
+            putVarInt(bytes.length);
+            putBytes(bytes);
+        }
+
+        void flush() throws IOException {
+            mBuffer.flip();
+            while (mBuffer.hasRemaining()) {
+                mChannel.write(mBuffer);
+            }
+            mBuffer.clear();
+        }
+    }
+
+    // reads from a buffer, refilling it from the channel (if there is one) when it runs out.
+    private static class Decoder {
+        private final ReadableByteChannel mChannel;
+        private final ByteBuffer mBuffer;
+
+        Decoder(ReadableByteChannel channel, ByteBuffer buffer) {
+            mChannel = channel;
+            mBuffer = buffer;
+            if (channel != null) {
+                mBuffer.limit(0);   // empty, the first read fills it.
+            }
+        }
+
+        int getByte() throws IOException {
+            if (!mBuffer.hasRemaining()) {
+                fill();
+            }
+            return mBuffer.get();
+        }
+
+        void getBytes(byte[] bytes) throws IOException {
+            int offset = 0;
+            while (offset < bytes.length) {
+                if (!mBuffer.hasRemaining()) {
+                    fill();
+                }
+                int count = Math.min(mBuffer.remaining(), bytes.length - offset);
+                mBuffer.get(bytes, offset, count);
+                offset += count;
+            }
+        }
+
+        // fails if fewer than count bytes are left, when that can be known (no channel).
+        void require(int count) throws IOException {
+            if (mChannel == null && count > mBuffer.remaining()) {
+                throw new IOException("Bad count " + count + ", " + mBuffer.remaining() + " bytes left");
+            }
+        }
+
+        int getVarInt() throws IOException {
+            long value = getVarLong();
+            if (value > Integer.MAX_VALUE) {
+                throw new IOException("Bad count " + value);
+            }
+            return (int) value;
+        }
+
+        long getVarLong() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = getByte();
+                value |= (long) (b & 0x7f) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Malformed varint");
+        }
+
+        long getSignedVarLong() throws IOException {
+            long value = getVarLong();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        String getString() throws IOException {
+            int length = getVarInt();
+            if (length > 64 * 1024) {
+                throw new IOException("String too long " + length);
+            }
+            byte[] bytes = new byte[length];
+            getBytes(bytes);
+            return new String(bytes, UTF_8);
+        }
+
+        private void fill() throws IOException {
+            if (mChannel == null) {
+                throw new EOFException();
+            }
+            mBuffer.clear();
+            int read;
+            do {
+                read = mChannel.read(mBuffer);
+            } while (read == 0);
+            mBuffer.flip();
+            if (read < 0) {
+                throw new EOFException();
+            }
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package com.example.lawrence.weatherapp.weather;
+
+import java.util.Arrays;
+
+/*
+ * What changed between two forecasts for the same location, in terms of what the screens show.
+ *
+ * For Current it is a set of flags, one per displayed field (TEMPERATURE, SUMMARY, ...), so the
+ * main screen only re-sets the labels that changed.
+ *
+ * For the hourly and daily lists it is a SeriesDiff. Successive forecasts overlap in time: an hour
+ * later the first hour has dropped off the front and a new one was added at the end, and most of
+ * the hours in between look the same. The slots are matched up by their time, so a RecyclerView
+ * can be told exactly which rows were removed, inserted or changed instead of rebinding them all.
+ *
+ * Values are compared as they are displayed (e.g. the rounded temperature), so a change that
+ * can't be seen isn't reported. Diffs are cheap enough to compute on a background thread for
+ * every refresh (see ForecastRepository).
+ */
+public final class ForecastDiff {
+
+    // Current fields
+    public static final int TIME = 1;
+    public static final int TEMPERATURE = 1 << 1;
+    public static final int HUMIDITY = 1 << 2;
+    public static final int PRECIP_CHANCE = 1 << 3;
+    public static final int SUMMARY = 1 << 4;
+    public static final int ICON = 1 << 5;
+    public static final int ALL = TIME | TEMPERATURE | HUMIDITY | PRECIP_CHANCE | SUMMARY | ICON;
+
+    private final int mCurrentChanges;
+    private final SeriesDiff mHourly;
+    private final SeriesDiff mDaily;
+
+    private ForecastDiff(int currentChanges, SeriesDiff hourly, SeriesDiff daily) {
+        mCurrentChanges = currentChanges;
+        mHourly = hourly;
+        mDaily = daily;
+    }
+
+    // previous may be null (nothing shown yet), in which case everything has changed.
+    public static ForecastDiff between(Forecast previous, Forecast forecast) {
+        if (previous == null) {
+            return new ForecastDiff(ALL, SeriesDiff.FULL, SeriesDiff.FULL);
+        }
+        return new ForecastDiff(
+                currentChanges(previous.getCurrent(), forecast.getCurrent()),
+                SeriesDiff.between(previous.getHourlySeries(), forecast.getHourlySeries()),
+                SeriesDiff.between(previous.getDailySeries(), forecast.getDailySeries()));
+    }
+
+    // true if any of the given Current fields (e.g. TEMPERATURE | HUMIDITY) changed.
+    public boolean hasCurrentChanged(int fields) {
+        return (mCurrentChanges & fields) != 0;
+    }
+
+    public SeriesDiff getHourly() {
+        return mHourly;
+    }
+
+    public SeriesDiff getDaily() {
+        return mDaily;
+    }
+
+    public boolean isEmpty() {
+        return mCurrentChanges == 0 && mHourly.isEmpty() && mDaily.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "ForecastDiff{current=0x" + Integer.toHexString(mCurrentChanges)
+                + ", hourly=" + mHourly + ", daily=" + mDaily + "}";
+    }
+
+    static int currentChanges(Current previous, Current current) {
+        if (previous == null || current == null) {
+            return previous == current ? 0 : ALL;
+        }
+
+        int changes = 0;
+        // the time label is formatted in the forecast's timezone, so a new timezone changes it too.
+        if (previous.getTime() != current.getTime()
+                || !equal(previous.getTimeZone(), current.getTimeZone())) {
+            changes |= TIME;
+        }
+        if (previous.getTemperature() != current.getTemperature()) {
+            changes |= TEMPERATURE;
+        }
+        if (previous.getHumidity() != current.getHumidity()) {
+            changes |= HUMIDITY;
+        }
+        if (previous.getPrecipChance() != current.getPrecipChance()) {
+            changes |= PRECIP_CHANCE;
+        }
+        if (!equal(previous.getSummary(), current.getSummary())) {
+            changes |= SUMMARY;
+        }
+        if (previous.getIconCode() != current.getIconCode()) {
+            changes |= ICON;
+        }
+        return changes;
+    }
+
+    private static boolean equal(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    /*
+     * Changes to an hourly or daily series, as list operations that apply in this order:
+     *
+     *   1. remove getRemovedFromStart() items at position 0 (slots that are now in the past)
+     *   2. remove getRemovedFromEnd() items after the overlap
+     *   3. rebind the positions in getChanged() (positions in the new series)
+     *   4. insert getInsertedAtEnd() items after the overlap
+     *
+     * When the two series can't be lined up by time (e.g. no common slots, or a new timezone,
+     * which changes every label) isFullChange() is true and the whole list should be rebound.
+     */
+    public static final class SeriesDiff {
+
+        static final SeriesDiff FULL = new SeriesDiff(true, 0, 0, 0, 0, new int[0]);
+
+        private final boolean mFullChange;
+        private final int mRemovedFromStart;
+        private final int mRemovedFromEnd;
+        private final int mOverlap;
+        private final int mInsertedAtEnd;
+        private final int[] mChanged;
+
+        private SeriesDiff(boolean fullChange, int removedFromStart, int removedFromEnd,
+                           int overlap, int insertedAtEnd, int[] changed) {
+            mFullChange = fullChange;
+            mRemovedFromStart = removedFromStart;
+            mRemovedFromEnd = removedFromEnd;
+            mOverlap = overlap;
+            mInsertedAtEnd = insertedAtEnd;
+            mChanged = changed;
+        }
+
+        public static SeriesDiff between(ForecastSeries previous, ForecastSeries series) {
+            if (!equal(previous.getTimezone(), series.getTimezone())) {
+                return FULL;
+            }
+            if (previous.size() == 0 || series.size() == 0) {
+                // nothing to line up: everything old goes, everything new comes.
+                return new SeriesDiff(false, 0, previous.size(), 0, series.size(), new int[0]);
+            }
+
+            // where the new series starts in the old one.
+            int start = 0;
+            long firstTime = series.getTime(0);
+            while (start < previous.size() && previous.getTime(start) < firstTime) {
+                ++start;
+            }
+            if (start == previous.size() || previous.getTime(start) != firstTime) {
+                return FULL;
+            }
+
+            int overlap = 0;
+            int[] changed = new int[Math.min(previous.size() - start, series.size())];
+            int changedCount = 0;
+            while (start + overlap < previous.size() && overlap < series.size()) {
+                int old = start + overlap;
+                if (previous.getTime(old) != series.getTime(overlap)) {
+                    return FULL;    // slots aren't evenly spaced the same way.
+                }
+                if (previous.getTemperature(old) != series.getTemperature(overlap)
+                        || previous.getIconCode(old) != series.getIconCode(overlap)
+                        || !equal(previous.getSummary(old), series.getSummary(overlap))) {
+                    changed[changedCount++] = overlap;
+                }
+                ++overlap;
+            }
+
+            return new SeriesDiff(false, start, previous.size() - start - overlap, overlap,
+                    series.size() - overlap, Arrays.copyOf(changed, changedCount));
+        }
+
+        public boolean isFullChange() {
+            return mFullChange;
+        }
+
+        public int getRemovedFromStart() {
+            return mRemovedFromStart;
+        }
+
+        public int getRemovedFromEnd() {
+            return mRemovedFromEnd;
+        }
+
+        // how many slots both series have; removed/inserted items at the end go after these.
+        public int getOverlap() {
+            return mOverlap;
+        }
+
+        public int getInsertedAtEnd() {
+            return mInsertedAtEnd;
+        }
+
+        // positions (in the new series) of the common slots that look different.
+        public int[] getChanged() {
+            return mChanged;
+        }
+
+        public boolean isEmpty() {
+            return !mFullChange && mRemovedFromStart == 0 && mRemovedFromEnd == 0
+                    && mInsertedAtEnd == 0 && mChanged.length == 0;
+        }
+
+        @Override
+        public String toString() {
+            if (mFullChange) {
+                return "full";
+            }
+            return "{-" + mRemovedFromStart + " start, -" + mRemovedFromEnd + " end, "
+                    + Arrays.toString(mChanged) + " changed, +" + mInsertedAtEnd + " end}";
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.example.lawrence.weatherapp.weather;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/*
+ * Single-pass parser for the Dark Sky forecast JSON.
+ *
+ * The old approach built a new JSONObject (the whole document tree) once for Current, once for
+ * the hourly forecast and once for the daily forecast, so every refresh tokenized the payload
+ * three times and kept three copies of it in memory.
+ *
+ * This parser uses a pull (token) reader instead: it walks the stream from start to finish once,
+ * fills in Current and the hourly/daily ForecastSeries as it goes, and skips everything we don't
+ * display (minutely, alerts, flags and the fields we don't use) without building anything for it.
+ * No Hour or Day objects are made here; Forecast makes those on demand.
+ */
+public final class ForecastParser {
+
+    private ForecastParser() { }
+
+    // parses the forecast straight from a character stream, e.g. response.body().charStream().
+    // the caller owns (and closes) the reader.
+    public static Forecast parse(Reader in) throws IOException {
+        JsonReader reader = new JsonReader(in);
+        try {
+            return readForecast(reader);
+        } catch (IllegalStateException | NumberFormatException e) {
+            // JsonReader reports a token of the wrong type (e.g. a string where we expect a number)
+            // as an IllegalStateException; surface every malformed payload the same way.
+            throw new IOException("Malformed forecast JSON", e);
+        }
+    }
+
+    private static Forecast readForecast(JsonReader reader) throws IOException {
+        Forecast forecast = new Forecast();
+        String timezone = null;
+        Current current = null;
+        ForecastSeries.Builder hours = new ForecastSeries.Builder();
+        ForecastSeries.Builder days = new ForecastSeries.Builder(8);
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            switch (name) {
+                case "timezone":
+                    timezone = reader.nextString();
+                    break;
+                case "currently":
+                    current = readCurrent(reader);
+                    break;
+                case "hourly":
+                    readDataBlock(reader, hours, "temperature");
+                    break;
+                case "daily":
+                    readDataBlock(reader, days, "temperatureMax");
+                    break;
+                default:
+                    reader.skipValue();     // minutely, alerts, flags, ...
+                    break;
+            }
+        }
+        reader.endObject();
+
+        // the timezone is a single root field, but nothing guarantees it comes before the blocks,
+        // so it is applied once everything has been read.
+        if (current != null) {
+            current.setTimeZone(timezone);
+        }
+
+        forecast.setCurrent(current);
+        forecast.setHourlySeries(hours.setTimezone(timezone).build());
+        forecast.setDailySeries(days.setTimezone(timezone).build());
+        return forecast;
+    }
+
+    private static Current readCurrent(JsonReader reader) throws IOException {
+        Current current = new Current();
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (reader.peek() == JsonToken.NULL) {
+                reader.skipValue();
+                continue;
+            }
+            switch (name) {
+                case "time":
+                    current.setTime(reader.nextLong());
+                    break;
+                case "summary":
+                    current.setSummary(reader.nextString());
+                    break;
+                case "icon":
+                    current.setIcon(reader.nextString());
+                    break;
+                case "temperature":
+                    current.setTemperature(reader.nextDouble());
+                    break;
+                case "humidity":
+                    current.setHumidity(reader.nextDouble());
+                    break;
+                case "precipProbability":
+                    current.setPrecipChance(reader.nextDouble());
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+
+        return current;
+    }
+
+    // reads an "hourly" or "daily" block ({"summary": ..., "icon": ..., "data": [...]}) into the
+    // series. temperatureField is the one to keep: "temperature" for hours, "temperatureMax" for days.
+    private static void readDataBlock(JsonReader reader, ForecastSeries.Builder series, String temperatureField)
+            throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (!reader.nextName().equals("data")) {
+                reader.skipValue();
+                continue;
+            }
+
+            reader.beginArray();
+            while (reader.hasNext()) {
+                readDataPoint(reader, series, temperatureField);
+            }
+            reader.endArray();
+        }
+        reader.endObject();
+    }
+
+    private static void readDataPoint(JsonReader reader, ForecastSeries.Builder series, String temperatureField)
+            throws IOException {
+        long time = 0;
+        double temperature = 0;
+        String summary = null;
+        String icon = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (reader.peek() == JsonToken.NULL) {
+                reader.skipValue();
+                continue;
+            }
+            switch (name) {
+                case "time":
+                    time = reader.nextLong();
+                    break;
+                case "summary":
+                    summary = reader.nextString();
+                    break;
+                case "icon":
+                    icon = reader.nextString();
+                    break;
+                default:
+                    if (name.equals(temperatureField)) {
+                        temperature = reader.nextDouble();
+                    } else {
+                        reader.skipValue();
+                    }
+                    break;
+            }
+        }
+        reader.endObject();
+
+        series.add(time, temperature, icon, summary);
+    }
+}
@@ -0,0 +1,245 @@
+package com.example.lawrence.weatherapp.weather;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/*
+ * Column-oriented ("struct of arrays") form of an hourly or daily forecast.
+ *
+ * An Hour[] is one object per hour, each with its own time, temperature and three Strings;
+ * the timezone is the same String on every element and the icon is one of ~10 values. Here
+ * every field is one primitive array instead:
+ *
+ *   time         long[]   seconds since epoch
+ *   temperature  float[]  degrees (for a daily series: the day's high)
+ *   icon         byte[]   index into a small table of the distinct icon strings
+ *   summary      short[]  index into a table of the distinct summaries
+ *
+ * and the timezone is stored once. That is a handful of objects per series instead of ~4 per
+ * hour, which matters when we keep extended (168 hour) forecasts for many locations.
+ *
+ * Series are immutable; build them with a Builder or from Hour[]/Day[]. The time labels are
+ * formatted for the whole series the first time one is asked for, so binding a list row
+ * afterwards is just an array lookup.
+ */
+public class ForecastSeries {
+
+    // every temperature we can realistically show, as text (see getTemperatureLabel()).
+    private static final int MIN_TEMPERATURE_LABEL = -100;
+    private static final String[] TEMPERATURE_LABELS = new String[251];
+    static {
+        for (int i = 0; i < TEMPERATURE_LABELS.length; ++i) {
+            TEMPERATURE_LABELS[i] = Integer.toString(MIN_TEMPERATURE_LABEL + i);
+        }
+    }
+
+    private final String mTimezone;
+    private final long[] mTime;
+    private final float[] mTemperature;
+    private final byte[] mIcon;
+    private final String[] mIcons;
+    private final IconCode[] mIconCodes;    // mIcons resolved to codes, same indexes.
+    private final short[] mSummary;
+    private final String[] mSummaries;
+
+    // formatted on first use, see getHour() and getDayOfTheWeek().
+    private volatile String[] mHourLabels;
+    private volatile String[] mDayLabels;
+
+    private ForecastSeries(Builder builder) {
+        int size = builder.mSize;
+        mTimezone = builder.mTimezone;
+        mTime = Arrays.copyOf(builder.mTime, size);
+        mTemperature = Arrays.copyOf(builder.mTemperature, size);
+        mIcon = Arrays.copyOf(builder.mIcon, size);
+        mSummary = Arrays.copyOf(builder.mSummary, size);
+        mIcons = builder.mIcons.toArray();
+        mIconCodes = new IconCode[mIcons.length];
+        for (int i = 0; i < mIcons.length; ++i) {
+            mIconCodes[i] = IconCode.fromIcon(mIcons[i]);
+        }
+        mSummaries = builder.mSummaries.toArray();
+    }
+
+    public static ForecastSeries fromHours(Hour[] hours) {
+        Builder builder = new Builder(hours.length);
+        for (Hour hour : hours) {
+            builder.add(hour.getTime(), hour.getTemperatureValue(), hour.getIcon(), hour.getSummary());
+            builder.setTimezone(hour.getTimezone());
+        }
+        return builder.build();
+    }
+
+    public static ForecastSeries fromDays(Day[] days) {
+        Builder builder = new Builder(days.length);
+        for (Day day : days) {
+            builder.add(day.getTime(), day.getTemperatureMaxValue(), day.getIcon(), day.getSummary());
+            builder.setTimezone(day.getTimezone());
+        }
+        return builder.build();
+    }
+
+    public int size() {
+        return mTime.length;
+    }
+
+    public String getTimezone() {
+        return mTimezone;
+    }
+
+    public long getTime(int i) {
+        return mTime[i];
+    }
+
+    // rounded like Hour.getTemperature() and Day.getTemperatureMax().
+    public int getTemperature(int i) {
+        return Math.round(mTemperature[i]);
+    }
+
+    // the rounded temperature as text, without building a new String each time a row is bound.
+    public String getTemperatureLabel(int i) {
+        int temperature = getTemperature(i);
+        int index = temperature - MIN_TEMPERATURE_LABEL;
+        if (index >= 0 && index < TEMPERATURE_LABELS.length) {
+            return TEMPERATURE_LABELS[index];
+        }
+        return Integer.toString(temperature);
+    }
+
+    public float getTemperatureValue(int i) {
+        return mTemperature[i];
+    }
+
+    public String getIcon(int i) {
+        return mIcons[mIcon[i] & 0xff];
+    }
+
+    public IconCode getIconCode(int i) {
+        return mIconCodes[mIcon[i] & 0xff];
+    }
+
+    public String getSummary(int i) {
+        return mSummaries[mSummary[i] & 0xffff];
+    }
+
+    // formatted hour (e.g. "9 AM") in the forecast's timezone, like Hour.getHour().
+    public String getHour(int i) {
+        String[] labels = mHourLabels;
+        if (labels == null) {
+            labels = TimeFormatter.get(TimeFormatter.HOUR, mTimezone).formatAll(mTime);
+            mHourLabels = labels;
+        }
+        return labels[i];
+    }
+
+    // day of the week (e.g. "Monday") in the forecast's timezone, like Day.getDayOfTheWeek().
+    public String getDayOfTheWeek(int i) {
+        String[] labels = mDayLabels;
+        if (labels == null) {
+            labels = TimeFormatter.get(TimeFormatter.DAY_OF_THE_WEEK, mTimezone).formatAll(mTime);
+            mDayLabels = labels;
+        }
+        return labels[i];
+    }
+
+    // a standalone Hour object for one element, for code that still wants one.
+    public Hour toHour(int i) {
+        Hour hour = new Hour();
+        hour.setTime(mTime[i]);
+        hour.setTemperature(mTemperature[i]);
+        hour.setIcon(getIcon(i));
+        hour.setSummary(getSummary(i));
+        hour.setTimezone(mTimezone);
+        return hour;
+    }
+
+    public Day toDay(int i) {
+        Day day = new Day();
+        day.setTime(mTime[i]);
+        day.setTemperatureMax(mTemperature[i]);
+        day.setIcon(getIcon(i));
+        day.setSummary(getSummary(i));
+        day.setTimezone(mTimezone);
+        return day;
+    }
+
+    public static class Builder {
+        private String mTimezone;
+        private long[] mTime;
+        private float[] mTemperature;
+        private byte[] mIcon;
+        private short[] mSummary;
+        private int mSize;
+        private final Dictionary mIcons = new Dictionary(0xff);
+        private final Dictionary mSummaries = new Dictionary(0xffff);
+
+        public Builder() {
+            this(49);   // Dark Sky's default hourly forecast is 49 hours.
+        }
+
+        public Builder(int capacity) {
+            capacity = Math.max(capacity, 1);
+            mTime = new long[capacity];
+            mTemperature = new float[capacity];
+            mIcon = new byte[capacity];
+            mSummary = new short[capacity];
+        }
+
+        public Builder setTimezone(String timezone) {
+            mTimezone = timezone;
+            return this;
+        }
+
+        public Builder add(long time, double temperature, String icon, String summary) {
+            if (mSize == mTime.length) {
+                int capacity = mSize * 2;
+                mTime = Arrays.copyOf(mTime, capacity);
+                mTemperature = Arrays.copyOf(mTemperature, capacity);
+                mIcon = Arrays.copyOf(mIcon, capacity);
+                mSummary = Arrays.copyOf(mSummary, capacity);
+            }
+            mTime[mSize] = time;
+            mTemperature[mSize] = (float) temperature;
+            mIcon[mSize] = (byte) mIcons.indexOf(icon);
+            mSummary[mSize] = (short) mSummaries.indexOf(summary);
+            ++mSize;
+            return this;
+        }
+
+        public ForecastSeries build() {
+            return new ForecastSeries(this);
+        }
+    }
+
+    // numbers each distinct string once, so a column can store a small index instead.
+    private static class Dictionary {
+        private final int mMaxIndex;
+        private final Map<String, Integer> mIndexes = new HashMap<>();
+        private String[] mValues = new String[8];
+
+        Dictionary(int maxIndex) {
+            mMaxIndex = maxIndex;
+        }
+
+        int indexOf(String value) {
+            Integer index = mIndexes.get(value);
+            if (index == null) {
+                index = mIndexes.size();
+                if (index > mMaxIndex) {
+                    throw new IllegalStateException("More than " + mMaxIndex + " distinct values");
+                }
+                if (index == mValues.length) {
+                    mValues = Arrays.copyOf(mValues, index * 2);
+                }
+                mValues[index] = value;
+                mIndexes.put(value, index);
+            }
+            return index;
+        }
+
+        String[] toArray() {
+            return Arrays.copyOf(mValues, mIndexes.size());
+        }
+    }
+}
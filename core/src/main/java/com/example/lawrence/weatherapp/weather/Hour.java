@@ -0,0 +1,66 @@
+package com.example.lawrence.weatherapp.weather;
+
+// Data model for an "hour of weather" (i.e. weather at 9AM, 10AM, 11AM, etc.)
+public class Hour {
+    private long mTime;
+    private double mTemperature;
+    private String mSummary;
+    private String mIcon;
+    private IconCode mIconCode = IconCode.CLEAR_DAY;  // resolved from mIcon in setIcon().
+    private String mTimezone;
+
+    // helper method to get a formated hour (e.g. 9 AM), in the forecast's timezone.
+    public String getHour(){
+        return TimeFormatter.format(TimeFormatter.HOUR, mTimezone, mTime);
+    }
+
+    public long getTime() {
+        return mTime;
+    }
+
+    public void setTime(long time) {
+        mTime = time;
+    }
+
+    public String getSummary() {
+        return mSummary;
+    }
+
+    public void setSummary(String summary) {
+        mSummary = summary;
+    }
+
+    public int getTemperature() {
+        return (int) Math.round(mTemperature);
+    }
+
+    // the exact temperature behind getTemperature(), for serializing the forecast.
+    double getTemperatureValue() {
+        return mTemperature;
+    }
+
+    public void setTemperature(double temperature) {
+        mTemperature = temperature;
+    }
+
+    public String getIcon() {
+        return mIcon;
+    }
+
+    public IconCode getIconCode() {
+        return mIconCode;
+    }
+
+    public void setIcon(String icon) {
+        mIcon = icon;
+        mIconCode = IconCode.fromIcon(icon);
+    }
+
+    public String getTimezone() {
+        return mTimezone;
+    }
+
+    public void setTimezone(String timezone) {
+        mTimezone = timezone;
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.lawrence.weatherapp.weather;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// The weather icons Dark Sky can send (the "icon" field).
+// The icon string is looked up once, when the data point is parsed or built, so binding a row
+// only reads an enum field instead of comparing strings. Which drawable each one shows is up to
+// the app (see ui/IconResources there); this module knows nothing about Android resources.
+public enum IconCode {
+    CLEAR_DAY("clear-day"),
+    CLEAR_NIGHT("clear-night"),
+    RAIN("rain"),
+    SNOW("snow"),
+    SLEET("sleet"),
+    WIND("wind"),
+    FOG("fog"),
+    CLOUDY("cloudy"),
+    PARTLY_CLOUDY_DAY("partly-cloudy-day"),
+    PARTLY_CLOUDY_NIGHT("partly-cloudy-night");
+
+    private static final Map<String, IconCode> sByIcon = new HashMap<>();
+    static {
+        for (IconCode code : values()) {
+            sByIcon.put(code.mIcon, code);
+        }
+    }
+
+    private final String mIcon;
+
+    IconCode(String icon) {
+        mIcon = icon;
+    }
+
+    // the code for an icon string; unknown (or missing) icons show as clear-day, like they always have.
+    public static IconCode fromIcon(String icon) {
+        IconCode code = icon != null ? sByIcon.get(icon) : null;
+        return code != null ? code : CLEAR_DAY;
+    }
+
+    public String getIcon() {
+        return mIcon;
+    }
+}
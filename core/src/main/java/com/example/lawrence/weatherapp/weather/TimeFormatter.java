@@ -0,0 +1,94 @@
+package com.example.lawrence.weatherapp.weather;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+
+/*
+ * Formats forecast times (seconds since epoch) as labels like "9 AM" or "Monday".
+ *
+ * Creating a SimpleDateFormat is surprisingly expensive (it parses the pattern and loads the
+ * locale's date symbols), and the model used to create one, plus a Date, every time a list
+ * row was bound. Instead there is one TimeFormatter per (pattern, timezone, locale), reused
+ * for the life of the app, and each one remembers the labels it formatted recently: the same
+ * hours are formatted again and again as a list scrolls, so most calls are a cache hit and
+ * allocate nothing.
+ *
+ * Labels are cached by their exact time, not by hour: some timezones are offset by 30 or 45
+ * minutes, so an epoch hour can span two local hours. Forecast times are whole hours anyway.
+ */
+public final class TimeFormatter {
+
+    public static final String HOUR = "h a";            // 9 AM
+    public static final String TIME = "h:mm a";         // 9:41 AM
+    public static final String DAY_OF_THE_WEEK = "EEEE";  // Monday
+
+    private static final int CACHE_SIZE = 256;          // a week of hours, power of two.
+
+    private static final Map<String, TimeFormatter> sFormatters = new HashMap<>();
+
+    private final SimpleDateFormat mFormat;
+    private final Date mDate = new Date();
+
+    // direct-mapped cache: a time can only live in one slot, picked by its hash.
+    private final long[] mTimes = new long[CACHE_SIZE];
+    private final String[] mLabels = new String[CACHE_SIZE];
+
+    private TimeFormatter(String pattern, TimeZone timezone, Locale locale) {
+        mFormat = new SimpleDateFormat(pattern, locale);
+        mFormat.setTimeZone(timezone);
+    }
+
+    // the shared formatter for a pattern in a timezone (null means the device's timezone).
+    public static TimeFormatter get(String pattern, String timezone) {
+        Locale locale = Locale.getDefault();
+        String key = pattern + '|' + timezone + '|' + locale;
+        synchronized (sFormatters) {
+            TimeFormatter formatter = sFormatters.get(key);
+            if (formatter == null) {
+                TimeZone zone = timezone != null ? TimeZone.getTimeZone(timezone) : TimeZone.getDefault();
+                formatter = new TimeFormatter(pattern, zone, locale);
+                sFormatters.put(key, formatter);
+            }
+            return formatter;
+        }
+    }
+
+    // shorthand for get(pattern, timezone).format(time).
+    public static String format(String pattern, String timezone, long time) {
+        return get(pattern, timezone).format(time);
+    }
+
+    // SimpleDateFormat isn't thread-safe, hence synchronized (an uncontended lock is cheap).
+    public synchronized String format(long time) {
+        int slot = slotFor(time);
+        String label = mLabels[slot];
+        if (label != null && mTimes[slot] == time) {
+            return label;
+        }
+
+        mDate.setTime(time * 1000);     // Date uses milliseconds.
+        label = mFormat.format(mDate);
+        mTimes[slot] = time;
+        mLabels[slot] = label;
+        return label;
+    }
+
+    // formats a whole column of times at once, e.g. all the hours of a forecast.
+    public synchronized String[] formatAll(long[] times) {
+        String[] labels = new String[times.length];
+        for (int i = 0; i < times.length; ++i) {
+            labels[i] = format(times[i]);
+        }
+        return labels;
+    }
+
+    private static int slotFor(long time) {
+        // forecast times are multiples of 3600, so mix the bits before taking the low ones.
+        long hash = time * 0x9E3779B97F4A7C15L;
+        return (int) (hash >>> 56) & (CACHE_SIZE - 1);
+    }
+}
@@ -0,0 +1,183 @@
+package com.example.lawrence.weatherapp.data;
+
+import com.example.lawrence.weatherapp.location.TrackedLocation;
+import com.example.lawrence.weatherapp.weather.Forecast;
+import com.example.lawrence.weatherapp.weather.Hour;
+import com.example.lawrence.weatherapp.weather.IconCode;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class ForecastArchiveTest {
+
+    private static final long HOUR = 3600;
+    private static final long START = 1455523200;   // 2016-02-15 08:00 UTC.
+    private static final String KEY = "37.83,-122.42";
+
+    private File mDirectory;
+    private ForecastArchive mArchive;
+
+    @Before
+    public void setUp() throws IOException {
+        mDirectory = File.createTempFile("archive", "");
+        mDirectory.delete();
+        mArchive = new ForecastArchive(mDirectory);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        mArchive.close();
+        delete(mDirectory);
+    }
+
+    @Test
+    public void newerForecastsSupersedeOlderOnes() throws IOException {
+        // fetched at 08:00 for 48 hours, at 09:00 for 48 hours, then at 10:00 only 5 hours.
+        mArchive.append(KEY, forecast(START, 48, 50, "clear-day"));
+        mArchive.append(KEY, forecast(START + HOUR, 48, 60, "rain"));
+        mArchive.append(KEY, forecast(START + 2 * HOUR, 5, 70, "snow"));
+
+        ArchiveCursor cursor = mArchive.query(KEY, ForecastArchive.HOURLY, START, START + 100 * HOUR);
+
+        assertEquals(49, cursor.getCount());
+        long expectedTime = START;
+        while (cursor.moveToNext()) {
+            assertEquals(expectedTime, cursor.getTime());
+            long hour = (expectedTime - START) / HOUR;
+            if (hour == 0) {
+                assertEquals(50, cursor.getTemperature());        // only the first forecast has it.
+            } else if (hour < 2 || hour >= 7) {
+                assertEquals(60, cursor.getTemperature());        // the second one, where the third stops.
+                assertEquals(IconCode.RAIN, cursor.getIconCode());
+            } else {
+                assertEquals(70, cursor.getTemperature());
+                assertEquals("snow", cursor.getIcon());
+                assertEquals((START + 2 * HOUR) * 1000, cursor.getFetchedAt());
+            }
+            expectedTime += HOUR;
+        }
+        assertEquals(START + 49 * HOUR, expectedTime);
+    }
+
+    @Test
+    public void queriesATimeRange() throws IOException {
+        mArchive.append(KEY, forecast(START, 48, 50, "clear-day"));
+        mArchive.append(KEY, forecast(START + HOUR, 48, 60, "rain"));
+
+        ArchiveCursor cursor = mArchive.query(KEY, ForecastArchive.HOURLY, START + 10 * HOUR, START + 13 * HOUR);
+
+        assertEquals(3, cursor.getCount());
+        assertTrue(cursor.moveToNext());
+        assertEquals(START + 10 * HOUR, cursor.getTime());
+        assertEquals("America/Los_Angeles", cursor.getTimezone());
+        assertEquals(0, mArchive.query("0.00,0.00", ForecastArchive.HOURLY, START, START + HOUR).getCount());
+        assertArrayEquals(new long[] {START, START + 48 * HOUR},
+                mArchive.getTimeRange(KEY, ForecastArchive.HOURLY));
+    }
+
+    @Test
+    public void compactionDropsSupersededRecordsOnly() throws IOException {
+        for (int i = 0; i < 24; ++i) {
+            mArchive.append(KEY, forecast(START + i * HOUR, 48, 50 + i, "clear-day"));
+        }
+        mArchive.append("40.78,-73.96", forecast(START, 48, 30, "snow"));
+        assertEquals(25 * 48, mArchive.getRecordCount());
+        int[] before = temperatures(mArchive.query(KEY, ForecastArchive.HOURLY, 0, Long.MAX_VALUE));
+
+        mArchive.compact();
+
+        assertEquals(71 + 48, mArchive.getRecordCount());
+        assertArrayEquals(before, temperatures(mArchive.query(KEY, ForecastArchive.HOURLY, 0, Long.MAX_VALUE)));
+        assertEquals(Arrays.asList("37.83,-122.42", "40.78,-73.96"), mArchive.getLocationKeys());
+    }
+
+    @Test
+    public void compactionKeepsTheNewestRunLast() throws IOException {
+        // the 09:00 forecast only covers 5 hours, so the 08:00 one's later hours come last in
+        // time order. the same forecast arriving again must still be recognised after compacting.
+        Forecast newest = forecast(START + HOUR, 5, 60, "rain");
+        mArchive.append(KEY, forecast(START, 48, 50, "clear-day"));
+        mArchive.append(KEY, newest);
+        mArchive.compact();
+
+        mArchive.append(KEY, newest);
+
+        assertEquals(48, mArchive.getRecordCount());
+        assertEquals(48, mArchive.query(KEY, ForecastArchive.HOURLY, 0, Long.MAX_VALUE).getCount());
+    }
+
+    @Test
+    public void compactsOnTheSubscribersThreadOnly() throws IOException {
+        for (int i = 0; i < ForecastArchive.COMPACT_EVERY - 1; ++i) {
+            mArchive.append(KEY, forecast(START + i * HOUR, 2, 50, "clear-day"));
+        }
+        mArchive.onForecastLoaded(new TrackedLocation("Alcatraz Island, CA", 37.8268, -122.422),
+                forecast(START - HOUR, 2, 50, "clear-day"));
+        mArchive.append(KEY, forecast(START + ForecastArchive.COMPACT_EVERY * HOUR, 2, 50, "clear-day"));
+
+        // append() leaves compacting to onForecastLoaded(). the compaction kept an hour per run,
+        // the other one being superseded, and the hour before START; the run appended since
+        // adds two.
+        assertFalse(mArchive.isCompactionDue());
+        assertEquals(ForecastArchive.COMPACT_EVERY + 1 + 2, mArchive.getRecordCount());
+    }
+
+    @Test
+    public void reopensFromDisk() throws IOException {
+        mArchive.append(KEY, forecast(START, 48, 50, "clear-day"));
+        mArchive.append(KEY, forecast(START + HOUR, 48, 60, "rain"));
+        mArchive.compact();
+        mArchive.append(KEY, forecast(START + 2 * HOUR, 48, 70, "snow"));
+
+        ForecastArchive reopened = new ForecastArchive(mDirectory);
+        ArchiveCursor cursor = reopened.query(KEY, ForecastArchive.HOURLY, 0, Long.MAX_VALUE);
+
+        assertEquals(50, cursor.getCount());
+        assertEquals(49 + 48, reopened.getRecordCount());
+        assertTrue(cursor.moveToNext());
+        assertEquals(50, cursor.getTemperature());
+        assertEquals("clear-day", cursor.getIcon());
+    }
+
+    private static int[] temperatures(ArchiveCursor cursor) {
+        int[] temperatures = new int[cursor.getCount()];
+        for (int i = 0; cursor.moveToNext(); ++i) {
+            temperatures[i] = cursor.getTemperature();
+        }
+        return temperatures;
+    }
+
+    private static Forecast forecast(long start, int hours, double temperature, String icon) {
+        Hour[] series = new Hour[hours];
+        for (int i = 0; i < hours; ++i) {
+            Hour hour = new Hour();
+            hour.setTime(start + i * HOUR);
+            hour.setTemperature(temperature);
+            hour.setIcon(icon);
+            hour.setSummary(icon);
+            hour.setTimezone("America/Los_Angeles");
+            series[i] = hour;
+        }
+        Forecast forecast = new Forecast();
+        forecast.setFetchedAt(start * 1000);
+        forecast.setHourlyForecast(series);
+        return forecast;
+    }
+
+    private static void delete(File file) {
+        File[] files = file.listFiles();
+        if (files != null) {
+            for (File child : files) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.lawrence.weatherapp.data;
+
+import com.example.lawrence.weatherapp.weather.Forecast;
+import com.example.lawrence.weatherapp.weather.ForecastParser;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+
+import static org.junit.Assert.*;
+
+public class ForecastStoreTest {
+
+    private File mDirectory;
+    private ForecastStore mStore;
+
+    @Before
+    public void setUp() throws IOException {
+        mDirectory = File.createTempFile("forecasts", "");
+        mDirectory.delete();
+        mStore = new ForecastStore(mDirectory);
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = mDirectory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        mDirectory.delete();
+    }
+
+    @Test
+    public void roundsCoordinatesIntoKeys() {
+        assertEquals("37.83,-122.42", ForecastStore.keyFor(37.8268, -122.422));
+        assertEquals(ForecastStore.keyFor(37.8268, -122.422), ForecastStore.keyFor(37.8271, -122.4219));
+    }
+
+    @Test
+    public void savesAndLoadsForecast() throws IOException {
+        Forecast forecast;
+        try (Reader reader = new InputStreamReader(getClass().getClassLoader()
+                .getResourceAsStream("forecast/forecast_standard.json"), "UTF-8")) {
+            forecast = ForecastParser.parse(reader);
+        }
+        forecast.setFetchedAt(1455524500000L);
+
+        mStore.save("37.83,-122.42", forecast);
+        Forecast loaded = mStore.load("37.83,-122.42");
+
+        assertEquals(1455524500000L, loaded.getFetchedAt());
+        assertEquals(forecast.getCurrent().getTime(), loaded.getCurrent().getTime());
+        assertEquals(forecast.getCurrent().getTemperature(), loaded.getCurrent().getTemperature());
+        assertEquals(forecast.getCurrent().getPrecipChance(), loaded.getCurrent().getPrecipChance());
+        assertEquals(forecast.getCurrent().getTimeZone(), loaded.getCurrent().getTimeZone());
+        assertEquals(49, loaded.getHourlyForecast().length);
+        assertEquals(forecast.getHourlyForecast()[48].getSummary(), loaded.getHourlyForecast()[48].getSummary());
+        assertEquals("America/Los_Angeles", loaded.getHourlyForecast()[48].getTimezone());
+        assertEquals(8, loaded.getDailyForecast().length);
+        assertEquals(forecast.getDailyForecast()[7].getTemperatureMax(), loaded.getDailyForecast()[7].getTemperatureMax());
+    }
+
+    @Test
+    public void freshnessDependsOnAge() {
+        Forecast forecast = new Forecast();
+        forecast.setFetchedAt(1000);
+
+        assertTrue(ForecastStore.isFresh(forecast, 1000 + ForecastStore.FRESH_FOR_MILLIS - 1));
+        assertFalse(ForecastStore.isFresh(forecast, 1000 + ForecastStore.FRESH_FOR_MILLIS));
+    }
+
+    @Test
+    public void unreadableForecastIsTreatedAsMissing() throws IOException {
+        assertNull(mStore.load("0.00,0.00"));
+
+        mDirectory.mkdirs();
+        try (FileOutputStream out = new FileOutputStream(new File(mDirectory, "0.00,0.00.forecast"))) {
+            out.write(new byte[] {0, 0, 0, 99});
+        }
+        assertNull(mStore.load("0.00,0.00"));
+    }
+}
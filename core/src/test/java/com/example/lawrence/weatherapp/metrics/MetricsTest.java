@@ -0,0 +1,63 @@
+package com.example.lawrence.weatherapp.metrics;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class MetricsTest {
+
+    @Test
+    public void recordsNothingWhenDisabled() {
+        Metrics metrics = new Metrics();
+        Histogram histogram = metrics.histogram(Metrics.FETCH_TOTAL);
+        Counter counter = metrics.counter(Metrics.FETCH_SUCCESS);
+
+        assertEquals(0, metrics.startTimer());
+        histogram.recordNanos(5000000);
+        counter.increment();
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, counter.get());
+    }
+
+    @Test
+    public void estimatesPercentilesFromBuckets() {
+        Metrics metrics = new Metrics();
+        metrics.setEnabled(true);
+        Histogram histogram = metrics.histogram(Metrics.FORECAST_PARSE);
+
+        // 90 fast ones (1 ms) and 10 slow ones (100 ms).
+        for (int i = 0; i < 90; ++i) {
+            histogram.recordNanos(1000000);
+        }
+        for (int i = 0; i < 10; ++i) {
+            histogram.recordNanos(100000000);
+        }
+
+        assertEquals(100, histogram.getCount());
+        assertEquals(10.9, histogram.getMeanMillis(), 0.01);
+        assertEquals(100, histogram.getMaxMillis(), 0.01);
+        // within a factor of two of the real value.
+        assertTrue(histogram.getPercentileMillis(50) >= 1 && histogram.getPercentileMillis(50) < 2.1);
+        assertTrue(histogram.getPercentileMillis(99) > 50 && histogram.getPercentileMillis(99) <= 100);
+
+        metrics.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getPercentileMillis(50), 0);
+    }
+
+    @Test
+    public void writesCountersAndHistogramsAsJson() {
+        Metrics metrics = new Metrics();
+        metrics.setEnabled(true);
+        metrics.counter(Metrics.HTTP_CACHE_HIT).increment();
+        metrics.histogram(Metrics.STORE_SAVE).recordNanos(2000000);
+
+        String json = metrics.toJson();
+
+        assertTrue(json.contains("\"http.cache_hit\": 1"));
+        assertTrue(json.contains("\"store.save\""));
+        assertTrue(json.contains("\"p90_ms\""));
+        assertTrue(metrics.dump().contains("store.save"));
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.lawrence.weatherapp.network;
+
+import com.example.lawrence.weatherapp.metrics.Metrics;
+import com.example.lawrence.weatherapp.standin.ForecastRequest;
+import com.example.lawrence.weatherapp.standin.RecordedPayloads;
+import com.example.lawrence.weatherapp.standin.StandInDispatcher;
+import com.example.lawrence.weatherapp.weather.Forecast;
+import com.example.lawrence.weatherapp.weather.ForecastDiff;
+import com.example.lawrence.weatherapp.weather.ForecastParser;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+
+import okhttp3.HttpUrl;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockWebServer;
+
+import static org.junit.Assert.*;
+
+// Against the stand-in server, which gzips the recorded payloads when asked to.
+public class CompressionInterceptorTest {
+
+    private static final String PATH = "/forecast/key/37.80,-122.40";
+
+    private MockWebServer mServer;
+    private File mCacheDir;
+    private TransferStats mStats;
+    private Metrics mMetrics;
+    private ForecastClient mClient;
+    private byte[] mPayload;
+
+    @Before
+    public void setUp() throws IOException {
+        mServer = new MockWebServer();
+        mCacheDir = File.createTempFile("http", "");
+        mCacheDir.delete();
+        mStats = new TransferStats();
+        mMetrics = new Metrics();
+        mMetrics.setEnabled(true);
+        mClient = new ForecastClient(ForecastClient.withCompression(
+                ForecastClient.newHttpClientBuilder(mCacheDir), mStats, mMetrics).build(), mStats);
+        mPayload = new RecordedPayloads(null).payload(ForecastRequest.parse(PATH));
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        mServer.shutdown();
+        delete(mCacheDir);
+    }
+
+    @Test
+    public void countsCompressedAndDecompressedBytesPerLocation() throws IOException {
+        start(true);
+
+        Forecast forecast = fetch("here");
+
+        assertTrue(ForecastDiff.between(expected(), forecast).isEmpty());
+        TransferStats.Totals totals = mStats.get("here");
+        assertEquals(1, totals.getResponses());
+        assertEquals(mPayload.length, totals.getBodyBytes());
+        // the forecast JSON compresses to well under half.
+        assertTrue(totals.getCompressionRatio() < 0.5);
+        assertEquals(totals.getWireBytes(), mMetrics.counter(Metrics.HTTP_WIRE_BYTES).get());
+        assertEquals(mPayload.length, mMetrics.counter(Metrics.HTTP_BODY_BYTES).get());
+        assertEquals(1, mMetrics.histogram(Metrics.HTTP_DECODE).getCount());
+        assertNull(mStats.get("somewhere else"));
+    }
+
+    @Test
+    public void uncompressedBodiesCostWhatTheyAre() throws IOException {
+        start(false);
+
+        fetch("here");
+
+        TransferStats.Totals totals = mStats.get("here");
+        assertEquals(mPayload.length, totals.getWireBytes());
+        assertEquals(mPayload.length, totals.getBodyBytes());
+        assertEquals(0, mMetrics.histogram(Metrics.HTTP_DECODE).getCount());
+    }
+
+    @Test
+    public void cachedCopiesAreDecompressedButNotCounted() throws IOException {
+        start(true);
+
+        fetch("here");
+        Forecast cached = fetch("here");
+
+        assertEquals(1, mServer.getRequestCount());
+        assertTrue(ForecastDiff.between(expected(), cached).isEmpty());
+        assertEquals(1, mStats.get("here").getResponses());
+        assertEquals(1, mStats.getTotal().getResponses());
+    }
+
+    private void start(boolean gzip) throws IOException {
+        mServer.setDispatcher(new StandInDispatcher.Builder(new RecordedPayloads(null)).gzip(gzip).build());
+        mServer.start();
+    }
+
+    private Forecast fetch(String key) throws IOException {
+        HttpUrl url = mServer.url(PATH);
+        Response response = mClient.newCall(url, false, key).execute();
+        try {
+            assertTrue(response.isSuccessful());
+            assertNull(response.header("Content-Encoding"));
+            return ForecastParser.parse(new Utf8SourceReader(response.body().source()));
+        } finally {
+            response.body().close();
+        }
+    }
+
+    private Forecast expected() throws IOException {
+        return ForecastParser.parse(new InputStreamReader(new ByteArrayInputStream(mPayload), "UTF-8"));
+    }
+
+    private static void delete(File file) {
+        File[] files = file.listFiles();
+        if (files != null) {
+            for (File child : files) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
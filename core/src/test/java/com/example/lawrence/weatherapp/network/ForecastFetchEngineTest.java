@@ -0,0 +1,549 @@
+package com.example.lawrence.weatherapp.network;
+
+import com.example.lawrence.weatherapp.data.ForecastStore;
+import com.example.lawrence.weatherapp.location.TrackedLocation;
+import com.example.lawrence.weatherapp.metrics.Metrics;
+import com.example.lawrence.weatherapp.standin.PayloadSource;
+import com.example.lawrence.weatherapp.standin.RecordedPayloads;
+import com.example.lawrence.weatherapp.standin.StandInDispatcher;
+import com.example.lawrence.weatherapp.standin.SyntheticPayloads;
+import com.example.lawrence.weatherapp.weather.Forecast;
+import com.example.lawrence.weatherapp.weather.ForecastDiff;
+import com.example.lawrence.weatherapp.weather.ForecastParser;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.junit.Assert.*;
+
+// End to end through the stand-in forecast server: nothing here needs the real service or a key.
+public class ForecastFetchEngineTest {
+
+    private static final long START = 1455523200;   // 2016-02-15 08:00 UTC.
+
+    private MockWebServer mServer;
+    private File mDirectory;
+    private ForecastStore mStore;
+    private ForecastFetchEngine mEngine;
+    private StandInDispatcher mDispatcher;
+    private Gate mGate;
+    private Metrics mMetrics;
+
+    private final Map<String, Forecast> mLoaded = new ConcurrentHashMap<>();
+    private final AtomicInteger mLoadedCount = new AtomicInteger();
+    private final Map<String, IOException> mFailed = new ConcurrentHashMap<>();
+    private CountDownLatch mDone;
+
+    @Before
+    public void setUp() throws IOException {
+        mServer = new MockWebServer();
+        mDirectory = File.createTempFile("engine", "");
+        mDirectory.delete();
+        mStore = new ForecastStore(mDirectory);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        if (mEngine != null) {
+            mEngine.shutdown();
+        }
+        if (mGate != null) {
+            mGate.open();   // or the server's threads wait forever.
+        }
+        mServer.shutdown();
+        delete(mDirectory);
+    }
+
+    @Test
+    public void refreshesEveryLocation() throws Exception {
+        start(new StandInDispatcher.Builder(new SyntheticPayloads(START)).latency(20).jitter(20).build());
+        List<TrackedLocation> locations = locations(20);
+
+        refreshAndWait(locations, ForecastQuery.DEFAULT);
+
+        assertEquals(20, mLoaded.size());
+        assertTrue(mFailed.isEmpty());
+        for (TrackedLocation location : locations) {
+            Forecast forecast = mLoaded.get(location.getKey());
+            assertEquals(49, forecast.getHourlyForecast().length);
+            assertEquals(START, forecast.getHourlyForecast()[0].getTime());
+            assertNotNull(mStore.load(location.getKey()));
+        }
+        assertEquals(20, mDispatcher.getRequestCount());
+    }
+
+    @Test
+    public void extendedQueryGetsAWeekOfHours() throws Exception {
+        start(new StandInDispatcher.Builder(new SyntheticPayloads(START)).build());
+
+        refreshAndWait(locations(1), ForecastQuery.EXTENDED_HOURLY);
+
+        assertEquals(169, mLoaded.values().iterator().next().getHourlyForecast().length);
+    }
+
+    @Test
+    public void replaysRecordedPayloadsExactly() throws Exception {
+        start(new StandInDispatcher.Builder(new RecordedPayloads(null)).build());
+
+        refreshAndWait(locations(3), ForecastQuery.DEFAULT);
+
+        Forecast recorded = parse("forecast_trimmed.json");
+        for (Forecast forecast : mLoaded.values()) {
+            assertTrue(ForecastDiff.between(recorded, forecast).isEmpty());
+        }
+    }
+
+    @Test
+    public void serverErrorsAreReportedAndNothingIsStored() throws Exception {
+        start(new StandInDispatcher.Builder(new SyntheticPayloads(START)).errorRate(1).errorCode(503).build());
+        List<TrackedLocation> locations = locations(5);
+
+        refreshAndWait(locations, ForecastQuery.DEFAULT);
+
+        assertTrue(mLoaded.isEmpty());
+        assertEquals(5, mFailed.size());
+        assertEquals(5, mDispatcher.getErrorCount());
+        assertNull(mStore.load(locations.get(0).getKey()));
+    }
+
+    @Test
+    public void sameSeedFailsTheSameRequests() throws Exception {
+        PayloadSource source = new SyntheticPayloads(START);
+        start(new StandInDispatcher.Builder(source).errorRate(0.5).seed(42).build());
+
+        refreshAndWait(locations(20), ForecastQuery.DEFAULT);
+
+        StandInDispatcher again = new StandInDispatcher.Builder(source).errorRate(0.5).seed(42).build();
+        MockWebServer server = new MockWebServer();
+        server.setDispatcher(again);
+        server.start();
+        try {
+            ForecastFetchEngine engine = new ForecastFetchEngine(new ForecastClient(new OkHttpClient()),
+                    new ForecastStore(new File(mDirectory, "again")), server.url("/forecast/"), "key");
+            final List<String> failedAgain = new ArrayList<>();
+            final CountDownLatch done = new CountDownLatch(20);
+            engine.addSubscriber(new ForecastFetchEngine.Subscriber() {
+                @Override
+                public void onForecastLoaded(TrackedLocation location, Forecast forecast) {
+                    done.countDown();
+                }
+
+                @Override
+                public void onForecastFailed(TrackedLocation location, IOException e) {
+                    synchronized (failedAgain) {
+                        failedAgain.add(location.getKey());
+                    }
+                    done.countDown();
+                }
+            });
+            engine.refresh(locations(20), false, ForecastQuery.DEFAULT);
+            assertTrue(done.await(30, TimeUnit.SECONDS));
+            engine.shutdown();
+
+            assertEquals(mFailed.keySet(), new HashSet<>(failedAgain));
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    @Test
+    public void capturesOneInEverySoManyPayloads() throws Exception {
+        start(new StandInDispatcher.Builder(new SyntheticPayloads(START)).build());
+        File directory = new File(mDirectory, "payloads");
+        PayloadCapture capture = new PayloadCapture(directory, 4, 1024 * 1024, 5);
+        mEngine.setPayloadCapture(capture);
+
+        refreshAndWait(locations(8), ForecastQuery.DEFAULT);
+
+        assertEquals(8, mLoaded.size());
+        assertEquals(2, capture.getSavedCount());
+        for (String name : directory.list()) {
+            assertTrue(name, name.matches("payload-[01]\\.json"));
+            try (Reader reader = new InputStreamReader(new FileInputStream(new File(directory, name)), "UTF-8")) {
+                assertEquals(49, ForecastParser.parse(reader).getHourlyForecast().length);
+            }
+        }
+    }
+
+    @Test
+    public void cutsCapturedPayloadsOff() throws Exception {
+        start(new StandInDispatcher.Builder(new SyntheticPayloads(START)).build());
+        File directory = new File(mDirectory, "payloads");
+        mEngine.setPayloadCapture(new PayloadCapture(directory, 1, 1024, 1));
+
+        refreshAndWait(locations(3), ForecastQuery.DEFAULT);
+
+        // the parser still saw the whole payload; the last capture overwrote the other two.
+        assertEquals(3, mLoaded.size());
+        File[] files = directory.listFiles();
+        assertEquals(1, files.length);
+        assertEquals("payload-0.json.partial", files[0].getName());
+        assertEquals(1024, files[0].length());
+    }
+
+    @Test
+    public void drainsQueuedRefreshesOncePerLocation() throws Exception {
+        start(new StandInDispatcher.Builder(new SyntheticPayloads(START)).build());
+        RefreshQueue queue = new RefreshQueue(new File(mDirectory, "queue.log"));
+        mEngine.addSubscriber(queue);
+        List<TrackedLocation> locations = locations(6);
+        // offline: the same locations asked for again and again.
+        for (int i = 0; i < 3; ++i) {
+            queue.addAll(locations, false, ForecastQuery.DEFAULT);
+        }
+        queue.add(locations.get(0), true, ForecastQuery.DEFAULT);
+        final CountDownLatch emptied = new CountDownLatch(1);
+        queue.setListener(new RefreshQueue.Listener() {
+            @Override
+            public void onPendingChanged(boolean pending) {
+                if (!pending) {
+                    emptied.countDown();
+                }
+            }
+        });
+
+        mDone = new CountDownLatch(6);
+        assertEquals(6, queue.drain(mEngine));
+        assertTrue("timed out", emptied.await(30, TimeUnit.SECONDS));
+
+        assertEquals(6, mDispatcher.getRequestCount());
+        assertEquals(6, mLoaded.size());
+    }
+
+    @Test
+    public void sitesInTheSameTileShareOneFetch() throws Exception {
+        start(new StandInDispatcher.Builder(new SyntheticPayloads(START)).latency(20).build());
+        TileCache tiles = new TileCache(5, 60 * 60 * 1000, 16);
+        mEngine.setTileCache(tiles);
+        // four sites around each of three cities, all a kilometre or so apart.
+        List<TrackedLocation> sites = new ArrayList<>();
+        for (String city : new String[]{"9q8yy", "dr5ru", "gcpvj"}) {
+            TrackedLocation center = TileCache.center(city, city);
+            double latitude = center.getLatitude();
+            double longitude = center.getLongitude();
+            sites.add(center);
+            sites.add(new TrackedLocation(city + " north", latitude + 0.01, longitude));
+            sites.add(new TrackedLocation(city + " south", latitude - 0.01, longitude));
+            sites.add(new TrackedLocation(city + " east", latitude, longitude + 0.01));
+        }
+
+        refreshAndWait(sites, ForecastQuery.DEFAULT);
+
+        assertEquals(12, mLoaded.size());
+        assertEquals(3, mDispatcher.getRequestCount());
+        for (TrackedLocation site : sites) {
+            assertNotNull(mStore.load(site.getKey()));
+        }
+        assertEquals(9, tiles.getShared());
+
+        // and again, straight from the tiles.
+        mLoaded.clear();
+        refreshAndWait(sites, ForecastQuery.DEFAULT);
+
+        assertEquals(12, mLoaded.size());
+        assertEquals(3, mDispatcher.getRequestCount());
+        assertEquals(12, tiles.getHits());
+        assertEquals(21.0 / 24, tiles.getHitRate(), 1e-9);
+    }
+
+    @Test
+    public void backgroundRefreshesStopNearTheQuota() throws Exception {
+        start(new StandInDispatcher.Builder(new SyntheticPayloads(START)).build());
+        RequestGovernor governor = new RequestGovernor(new File(mDirectory, "quota.txt"), 10, 100,
+                RequestGovernor.DEFAULT_REFILL_MILLIS, RefreshScheduler.SYSTEM_CLOCK, new Metrics());
+        mEngine.setRequestGovernor(governor);
+        List<TrackedLocation> locations = locations(12);
+
+        mDone = new CountDownLatch(12);
+        mEngine.refresh(locations, false, ForecastQuery.DEFAULT, ForecastFetchEngine.Lane.BACKGROUND);
+        assertTrue("timed out", mDone.await(30, TimeUnit.SECONDS));
+
+        // 90% of the quota, and not a call more.
+        assertEquals(9, mDispatcher.getRequestCount());
+        assertEquals(9, governor.getCallsToday("key"));
+        assertEquals(3, mFailed.size());
+        for (IOException e : mFailed.values()) {
+            assertTrue(e instanceof RequestGovernor.QuotaExceededException);
+        }
+    }
+
+    @Test
+    public void throttledBackgroundBatchesWaitInsteadOfFailing() throws Exception {
+        start(new StandInDispatcher.Builder(new SyntheticPayloads(START)).build());
+        Metrics metrics = new Metrics();
+        metrics.setEnabled(true);
+        // room for three at once, then one every 20 ms.
+        RequestGovernor governor = new RequestGovernor(new File(mDirectory, "quota.txt"), 1000, 4, 20,
+                RefreshScheduler.SYSTEM_CLOCK, metrics);
+        mEngine.setRequestGovernor(governor);
+        List<TrackedLocation> locations = locations(12);
+
+        mDone = new CountDownLatch(12);
+        mEngine.refresh(locations, false, ForecastQuery.DEFAULT, ForecastFetchEngine.Lane.BACKGROUND);
+        assertTrue("timed out", mDone.await(30, TimeUnit.SECONDS));
+
+        assertEquals(12, mLoaded.size());
+        assertTrue(mFailed.isEmpty());
+        assertEquals(12, mDispatcher.getRequestCount());
+        assertTrue(metrics.counter(Metrics.QUOTA_THROTTLED).get() > 0);
+        assertEquals(0, metrics.counter(Metrics.QUOTA_REFUSED).get());
+    }
+
+    @Test
+    public void aSecondTapJoinsTheFetchAlreadyRunning() throws Exception {
+        start(new StandInDispatcher.Builder(new SyntheticPayloads(START)).build());
+        mGate.close();
+        TrackedLocation location = locations(1).get(0);
+        RefreshCoordinator coordinator = new RefreshCoordinator(mEngine);
+        mDone = new CountDownLatch(1);
+
+        assertTrue(coordinator.refresh(location, false));
+        mGate.awaitArrivals(1);
+        assertTrue(mEngine.isInFlight(location.getKey()));
+        assertTrue(coordinator.isRefreshing(location));
+        assertFalse(coordinator.refresh(location, false));
+        // another screen asking for it too.
+        ForecastFetchEngine.FetchTicket other = mEngine.refresh(location, false);
+
+        mGate.open();
+        assertTrue("timed out", mDone.await(30, TimeUnit.SECONDS));
+
+        assertEquals(1, mDispatcher.getRequestCount());
+        assertEquals(1, mLoadedCount.get());
+        assertTrue(other.isDone());
+        assertFalse(mEngine.isInFlight(location.getKey()));
+    }
+
+    @Test
+    public void cancelsTheCallOnlyWhenNoTicketWantsIt() throws Exception {
+        start(new StandInDispatcher.Builder(new SyntheticPayloads(START)).build());
+        mGate.close();
+        mEngine.setMaxParallel(1);
+        List<TrackedLocation> locations = locations(2);
+        TrackedLocation first = locations.get(0);
+        ForecastFetchEngine.FetchTicket a = mEngine.refresh(first, false);
+        ForecastFetchEngine.FetchTicket b = mEngine.refresh(first, false);
+        mEngine.refresh(locations.get(1), false);     // waits for the only slot.
+        mGate.awaitArrivals(1);
+
+        a.cancel();
+        assertTrue(mEngine.isInFlight(first.getKey()));     // b still wants it.
+        assertFalse(b.isDone());
+
+        b.cancel();
+        // the call was cancelled, which gave the slot to the next fetch.
+        mGate.awaitArrivals(2);
+        assertFalse(mEngine.isInFlight(first.getKey()));
+
+        mDone = new CountDownLatch(1);
+        mGate.open();
+        assertTrue("timed out", mDone.await(30, TimeUnit.SECONDS));
+
+        assertTrue(mLoaded.containsKey(locations.get(1).getKey()));
+        assertFalse(mLoaded.containsKey(first.getKey()));
+        assertFalse(mFailed.containsKey(first.getKey()));
+        assertNull(mStore.load(first.getKey()));
+    }
+
+    @Test
+    public void anOvertakenFetchIsNeverPublished() throws Exception {
+        start(new StandInDispatcher.Builder(new SyntheticPayloads(START)).build());
+        mGate.close();
+        TrackedLocation location = locations(1).get(0);
+        ForecastQuery metric = ForecastQuery.DEFAULT.newBuilder().units(ForecastQuery.UNITS_SI).build();
+        mEngine.refresh(location, false, ForecastQuery.DEFAULT);
+        mGate.awaitArrivals(1);
+        // other units can't join it: a second fetch, which takes over.
+        mEngine.refresh(location, false, metric);
+        mGate.awaitArrivals(2);
+
+        // the newer one answers first; the older one, arriving after it, is thrown away.
+        mDone = new CountDownLatch(1);
+        mGate.open("units=si");
+        assertTrue("timed out", mDone.await(30, TimeUnit.SECONDS));
+        mGate.open();
+        long deadline = System.currentTimeMillis() + 30 * 1000;
+        while (mMetrics.histogram(Metrics.FETCH_TOTAL).getCount() < 2) {
+            assertTrue("timed out", System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+
+        assertEquals(2, mDispatcher.getRequestCount());
+        assertEquals(1, mLoadedCount.get());
+        assertTrue(mFailed.isEmpty());
+    }
+
+    @Test
+    public void foregroundFetchesJumpAheadOfBackgroundOnes() throws Exception {
+        start(new StandInDispatcher.Builder(new SyntheticPayloads(START)).build());
+        mGate.close();
+        mEngine.setMaxParallel(1);
+        List<TrackedLocation> background = locations(3);
+        TrackedLocation onScreen = new TrackedLocation("On screen", 45.5, 7.5);
+        mDone = new CountDownLatch(4);
+
+        mEngine.refresh(background, false, ForecastQuery.DEFAULT, ForecastFetchEngine.Lane.BACKGROUND);
+        mGate.awaitArrivals(1);
+        mEngine.refresh(onScreen, false);
+        mGate.open();
+        assertTrue("timed out", mDone.await(30, TimeUnit.SECONDS));
+
+        List<String> arrived = mGate.getArrived();
+        assertEquals(4, arrived.size());
+        assertTrue(arrived.get(0), arrived.get(0).contains(coordinates(background.get(0))));
+        assertTrue(arrived.get(1), arrived.get(1).contains(coordinates(onScreen)));
+        assertTrue(arrived.get(2), arrived.get(2).contains(coordinates(background.get(1))));
+        assertTrue(arrived.get(3), arrived.get(3).contains(coordinates(background.get(2))));
+    }
+
+    private void start(StandInDispatcher dispatcher) throws IOException {
+        mDispatcher = dispatcher;
+        mGate = new Gate(dispatcher);
+        mServer.setDispatcher(mGate);
+        mServer.start();
+        mMetrics = new Metrics();
+        mMetrics.setEnabled(true);
+        mEngine = new ForecastFetchEngine(new ForecastClient(new OkHttpClient()), mStore,
+                mServer.url("/forecast/"), "key", mMetrics);
+        mEngine.addSubscriber(new ForecastFetchEngine.Subscriber() {
+            @Override
+            public void onForecastLoaded(TrackedLocation location, Forecast forecast) {
+                mLoaded.put(location.getKey(), forecast);
+                mLoadedCount.incrementAndGet();
+                mDone.countDown();
+            }
+
+            @Override
+            public void onForecastFailed(TrackedLocation location, IOException e) {
+                mFailed.put(location.getKey(), e);
+                mDone.countDown();
+            }
+        });
+    }
+
+    private void refreshAndWait(List<TrackedLocation> locations, ForecastQuery query) throws InterruptedException {
+        mDone = new CountDownLatch(locations.size());
+        mEngine.refresh(locations, false, query);
+        assertTrue("timed out", mDone.await(30, TimeUnit.SECONDS));
+    }
+
+    private static List<TrackedLocation> locations(int count) {
+        List<TrackedLocation> locations = new ArrayList<>();
+        for (int i = 0; i < count; ++i) {
+            locations.add(new TrackedLocation("Location " + i, 10 + i * 0.5, -120 + i * 0.5));
+        }
+        return locations;
+    }
+
+    // how the location appears in the request's path.
+    private static String coordinates(TrackedLocation location) {
+        return location.getLatitude() + "," + location.getLongitude();
+    }
+
+    private static void delete(File file) {
+        File[] files = file.listFiles();
+        if (files != null) {
+            for (File child : files) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+    private Forecast parse(String name) throws IOException {
+        try (Reader reader = new InputStreamReader(getClass().getClassLoader()
+                .getResourceAsStream("forecast/" + name), "UTF-8")) {
+            return ForecastParser.parse(reader);
+        }
+    }
+
+    // holds requests back until a test lets them through, so fetches overlap for as long as it
+    // needs. open until close() is called.
+    private static class Gate extends Dispatcher {
+        private final Dispatcher mDispatcher;
+        // all guarded by "this".
+        private final List<String> mArrived = new ArrayList<>();     // paths, in order.
+        private final List<String> mOpenFor = new ArrayList<>();     // parts of paths let through.
+        private boolean mOpen = true;
+
+        Gate(Dispatcher dispatcher) {
+            mDispatcher = dispatcher;
+        }
+
+        synchronized void close() {
+            mOpen = false;
+        }
+
+        // lets every request through, waiting or still to come.
+        synchronized void open() {
+            mOpen = true;
+            notifyAll();
+        }
+
+        // lets the requests with part in their path through.
+        synchronized void open(String part) {
+            mOpenFor.add(part);
+            notifyAll();
+        }
+
+        // waits until count requests have arrived, let through or not.
+        synchronized void awaitArrivals(int count) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + 30 * 1000;
+            while (mArrived.size() < count) {
+                long left = deadline - System.currentTimeMillis();
+                assertTrue("timed out", left > 0);
+                wait(left);
+            }
+        }
+
+        synchronized List<String> getArrived() {
+            return new ArrayList<>(mArrived);
+        }
+
+        @Override
+        public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+            String path = request.getPath();
+            synchronized (this) {
+                mArrived.add(path);
+                notifyAll();
+                while (!isOpenFor(path)) {
+                    wait();
+                }
+            }
+            return mDispatcher.dispatch(request);
+        }
+
+        private boolean isOpenFor(String path) {
+            if (mOpen) {
+                return true;
+            }
+            for (String part : mOpenFor) {
+                if (path.contains(part)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
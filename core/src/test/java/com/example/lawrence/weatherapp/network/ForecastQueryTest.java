@@ -0,0 +1,84 @@
+package com.example.lawrence.weatherapp.network;
+
+import com.example.lawrence.weatherapp.location.TrackedLocation;
+
+import org.junit.Test;
+
+import okhttp3.HttpUrl;
+
+import static org.junit.Assert.*;
+
+public class ForecastQueryTest {
+
+    private static final HttpUrl BASE_URL = HttpUrl.parse("https://api.forecast.io/forecast/");
+    private static final TrackedLocation ALCATRAZ = new TrackedLocation("Alcatraz Island", 37.8267, -122.423);
+
+    @Test
+    public void defaultQueryLeavesOutUnusedBlocks() {
+        HttpUrl url = ForecastQuery.DEFAULT.toUrl(BASE_URL, "key", ALCATRAZ);
+
+        assertEquals("https://api.forecast.io/forecast/key/37.8267,-122.423"
+                + "?exclude=minutely,alerts,flags&units=us", url.toString());
+    }
+
+    @Test
+    public void buildsExtendUnitsAndLanguage() {
+        ForecastQuery query = new ForecastQuery.Builder()
+                .extendHourly(true)
+                .units(ForecastQuery.UNITS_SI)
+                .language("de")
+                .build();
+
+        HttpUrl url = query.toUrl(BASE_URL, "key", ALCATRAZ);
+
+        assertNull(url.queryParameter("exclude"));
+        assertEquals("hourly", url.queryParameter("extend"));
+        assertEquals("si", url.queryParameter("units"));
+        assertEquals("de", url.queryParameter("lang"));
+    }
+
+    @Test
+    public void unionAsksForEverythingEitherQueryNeeds() {
+        ForecastQuery withAlerts = ForecastQuery.DEFAULT.newBuilder()
+                .include(ForecastQuery.Block.ALERTS)
+                .build();
+
+        ForecastQuery union = withAlerts.union(ForecastQuery.EXTENDED_HOURLY);
+
+        assertTrue(union.isHourlyExtended());
+        assertFalse(union.isExcluded(ForecastQuery.Block.ALERTS));
+        assertTrue(union.isExcluded(ForecastQuery.Block.MINUTELY));
+        assertTrue(union.covers(withAlerts));
+        assertTrue(union.covers(ForecastQuery.EXTENDED_HOURLY));
+        assertFalse(ForecastQuery.DEFAULT.covers(union));
+        assertEquals(ForecastQuery.EXTENDED_HOURLY, ForecastQuery.DEFAULT.union(ForecastQuery.EXTENDED_HOURLY));
+    }
+
+    @Test
+    public void unitsAndLanguageAreNeverMerged() {
+        ForecastQuery metric = ForecastQuery.DEFAULT.newBuilder().units(ForecastQuery.UNITS_SI).build();
+        ForecastQuery german = ForecastQuery.DEFAULT.newBuilder().language("de").build();
+
+        assertTrue(ForecastQuery.DEFAULT.isCompatible(ForecastQuery.EXTENDED_HOURLY));
+        assertFalse(ForecastQuery.DEFAULT.isCompatible(metric));
+        assertFalse(german.isCompatible(ForecastQuery.EXTENDED_HOURLY));
+        try {
+            ForecastQuery.EXTENDED_HOURLY.union(metric);
+            fail("merged us and si units");
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            german.union(ForecastQuery.DEFAULT);
+            fail("merged German and English");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void cannotExtendAnExcludedBlock() {
+        new ForecastQuery.Builder()
+                .exclude(ForecastQuery.Block.HOURLY)
+                .extendHourly(true)
+                .build();
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.lawrence.weatherapp.network;
+
+import com.example.lawrence.weatherapp.location.TrackedLocation;
+import com.example.lawrence.weatherapp.weather.Forecast;
+import com.example.lawrence.weatherapp.weather.ForecastParser;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class RefreshQueueTest {
+
+    private static final TrackedLocation ALCATRAZ = new TrackedLocation("Alcatraz Island, CA", 37.8268, -122.422);
+    private static final TrackedLocation CENTRAL_PARK = new TrackedLocation("Central Park | NYC", 40.7791, -73.9635);
+
+    private File mFile;
+
+    @Before
+    public void setUp() throws IOException {
+        mFile = File.createTempFile("refresh-queue", ".log");
+    }
+
+    @After
+    public void tearDown() {
+        mFile.delete();
+    }
+
+    @Test
+    public void keepsOneEntryPerLocation() {
+        RefreshQueue queue = new RefreshQueue(mFile);
+
+        queue.add(ALCATRAZ, false, ForecastQuery.DEFAULT);
+        queue.add(ALCATRAZ, true, ForecastQuery.DEFAULT);
+        queue.addAll(Arrays.asList(ALCATRAZ, CENTRAL_PARK), false, ForecastQuery.DEFAULT);
+
+        assertEquals(2, queue.size());
+    }
+
+    @Test
+    public void survivesARestart() {
+        RefreshQueue queue = new RefreshQueue(mFile);
+        queue.addAll(Arrays.asList(ALCATRAZ, CENTRAL_PARK), false, ForecastQuery.DEFAULT);
+        queue.onForecastLoaded(ALCATRAZ, load("forecast_trimmed.json"));
+        queue.flush();
+
+        RefreshQueue again = new RefreshQueue(mFile);
+
+        assertEquals(1, again.size());
+        assertTrue(again.contains(CENTRAL_PARK.getKey()));
+    }
+
+    @Test
+    public void failedFetchesStayQueued() {
+        RefreshQueue queue = new RefreshQueue(mFile);
+        queue.add(ALCATRAZ, false, ForecastQuery.DEFAULT);
+
+        queue.onForecastFailed(ALCATRAZ, new IOException("offline again"));
+
+        assertTrue(queue.contains(ALCATRAZ.getKey()));
+    }
+
+    @Test
+    public void aWeekOfHoursIsOnlyDoneByAForecastWithThem() {
+        RefreshQueue queue = new RefreshQueue(mFile);
+        queue.add(ALCATRAZ, false, ForecastQuery.DEFAULT);
+        queue.add(ALCATRAZ, false, ForecastQuery.EXTENDED_HOURLY);     // widens the entry.
+
+        queue.onForecastLoaded(ALCATRAZ, load("forecast_trimmed.json"));
+        assertTrue(queue.contains(ALCATRAZ.getKey()));
+
+        queue.onForecastLoaded(ALCATRAZ, load("forecast_extended_trimmed.json"));
+        assertFalse(queue.contains(ALCATRAZ.getKey()));
+        queue.flush();
+        assertTrue(new RefreshQueue(mFile).isEmpty());
+    }
+
+    @Test
+    public void tellsTheListenerWhenThereIsSomethingToDo() {
+        final List<Boolean> changes = new ArrayList<>();
+        RefreshQueue queue = new RefreshQueue(mFile);
+        queue.setListener(new RefreshQueue.Listener() {
+            @Override
+            public void onPendingChanged(boolean pending) {
+                changes.add(pending);
+            }
+        });
+
+        queue.add(ALCATRAZ, false, ForecastQuery.DEFAULT);
+        queue.add(CENTRAL_PARK, false, ForecastQuery.DEFAULT);
+        queue.onForecastLoaded(ALCATRAZ, load("forecast_trimmed.json"));
+        queue.onForecastLoaded(CENTRAL_PARK, load("forecast_trimmed.json"));
+
+        assertEquals(Arrays.asList(true, false), changes);
+    }
+
+    @Test
+    public void ignoresAHalfWrittenLastLine() throws IOException {
+        RefreshQueue queue = new RefreshQueue(mFile);
+        queue.add(ALCATRAZ, false, ForecastQuery.DEFAULT);
+        queue.flush();
+        // what a crash in the middle of an append leaves behind.
+        try (FileOutputStream out = new FileOutputStream(mFile, true)) {
+            out.write("+|true|fal".getBytes("UTF-8"));
+        }
+
+        RefreshQueue again = new RefreshQueue(mFile);
+        again.add(CENTRAL_PARK, false, ForecastQuery.DEFAULT);
+        again.flush();
+
+        RefreshQueue third = new RefreshQueue(mFile);
+        assertEquals(2, third.size());
+        assertTrue(third.contains(ALCATRAZ.getKey()));
+        assertTrue(third.contains(CENTRAL_PARK.getKey()));
+    }
+
+    @Test
+    public void compactsTheLog() {
+        RefreshQueue queue = new RefreshQueue(mFile);
+        Forecast forecast = load("forecast_trimmed.json");
+        for (int i = 0; i < 100; ++i) {
+            queue.add(ALCATRAZ, false, ForecastQuery.DEFAULT);
+            queue.onForecastLoaded(ALCATRAZ, forecast);
+        }
+        queue.add(CENTRAL_PARK, false, ForecastQuery.DEFAULT);
+        queue.flush();
+
+        // 201 appends, but only the live entry and what came after the last rewrite are left.
+        assertTrue(mFile.length() < 32 * 100);
+        assertEquals(1, new RefreshQueue(mFile).size());
+    }
+
+    private Forecast load(String name) {
+        try (Reader reader = new InputStreamReader(getClass().getClassLoader()
+                .getResourceAsStream("forecast/" + name), "UTF-8")) {
+            return ForecastParser.parse(reader);
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+}
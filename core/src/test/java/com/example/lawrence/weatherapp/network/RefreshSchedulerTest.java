@@ -0,0 +1,255 @@
+package com.example.lawrence.weatherapp.network;
+
+import com.example.lawrence.weatherapp.data.ForecastStore;
+import com.example.lawrence.weatherapp.location.TrackedLocation;
+import com.example.lawrence.weatherapp.weather.Current;
+import com.example.lawrence.weatherapp.weather.Forecast;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+
+import static com.example.lawrence.weatherapp.network.RefreshScheduler.MINUTE;
+import static org.junit.Assert.*;
+
+public class RefreshSchedulerTest {
+
+    private static final TrackedLocation ALCATRAZ = new TrackedLocation("Alcatraz Island", 37.8268, -122.422);
+    private static final TrackedLocation CENTRAL_PARK = new TrackedLocation("Central Park", 40.7791, -73.9635);
+
+    private final FakeClock mClock = new FakeClock();
+    private final FakeTimer mTimer = new FakeTimer();
+    private MockWebServer mServer;
+    private File mDirectory;
+    private ForecastFetchEngine mEngine;
+    private RefreshScheduler mScheduler;
+
+    @Before
+    public void setUp() throws IOException {
+        mServer = new MockWebServer();
+        mServer.start();
+        mDirectory = File.createTempFile("forecasts", "");
+        mDirectory.delete();
+
+        mEngine = new ForecastFetchEngine(new ForecastClient(new OkHttpClient()),
+                new ForecastStore(mDirectory), mServer.url("/forecast/"), "key");
+        mScheduler = new RefreshScheduler(mEngine, mClock, mTimer);
+        mEngine.addSubscriber(mScheduler);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        mServer.shutdown();
+        File[] files = mDirectory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        mDirectory.delete();
+    }
+
+    @Test
+    public void adaptsIntervalToHowFastTheWeatherChanges() {
+        mScheduler.onForecastLoaded(ALCATRAZ, forecast(50, 10, "Clear"));
+        assertEquals(RefreshScheduler.INITIAL_INTERVAL, mScheduler.getInterval(ALCATRAZ.getKey()));
+
+        // steady: twice as long.
+        mClock.advance(RefreshScheduler.INITIAL_INTERVAL);
+        mScheduler.onForecastLoaded(ALCATRAZ, forecast(50, 10, "Clear"));
+        assertEquals(2 * RefreshScheduler.INITIAL_INTERVAL, mScheduler.getInterval(ALCATRAZ.getKey()));
+        assertEquals(mClock.now() + 2 * RefreshScheduler.INITIAL_INTERVAL, mTimer.mScheduledAt);
+
+        // changing: half as long, down to the minimum.
+        mClock.advance(2 * RefreshScheduler.INITIAL_INTERVAL);
+        mScheduler.onForecastLoaded(ALCATRAZ, forecast(50, 60, "Rain"));
+        assertEquals(RefreshScheduler.INITIAL_INTERVAL, mScheduler.getInterval(ALCATRAZ.getKey()));
+        mScheduler.onForecastLoaded(ALCATRAZ, forecast(55, 60, "Rain"));
+        mScheduler.onForecastLoaded(ALCATRAZ, forecast(60, 60, "Rain"));
+        mScheduler.onForecastLoaded(ALCATRAZ, forecast(65, 60, "Rain"));
+        assertEquals(RefreshScheduler.MIN_INTERVAL, mScheduler.getInterval(ALCATRAZ.getKey()));
+    }
+
+    @Test
+    public void backsOffExponentiallyOnFailure() {
+        long start = mClock.now();
+        mScheduler.onForecastFailed(ALCATRAZ, new IOException());
+        assertEquals(start + 2 * MINUTE, mScheduler.getNextRefresh(ALCATRAZ.getKey()));
+        mScheduler.onForecastFailed(ALCATRAZ, new IOException());
+        assertEquals(start + 4 * MINUTE, mScheduler.getNextRefresh(ALCATRAZ.getKey()));
+        mScheduler.onForecastFailed(ALCATRAZ, new IOException());
+        assertEquals(start + 8 * MINUTE, mTimer.mScheduledAt);
+
+        assertEquals(RefreshScheduler.MAX_BACKOFF, RefreshScheduler.backoff(30));
+
+        // a success resets it.
+        mScheduler.onForecastLoaded(ALCATRAZ, forecast(50, 10, "Clear"));
+        assertEquals(start + RefreshScheduler.INITIAL_INTERVAL, mScheduler.getNextRefresh(ALCATRAZ.getKey()));
+    }
+
+    @Test
+    public void waitsUntilTheForecastExpires() {
+        Forecast forecast = forecast(50, 10, "Clear");
+        forecast.setExpiresAt(mClock.now() + 3 * 60 * MINUTE);
+
+        mScheduler.onForecastLoaded(ALCATRAZ, forecast);
+
+        assertEquals(mClock.now() + 3 * 60 * MINUTE, mScheduler.getNextRefresh(ALCATRAZ.getKey()));
+    }
+
+    @Test
+    public void batchesLocationsThatAreDueTogether() throws Exception {
+        mScheduler.onForecastLoaded(ALCATRAZ, forecast(50, 10, "Clear"));
+        mClock.advance(5 * MINUTE);
+        mScheduler.onForecastLoaded(CENTRAL_PARK, forecast(30, 10, "Clear"));
+
+        // one wake-up, for the location that is due first.
+        long alcatrazDue = mClock.now() - 5 * MINUTE + RefreshScheduler.INITIAL_INTERVAL;
+        assertEquals(alcatrazDue, mTimer.mScheduledAt);
+
+        // when it goes off, the other location (due 5 minutes later) comes along.
+        mServer.enqueue(forecastResponse().setHeader("Cache-Control", "max-age=60"));
+        mServer.enqueue(forecastResponse().setHeader("Cache-Control", "max-age=60"));
+        LatchSubscriber results = new LatchSubscriber(2);
+        mEngine.addSubscriber(results);
+
+        mClock.set(alcatrazDue);
+        List<TrackedLocation> refreshed = mScheduler.wakeUp(Arrays.asList(ALCATRAZ, CENTRAL_PARK));
+
+        assertEquals(Arrays.asList(ALCATRAZ, CENTRAL_PARK), refreshed);
+        assertTrue(results.await());
+        assertEquals(0, results.mFailures);
+        assertEquals(2, mServer.getRequestCount());
+        assertTrue(mTimer.mScheduledAt > alcatrazDue);
+    }
+
+    @Test
+    public void honoursServerCacheHeaders() throws Exception {
+        mServer.enqueue(forecastResponse().setHeader("Cache-Control", "max-age=10800"));
+        LatchSubscriber results = new LatchSubscriber(1);
+        mEngine.addSubscriber(results);
+
+        mScheduler.wakeUp(Arrays.asList(ALCATRAZ));
+        assertTrue(results.await());
+
+        // fresh for three hours, although the initial interval is one.
+        long expected = mClock.now() + 3 * 60 * MINUTE;
+        assertTrue(Math.abs(mScheduler.getNextRefresh(ALCATRAZ.getKey()) - expected) < MINUTE);
+    }
+
+    @Test
+    public void retriesFailedWakeUpWithBackoff() throws Exception {
+        mServer.enqueue(new MockResponse().setResponseCode(500));
+        LatchSubscriber results = new LatchSubscriber(1);
+        mEngine.addSubscriber(results);
+
+        mScheduler.wakeUp(Arrays.asList(ALCATRAZ));
+        assertTrue(results.await());
+
+        assertEquals(1, results.mFailures);
+        assertEquals(mClock.now() + RefreshScheduler.BACKOFF_BASE, mTimer.mScheduledAt);
+    }
+
+    @Test
+    public void forgetsLocationsThatAreNoLongerTracked() {
+        mScheduler.onForecastLoaded(ALCATRAZ, forecast(50, 10, "Clear"));
+        mScheduler.onForecastLoaded(CENTRAL_PARK, forecast(30, 10, "Clear"));
+
+        assertTrue(mScheduler.wakeUp(Arrays.asList(CENTRAL_PARK)).isEmpty());
+
+        assertEquals(-1, mScheduler.getInterval(ALCATRAZ.getKey()));
+        assertEquals(RefreshScheduler.INITIAL_INTERVAL, mScheduler.getInterval(CENTRAL_PARK.getKey()));
+    }
+
+    private static Forecast forecast(double temperature, int precipPercent, String summary) {
+        Current current = new Current();
+        current.setTemperature(temperature);
+        current.setPrecipChance(precipPercent / 100.0);
+        current.setSummary(summary);
+        Forecast forecast = new Forecast();
+        forecast.setCurrent(current);
+        return forecast;
+    }
+
+    private static MockResponse forecastResponse() throws IOException {
+        InputStream in = RefreshSchedulerTest.class.getClassLoader()
+                .getResourceAsStream("forecast/forecast_standard.json");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        for (int n; (n = in.read(buffer)) != -1; ) {
+            out.write(buffer, 0, n);
+        }
+        in.close();
+        return new MockResponse().setBody(out.toString("UTF-8"));
+    }
+
+    private static class FakeClock implements RefreshScheduler.Clock {
+        // starts at the real time, because the engine stamps forecasts with it.
+        private long mNow = System.currentTimeMillis();
+
+        @Override
+        public synchronized long now() {
+            return mNow;
+        }
+
+        synchronized void set(long now) {
+            mNow = now;
+        }
+
+        synchronized void advance(long millis) {
+            mNow += millis;
+        }
+    }
+
+    private static class FakeTimer implements RefreshScheduler.Timer {
+        volatile long mScheduledAt = -1;
+
+        @Override
+        public void schedule(long at) {
+            mScheduledAt = at;
+        }
+
+        @Override
+        public void cancel() {
+            mScheduledAt = -1;
+        }
+    }
+
+    // added after the scheduler, so by the time it counts down the scheduler has seen the result.
+    private static class LatchSubscriber implements ForecastFetchEngine.Subscriber {
+        private final CountDownLatch mLatch;
+        volatile int mFailures;
+
+        LatchSubscriber(int count) {
+            mLatch = new CountDownLatch(count);
+        }
+
+        boolean await() throws InterruptedException {
+            return mLatch.await(10, TimeUnit.SECONDS);
+        }
+
+        @Override
+        public void onForecastLoaded(TrackedLocation location, Forecast forecast) {
+            mLatch.countDown();
+        }
+
+        @Override
+        public void onForecastFailed(TrackedLocation location, IOException e) {
+            ++mFailures;
+            mLatch.countDown();
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.example.lawrence.weatherapp.network;
+
+import com.example.lawrence.weatherapp.metrics.Metrics;
+import com.example.lawrence.weatherapp.network.ForecastFetchEngine.Lane;
+import com.example.lawrence.weatherapp.network.RequestGovernor.Decision;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class RequestGovernorTest {
+
+    private static final String KEY = "0123456789abcdef";
+    private static final long SECOND = 1000;
+
+    private final FakeClock mClock = new FakeClock();
+    private File mFile;
+    private Metrics mMetrics;
+
+    @Before
+    public void setUp() throws IOException {
+        mFile = File.createTempFile("request-quota", ".txt");
+        mFile.delete();
+        mMetrics = new Metrics();
+        mMetrics.setEnabled(true);
+    }
+
+    @After
+    public void tearDown() {
+        mFile.delete();
+    }
+
+    @Test
+    public void screensGetTheLastOfTheBucket() {
+        RequestGovernor governor = governor(1000, 10);
+
+        // the background leaves a quarter of the bucket (and then some) alone, and waits.
+        for (int i = 0; i < 7; ++i) {
+            assertEquals(Decision.NETWORK, governor.acquire(KEY, Lane.BACKGROUND));
+        }
+        assertEquals(Decision.THROTTLED, governor.acquire(KEY, Lane.BACKGROUND));
+        assertEquals((long) (0.5 * RequestGovernor.DEFAULT_REFILL_MILLIS), governor.getWaitMillis(KEY));
+        for (int i = 0; i < 3; ++i) {
+            assertEquals(Decision.NETWORK, governor.acquire(KEY, Lane.FOREGROUND));
+        }
+        // tapping refresh over and over: the cache answers first.
+        assertEquals(Decision.CACHE_FIRST, governor.acquire(KEY, Lane.FOREGROUND));
+        assertEquals(11, governor.getCallsToday(KEY));
+    }
+
+    @Test
+    public void theBucketFillsUpAgain() {
+        RequestGovernor governor = governor(1000, 4);
+        for (int i = 0; i < 3; ++i) {
+            assertEquals(Decision.NETWORK, governor.acquire(KEY, Lane.BACKGROUND));
+        }
+        assertEquals(Decision.THROTTLED, governor.acquire(KEY, Lane.BACKGROUND));
+
+        mClock.advance(governor.getWaitMillis(KEY));
+
+        assertEquals(0, governor.getWaitMillis(KEY));
+        assertEquals(Decision.NETWORK, governor.acquire(KEY, Lane.BACKGROUND));
+        assertEquals(Decision.THROTTLED, governor.acquire(KEY, Lane.BACKGROUND));
+    }
+
+    @Test
+    public void aBucketOfOneStillLetsTheBackgroundThrough() {
+        RequestGovernor governor = governor(1000, 1);
+        assertEquals(Decision.NETWORK, governor.acquire(KEY, Lane.BACKGROUND));
+        assertEquals(Decision.THROTTLED, governor.acquire(KEY, Lane.BACKGROUND));
+        assertEquals(RequestGovernor.DEFAULT_REFILL_MILLIS, governor.getWaitMillis(KEY));
+
+        mClock.advance(RequestGovernor.DEFAULT_REFILL_MILLIS);
+
+        assertEquals(Decision.NETWORK, governor.acquire(KEY, Lane.BACKGROUND));
+    }
+
+    @Test
+    public void fallsBackToTheCacheNearTheQuota() {
+        RequestGovernor governor = governor(20, 100);
+        for (int i = 0; i < 18; ++i) {
+            assertEquals(Decision.NETWORK, governor.acquire(KEY, Lane.FOREGROUND));
+        }
+
+        assertEquals(Decision.REFUSED, governor.acquire(KEY, Lane.BACKGROUND));
+        assertEquals(Decision.CACHE_FIRST, governor.acquire(KEY, Lane.FOREGROUND));
+        assertEquals(Decision.CACHE_FIRST, governor.acquire(KEY, Lane.FOREGROUND));
+        assertEquals(Decision.CACHE_ONLY, governor.acquire(KEY, Lane.FOREGROUND));
+        assertEquals(20, governor.getCallsToday(KEY));
+    }
+
+    @Test
+    public void callsTheCacheAnsweredAreGivenBack() {
+        RequestGovernor governor = governor(1000, 10);
+        governor.acquire(KEY, Lane.FOREGROUND);
+        governor.acquire(KEY, Lane.FOREGROUND);
+
+        governor.refund(KEY);
+
+        assertEquals(1, governor.getCallsToday(KEY));
+        assertEquals(1, mMetrics.counter(Metrics.QUOTA_CALLS).get());
+    }
+
+    @Test
+    public void countsSurviveARestartUntilMidnightUtc() {
+        mClock.mNow = 10 * RequestGovernor.DAY + 23 * 60 * 60 * SECOND;     // 23:00 UTC.
+        RequestGovernor governor = governor(1000, 10);
+        governor.acquire(KEY, Lane.FOREGROUND);
+        governor.acquire(KEY, Lane.FOREGROUND);
+        governor.acquire("another key", Lane.FOREGROUND);
+        governor.flush();
+
+        RequestGovernor again = governor(1000, 10);
+        assertEquals(2, again.getCallsToday(KEY));
+        assertEquals(1, again.getCallsToday("another key"));
+
+        mClock.advance(60 * 60 * SECOND);
+        assertEquals(0, again.getCallsToday(KEY));
+        assertEquals(0, governor(1000, 10).getCallsToday(KEY));
+    }
+
+    @Test
+    public void savesInTheBackgroundAfterAChange() throws InterruptedException {
+        RequestGovernor governor = governor(1000, 10);
+        governor.acquire(KEY, Lane.FOREGROUND);
+        assertFalse(mFile.exists());
+
+        long deadline = System.currentTimeMillis() + 10 * RequestGovernor.SAVE_DELAY_MILLIS;
+        while (!mFile.exists() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertEquals(1, governor(1000, 10).getCallsToday(KEY));
+    }
+
+    @Test
+    public void reportsWhatWasDegradedOrRefused() {
+        RequestGovernor governor = governor(10, 1);
+        governor.acquire(KEY, Lane.FOREGROUND);
+        governor.acquire(KEY, Lane.FOREGROUND);
+        governor.acquire(KEY, Lane.BACKGROUND);
+        for (int i = 0; i < 7; ++i) {
+            governor.acquire(KEY, Lane.FOREGROUND);
+        }
+        governor.acquire(KEY, Lane.BACKGROUND);
+
+        assertEquals(9, mMetrics.counter(Metrics.QUOTA_CALLS).get());
+        assertEquals(8, mMetrics.counter(Metrics.QUOTA_CACHE_ONLY).get());
+        assertEquals(1, mMetrics.counter(Metrics.QUOTA_THROTTLED).get());
+        assertEquals(1, mMetrics.counter(Metrics.QUOTA_REFUSED).get());
+        assertTrue(governor.toString(), governor.toString().contains("9 of 10 calls today"));
+        assertFalse(governor.toString().contains(KEY));
+    }
+
+    private RequestGovernor governor(int quota, int burst) {
+        return new RequestGovernor(mFile, quota, burst, RequestGovernor.DEFAULT_REFILL_MILLIS, mClock, mMetrics);
+    }
+
+    private static class FakeClock implements RefreshScheduler.Clock {
+        long mNow = 1455523200000L;
+
+        @Override
+        public long now() {
+            return mNow;
+        }
+
+        void advance(long millis) {
+            mNow += millis;
+        }
+    }
+}
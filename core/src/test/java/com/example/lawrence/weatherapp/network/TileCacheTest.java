@@ -0,0 +1,116 @@
+package com.example.lawrence.weatherapp.network;
+
+import com.example.lawrence.weatherapp.location.Geohash;
+import com.example.lawrence.weatherapp.location.TrackedLocation;
+import com.example.lawrence.weatherapp.metrics.Metrics;
+import com.example.lawrence.weatherapp.weather.Forecast;
+import com.example.lawrence.weatherapp.weather.ForecastParser;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+
+import static org.junit.Assert.*;
+
+public class TileCacheTest {
+
+    private static final long NOW = 1455523200000L;
+    private static final long HOUR = 60 * 60 * 1000;
+
+    @Test
+    public void geohashesMatchTheReferenceImplementation() {
+        // the example from the geohash.org announcement.
+        assertEquals("ezs42", Geohash.encode(42.6, -5.6, 5));
+        assertEquals("u4pruydqqvj", Geohash.encode(57.64911, 10.40744, 11));
+
+        double[] center = Geohash.center("ezs42");
+        assertEquals(42.605, center[0], 0.001);
+        assertEquals(-5.603, center[1], 0.001);
+        assertEquals("ezs42", Geohash.encode(center[0], center[1], 5));
+    }
+
+    @Test
+    public void nearbyLocationsShareATile() {
+        TileCache cache = new TileCache(5, HOUR, 16);
+        TrackedLocation alcatraz = new TrackedLocation("Alcatraz Island, CA", 37.8268, -122.422);
+        TrackedLocation pier39 = new TrackedLocation("Pier 39, CA", 37.8087, -122.4098);
+        TrackedLocation oakland = new TrackedLocation("Oakland, CA", 37.8044, -122.2712);
+
+        assertEquals(cache.tileFor(alcatraz), cache.tileFor(pier39));
+        assertFalse(cache.tileFor(alcatraz).equals(cache.tileFor(oakland)));
+        // the middle of the tile is in the tile.
+        TrackedLocation center = TileCache.center(cache.tileFor(alcatraz), "middle");
+        assertEquals(cache.tileFor(alcatraz), cache.tileFor(center));
+    }
+
+    @Test
+    public void servesATileUntilTheTtlRunsOut() {
+        TileCache cache = new TileCache(5, HOUR, 16);
+        Forecast forecast = load();
+
+        assertNull(cache.get("9q8zn", ForecastQuery.DEFAULT, NOW));
+        cache.put("9q8zn", ForecastQuery.DEFAULT, forecast, NOW);
+
+        assertSame(forecast, cache.get("9q8zn", ForecastQuery.DEFAULT, NOW + HOUR - 1));
+        assertNull(cache.get("9q8zn", ForecastQuery.EXTENDED_HOURLY, NOW));
+        assertNull(cache.get("9q8zn", ForecastQuery.DEFAULT, NOW + HOUR));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void neverServesAForecastPastItsExpiry() {
+        TileCache cache = new TileCache(5, HOUR, 16);
+        Forecast forecast = load();
+        forecast.setExpiresAt(NOW + 10 * 60 * 1000);
+
+        cache.put("9q8zn", ForecastQuery.DEFAULT, forecast, NOW);
+
+        assertNull(cache.get("9q8zn", ForecastQuery.DEFAULT, NOW + 10 * 60 * 1000));
+    }
+
+    @Test
+    public void evictsTheLeastRecentlyUsedTile() {
+        TileCache cache = new TileCache(5, HOUR, 2);
+        Forecast forecast = load();
+        cache.put("9q8zn", ForecastQuery.DEFAULT, forecast, NOW);
+        cache.put("dr5ru", ForecastQuery.DEFAULT, forecast, NOW);
+        cache.get("9q8zn", ForecastQuery.DEFAULT, NOW);
+
+        cache.put("gcpvj", ForecastQuery.DEFAULT, forecast, NOW);
+
+        assertEquals(2, cache.size());
+        assertNotNull(cache.get("9q8zn", ForecastQuery.DEFAULT, NOW));
+        assertNull(cache.get("dr5ru", ForecastQuery.DEFAULT, NOW));
+    }
+
+    @Test
+    public void countsHitsAndMisses() {
+        Metrics metrics = new Metrics();
+        metrics.setEnabled(true);
+        TileCache cache = new TileCache(5, HOUR, 16, metrics);
+        cache.get("9q8zn", ForecastQuery.DEFAULT, NOW);
+        cache.shared();
+        cache.put("9q8zn", ForecastQuery.DEFAULT, load(), NOW);
+        cache.get("9q8zn", ForecastQuery.DEFAULT, NOW);
+        cache.get("9q8zn", ForecastQuery.DEFAULT, NOW);
+
+        assertEquals(2, cache.getHits());
+        assertEquals(1, cache.getShared());
+        assertEquals(1, cache.getMisses());
+        assertEquals(0.75, cache.getHitRate(), 1e-9);
+        assertEquals(2, metrics.counter(Metrics.TILE_HIT).get());
+        assertEquals(1, metrics.counter(Metrics.TILE_SHARED).get());
+        assertEquals(1, metrics.counter(Metrics.TILE_MISS).get());
+    }
+
+    private Forecast load() {
+        try (Reader reader = new InputStreamReader(getClass().getClassLoader()
+                .getResourceAsStream("forecast/forecast_trimmed.json"), "UTF-8")) {
+            return ForecastParser.parse(reader);
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+}
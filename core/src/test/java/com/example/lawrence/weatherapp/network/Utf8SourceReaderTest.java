@@ -0,0 +1,88 @@
+package com.example.lawrence.weatherapp.network;
+
+import com.example.lawrence.weatherapp.weather.Forecast;
+import com.example.lawrence.weatherapp.weather.ForecastDiff;
+import com.example.lawrence.weatherapp.weather.ForecastParser;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+
+import okio.Buffer;
+
+import static org.junit.Assert.*;
+
+public class Utf8SourceReaderTest {
+
+    // one, two, three and four bytes (the last one a surrogate pair in UTF-16).
+    private static final String MIXED = "Clear \u00e9t\u00e9, 5\u20ac, \ud83c\udf02 rain";
+
+    @Test
+    public void decodesWhatStringDoes() throws IOException {
+        assertEquals(MIXED, readAll(new Utf8SourceReader(source(MIXED)), 1024));
+    }
+
+    @Test
+    public void decodesOneCharAtATime() throws IOException {
+        // the surrogate pair has to come out over two reads.
+        assertEquals(MIXED, readAll(new Utf8SourceReader(source(MIXED)), 1));
+    }
+
+    @Test
+    public void decodesSequencesSplitAcrossReads() throws IOException {
+        // every read size puts the end of some read in the middle of a sequence.
+        for (int size = 1; size < 12; ++size) {
+            assertEquals(MIXED, readAll(new Utf8SourceReader(source(MIXED)), size));
+        }
+    }
+
+    @Test
+    public void replacesBadBytes() throws IOException {
+        Buffer buffer = new Buffer().writeUtf8("a").writeByte(0x80).writeUtf8("b")
+                .writeByte(0xe2).writeByte(0x82).writeUtf8("c")     // a 3-byte sequence cut short.
+                .writeByte(0xc3);                                   // and one at the very end.
+        assertEquals("a\ufffdb\ufffdc\ufffd", readAll(new Utf8SourceReader(buffer), 1024));
+    }
+
+    @Test
+    public void parsesTheSameForecastAsCharStream() throws IOException {
+        for (String name : new String[]{"forecast_standard.json", "forecast_extended.json"}) {
+            byte[] payload = load(name);
+            Forecast expected = ForecastParser.parse(new InputStreamReader(
+                    new Buffer().write(payload).inputStream(), "UTF-8"));
+            Forecast forecast = ForecastParser.parse(new Utf8SourceReader(new Buffer().write(payload)));
+            assertTrue(name, ForecastDiff.between(expected, forecast).isEmpty());
+            assertEquals(expected.getHourlyForecast().length, forecast.getHourlyForecast().length);
+        }
+    }
+
+    private static Buffer source(String text) {
+        return new Buffer().writeUtf8(text);
+    }
+
+    private static String readAll(Reader reader, int size) throws IOException {
+        StringBuilder text = new StringBuilder();
+        char[] chars = new char[size];
+        int count;
+        while ((count = reader.read(chars, 0, size)) != -1) {
+            text.append(chars, 0, count);
+        }
+        return text.toString();
+    }
+
+    private byte[] load(String name) throws IOException {
+        try (InputStream in = getClass().getClassLoader().getResourceAsStream("forecast/" + name)) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int count;
+            while ((count = in.read(buffer)) != -1) {
+                bytes.write(buffer, 0, count);
+            }
+            return bytes.toByteArray();
+        }
+    }
+}
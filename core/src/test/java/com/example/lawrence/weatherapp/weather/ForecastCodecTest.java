@@ -0,0 +1,109 @@
+package com.example.lawrence.weatherapp.weather;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+
+import static org.junit.Assert.*;
+
+public class ForecastCodecTest {
+
+    @Test
+    public void roundTripKeepsEverythingDisplayed() throws IOException {
+        Forecast forecast = parse("forecast_extended.json");
+        forecast.setFetchedAt(1455524500000L);
+        forecast.setExpiresAt(1455528100000L);
+
+        Forecast decoded = ForecastCodec.decode(ForecastCodec.encode(forecast));
+
+        assertEquals(1455524500000L, decoded.getFetchedAt());
+        assertEquals(1455528100000L, decoded.getExpiresAt());
+        // everything a screen shows, or ForecastDiff compares, is the same.
+        ForecastDiff diff = ForecastDiff.between(forecast, decoded);
+        assertTrue(diff.toString(), diff.isEmpty());
+        assertEquals(forecast.getCurrent().getHumidity(), decoded.getCurrent().getHumidity(), 0.005);
+        assertEquals(169, decoded.getHourlyForecast().length);
+        assertEquals(forecast.getHourlyForecast()[168].getTemperatureValue(),
+                decoded.getHourlyForecast()[168].getTemperatureValue(), 0.005);
+        assertEquals("America/Los_Angeles", decoded.getDailyForecast()[7].getTimezone());
+    }
+
+    @Test
+    public void isMuchSmallerThanTheJson() throws IOException {
+        ByteBuffer encoded = ForecastCodec.encode(parse("forecast_standard.json"));
+
+        assertTrue("" + encoded.remaining(), encoded.remaining() < 2 * 1024);
+    }
+
+    @Test
+    public void streamsThroughChannelsInSmallPieces() throws IOException {
+        Forecast forecast = parse("forecast_extended.json");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ForecastCodec.write(forecast, Channels.newChannel(bytes));
+
+        // a channel that hands out at most 7 bytes per read, so every value crosses refills.
+        final ReadableByteChannel source = Channels.newChannel(new ByteArrayInputStream(bytes.toByteArray()));
+        ReadableByteChannel trickle = new ReadableByteChannel() {
+            @Override
+            public int read(ByteBuffer buffer) throws IOException {
+                int limit = buffer.limit();
+                buffer.limit(Math.min(limit, buffer.position() + 7));
+                try {
+                    return source.read(buffer);
+                } finally {
+                    buffer.limit(limit);
+                }
+            }
+
+            @Override
+            public boolean isOpen() {
+                return true;
+            }
+
+            @Override
+            public void close() { }
+        };
+
+        Forecast decoded = ForecastCodec.read(trickle);
+        assertTrue(ForecastDiff.between(forecast, decoded).isEmpty());
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsTruncatedData() throws IOException {
+        ByteBuffer encoded = ForecastCodec.encode(parse("forecast_standard.json"));
+        encoded.limit(encoded.limit() / 2);
+
+        ForecastCodec.decode(encoded);
+    }
+
+    @Test
+    public void rejectsACorruptStringCount() throws IOException {
+        // header, fetchedAt 0, expiresAt 0, then a count of 2^31 - 1 strings.
+        byte[] corrupt = {'W', 'F', 'C', ForecastCodec.VERSION, 0, 0, -1, -1, -1, -1, 7, 1, 'a'};
+
+        try {
+            ForecastCodec.decode(ByteBuffer.wrap(corrupt));
+            fail("decoded a corrupt buffer");
+        } catch (IOException expected) {
+        }
+        try {
+            ForecastCodec.read(Channels.newChannel(new ByteArrayInputStream(corrupt)));
+            fail("read a corrupt stream");
+        } catch (IOException expected) {
+        }
+    }
+
+    private Forecast parse(String name) throws IOException {
+        try (Reader reader = new InputStreamReader(getClass().getClassLoader()
+                .getResourceAsStream("forecast/" + name), "UTF-8")) {
+            return ForecastParser.parse(reader);
+        }
+    }
+}
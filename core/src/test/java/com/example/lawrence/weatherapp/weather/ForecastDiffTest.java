@@ -0,0 +1,81 @@
+package com.example.lawrence.weatherapp.weather;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ForecastDiffTest {
+
+    private static final long HOUR = 3600;
+
+    @Test
+    public void linesUpHoursThatMovedAlong() {
+        // an hour later: the first hour is gone, one more at the end, and hour 3 got warmer.
+        ForecastSeries previous = hours(0, 50, 51, 52, 53, 54);
+        ForecastSeries series = hours(HOUR, 51, 52, 56, 54, 55);
+
+        ForecastDiff.SeriesDiff diff = ForecastDiff.SeriesDiff.between(previous, series);
+
+        assertFalse(diff.isFullChange());
+        assertEquals(1, diff.getRemovedFromStart());
+        assertEquals(0, diff.getRemovedFromEnd());
+        assertEquals(4, diff.getOverlap());
+        assertArrayEquals(new int[] { 2 }, diff.getChanged());
+        assertEquals(1, diff.getInsertedAtEnd());
+    }
+
+    @Test
+    public void ignoresChangesThatDontShow() {
+        ForecastSeries previous = hours(0, 50.2, 51);
+        ForecastSeries series = hours(0, 49.8, 51);
+
+        assertTrue(ForecastDiff.SeriesDiff.between(previous, series).isEmpty());
+    }
+
+    @Test
+    public void rebindsEverythingWhenHoursDontLineUp() {
+        assertTrue(ForecastDiff.SeriesDiff.between(hours(0, 50, 51), hours(10 * HOUR, 50, 51)).isFullChange());
+        assertTrue(ForecastDiff.SeriesDiff.between(hours(0, 50, 51), hours(HOUR / 2, 50, 51)).isFullChange());
+
+        ForecastSeries otherTimezone = new ForecastSeries.Builder()
+                .setTimezone("Europe/Paris").add(0, 50, "rain", "Rain").build();
+        assertTrue(ForecastDiff.SeriesDiff.between(hours(0, 50), otherTimezone).isFullChange());
+    }
+
+    @Test
+    public void flagsChangedCurrentFields() {
+        Forecast previous = forecast(50.4, 0.5, "Clear", "clear-day");
+        Forecast forecast = forecast(50.1, 0.5, "Rain", "rain");
+
+        ForecastDiff diff = ForecastDiff.between(previous, forecast);
+
+        assertFalse(diff.hasCurrentChanged(ForecastDiff.TEMPERATURE | ForecastDiff.HUMIDITY));
+        assertTrue(diff.hasCurrentChanged(ForecastDiff.SUMMARY));
+        assertTrue(diff.hasCurrentChanged(ForecastDiff.ICON));
+        assertFalse(diff.isEmpty());
+
+        assertTrue(ForecastDiff.between(null, forecast).hasCurrentChanged(ForecastDiff.ALL));
+        assertTrue(ForecastDiff.between(forecast, forecast).isEmpty());
+    }
+
+    private static ForecastSeries hours(long start, double... temperatures) {
+        ForecastSeries.Builder builder = new ForecastSeries.Builder().setTimezone("America/Los_Angeles");
+        for (int i = 0; i < temperatures.length; ++i) {
+            builder.add(start + i * HOUR, temperatures[i], "rain", "Rain");
+        }
+        return builder.build();
+    }
+
+    private static Forecast forecast(double temperature, double humidity, String summary, String icon) {
+        Current current = new Current();
+        current.setTemperature(temperature);
+        current.setHumidity(humidity);
+        current.setSummary(summary);
+        current.setIcon(icon);
+        Forecast forecast = new Forecast();
+        forecast.setCurrent(current);
+        forecast.setHourlyForecast(new Hour[0]);
+        forecast.setDailyForecast(new Day[0]);
+        return forecast;
+    }
+}
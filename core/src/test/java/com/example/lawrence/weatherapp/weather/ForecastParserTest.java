@@ -0,0 +1,92 @@
+package com.example.lawrence.weatherapp.weather;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+
+import static org.junit.Assert.*;
+
+public class ForecastParserTest {
+
+    private static Forecast parseFixture(String name) throws IOException {
+        InputStream in = ForecastParserTest.class.getClassLoader()
+                .getResourceAsStream("forecast/" + name);
+        try (Reader reader = new InputStreamReader(in, "UTF-8")) {
+            return ForecastParser.parse(reader);
+        }
+    }
+
+    @Test
+    public void parsesCurrentHourlyAndDailyInOnePass() throws Exception {
+        Forecast forecast = parseFixture("forecast_standard.json");
+
+        Current current = forecast.getCurrent();
+        assertEquals(1455524434L, current.getTime());
+        assertEquals("Clear", current.getSummary());
+        assertEquals("clear-night", current.getIcon());
+        assertEquals(IconCode.CLEAR_NIGHT, current.getIconCode());
+        assertEquals(51, current.getTemperature());
+        assertEquals(0.84, current.getHumidity(), 0.0001);
+        assertEquals(17, current.getPrecipChance());
+        assertEquals("America/Los_Angeles", current.getTimeZone());
+
+        Hour[] hours = forecast.getHourlyForecast();
+        assertEquals(49, hours.length);
+        assertEquals(1455523200L, hours[0].getTime());
+        assertEquals(47, hours[0].getTemperature());
+        assertEquals("rain", hours[0].getIcon());
+        assertEquals(IconCode.RAIN, hours[0].getIconCode());
+        assertEquals(1455696000L, hours[48].getTime());
+        assertEquals("America/Los_Angeles", hours[48].getTimezone());
+
+        Day[] days = forecast.getDailyForecast();
+        assertEquals(8, days.length);
+        assertEquals(1455494400L, days[0].getTime());
+        assertEquals(65, days[0].getTemperatureMax());
+        assertEquals("Clear throughout the day.", days[0].getSummary());
+        assertEquals("America/Los_Angeles", days[7].getTimezone());
+    }
+
+    @Test
+    public void parsesExtendedHourlyForecast() throws Exception {
+        assertEquals(169, parseFixture("forecast_extended.json").getHourlyForecast().length);
+        assertEquals(30 * 24 + 1, parseFixture("forecast_month_pretty.json").getHourlyForecast().length);
+    }
+
+    @Test
+    public void makesHoursAndDaysOnlyWhenAskedFor() throws Exception {
+        Forecast forecast = parseFixture("forecast_standard.json");
+
+        ForecastSeries hours = forecast.getHourlySeries();
+        assertEquals(49, hours.size());
+        assertEquals(47, hours.getTemperature(0));
+        // made once, then the same object every time.
+        Hour hour = forecast.getHour(5);
+        assertSame(hour, forecast.getHour(5));
+        assertEquals(hours.getTime(5), hour.getTime());
+        assertEquals(hours.getSummary(5), hour.getSummary());
+        assertSame(hour, forecast.getHourlyForecast()[5]);
+        assertEquals(forecast.getDailySeries().getIcon(3), forecast.getDay(3).getIcon());
+    }
+
+    @Test
+    public void appliesTimezoneThatComesAfterTheDataBlocks() throws Exception {
+        String json = "{\"hourly\":{\"data\":[{\"time\":1,\"temperature\":null}]},"
+                + "\"timezone\":\"Europe/Paris\"}";
+
+        Forecast forecast = ForecastParser.parse(new StringReader(json));
+
+        assertNull(forecast.getCurrent());
+        assertEquals("Europe/Paris", forecast.getHourlyForecast()[0].getTimezone());
+        assertEquals(0, forecast.getDailyForecast().length);
+    }
+
+    @Test(expected = IOException.class)
+    public void reportsWrongTypesAsIOException() throws Exception {
+        ForecastParser.parse(new StringReader("{\"currently\":{\"time\":\"soon\"}}"));
+    }
+}
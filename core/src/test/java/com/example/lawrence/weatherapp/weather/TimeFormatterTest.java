@@ -0,0 +1,51 @@
+package com.example.lawrence.weatherapp.weather;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Locale;
+
+import static org.junit.Assert.*;
+
+public class TimeFormatterTest {
+
+    private static final long NOON_UTC = 1455537600L;   // 2016-02-15 12:00 UTC, a Monday.
+
+    private Locale mDefaultLocale;
+
+    // the expected labels are English; the other tests get the default back.
+    @Before
+    public void setUp() {
+        mDefaultLocale = Locale.getDefault();
+        Locale.setDefault(Locale.US);
+    }
+
+    @After
+    public void tearDown() {
+        Locale.setDefault(mDefaultLocale);
+    }
+
+    @Test
+    public void formatsInTheForecastTimezone() {
+        assertEquals("12 PM", TimeFormatter.format(TimeFormatter.HOUR, "UTC", NOON_UTC));
+        assertEquals("4 AM", TimeFormatter.format(TimeFormatter.HOUR, "America/Los_Angeles", NOON_UTC));
+        assertEquals("5:30 PM", TimeFormatter.format(TimeFormatter.TIME, "Asia/Kolkata", NOON_UTC));
+        assertEquals("Monday", TimeFormatter.format(TimeFormatter.DAY_OF_THE_WEEK, "UTC", NOON_UTC));
+    }
+
+    @Test
+    public void reusesFormattersAndLabels() {
+        TimeFormatter formatter = TimeFormatter.get(TimeFormatter.HOUR, "Europe/Paris");
+        assertSame(formatter, TimeFormatter.get(TimeFormatter.HOUR, "Europe/Paris"));
+        assertSame(formatter.format(NOON_UTC), formatter.format(NOON_UTC));
+    }
+
+    @Test
+    public void hourUsesItsTimezone() {
+        Hour hour = new Hour();
+        hour.setTime(NOON_UTC);
+        hour.setTimezone("Asia/Tokyo");
+        assertEquals("9 PM", hour.getHour());
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.lawrence.weatherapp.standin;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+// A forecast request as the stand-in server sees it: /forecast/<api key>/<latitude>,<longitude>
+// with the same query parameters the real service takes (exclude, extend, units, lang).
+public final class ForecastRequest {
+
+    private final String mApiKey;
+    private final double mLatitude;
+    private final double mLongitude;
+    private final Set<String> mExcluded;
+    private final boolean mExtendHourly;
+    private final String mQuery;    // as sent, without the '?'; "" when there was none.
+
+    private ForecastRequest(String apiKey, double latitude, double longitude, Set<String> excluded,
+                            boolean extendHourly, String query) {
+        mApiKey = apiKey;
+        mLatitude = latitude;
+        mLongitude = longitude;
+        mExcluded = excluded;
+        mExtendHourly = extendHourly;
+        mQuery = query;
+    }
+
+    // the request for a path like RecordedRequest.getPath() returns, or null if it isn't one.
+    public static ForecastRequest parse(String path) {
+        int question = path.indexOf('?');
+        String query = question >= 0 ? path.substring(question + 1) : "";
+        String[] segments = (question >= 0 ? path.substring(0, question) : path).split("/");
+        // "", "forecast", key, "lat,lon"
+        if (segments.length != 4 || !"forecast".equals(segments[1])) {
+            return null;
+        }
+        String[] location = segments[3].split(",");
+        if (location.length != 2) {
+            return null;
+        }
+        double latitude;
+        double longitude;
+        try {
+            latitude = Double.parseDouble(location[0]);
+            longitude = Double.parseDouble(location[1]);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+
+        Set<String> excluded = new HashSet<>();
+        boolean extendHourly = false;
+        for (String parameter : query.split("&")) {
+            int equals = parameter.indexOf('=');
+            if (equals < 0) {
+                continue;
+            }
+            String name = parameter.substring(0, equals);
+            String value = decode(parameter.substring(equals + 1));
+            if ("exclude".equals(name)) {
+                excluded.addAll(Arrays.asList(value.split(",")));
+            } else if ("extend".equals(name)) {
+                extendHourly = "hourly".equals(value);
+            }
+        }
+        return new ForecastRequest(segments[2], latitude, longitude,
+                Collections.unmodifiableSet(excluded), extendHourly, query);
+    }
+
+    private static String decode(String value) {
+        try {
+            return URLDecoder.decode(value, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    public String getApiKey() {
+        return mApiKey;
+    }
+
+    public double getLatitude() {
+        return mLatitude;
+    }
+
+    public double getLongitude() {
+        return mLongitude;
+    }
+
+    // the location rounded like ForecastStore keys, e.g. "37.83,-122.42".
+    public String getLocationKey() {
+        return String.format(Locale.US, "%.2f,%.2f", mLatitude, mLongitude);
+    }
+
+    // block names: currently, minutely, hourly, daily, alerts, flags.
+    public boolean isExcluded(String block) {
+        return mExcluded.contains(block);
+    }
+
+    public boolean isHourlyExtended() {
+        return mExtendHourly;
+    }
+
+    public String getQuery() {
+        return mQuery;
+    }
+
+    // which kind of payload this asks for, as recordings are named: "full" (nothing excluded),
+    // "extended" (168 hours) or "trimmed" (some blocks excluded).
+    public String getVariant() {
+        return mExtendHourly ? "extended" : mExcluded.isEmpty() ? "full" : "trimmed";
+    }
+}
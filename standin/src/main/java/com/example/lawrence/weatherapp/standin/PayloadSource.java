@@ -0,0 +1,9 @@
+package com.example.lawrence.weatherapp.standin;
+
+import java.io.IOException;
+
+// Where the stand-in server gets the forecast JSON it answers with.
+public interface PayloadSource {
+    // the payload for the request, or null to answer 404.
+    byte[] payload(ForecastRequest request) throws IOException;
+}
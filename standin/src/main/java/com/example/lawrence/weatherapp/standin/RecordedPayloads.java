@@ -0,0 +1,112 @@
+package com.example.lawrence.weatherapp.standin;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/*
+ * Answers with recorded payloads: <directory>/<latitude>,<longitude>_<variant>.json, e.g.
+ * "37.83,-122.42_trimmed.json" (see ForecastRequest.getVariant()).
+ *
+ * Locations without a recording get the bundled fixture for the variant, the same files the core
+ * unit tests and benchmarks use:
+ *   full      forecast_standard.json
+ *   trimmed   forecast_trimmed.json
+ *   extended  forecast_extended_trimmed.json
+ *
+ * After recordFrom() it records instead: a missing payload is fetched from the real service once,
+ * saved into the directory, and replayed from there afterwards.
+ */
+public class RecordedPayloads implements PayloadSource {
+
+    private final File mDirectory;      // null: fixtures only.
+    private final Map<String, byte[]> mFixtures = new HashMap<>();
+
+    private OkHttpClient mLiveClient;
+    private String mLiveUrl;
+
+    public RecordedPayloads(File directory) {
+        mDirectory = directory;
+    }
+
+    // liveUrl is the real forecast endpoint, e.g. https://api.forecast.io/forecast/
+    public synchronized void recordFrom(OkHttpClient client, String liveUrl, String apiKey) {
+        mLiveClient = client;
+        mLiveUrl = liveUrl + apiKey + "/";
+    }
+
+    @Override
+    public byte[] payload(ForecastRequest request) throws IOException {
+        if (mDirectory != null) {
+            File file = new File(mDirectory, request.getLocationKey() + "_" + request.getVariant() + ".json");
+            if (file.isFile()) {
+                try (InputStream in = new FileInputStream(file)) {
+                    return readAll(in);
+                }
+            }
+            if (mLiveClient != null) {
+                return record(request, file);
+            }
+        }
+        return fixture(request.getVariant());
+    }
+
+    private byte[] record(ForecastRequest request, File file) throws IOException {
+        String url = mLiveUrl + request.getLatitude() + "," + request.getLongitude()
+                + (request.getQuery().isEmpty() ? "" : "?" + request.getQuery());
+        Response response = mLiveClient.newCall(new Request.Builder().url(url).build()).execute();
+        byte[] payload;
+        try {
+            if (!response.isSuccessful()) {
+                throw new IOException("Recording " + request.getLocationKey() + " failed: " + response.code());
+            }
+            payload = response.body().bytes();
+        } finally {
+            response.body().close();
+        }
+
+        mDirectory.mkdirs();
+        try (OutputStream out = new FileOutputStream(file)) {
+            out.write(payload);
+        }
+        return payload;
+    }
+
+    private synchronized byte[] fixture(String variant) throws IOException {
+        byte[] payload = mFixtures.get(variant);
+        if (payload == null) {
+            String name = "full".equals(variant) ? "forecast_standard.json"
+                    : "extended".equals(variant) ? "forecast_extended_trimmed.json" : "forecast_trimmed.json";
+            InputStream in = RecordedPayloads.class.getClassLoader().getResourceAsStream("forecast/" + name);
+            if (in == null) {
+                throw new IOException("Missing fixture " + name);
+            }
+            try {
+                payload = readAll(in);
+            } finally {
+                in.close();
+            }
+            mFixtures.put(variant, payload);
+        }
+        return payload;
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        for (int read; (read = in.read(buffer)) != -1; ) {
+            bytes.write(buffer, 0, read);
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,209 @@
+package com.example.lawrence.weatherapp.standin;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.GZIPOutputStream;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+
+/*
+ * Answers forecast requests on a MockWebServer the way the real service would, from a
+ * PayloadSource, with whatever bad network conditions we want to test against:
+ *
+ *   latency     wait this long (plus up to jitter more) before answering
+ *   throttle    send the body at most this many bytes per second
+ *   errorRate   answer this fraction of requests with errorCode (e.g. 503) instead
+ *   gzip        compress the body when the request says Accept-Encoding: gzip, like the real
+ *               service does (throttle then limits the compressed bytes)
+ *
+ *   MockWebServer server = new MockWebServer();
+ *   server.setDispatcher(new StandInDispatcher.Builder(new SyntheticPayloads())
+ *           .latency(200).jitter(100).errorRate(0.05).build());
+ *   server.start();
+ *   // point ForecastFetchEngine at server.url("/forecast/")
+ *
+ * Latency and errors are drawn from a Random seeded with the seed, the request's path and how
+ * many times that path was asked for before, so a run that sends the same requests sees the same
+ * delays and the same failures, in whatever order they arrive on the connection threads. A retry
+ * draws again; only requests for the same path have to come one after another.
+ *
+ * Each connection is served on its own thread, so the delays overlap like they would for real.
+ */
+public class StandInDispatcher extends Dispatcher {
+
+    private final PayloadSource mSource;
+    private final long mLatencyMillis;
+    private final long mJitterMillis;
+    private final int mBytesPerSecond;      // 0: as fast as possible.
+    private final double mErrorRate;
+    private final int mErrorCode;
+    private final int mMaxAgeSeconds;
+    private final boolean mGzip;
+    private final long mSeed;
+
+    private final AtomicInteger mRequestCount = new AtomicInteger();
+    private final AtomicInteger mErrorCount = new AtomicInteger();
+    private final ConcurrentMap<String, AtomicInteger> mPathCounts = new ConcurrentHashMap<>();
+
+    private StandInDispatcher(Builder builder) {
+        mSource = builder.mSource;
+        mLatencyMillis = builder.mLatencyMillis;
+        mJitterMillis = builder.mJitterMillis;
+        mBytesPerSecond = builder.mBytesPerSecond;
+        mErrorRate = builder.mErrorRate;
+        mErrorCode = builder.mErrorCode;
+        mMaxAgeSeconds = builder.mMaxAgeSeconds;
+        mGzip = builder.mGzip;
+        mSeed = builder.mSeed;
+    }
+
+    @Override
+    public MockResponse dispatch(RecordedRequest recorded) throws InterruptedException {
+        ForecastRequest request = ForecastRequest.parse(recorded.getPath());
+        if (request == null) {
+            return new MockResponse().setResponseCode(404);
+        }
+        mRequestCount.incrementAndGet();
+
+        Random random = randomFor(recorded.getPath());
+        long delay = mLatencyMillis + (mJitterMillis > 0 ? (long) (random.nextDouble() * mJitterMillis) : 0);
+        boolean fail = mErrorRate > 0 && random.nextDouble() < mErrorRate;
+        if (delay > 0) {
+            Thread.sleep(delay);
+        }
+        if (fail) {
+            mErrorCount.incrementAndGet();
+            return new MockResponse().setResponseCode(mErrorCode)
+                    .setBody("{\"code\":" + mErrorCode + ",\"error\":\"stand-in error\"}");
+        }
+
+        byte[] payload;
+        try {
+            payload = mSource.payload(request);
+        } catch (IOException e) {
+            return new MockResponse().setResponseCode(502).setBody(String.valueOf(e.getMessage()));
+        }
+        if (payload == null) {
+            return new MockResponse().setResponseCode(404);
+        }
+
+        MockResponse response = new MockResponse()
+                .setHeader("Content-Type", "application/json; charset=utf-8");
+        String acceptEncoding = recorded.getHeader("Accept-Encoding");
+        if (mGzip && acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            response.setHeader("Content-Encoding", "gzip");
+            payload = gzip(payload);
+        }
+        response.setBody(new Buffer().write(payload));
+        if (mMaxAgeSeconds > 0) {
+            response.setHeader("Cache-Control", "max-age=" + mMaxAgeSeconds);
+        }
+        if (mBytesPerSecond > 0) {
+            response.throttleBody(mBytesPerSecond, 1, TimeUnit.SECONDS);
+        }
+        return response;
+    }
+
+    // the draws for the n-th request for the path, the same whichever thread serves it and
+    // whatever was served before it on other paths.
+    private Random randomFor(String path) {
+        AtomicInteger count = mPathCounts.get(path);
+        if (count == null) {
+            AtomicInteger first = new AtomicInteger();
+            count = mPathCounts.putIfAbsent(path, first);
+            if (count == null) {
+                count = first;
+            }
+        }
+        return new Random(mSeed ^ ((long) path.hashCode() << 32 | count.getAndIncrement()));
+    }
+
+    private static byte[] gzip(byte[] payload) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(payload.length / 4);
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(payload);
+        } catch (IOException e) {
+            throw new AssertionError(e);    // in memory, can't happen.
+        }
+        return bytes.toByteArray();
+    }
+
+    // forecast requests seen so far, and how many of them were answered with errorCode.
+    public int getRequestCount() {
+        return mRequestCount.get();
+    }
+
+    public int getErrorCount() {
+        return mErrorCount.get();
+    }
+
+    public static class Builder {
+        private final PayloadSource mSource;
+        private long mLatencyMillis;
+        private long mJitterMillis;
+        private int mBytesPerSecond;
+        private double mErrorRate;
+        private int mErrorCode = 503;
+        private int mMaxAgeSeconds = 3600;      // what the real service sends.
+        private boolean mGzip;
+        private long mSeed = 1;
+
+        public Builder(PayloadSource source) {
+            mSource = source;
+        }
+
+        public Builder latency(long millis) {
+            mLatencyMillis = millis;
+            return this;
+        }
+
+        public Builder jitter(long millis) {
+            mJitterMillis = millis;
+            return this;
+        }
+
+        public Builder throttle(int bytesPerSecond) {
+            mBytesPerSecond = bytesPerSecond;
+            return this;
+        }
+
+        // rate is between 0 (never) and 1 (every request).
+        public Builder errorRate(double rate) {
+            mErrorRate = rate;
+            return this;
+        }
+
+        public Builder errorCode(int code) {
+            mErrorCode = code;
+            return this;
+        }
+
+        // 0 sends no Cache-Control header.
+        public Builder maxAge(int seconds) {
+            mMaxAgeSeconds = seconds;
+            return this;
+        }
+
+        public Builder gzip(boolean gzip) {
+            mGzip = gzip;
+            return this;
+        }
+
+        public Builder seed(long seed) {
+            mSeed = seed;
+            return this;
+        }
+
+        public StandInDispatcher build() {
+            return new StandInDispatcher(this);
+        }
+    }
+}
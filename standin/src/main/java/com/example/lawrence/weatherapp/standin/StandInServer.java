@@ -0,0 +1,127 @@
+package com.example.lawrence.weatherapp.standin;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.concurrent.CountDownLatch;
+
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockWebServer;
+
+/*
+ * Runs the stand-in forecast server on its own, so the app (or ForecastCli) can be pointed at it
+ * instead of api.forecast.io:
+ *
+ *   ./gradlew :standin:run -PstandinArgs="--synthetic --latency 300 --jitter 200 --error-rate 0.05"
+ *
+ * then set forecast_url=http://10.0.2.2:8080/forecast/ in the app's config.properties (10.0.2.2
+ * is the development machine as seen from the emulator). Any API key is accepted.
+ *
+ *   --port N                 port to listen on (8080)
+ *   --recorded DIR           answer with recordings from DIR, bundled fixtures where there are none
+ *   --record DIR KEY         like --recorded, but fetch what's missing from the real service with
+ *                            the API key KEY and save it into DIR first
+ *   --synthetic              make up a payload for every location (the default)
+ *   --hours N, --days N      synthesized payload size (49 or 169 hours, 8 days)
+ *   --latency MS             delay before every answer
+ *   --jitter MS              up to this much more delay, at random
+ *   --throttle BYTES         body bytes per second
+ *   --error-rate F           fraction of requests answered with an error
+ *   --error-code N           the error status (503)
+ *   --gzip                   gzip the bodies of requests that accept it
+ *   --seed N                 for the random delays and errors
+ */
+public final class StandInServer {
+
+    private static final String FORECAST_URL = "https://api.forecast.io/forecast/";
+
+    private StandInServer() { }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int port = 8080;
+        PayloadSource source = null;
+        SyntheticPayloads synthetic = new SyntheticPayloads();
+        long latency = 0;
+        long jitter = 0;
+        int throttle = 0;
+        double errorRate = 0;
+        int errorCode = 503;
+        boolean gzip = false;
+        long seed = 1;
+
+        for (int i = 0; i < args.length; ++i) {
+            switch (args[i]) {
+                case "--port":
+                    port = Integer.parseInt(args[++i]);
+                    break;
+                case "--recorded":
+                    source = new RecordedPayloads(new File(args[++i]));
+                    break;
+                case "--record":
+                    RecordedPayloads recorded = new RecordedPayloads(new File(args[++i]));
+                    recorded.recordFrom(new OkHttpClient(), FORECAST_URL, args[++i]);
+                    source = recorded;
+                    break;
+                case "--synthetic":
+                    source = synthetic;
+                    break;
+                case "--hours":
+                    synthetic.setHours(Integer.parseInt(args[++i]));
+                    break;
+                case "--days":
+                    synthetic.setDays(Integer.parseInt(args[++i]));
+                    break;
+                case "--latency":
+                    latency = Long.parseLong(args[++i]);
+                    break;
+                case "--jitter":
+                    jitter = Long.parseLong(args[++i]);
+                    break;
+                case "--throttle":
+                    throttle = Integer.parseInt(args[++i]);
+                    break;
+                case "--error-rate":
+                    errorRate = Double.parseDouble(args[++i]);
+                    break;
+                case "--error-code":
+                    errorCode = Integer.parseInt(args[++i]);
+                    break;
+                case "--gzip":
+                    gzip = true;
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(args[++i]);
+                    break;
+                default:
+                    System.err.println("Unknown option " + args[i] + "; see StandInServer for the options.");
+                    System.exit(2);
+            }
+        }
+
+        final StandInDispatcher dispatcher = new StandInDispatcher.Builder(source != null ? source : synthetic)
+                .latency(latency).jitter(jitter).throttle(throttle)
+                .errorRate(errorRate).errorCode(errorCode).gzip(gzip).seed(seed)
+                .build();
+        final MockWebServer server = new MockWebServer();
+        server.setDispatcher(dispatcher);
+        // every interface, so a phone on the same network can reach it too.
+        server.start(InetAddress.getByName("0.0.0.0"), port);
+        System.out.println("Stand-in forecast server at " + server.url("/forecast/"));
+
+        final CountDownLatch stopped = new CountDownLatch(1);
+        Runtime.getRuntime().addShutdownHook(new Thread() {
+            @Override
+            public void run() {
+                System.out.println(dispatcher.getRequestCount() + " requests, "
+                        + dispatcher.getErrorCount() + " answered with errors");
+                try {
+                    server.shutdown();
+                } catch (IOException e) {
+                    // exiting anyway.
+                }
+                stopped.countDown();
+            }
+        });
+        stopped.await();
+    }
+}
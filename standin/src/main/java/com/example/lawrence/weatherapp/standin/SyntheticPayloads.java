@@ -0,0 +1,180 @@
+package com.example.lawrence.weatherapp.standin;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.util.Random;
+
+/*
+ * Makes up a forecast for any latitude/longitude, shaped like the real service's: the same blocks
+ * and fields (so payload sizes are realistic too), honouring exclude= and extend=hourly.
+ *
+ * The same location and start time always give the same payload: the numbers come from a Random
+ * seeded with the rounded location. Temperatures fall off with latitude and follow the time of
+ * day; the timezone is the whole-hour offset nearest the longitude (e.g. "Etc/GMT+8").
+ */
+public class SyntheticPayloads implements PayloadSource {
+
+    private static final String[] ICONS = {"clear-day", "clear-night", "rain", "snow", "sleet", "wind",
+            "fog", "cloudy", "partly-cloudy-day", "partly-cloudy-night"};
+    private static final String[] SUMMARIES = {"Clear", "Clear", "Light Rain", "Snow", "Sleet", "Breezy",
+            "Foggy", "Overcast", "Partly Cloudy", "Partly Cloudy"};
+
+    private static final int HOUR = 3600;
+    private static final int DAY = 24 * HOUR;
+
+    private final long mStartTime;  // seconds since epoch; 0 means the current hour.
+    private int mHours;             // 0: 49, or 169 when extended, like the real service.
+    private int mDays = 8;
+
+    public SyntheticPayloads(long startTime) {
+        mStartTime = startTime;
+    }
+
+    // payloads start at the current hour.
+    public SyntheticPayloads() {
+        this(0);
+    }
+
+    // a fixed number of hours (and days) per payload, to try bigger or smaller payloads.
+    public void setHours(int hours) {
+        mHours = hours;
+    }
+
+    public void setDays(int days) {
+        mDays = days;
+    }
+
+    @Override
+    public byte[] payload(ForecastRequest request) throws IOException {
+        long start = mStartTime != 0 ? mStartTime : System.currentTimeMillis() / 1000 / HOUR * HOUR;
+        Random random = new Random(request.getLocationKey().hashCode());
+        int offset = (int) Math.round(request.getLongitude() / 15);
+        double base = 75 - Math.abs(request.getLatitude()) * 0.8;
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(16 * 1024);
+        JsonWriter writer = new JsonWriter(new OutputStreamWriter(bytes, "UTF-8"));
+        writer.beginObject();
+        writer.name("latitude").value(request.getLatitude());
+        writer.name("longitude").value(request.getLongitude());
+        writer.name("timezone").value(offset == 0 ? "Etc/GMT" : "Etc/GMT" + (offset > 0 ? "-" : "+") + Math.abs(offset));
+        writer.name("offset").value(offset);
+
+        if (!request.isExcluded("currently")) {
+            writer.name("currently");
+            writeHour(writer, random, start + HOUR / 2, temperature(base, start, offset, random));
+        }
+        if (!request.isExcluded("minutely")) {
+            writer.name("minutely").beginObject();
+            writer.name("summary").value("Clear for the hour.");
+            writer.name("icon").value("clear-day");
+            writer.name("data").beginArray();
+            for (int i = 0; i <= 60; ++i) {
+                writer.beginObject();
+                writer.name("time").value(start + i * 60);
+                writer.name("precipIntensity").value(0);
+                writer.name("precipProbability").value(0);
+                writer.endObject();
+            }
+            writer.endArray().endObject();
+        }
+        if (!request.isExcluded("hourly")) {
+            int hours = mHours != 0 ? mHours : request.isHourlyExtended() ? 169 : 49;
+            writer.name("hourly").beginObject();
+            writer.name("summary").value("Mixed conditions throughout the week.");
+            writer.name("icon").value("partly-cloudy-day");
+            writer.name("data").beginArray();
+            for (int i = 0; i < hours; ++i) {
+                long time = start + i * HOUR;
+                writeHour(writer, random, time, temperature(base, time, offset, random));
+            }
+            writer.endArray().endObject();
+        }
+        if (!request.isExcluded("daily")) {
+            writer.name("daily").beginObject();
+            writer.name("summary").value("Mixed conditions throughout the week.");
+            writer.name("icon").value("partly-cloudy-day");
+            writer.name("data").beginArray();
+            long midnight = (start + offset * HOUR) / DAY * DAY - offset * HOUR;
+            for (int i = 0; i < mDays; ++i) {
+                writeDay(writer, random, midnight + i * DAY, base);
+            }
+            writer.endArray().endObject();
+        }
+        if (!request.isExcluded("flags")) {
+            writer.name("flags").beginObject();
+            writer.name("sources").beginArray().value("stand-in").endArray();
+            writer.name("units").value("us");
+            writer.endObject();
+        }
+        writer.endObject();
+        writer.close();
+        return bytes.toByteArray();
+    }
+
+    // warmest mid-afternoon local time, plus some noise.
+    private static double temperature(double base, long time, int offset, Random random) {
+        double localHour = ((time + offset * HOUR) % DAY) / (double) HOUR;
+        return base + 10 * Math.cos((localHour - 15) / 24 * 2 * Math.PI) + random.nextGaussian() * 2;
+    }
+
+    private static void writeHour(JsonWriter writer, Random random, long time, double temperature)
+            throws IOException {
+        int icon = random.nextInt(ICONS.length);
+        writer.beginObject();
+        writer.name("time").value(time);
+        writer.name("summary").value(SUMMARIES[icon]);
+        writer.name("icon").value(ICONS[icon]);
+        writer.name("precipIntensity").value(round(random.nextDouble() * 0.05));
+        writer.name("precipProbability").value(round(random.nextDouble()));
+        writer.name("temperature").value(round(temperature));
+        writer.name("apparentTemperature").value(round(temperature - 1.3));
+        writer.name("dewPoint").value(round(temperature - 10));
+        writer.name("humidity").value(round(0.3 + random.nextDouble() * 0.6));
+        writer.name("windSpeed").value(round(random.nextDouble() * 15));
+        writer.name("windBearing").value(random.nextInt(360));
+        writer.name("visibility").value(round(5 + random.nextDouble() * 5));
+        writer.name("cloudCover").value(round(random.nextDouble()));
+        writer.name("pressure").value(round(1000 + random.nextDouble() * 30));
+        writer.name("ozone").value(round(280 + random.nextDouble() * 40));
+        writer.endObject();
+    }
+
+    private static void writeDay(JsonWriter writer, Random random, long time, double base)
+            throws IOException {
+        int icon = random.nextInt(ICONS.length);
+        double max = base + 10 + random.nextGaussian() * 3;
+        double min = max - 10 - random.nextDouble() * 10;
+        writer.beginObject();
+        writer.name("time").value(time);
+        writer.name("summary").value(SUMMARIES[icon] + " throughout the day.");
+        writer.name("icon").value(ICONS[icon]);
+        writer.name("sunriseTime").value(time + 7 * HOUR);
+        writer.name("sunsetTime").value(time + 18 * HOUR);
+        writer.name("moonPhase").value(round(random.nextDouble()));
+        writer.name("precipIntensity").value(round(random.nextDouble() * 0.05));
+        writer.name("precipIntensityMax").value(round(random.nextDouble() * 0.1));
+        writer.name("precipProbability").value(round(random.nextDouble()));
+        writer.name("temperatureMin").value(round(min));
+        writer.name("temperatureMinTime").value(time + 6 * HOUR);
+        writer.name("temperatureMax").value(round(max));
+        writer.name("temperatureMaxTime").value(time + 15 * HOUR);
+        writer.name("apparentTemperatureMin").value(round(min - 2));
+        writer.name("apparentTemperatureMax").value(round(max));
+        writer.name("dewPoint").value(round(min - 5));
+        writer.name("humidity").value(round(0.3 + random.nextDouble() * 0.6));
+        writer.name("windSpeed").value(round(random.nextDouble() * 15));
+        writer.name("windBearing").value(random.nextInt(360));
+        writer.name("cloudCover").value(round(random.nextDouble()));
+        writer.name("pressure").value(round(1000 + random.nextDouble() * 30));
+        writer.name("ozone").value(round(280 + random.nextDouble() * 40));
+        writer.endObject();
+    }
+
+    // two decimals, like the real payloads.
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+}